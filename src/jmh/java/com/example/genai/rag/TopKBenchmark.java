@@ -0,0 +1,74 @@
+package com.example.genai.rag;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EmbeddingStore#topK} over random unit vectors.
+ * 1M × 384 floats is 1.5 GB off-heap, hence the direct-memory limit; hnsw/sq8/pq
+ * can be passed with {@code -p index=…} but take a while to build at 1M.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx2g", "-XX:MaxDirectMemorySize=3g"})
+public class TopKBenchmark {
+
+    private static final int QUERIES = 64;
+
+    @Param({"10000", "100000", "1000000"})
+    int chunks;
+
+    @Param({"384"})
+    int dim;
+
+    @Param({"flat"})
+    String index;
+
+    @Param({"4"})
+    int k;
+
+    private EmbeddingStore store;
+    private float[][] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = new EmbeddingStore(switch (index) {
+            case "flat" -> new FlatIndex();
+            case "hnsw" -> new HnswIndex(16, 100, 64);
+            case "sq8" -> new QuantizedIndex(QuantizedIndex.Method.SQ8, 10_000, 8, 0.95, 16);
+            case "pq" -> new QuantizedIndex(QuantizedIndex.Method.PQ, 10_000, 8, 0.95, 16);
+            default -> throw new IllegalArgumentException("Unknown index: " + index);
+        });
+
+        Random random = new Random(7);
+        float[] v = new float[dim];
+        for (int i = 0; i < chunks; i++) {
+            gaussian(random, v);
+            store.upsert(new TextChunk("chunk-" + i, "text " + i, v));
+        }
+        queries = new float[QUERIES][dim];
+        for (float[] q : queries) gaussian(random, q);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    private static void gaussian(Random random, float[] v) {
+        for (int i = 0; i < v.length; i++) v[i] = (float) random.nextGaussian();
+    }
+
+    @Benchmark
+    public List<TextChunk> topK() {
+        float[] q = queries[next++ & (QUERIES - 1)];
+        return store.topK(q, k);
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.genai.service;
+
+import com.example.genai.audio.MixKernel;
+import com.example.genai.audio.Mp3Writer;
+import com.example.genai.audio.Pcm16;
+import com.example.genai.audio.PcmBed;
+import com.example.genai.audio.PcmConverter;
+import com.example.genai.audio.SampleSource;
+import com.example.genai.audio.WavWriter;
+import com.example.genai.util.InlineDataReader;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PCM mixing, resampling, WAV writing and MP3 encoding on 30 s of audio (44.1 kHz stereo mix,
+ * 24 kHz mono Gemini TTS, 24 kHz stereo delivery mix).
+ * Mixes and WAVs go to files in the temp dir, so they include the (page-cache) write.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class AudioBenchmark {
+
+    private static final int SECONDS = 30;
+    private static final AudioFormat STEREO_44K =
+            new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 44100f, 16, 2, 4, 44100f, false);
+
+    private static final AudioFormat STEREO_24K =
+            new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, 24000f, 16, 2, 4, 24000f, false);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AudioMixService mixService = new AudioMixService(
+            System.getProperty("java.io.tmpdir"), 16, true, 0, 0.5, 0.5, 1.5, 1.5, -35, 6, 40, 400, "mp3", 64);
+
+    private byte[] speech;
+    private PcmBed bed;
+    private byte[] geminiJson;
+    private Path geminiTarget;
+    private byte[] deliveryMix;
+    private Path mp3Target;
+    private final short[] resampled = new short[8192];
+    private Path mixTarget;
+
+    @Setup
+    public void setup() throws Exception {
+        mixTarget = Files.createTempDirectory("audio-bench").resolve("mixed.wav");
+        Random random = new Random(3);
+        speech = noise(random, 44100 * 4 * SECONDS);
+        bed = PcmBed.of(noise(random, 44100 * 4 * SECONDS), STEREO_44K);
+        geminiJson = ("{\"candidates\":[{\"content\":{\"parts\":[{\"inlineData\":{\"mimeType\":\"audio/L16;codec=pcm;rate=24000\",\"data\":\""
+                + Base64.getEncoder().encodeToString(noise(random, 24000 * 2 * SECONDS))
+                + "\"}}],\"role\":\"model\"},\"finishReason\":\"STOP\",\"index\":0}]}").getBytes(StandardCharsets.US_ASCII);
+        geminiTarget = mixTarget.resolveSibling("gemini.wav");
+        deliveryMix = noise(random, 24000 * 4 * SECONDS);
+        mp3Target = mixTarget.resolveSibling("mixed.mp3");
+    }
+
+    private static byte[] noise(Random random, int bytes) {
+        byte[] pcm = new byte[bytes];
+        random.nextBytes(pcm);
+        return pcm;
+    }
+
+    @Benchmark
+    public long mixPcmStreams() throws Exception {
+        try (AudioInputStream s = stream(speech);
+             WavWriter out = WavWriter.create(mixTarget, STEREO_44K)) {
+            mixService.mixPcmStreams(SampleSource.of(s), bed, out);
+            out.finish();
+            return out.dataBytes();
+        }
+    }
+
+    /** 30 s of the 44.1 kHz stereo bed resampled to 24 kHz, as BedCache does for Gemini narration. */
+    @Benchmark
+    public long resampleBed() throws Exception {
+        SampleSource pcm = PcmConverter.convert(bed.cursor(false), 24000, 2);
+        long samples = 0;
+        int n;
+        while ((n = pcm.read(resampled, 0, resampled.length)) > 0) samples += n;
+        return samples;
+    }
+
+    /** A Gemini TTS response (base64 PCM in JSON) decoded straight into a WAV file. */
+    @Benchmark
+    public long geminiToWav() throws Exception {
+        try (WavWriter out = WavWriter.create(geminiTarget, 24000, 1, 16)) {
+            InlineDataReader.copyInlineData(new ByteArrayInputStream(geminiJson), out.stream());
+            out.finish();
+            return out.dataBytes();
+        }
+    }
+
+    /** A Gemini-rate stereo mix encoded to 64 kbps MP3, as stored for delivery (noise: LAME's worst case). */
+    @Benchmark
+    @Warmup(iterations = 5, time = 2)  // ~200 ms per op: three 1 s rounds left the first measurement twice as slow
+    public long encodeMp3() throws Exception {
+        try (Mp3Writer out = Mp3Writer.create(mp3Target, STEREO_24K, 64)) {
+            for (int off = 0; off < deliveryMix.length; off += 64 * 1024) {
+                out.write(deliveryMix, off, Math.min(64 * 1024, deliveryMix.length - off));
+            }
+            return Files.size(out.finish());
+        }
+    }
+
+    /** What GeminiAudioService did before: JsonNode tree, whole-array base64 decode, WAV assembled in memory, Files.write. */
+    @Benchmark
+    public long legacyGeminiToWav() throws Exception {
+        JsonNode json = MAPPER.readTree(geminiJson);
+        byte[] pcm = Base64.getDecoder().decode(json.at("/candidates/0/content/parts/0/inlineData/data").asText());
+        ByteArrayOutputStream wav = new ByteArrayOutputStream();
+        wav.write(WavWriter.header(24000, 1, 16, pcm.length).array());
+        wav.write(pcm);
+        Files.write(geminiTarget, wav.toByteArray());
+        return pcm.length;
+    }
+
+    /** 5 minutes of 44.1 kHz stereo, mixed in 32 KB blocks in memory: no stream or file overhead. */
+    @State(Scope.Thread)
+    public static class FiveMinutes {
+        static final int BLOCK = 32 * 1024;
+        byte[] speech;
+        byte[] background;
+        byte[] out;
+        final short[] a = new short[BLOCK / 2];
+        final short[] b = new short[BLOCK / 2];
+
+        @Setup
+        public void setup() {
+            Random random = new Random(5);
+            speech = noise(random, 44100 * 4 * 300);
+            background = noise(random, 44100 * 4 * 300);
+            out = new byte[speech.length];
+        }
+    }
+
+    @Benchmark
+    public byte[] mixKernel(FiveMinutes m) {
+        int bgGain = MixKernel.gain(0.5);
+        for (int off = 0; off < m.speech.length; off += FiveMinutes.BLOCK) {
+            int samples = Math.min(FiveMinutes.BLOCK, m.speech.length - off) / 2;
+            Pcm16.toShorts(m.speech, off, m.a, samples);
+            Pcm16.toShorts(m.background, off, m.b, samples);
+            MixKernel.mix(m.a, MixKernel.UNITY, m.b, bgGain, m.a, samples);
+            Pcm16.toBytes(m.a, samples, m.out, off);
+        }
+        return m.out;
+    }
+
+    /** The per-byte loop mixPcmStreams used before MixKernel. */
+    @Benchmark
+    public byte[] legacyMixLoop(FiveMinutes m) {
+        byte[] s = m.speech, bg = m.background, out = m.out;
+        for (int i = 0; i < s.length; i += 2) {
+            short speechSample = (short) ((s[i + 1] << 8) | (s[i] & 0xFF));
+            short bgSample = (short) ((bg[i + 1] << 8) | (bg[i] & 0xFF));
+            int mixed = (int) speechSample + (int) (bgSample * 0.5);
+            if (mixed > Short.MAX_VALUE) mixed = Short.MAX_VALUE;
+            if (mixed < Short.MIN_VALUE) mixed = Short.MIN_VALUE;
+            out[i] = (byte) (mixed & 0xFF);
+            out[i + 1] = (byte) ((mixed >> 8) & 0xFF);
+        }
+        return out;
+    }
+
+    private static AudioInputStream stream(byte[] pcm) {
+        return new AudioInputStream(new ByteArrayInputStream(pcm), STEREO_44K, pcm.length / STEREO_44K.getFrameSize());
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.genai.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** {@link Cosine#similarity} at common embedding sizes; add {@code -jvmArgsAppend -Dgenai.simd=false} for the scalar path. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class CosineBenchmark {
+
+    @Param({"384", "1536"})
+    int dim;
+
+    private float[] a;
+    private float[] b;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        a = new float[dim];
+        b = new float[dim];
+        for (int i = 0; i < dim; i++) {
+            a[i] = (float) random.nextGaussian();
+            b[i] = (float) random.nextGaussian();
+        }
+    }
+
+    @Benchmark
+    public float similarity() {
+        return Cosine.similarity(a, b);
+    }
+}
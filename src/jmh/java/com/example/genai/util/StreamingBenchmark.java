@@ -0,0 +1,153 @@
+package com.example.genai.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chat-stream decoding, per token: one event's delta extraction, and a whole
+ * 256-token SSE stream cut into 1460-byte direct buffers (what Netty hands us).
+ * The {@code legacy*} methods are the pre-SseDecoder code, kept as a baseline.
+ * Run with {@code -prof gc} to see the allocation side.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class StreamingBenchmark {
+
+    static final int TOKENS = 256;
+    private static final int PACKET = 1460;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private String event;
+    private byte[] eventBytes;
+    private ByteBuffer[] packets;
+
+    private final DeltaContentReader reader = new DeltaContentReader();
+
+    @Setup
+    public void setup() throws Exception {
+        event = chunk(" token");
+        eventBytes = event.getBytes(StandardCharsets.UTF_8);
+
+        StringBuilder sse = new StringBuilder();
+        String[] words = {" The", " quick", " brown", " fox", " jumps", " über", " the", " lazy", " dog", "\n\n"};
+        for (int i = 0; i < TOKENS; i++) {
+            sse.append("data: ").append(chunk(words[i % words.length])).append("\n\n");
+        }
+        sse.append("data: [DONE]\n\n");
+
+        byte[] bytes = sse.toString().getBytes(StandardCharsets.UTF_8);
+        List<ByteBuffer> out = new ArrayList<>();
+        for (int off = 0; off < bytes.length; off += PACKET) {
+            int n = Math.min(PACKET, bytes.length - off);
+            out.add(ByteBuffer.allocateDirect(n).put(bytes, off, n).flip());
+        }
+        packets = out.toArray(ByteBuffer[]::new);
+    }
+
+    private static String chunk(String content) throws Exception {
+        return "{\"id\":\"chatcmpl-AbCdEf0123456789\",\"object\":\"chat.completion.chunk\",\"created\":1730000000,"
+                + "\"model\":\"gpt-4o-mini-2024-07-18\",\"system_fingerprint\":\"fp_0ba0d124f1\",\"choices\":[{\"index\":0,"
+                + "\"delta\":{\"content\":" + MAPPER.writeValueAsString(content) + "},\"logprobs\":null,\"finish_reason\":null}]}";
+    }
+
+    // ---------- one event ----------
+
+    @Benchmark
+    public List<String> extractDeltaContent() {
+        return StreamJsonParsers.extractDeltaContent(event);
+    }
+
+    @Benchmark
+    public String deltaContentReader() {
+        return reader.read(eventBytes, 0, eventBytes.length);
+    }
+
+    @Benchmark
+    public List<String> legacyExtractDeltaContent() {
+        try {
+            JsonNode root = MAPPER.readTree(event);
+            JsonNode choices = root.get("choices");
+            if (choices == null || !choices.isArray() || choices.isEmpty()) return List.of();
+            JsonNode delta = choices.get(0).get("delta");
+            if (delta == null) return List.of();
+            JsonNode content = delta.get("content");
+            if (content == null || content.isNull()) return List.of();
+            String text = content.asText();
+            return (text == null || text.isBlank()) ? List.of() : List.of(text);
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+
+    // ---------- whole stream ----------
+
+    @Benchmark
+    @OperationsPerInvocation(TOKENS)
+    public void sseDecoder(Blackhole bh) {
+        SseDecoder sse = new SseDecoder();
+        DeltaContentReader deltas = new DeltaContentReader();
+        SseDecoder.DataListener listener = (data, off, len) -> {
+            if (!DeltaContentReader.isDone(data, off, len)) bh.consume(deltas.read(data, off, len));
+        };
+        for (ByteBuffer packet : packets) {
+            sse.feed(packet, listener);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TOKENS)
+    public void legacySseFraming(Blackhole bh) {
+        StringBuilder buf = new StringBuilder();
+        for (ByteBuffer packet : packets) {
+            byte[] bytes = new byte[packet.remaining()];
+            packet.duplicate().get(bytes);
+            buf.append(new String(bytes, StandardCharsets.UTF_8));
+
+            while (true) {
+                int idxLfLf = buf.indexOf("\n\n");
+                int idxCrLfCrLf = buf.indexOf("\r\n\r\n");
+                int idx;
+                int delimLen;
+                if (idxLfLf >= 0 && (idxCrLfCrLf < 0 || idxLfLf < idxCrLfCrLf)) {
+                    idx = idxLfLf;
+                    delimLen = 2;
+                } else if (idxCrLfCrLf >= 0) {
+                    idx = idxCrLfCrLf;
+                    delimLen = 4;
+                } else {
+                    break;
+                }
+                String eventBlock = buf.substring(0, idx);
+                buf.delete(0, idx + delimLen);
+                for (String line : eventBlock.split("\\r?\\n")) {
+                    line = line.trim();
+                    if (!line.startsWith("data:")) continue;
+                    String data = line.substring("data:".length()).trim();
+                    if (data.isEmpty() || "[DONE]".equals(data)) continue;
+                    bh.consume(legacyExtract(data));
+                }
+            }
+        }
+    }
+
+    private static List<String> legacyExtract(String json) {
+        try {
+            JsonNode content = MAPPER.readTree(json).get("choices").get(0).get("delta").get("content");
+            return content == null ? List.of() : List.of(content.asText());
+        } catch (Exception e) {
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.genai.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The format narrations are stored and served in: plain WAV, or MP3 at a constant
+ * {@code bitrateKbps} (64 kbps is ~12× smaller than 24 kHz stereo WAV).
+ */
+public record AudioDelivery(Format format, int bitrateKbps) {
+
+    public enum Format {
+        WAV("wav", "audio/wav"),
+        MP3("mp3", "audio/mpeg");
+
+        private final String extension;
+        private final String mediaType;
+
+        Format(String extension, String mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public String mediaType() {
+            return mediaType;
+        }
+
+        /** By file extension; WAV for anything unknown. */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            return name.endsWith("." + MP3.extension) ? MP3 : WAV;
+        }
+    }
+
+    public String extension() {
+        return format.extension();
+    }
+
+    /**
+     * A sink writing {@code pcm} (16-bit little-endian) to {@code target}, in the format its
+     * extension names, so callers asking for a {@code .wav} still get one.
+     */
+    public PcmSink open(Path target, AudioFormat pcm) throws IOException {
+        return switch (Format.of(target)) {
+            case WAV -> WavWriter.create(target, pcm);
+            case MP3 -> Mp3Writer.create(target, pcm, bitrateKbps);
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.genai.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decoded background beds, one per source file × sample rate × channel count.
+ *
+ * A bed is decoded once into a PCM file in the spill directory, named after the
+ * source's content hash, so later runs – and restarts that re-extract the same MP3
+ * to a new temp file – map it instead of decoding again. Beds of at least
+ * {@code mmapThreshold} bytes stay memory-mapped read-only; smaller ones are
+ * loaded onto the heap. Concurrent requests for a bed share a single decode;
+ * {@link #stats()} tells how often one actually ran.
+ */
+public final class BedCache {
+
+    private final Path spillDir;
+    private final long mmapThreshold;
+    private final Map<String, CompletableFuture<PcmBed>> beds = new ConcurrentHashMap<>();
+    private final AtomicLong decodes = new AtomicLong();
+    private final AtomicLong decodeMillis = new AtomicLong();
+    private final AtomicLong spillReuses = new AtomicLong();
+
+    public BedCache(Path spillDir, long mmapThreshold) {
+        this.spillDir = spillDir;
+        this.mmapThreshold = mmapThreshold;
+    }
+
+    /** The bed decoded to 16-bit little-endian PCM at {@code rate} / {@code channels}. */
+    public PcmBed get(Path source, int rate, int channels) throws IOException, UnsupportedAudioFileException {
+        String key = source.toAbsolutePath().normalize() + "|" + Files.getLastModifiedTime(source).toMillis()
+                + "|" + Files.size(source) + "|" + rate + "|" + channels;
+
+        CompletableFuture<PcmBed> mine = new CompletableFuture<>();
+        CompletableFuture<PcmBed> existing = beds.putIfAbsent(key, mine);
+        if (existing == null) {
+            try {
+                mine.complete(load(source, format(rate, channels)));
+            } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+                beds.remove(key);  // let a later call retry
+                mine.completeExceptionally(e);
+            }
+        }
+
+        try {
+            return (existing != null ? existing : mine).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for bed " + source, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof UnsupportedAudioFileException ua) throw ua;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    public int size() {
+        return beds.size();
+    }
+
+    public BedStats stats() {
+        return new BedStats(beds.size(), decodes.get(), decodeMillis.get(), spillReuses.get());
+    }
+
+    public static AudioFormat format(float rate, int channels) {
+        return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, rate, 16, channels, channels * 2, rate, false);
+    }
+
+    private PcmBed load(Path source, AudioFormat format) throws IOException, UnsupportedAudioFileException {
+        Files.createDirectories(spillDir);
+        Path pcm = spillDir.resolve("bed-" + contentHash(source) + "-" + Math.round(format.getSampleRate())
+                + "-" + format.getChannels() + ".pcm");
+
+        if (Files.exists(pcm)) {
+            spillReuses.incrementAndGet();
+        } else {
+            long start = System.currentTimeMillis();
+            decode(source, format, pcm);
+            decodes.incrementAndGet();
+            decodeMillis.addAndGet(System.currentTimeMillis() - start);
+        }
+
+        long size = Files.size(pcm);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Decoded bed too large (" + size + " bytes): " + source);
+        }
+        if (size < mmapThreshold) {
+            return new PcmBed(ByteBuffer.wrap(Files.readAllBytes(pcm)), format);
+        }
+        try (FileChannel ch = FileChannel.open(pcm, StandardOpenOption.READ)) {
+            return new PcmBed(ch.map(FileChannel.MapMode.READ_ONLY, 0, size), format);
+        }
+    }
+
+    private static void decode(Path source, AudioFormat format, Path target) throws IOException, UnsupportedAudioFileException {
+        Path temp = WavWriter.tempFileFor(target);
+        try (AudioInputStream encoded = AudioSystem.getAudioInputStream(source.toFile());
+             OutputStream out = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            SampleSource pcm = PcmConverter.convert(SampleSource.decode(encoded),
+                    Math.round(format.getSampleRate()), format.getChannels());
+            short[] block = new short[PcmConverter.BLOCK_FRAMES * format.getChannels()];
+            byte[] bytes = new byte[block.length * 2];
+            int n;
+            while ((n = pcm.read(block, 0, block.length)) > 0) {
+                Pcm16.toBytes(block, n, bytes, 0);
+                out.write(bytes, 0, n * 2);
+            }
+        } catch (IOException | UnsupportedAudioFileException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static String contentHash(Path source) throws IOException {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(Files.newInputStream(source), sha)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(sha.digest(), 0, 12);
+    }
+
+    /**
+     * @param beds        beds held (or being decoded)
+     * @param decodes     beds decoded from their source since startup
+     * @param decodeMillis time spent in those decodes
+     * @param spillReuses beds mapped from a PCM file an earlier run or instance left behind
+     */
+    public record BedStats(int beds, long decodes, long decodeMillis, long spillReuses) {}
+}
@@ -0,0 +1,37 @@
+package com.example.genai.audio;
+
+/**
+ * Mono ↔ stereo on interleaved 16-bit frames: mono is copied to both sides,
+ * stereo is averaged down. Equal counts pass through.
+ */
+public final class ChannelMapper {
+
+    private ChannelMapper() {}
+
+    public static boolean supports(int from, int to) {
+        return from == to || (from == 1 && to == 2) || (from == 2 && to == 1);
+    }
+
+    /**
+     * Maps {@code frames} frames from {@code src[srcOffset…]} to {@code dst[dstOffset…]}.
+     * {@code src} and {@code dst} may be the same array when the offsets are equal.
+     */
+    public static void map(short[] src, int srcOffset, int from, short[] dst, int dstOffset, int to, int frames) {
+        if (from == to) {
+            System.arraycopy(src, srcOffset, dst, dstOffset, frames * from);
+        } else if (from == 1 && to == 2) {
+            // back to front, so an in-place widen is safe
+            for (int f = frames - 1; f >= 0; f--) {
+                short s = src[srcOffset + f];
+                dst[dstOffset + 2 * f] = s;
+                dst[dstOffset + 2 * f + 1] = s;
+            }
+        } else if (from == 2 && to == 1) {
+            for (int f = 0; f < frames; f++) {
+                dst[dstOffset + f] = (short) ((src[srcOffset + 2 * f] + src[srcOffset + 2 * f + 1]) >> 1);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported channel mapping " + from + " → " + to);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.genai.audio;
+
+/**
+ * Lowers {@link MixTrack#ducked() ducked} tracks (music) by {@code depthDb} while the
+ * {@link MixTrack#key() key} tracks (speech) are louder than {@code thresholdDb} RMS,
+ * moving into the duck over {@code attackMs} and back out over {@code releaseMs}.
+ */
+public record Ducking(double thresholdDb, double depthDb, double attackMs, double releaseMs) {
+
+    public static final Ducking OFF = new Ducking(0, 0, 0, 0);
+
+    public boolean enabled() {
+        return depthDb > 0;
+    }
+}
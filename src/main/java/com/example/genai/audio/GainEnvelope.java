@@ -0,0 +1,54 @@
+package com.example.genai.audio;
+
+import java.util.Arrays;
+
+/**
+ * Piecewise-linear gain over time: (seconds, linear gain) breakpoints, held flat
+ * before the first and after the last. Immutable; {@link #then} returns a copy.
+ */
+public final class GainEnvelope {
+
+    private final double[] seconds;
+    private final double[] gains;
+
+    private GainEnvelope(double[] seconds, double[] gains) {
+        this.seconds = seconds;
+        this.gains = gains;
+    }
+
+    public static GainEnvelope constant(double gain) {
+        return new GainEnvelope(new double[]{0}, new double[]{gain});
+    }
+
+    /** Adds a breakpoint: the gain ramps linearly from the previous one to {@code gain} at {@code atSeconds}. */
+    public GainEnvelope then(double atSeconds, double gain) {
+        int n = seconds.length;
+        if (atSeconds < seconds[n - 1]) {
+            throw new IllegalArgumentException("Envelope points must be in time order: " + atSeconds + " < " + seconds[n - 1]);
+        }
+        double[] s = Arrays.copyOf(seconds, n + 1);
+        double[] g = Arrays.copyOf(gains, n + 1);
+        s[n] = atSeconds;
+        g[n] = gain;
+        return new GainEnvelope(s, g);
+    }
+
+    public boolean isConstant() {
+        for (double g : gains) {
+            if (g != gains[0]) return false;
+        }
+        return true;
+    }
+
+    /** Linear gain at {@code t} seconds into the track. */
+    public double at(double t) {
+        if (t <= seconds[0]) return gains[0];
+        int last = seconds.length - 1;
+        if (t >= seconds[last]) return gains[last];
+        int i = Arrays.binarySearch(seconds, t);
+        if (i >= 0) return gains[i];
+        int hi = -i - 1, lo = hi - 1;
+        double span = seconds[hi] - seconds[lo];
+        return span == 0 ? gains[hi] : gains[lo] + (gains[hi] - gains[lo]) * (t - seconds[lo]) / span;
+    }
+}
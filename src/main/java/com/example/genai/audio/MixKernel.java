@@ -0,0 +1,106 @@
+package com.example.genai.audio;
+
+import java.util.Arrays;
+
+/**
+ * Sample-mixing primitives on {@code short[]} blocks with fixed-point gains.
+ *
+ * Gains are Q14 ints ({@link #UNITY} = 1.0, at most {@link #MAX_GAIN} ≈ 2.0), so
+ * {@code sample × gain} always fits an int. Two tracks mix directly with {@link #mix};
+ * more tracks sum into an int accumulator ({@link #accumulate}) and are clipped once
+ * at the end ({@link #saturate}), so intermediate sums never clip. Per-frame gain
+ * curves (fades, ducking) use the {@code int[] frameGains} overload.
+ *
+ * The block loops use the Vector API under the same switch as {@code VectorMath}
+ * ({@code --add-modules jdk.incubator.vector}, {@code -Dgenai.simd=false} to opt out).
+ */
+public final class MixKernel {
+
+    public static final int SHIFT = 14;
+    public static final int UNITY = 1 << SHIFT;
+    public static final int MAX_GAIN = 2 * UNITY - 1;
+    private static final int HALF = 1 << (SHIFT - 1);
+
+    private static final MixOps OPS = load();
+
+    private MixKernel() {}
+
+    /** Linear gain → Q14, clamped to [0, MAX_GAIN]. */
+    public static int gain(double linear) {
+        return (int) Math.max(0, Math.min(MAX_GAIN, Math.round(linear * UNITY)));
+    }
+
+    public static int gainDb(double db) {
+        return gain(Math.pow(10, db / 20));
+    }
+
+    public static String implementation() {
+        return OPS.describe();
+    }
+
+    /** {@code out = sat(a·gainA + b·gainB)}; {@code out} may be {@code a} or {@code b}. */
+    public static void mix(short[] a, int gainA, short[] b, int gainB, short[] out, int samples) {
+        OPS.mix(a, gainA, b, gainB, out, samples);
+    }
+
+    /** {@code acc += src·gain}. */
+    public static void accumulate(short[] src, int gain, int[] acc, int samples) {
+        if (gain != 0) OPS.accumulate(src, gain, acc, samples);
+    }
+
+    /** {@code acc += src·frameGains[frame]}, one gain per frame of interleaved {@code channels}. */
+    public static void accumulate(short[] src, int channels, int[] frameGains, int[] acc, int frames) {
+        if (channels == 2) {
+            for (int f = 0, i = 0; f < frames; f++, i += 2) {
+                int g = frameGains[f];
+                acc[i] += (src[i] * g + HALF) >> SHIFT;
+                acc[i + 1] += (src[i + 1] * g + HALF) >> SHIFT;
+            }
+            return;
+        }
+        for (int f = 0, i = 0; f < frames; f++) {
+            int g = frameGains[f];
+            for (int c = 0; c < channels; c++, i++) {
+                acc[i] += (src[i] * g + HALF) >> SHIFT;
+            }
+        }
+    }
+
+    /** {@code out = sat(acc)}, clipping to the 16-bit range. */
+    public static void saturate(int[] acc, short[] out, int samples) {
+        OPS.saturate(acc, out, samples);
+    }
+
+    /** Fills {@code frameGains[0…frames)} with a linear ramp from {@code from} towards {@code to}. */
+    public static void ramp(int[] frameGains, int frames, int from, int to) {
+        ramp(frameGains, 0, frames, from, to);
+    }
+
+    /** Fills {@code frameGains[offset…offset+frames)} with a linear ramp from {@code from} towards {@code to}. */
+    public static void ramp(int[] frameGains, int offset, int frames, int from, int to) {
+        if (from == to) {
+            Arrays.fill(frameGains, offset, offset + frames, from);
+            return;
+        }
+        // Q14 gain with 15 more fraction bits stays below 2^30
+        int g = from << 15;
+        int step = ((to - from) << 15) / Math.max(1, frames);
+        for (int f = offset, last = offset + frames; f < last; f++, g += step) {
+            frameGains[f] = g >> 15;
+        }
+    }
+
+    private static MixOps load() {
+        boolean enabled = Boolean.parseBoolean(System.getProperty("genai.simd", "true"));
+        if (enabled && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // reflective so this class never links against the incubator module itself
+                return (MixOps) Class.forName("com.example.genai.audio.SimdMixOps")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                System.err.println("Vector API unavailable, using scalar mixing – " + e);
+            }
+        }
+        return new ScalarMixOps();
+    }
+}
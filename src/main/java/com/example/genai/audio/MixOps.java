@@ -0,0 +1,13 @@
+package com.example.genai.audio;
+
+/** Block mixing loops behind {@link MixKernel}; gains are Q14, lengths count samples. */
+interface MixOps {
+
+    String describe();
+
+    void mix(short[] a, int gainA, short[] b, int gainB, short[] out, int samples);
+
+    void accumulate(short[] src, int gain, int[] acc, int samples);
+
+    void saturate(int[] acc, short[] out, int samples);
+}
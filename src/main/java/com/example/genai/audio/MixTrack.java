@@ -0,0 +1,51 @@
+package com.example.genai.audio;
+
+/**
+ * One input of a {@link MultiTrackMixer} mix: where it starts, its gain envelope
+ * (relative to its own start), fade in / out, and its part in ducking. Every
+ * method returns a copy, so a track reads like a small builder:
+ * {@code MixTrack.of("music", bed.cursor(true)).gain(0.5).fades(1, 2).asDucked()}.
+ */
+public record MixTrack(String name,
+                       SampleSource source,
+                       double offsetSeconds,
+                       GainEnvelope envelope,
+                       double fadeInSeconds,
+                       double fadeOutSeconds,
+                       boolean key,
+                       boolean ducked) {
+
+    public static MixTrack of(String name, SampleSource source) {
+        return new MixTrack(name, source, 0, GainEnvelope.constant(1), 0, 0, false, false);
+    }
+
+    public MixTrack offset(double seconds) {
+        return new MixTrack(name, source, seconds, envelope, fadeInSeconds, fadeOutSeconds, key, ducked);
+    }
+
+    public MixTrack gain(double linear) {
+        return envelope(GainEnvelope.constant(linear));
+    }
+
+    public MixTrack envelope(GainEnvelope envelope) {
+        return new MixTrack(name, source, offsetSeconds, envelope, fadeInSeconds, fadeOutSeconds, key, ducked);
+    }
+
+    /**
+     * Linear fades at the track's start and end. A track that ends with the mix
+     * (a looping bed) fades out over the last {@code outSeconds} of the mix.
+     */
+    public MixTrack fades(double inSeconds, double outSeconds) {
+        return new MixTrack(name, source, offsetSeconds, envelope, inSeconds, outSeconds, key, ducked);
+    }
+
+    /** Speech: its loudness drives the ducking of the {@link #ducked()} tracks. */
+    public MixTrack asKey() {
+        return new MixTrack(name, source, offsetSeconds, envelope, fadeInSeconds, fadeOutSeconds, true, ducked);
+    }
+
+    /** Music: lowered while the key tracks are loud. */
+    public MixTrack asDucked() {
+        return new MixTrack(name, source, offsetSeconds, envelope, fadeInSeconds, fadeOutSeconds, key, true);
+    }
+}
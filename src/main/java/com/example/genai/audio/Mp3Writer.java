@@ -0,0 +1,147 @@
+package com.example.genai.audio;
+
+import de.sciss.jump3r.lowlevel.LameEncoder;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.*;
+
+/**
+ * Encodes 16-bit little-endian PCM to a constant-bitrate MP3 file as it arrives
+ * (LAME, via the pure-Java jump3r port). CBR keeps byte offsets proportional to time,
+ * so HTTP range requests seek to the right place without an index.
+ *
+ * Like {@link WavWriter}, the file is written to a temp file next to the target and
+ * moved into place by {@link #finish()}; {@link #close()} without it discards it.
+ */
+public final class Mp3Writer implements PcmSink {
+
+    private static final int FILE_BUFFER = 64 * 1024;
+
+    private final Path target;
+    private final Path temp;
+    private final OutputStream file;
+    private final LameEncoder encoder;
+    private final int sampleRate;
+    private final int channels;
+
+    private final byte[] pcm;
+    private final byte[] mp3;
+    private int filled;
+    private long pcmBytes;
+
+    private boolean finished;
+    private OutputStream stream;
+
+    private Mp3Writer(Path target, AudioFormat format, int bitrateKbps) throws IOException {
+        if (!AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding()) || format.getSampleSizeInBits() != 16
+                || format.isBigEndian() || format.getChannels() < 1 || format.getChannels() > 2) {
+            throw new IllegalArgumentException("MP3 needs 16-bit little-endian mono/stereo PCM, got " + format);
+        }
+        this.target = target;
+        this.sampleRate = Math.round(format.getSampleRate());
+        this.channels = format.getChannels();
+        this.encoder = new LameEncoder(format, bitrateKbps,
+                channels == 1 ? LameEncoder.CHANNEL_MODE_MONO : LameEncoder.CHANNEL_MODE_JOINT_STEREO,
+                LameEncoder.QUALITY_MIDDLE, false);
+        this.pcm = new byte[encoder.getPCMBufferSize()];
+        this.mp3 = new byte[encoder.getMP3BufferSize()];
+
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        this.temp = WavWriter.tempFileFor(target);
+        this.file = new BufferedOutputStream(Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), FILE_BUFFER);
+    }
+
+    public static Mp3Writer create(Path target, AudioFormat format, int bitrateKbps) throws IOException {
+        return new Mp3Writer(target, format, bitrateKbps);
+    }
+
+    @Override
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int channels() {
+        return channels;
+    }
+
+    /** The bitrate the encoder settled on (LAME snaps to the nearest legal one for the rate). */
+    public int bitrateKbps() {
+        return encoder.getEffectiveBitRate();
+    }
+
+    @Override
+    public void write(byte[] src, int offset, int length) throws IOException {
+        pcmBytes += length;
+        while (length > 0) {
+            int n = Math.min(length, pcm.length - filled);
+            System.arraycopy(src, offset, pcm, filled, n);
+            filled += n;
+            offset += n;
+            length -= n;
+            if (filled == pcm.length) encode();
+        }
+    }
+
+    /** Writes go straight into the encoder's input buffer, so the view needs no buffer of its own. */
+    @Override
+    public OutputStream stream() {
+        if (stream == null) {
+            stream = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    Mp3Writer.this.write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    Mp3Writer.this.write(b, off, len);
+                }
+            };
+        }
+        return stream;
+    }
+
+    /** Encodes what is buffered, flushes the encoder and moves the file into place. */
+    @Override
+    public Path finish() throws IOException {
+        if (finished) return target;
+        int frameSize = channels * 2;
+        if (pcmBytes % frameSize != 0) {
+            throw new IOException("PCM ends mid-frame (" + pcmBytes + " bytes, frame " + frameSize + ")");
+        }
+        if (filled > 0) encode();
+        file.write(mp3, 0, encoder.encodeFinish(mp3));
+        encoder.close();
+        file.close();
+
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finished = true;
+        return target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (finished) return;
+        try {
+            encoder.close();
+            file.close();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void encode() throws IOException {
+        int n = encoder.encodeBuffer(pcm, 0, filled, mp3);
+        file.write(mp3, 0, n);
+        filled = 0;
+    }
+}
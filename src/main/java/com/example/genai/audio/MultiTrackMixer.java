@@ -0,0 +1,258 @@
+package com.example.genai.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mixes any number of {@link MixTrack}s into a {@link PcmSink} in one streaming
+ * pass of {@value #BLOCK_FRAMES}-frame blocks, so memory doesn't depend on length
+ * or track count.
+ *
+ * Key tracks are summed first; their RMS over each {@value #SEGMENT_FRAMES}-frame
+ * segment moves the ducking gain. Each track's gain (envelope × fades × ducking) is
+ * evaluated at the segment edges and ramped between them; a gain that is constant
+ * over the block takes the vectorised path. The int sum is clipped once
+ * ({@link MixKernel#saturate}).
+ *
+ * The mix ends {@code tailSeconds} after the last track that has an end; looping
+ * beds never end on their own and fade out over the mix's last seconds. A track
+ * whose length isn't known up front can't fade out and ends the mix when it runs dry.
+ */
+public final class MultiTrackMixer {
+
+    static final int BLOCK_FRAMES = 4096;
+    /** Ducking and gain-curve resolution: ~23 ms at 44.1 kHz. */
+    static final int SEGMENT_FRAMES = 1024;
+    private static final int SEGMENTS = BLOCK_FRAMES / SEGMENT_FRAMES;
+
+    private final AudioFormat format;
+    private final int channels;
+    private final float rate;
+    private final Ducking ducking;
+    private final double tailSeconds;
+
+    public MultiTrackMixer(AudioFormat format, Ducking ducking, double tailSeconds) {
+        this.format = format;
+        this.channels = format.getChannels();
+        this.rate = format.getSampleRate();
+        this.ducking = ducking;
+        this.tailSeconds = tailSeconds;
+    }
+
+    /** Mixes {@code tracks} into {@code out} (which must be in this mixer's format); returns the frames written. */
+    public long mix(List<MixTrack> tracks, PcmSink out) throws IOException {
+        if (out.sampleRate() != Math.round(rate) || out.channels() != channels) {
+            throw new IllegalArgumentException("Writer format " + out.sampleRate() + " Hz/" + out.channels()
+                    + " ch doesn't match mix format " + format);
+        }
+        List<Lane> keys = new ArrayList<>();
+        List<Lane> others = new ArrayList<>();
+        for (MixTrack track : tracks) {
+            Lane lane = new Lane(track);
+            (track.key() ? keys : others).add(lane);
+        }
+        List<Lane> lanes = new ArrayList<>(keys);
+        lanes.addAll(others);
+
+        long end = plannedEnd(lanes);
+        int block = BLOCK_FRAMES * channels;
+        int[] acc = new int[block];
+        int[] frameGains = new int[BLOCK_FRAMES];
+        short[] mixed = new short[block];
+        byte[] bytes = new byte[block * 2];
+
+        int[] steady = new int[SEGMENTS + 1];
+        int[] duck = new int[SEGMENTS + 1];
+        Arrays.fill(steady, MixKernel.UNITY);
+        Arrays.fill(duck, MixKernel.UNITY);
+        long frame = 0;
+        while (end < 0 || frame < end) {
+            int n = end < 0 ? BLOCK_FRAMES : (int) Math.min(BLOCK_FRAMES, end - frame);
+            Arrays.fill(acc, 0, n * channels, 0);
+
+            for (Lane lane : keys) {
+                add(lane, frame, n, end, steady, acc, frameGains);
+            }
+            duck[0] = duck[SEGMENTS];
+            if (ducking.enabled()) follow(duck, acc, n);
+            for (Lane lane : others) {
+                add(lane, frame, n, end, lane.track.ducked() ? duck : steady, acc, frameGains);
+            }
+
+            if (end < 0 && allEnded(lanes)) {
+                end = endAfterRunningDry(lanes, frame + n);
+                n = (int) Math.min(n, end - frame);
+            }
+            int samples = n * channels;
+            MixKernel.saturate(acc, mixed, samples);
+            Pcm16.toBytes(mixed, samples, bytes, 0);
+            out.write(bytes, 0, samples * 2);
+            frame += n;
+        }
+        return frame;
+    }
+
+    /**
+     * Adds the lane's block {@code [frame, frame+n)} to {@code acc}, its gain ramped between
+     * segment edges; {@code duck[k]} is the ducking gain at edge {@code k}.
+     */
+    private void add(Lane lane, long frame, int n, long end, int[] duck,
+                     int[] acc, int[] frameGains) throws IOException {
+        if (frame + n <= lane.start || (lane.end >= 0 && frame >= lane.end)) return;
+
+        int from = (int) Math.max(0, lane.start - frame);
+        int count = n - from;
+        if (lane.end >= 0 && lane.end != SampleSource.UNBOUNDED) {
+            count = (int) Math.min(count, lane.end - frame - from);
+        }
+        int samples = n * channels;
+        if (lane.buffer == null) lane.buffer = new short[BLOCK_FRAMES * channels];
+        short[] buf = lane.buffer;
+
+        int read = lane.source.read(buf, from * channels, count * channels);
+        if (read < count * channels) {
+            lane.end = frame + from + read / channels;
+        }
+        Arrays.fill(buf, 0, from * channels, (short) 0);
+        Arrays.fill(buf, from * channels + read, samples, (short) 0);
+
+        int segments = (n + SEGMENT_FRAMES - 1) / SEGMENT_FRAMES;
+        int[] edges = lane.edgeGains;
+        boolean constant = true;
+        for (int k = 0; k <= segments; k++) {
+            long at = frame + Math.min(n, k * SEGMENT_FRAMES);
+            edges[k] = MixKernel.gain(gainAt(lane, at, end) * duck[k] / MixKernel.UNITY);
+            constant &= edges[k] == edges[0];
+        }
+        if (constant) {
+            MixKernel.accumulate(buf, edges[0], acc, samples);
+            return;
+        }
+        for (int k = 0; k < segments; k++) {
+            int first = k * SEGMENT_FRAMES;
+            MixKernel.ramp(frameGains, first, Math.min(SEGMENT_FRAMES, n - first), edges[k], edges[k + 1]);
+        }
+        MixKernel.accumulate(buf, channels, frameGains, acc, n);
+    }
+
+    /** Linear gain of the lane at absolute frame {@code t}: envelope × fade in × fade out. */
+    private double gainAt(Lane lane, long t, long end) {
+        double g = lane.track.envelope().at((t - lane.start) / (double) rate);
+        if (lane.fadeIn > 0) {
+            g *= clamp((t - lane.start) / (double) lane.fadeIn);
+        }
+        long laneEnd = lane.end == SampleSource.UNBOUNDED ? end : lane.end;
+        if (lane.fadeOut > 0 && laneEnd >= 0) {
+            g *= clamp((laneEnd - t) / (double) lane.fadeOut);
+        }
+        return g;
+    }
+
+    /**
+     * Fills {@code duck[1…]} (edge gains after each segment; {@code duck[0]} is where the
+     * last block ended) by moving towards the target for each segment's key loudness.
+     */
+    private void follow(int[] duck, int[] keySum, int frames) {
+        int depth = MixKernel.gainDb(-ducking.depthDb());
+        for (int k = 0; k < SEGMENTS; k++) {
+            int first = k * SEGMENT_FRAMES;
+            int count = Math.max(0, Math.min(SEGMENT_FRAMES, frames - first));
+            int current = duck[k];
+            if (count == 0) {
+                duck[k + 1] = current;
+                continue;
+            }
+            long energy = 0;
+            for (int i = first * channels, last = (first + count) * channels; i < last; i++) {
+                energy += (long) keySum[i] * keySum[i];
+            }
+            double rmsDb = 20 * Math.log10(Math.sqrt(energy / (double) (count * channels)) / 32768);
+            int target = rmsDb > ducking.thresholdDb() ? depth : MixKernel.UNITY;
+            if (target == current) {
+                duck[k + 1] = current;
+                continue;
+            }
+            double ms = target < current ? ducking.attackMs() : ducking.releaseMs();
+            double rampFrames = Math.max(1, ms * rate / 1000);
+            int step = (int) Math.ceil((MixKernel.UNITY - depth) * count / rampFrames);
+            duck[k + 1] = target < current ? Math.max(target, current - step) : Math.min(target, current + step);
+        }
+    }
+
+    /** End frame if every bounded lane's length is known, else -1. */
+    private long plannedEnd(List<Lane> lanes) {
+        long last = -1;
+        for (Lane lane : lanes) {
+            if (lane.end == SampleSource.UNBOUNDED) continue;
+            if (lane.end < 0) return -1;
+            last = Math.max(last, lane.end);
+        }
+        if (last < 0) {
+            throw new IllegalArgumentException("Every track loops; nothing bounds the mix length");
+        }
+        return last + tailFrames();
+    }
+
+    private boolean allEnded(List<Lane> lanes) {
+        boolean anyBounded = false;
+        for (Lane lane : lanes) {
+            if (lane.end == SampleSource.UNBOUNDED) continue;
+            if (lane.end < 0) return false;
+            anyBounded = true;
+        }
+        return anyBounded;
+    }
+
+    /** The end once the last track of unknown length ran dry; long enough for the beds' fade-out. */
+    private long endAfterRunningDry(List<Lane> lanes, long now) {
+        long last = 0;
+        long fade = 0;
+        for (Lane lane : lanes) {
+            if (lane.end == SampleSource.UNBOUNDED) {
+                fade = Math.max(fade, lane.fadeOut);
+            } else {
+                last = Math.max(last, lane.end);
+            }
+        }
+        return Math.max(last + tailFrames(), Math.max(last, now) + fade);
+    }
+
+    private long tailFrames() {
+        return Math.round(tailSeconds * rate);
+    }
+
+    private static double clamp(double x) {
+        return Math.max(0, Math.min(1, x));
+    }
+
+    /** Per-mix state of one track. */
+    private final class Lane {
+        final MixTrack track;
+        final SampleSource source;
+        final long start;
+        final long fadeIn;
+        final long fadeOut;
+        /** Absolute end frame: UNBOUNDED, -1 until a source of unknown length runs dry. */
+        long end;
+        short[] buffer;
+        final int[] edgeGains = new int[SEGMENTS + 1];
+
+        Lane(MixTrack track) {
+            AudioFormat f = track.source().format();
+            if (f.getChannels() != channels || Math.round(f.getSampleRate()) != Math.round(rate)
+                    || f.getSampleSizeInBits() != 16 || f.isBigEndian()) {
+                throw new IllegalArgumentException("Track '" + track.name() + "' is " + f + ", mix needs " + format);
+            }
+            this.track = track;
+            this.source = track.source();
+            this.start = Math.round(track.offsetSeconds() * rate);
+            this.fadeIn = Math.round(track.fadeInSeconds() * rate);
+            this.fadeOut = Math.round(track.fadeOutSeconds() * rate);
+            long frames = source.frames();
+            this.end = frames == SampleSource.UNBOUNDED ? frames : frames < 0 ? -1 : start + frames;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.genai.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 16-bit little-endian PCM ↔ {@code short[]}. Goes through a {@link java.nio.ShortBuffer}
+ * view, whose bulk get/put is an intrinsic copy rather than a per-sample byte shuffle.
+ */
+public final class Pcm16 {
+
+    private Pcm16() {}
+
+    /** Reads {@code samples} samples from {@code src[offset…]} into {@code dst[0…]}. */
+    public static void toShorts(byte[] src, int offset, short[] dst, int samples) {
+        toShorts(src, offset, dst, 0, samples);
+    }
+
+    /** Reads {@code samples} samples from {@code src[offset…]} into {@code dst[dstOffset…]}. */
+    public static void toShorts(byte[] src, int offset, short[] dst, int dstOffset, int samples) {
+        ByteBuffer.wrap(src, offset, samples * 2).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(dst, dstOffset, samples);
+    }
+
+    /** Writes {@code src[0…samples)} to {@code dst[offset…]}. */
+    public static void toBytes(short[] src, int samples, byte[] dst, int offset) {
+        ByteBuffer.wrap(dst, offset, samples * 2).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(src, 0, samples);
+    }
+}
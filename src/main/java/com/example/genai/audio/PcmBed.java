@@ -0,0 +1,95 @@
+package com.example.genai.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * A fully decoded 16-bit little-endian PCM track held read-only – on the heap or
+ * memory-mapped – and shared by every mix that uses it. Each mix reads it through
+ * its own {@link Cursor}, so a bed never needs decoding or copying per job.
+ */
+public final class PcmBed {
+
+    private final ShortBuffer samples;
+    private final AudioFormat format;
+
+    PcmBed(ByteBuffer pcm, AudioFormat format) {
+        this.samples = pcm.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        this.format = format;
+    }
+
+    /** Wraps already-decoded PCM (16-bit little-endian, interleaved). */
+    public static PcmBed of(byte[] pcm, AudioFormat format) {
+        return new PcmBed(ByteBuffer.wrap(pcm), format);
+    }
+
+    public AudioFormat format() {
+        return format;
+    }
+
+    public int channels() {
+        return format.getChannels();
+    }
+
+    public long frames() {
+        return samples.capacity() / format.getChannels();
+    }
+
+    /** True when the samples are a memory-mapped file rather than a heap array. */
+    public boolean mapped() {
+        return samples.isDirect();
+    }
+
+    public Cursor cursor(boolean loop) {
+        return new Cursor(loop);
+    }
+
+    /** A read position in the bed; one per mix, not thread-safe. */
+    public final class Cursor implements SampleSource {
+
+        private final boolean loop;
+        private int position;  // in samples
+
+        private Cursor(boolean loop) {
+            this.loop = loop;
+        }
+
+        @Override
+        public AudioFormat format() {
+            return format;
+        }
+
+        @Override
+        public long frames() {
+            return loop && samples.capacity() > 0 ? UNBOUNDED : PcmBed.this.frames();
+        }
+
+        /**
+         * Fills {@code dst[offset…offset+count)} with the next samples: wrapping to the
+         * start when looping, silence once the bed has ended otherwise. Returns the
+         * number of bed samples copied.
+         */
+        @Override
+        public int read(short[] dst, int offset, int count) {
+            int total = samples.capacity();
+            int filled = 0;
+            while (filled < count) {
+                if (position == total) {
+                    if (!loop || total == 0) {
+                        Arrays.fill(dst, offset + filled, offset + count, (short) 0);
+                        return filled;
+                    }
+                    position = 0;
+                }
+                int n = Math.min(count - filled, total - position);
+                samples.get(position, dst, offset + filled, n);
+                position += n;
+                filled += n;
+            }
+            return filled;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.genai.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+
+/**
+ * A {@link SampleSource} at another rate and / or channel count, converted block by
+ * block with a {@link Resampler} and {@link ChannelMapper}. Channels are reduced
+ * before resampling and widened after it, so the filter runs on as few as possible.
+ */
+public final class PcmConverter implements SampleSource {
+
+    static final int BLOCK_FRAMES = 4096;
+
+    private final SampleSource source;
+    private final AudioFormat format;
+    private final int inChannels;
+    private final int outChannels;
+    private final int filterChannels;
+    private final Resampler resampler;  // null when the rate already matches
+
+    private final short[] in;
+    private final short[] mid;
+    private final short[] pending;
+    private int pendingStart;
+    private int pendingEnd;
+    private boolean ended;
+
+    private PcmConverter(SampleSource source, int rate, int channels) {
+        AudioFormat from = source.format();
+        this.source = source;
+        this.format = BedCache.format(rate, channels);
+        this.inChannels = from.getChannels();
+        this.outChannels = channels;
+        this.filterChannels = Math.min(inChannels, outChannels);
+        int inRate = Math.round(from.getSampleRate());
+        this.resampler = inRate == rate ? null : new Resampler(inRate, rate, filterChannels, BLOCK_FRAMES);
+        int outFrames = resampler == null ? BLOCK_FRAMES : resampler.maxOutputFrames(BLOCK_FRAMES + resampler.taps());
+        this.in = new short[BLOCK_FRAMES * inChannels];
+        this.mid = new short[outFrames * filterChannels];
+        this.pending = new short[outFrames * outChannels];
+    }
+
+    /** {@code source} as 16-bit PCM at {@code rate} / {@code channels}; the source itself if it already is. */
+    public static SampleSource convert(SampleSource source, int rate, int channels) {
+        AudioFormat f = source.format();
+        if (f.getSampleSizeInBits() != 16 || f.isBigEndian()) {
+            throw new IllegalArgumentException("Needs 16-bit little-endian PCM, got " + f);
+        }
+        if (!ChannelMapper.supports(f.getChannels(), channels)) {
+            throw new IllegalArgumentException("Unsupported channel mapping " + f.getChannels() + " → " + channels);
+        }
+        if (Math.round(f.getSampleRate()) == rate && f.getChannels() == channels) {
+            return source;
+        }
+        return new PcmConverter(source, rate, channels);
+    }
+
+    @Override
+    public AudioFormat format() {
+        return format;
+    }
+
+    @Override
+    public long frames() {
+        long frames = source.frames();
+        if (frames < 0 || frames == UNBOUNDED || resampler == null) return frames;
+        return resampler.outputFrames(frames);
+    }
+
+    @Override
+    public int read(short[] dst, int offset, int samples) throws IOException {
+        int read = 0;
+        while (read < samples) {
+            if (pendingStart == pendingEnd) {
+                if (ended) break;
+                refill();
+                continue;
+            }
+            int n = Math.min(samples - read, pendingEnd - pendingStart);
+            System.arraycopy(pending, pendingStart, dst, offset + read, n);
+            pendingStart += n;
+            read += n;
+        }
+        return read;
+    }
+
+    private void refill() throws IOException {
+        int samples = source.read(in, 0, in.length);
+        int frames = samples / inChannels;
+        if (samples < in.length) ended = true;
+
+        // narrow first (in place), resample at the narrower width, widen last
+        if (outChannels < inChannels) {
+            ChannelMapper.map(in, 0, inChannels, in, 0, outChannels, frames);
+        }
+        short[] filtered = in;
+        if (resampler != null) {
+            frames = resampler.process(in, 0, frames, mid, 0);
+            if (ended) frames += resampler.flush(mid, frames * filterChannels);
+            filtered = mid;
+        }
+        ChannelMapper.map(filtered, 0, filterChannels, pending, 0, outChannels, frames);
+        pendingStart = 0;
+        pendingEnd = frames * outChannels;
+    }
+}
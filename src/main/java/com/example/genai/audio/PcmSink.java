@@ -0,0 +1,41 @@
+package com.example.genai.audio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * A file being written from 16-bit little-endian PCM: {@link WavWriter} as is, or
+ * {@link Mp3Writer} encoding on the way. Output goes to a temp file that
+ * {@link #finish()} moves into place; {@link #close()} without it discards the file.
+ */
+public interface PcmSink extends AutoCloseable {
+
+    int sampleRate();
+
+    int channels();
+
+    void write(byte[] pcm, int offset, int length) throws IOException;
+
+    /** A buffered stream view for producers that push arbitrary-sized chunks; {@link #finish()} flushes it. */
+    OutputStream stream();
+
+    Path finish() throws IOException;
+
+    /** Copies {@code source} (in this sink's format) to the end; returns the frames written. */
+    default long writeAll(SampleSource source) throws IOException {
+        short[] block = new short[PcmConverter.BLOCK_FRAMES * channels()];
+        byte[] bytes = new byte[block.length * 2];
+        long samples = 0;
+        int n;
+        while ((n = source.read(block, 0, block.length)) > 0) {
+            Pcm16.toBytes(block, n, bytes, 0);
+            write(bytes, 0, n * 2);
+            samples += n;
+        }
+        return samples / channels();
+    }
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,220 @@
+package com.example.genai.audio;
+
+import java.util.Arrays;
+
+/**
+ * Streaming polyphase resampler for interleaved 16-bit PCM between integer rates.
+ *
+ * The ratio is reduced to {@code L/M} (24 kHz → 44.1 kHz is 147/80) and a
+ * Kaiser-windowed sinc is split into {@code L} phases. The filter passes up to
+ * {@value #PASS_BAND} of the lower of the two Nyquist frequencies and is down
+ * {@value #STOP_BAND_DB} dB from that Nyquist frequency on, so nothing above it folds
+ * back. The taps per phase follow from that transition band measured in input samples:
+ * about 60 when upsampling, twice that for 48 → 24 kHz, growing with the decimation
+ * ratio. Each output frame is one phase's dot product with the input around its
+ * position. Every phase is normalised to unity DC gain.
+ *
+ * Allocation-free after construction: input is kept in a per-channel float history
+ * that is compacted in place. One instance per stream, not thread-safe. Output has
+ * {@code ceil(inputFrames · L / M)} frames once {@link #flush} has been called.
+ */
+public final class Resampler {
+
+    static final double PASS_BAND = 0.8;     // of the lower Nyquist; the stop band starts at 1.0
+    static final int STOP_BAND_DB = 90;
+    private static final int MAX_PHASES = 4096;
+    private static final int MAX_TAPS = 1024;
+    private static final double KAISER_BETA = 0.1102 * (STOP_BAND_DB - 8.7);
+
+    private final int inRate;
+    private final int outRate;
+    private final int channels;
+    private final int phases;  // L
+    private final int step;    // M
+    private final int taps;    // per phase, a multiple of 4
+    private final int half;
+    private final float[] coefs;
+    private final float[][] history;
+    private final int capacity;
+
+    private int filled;   // frames in history
+    private int pos;      // history frame under the next output's centre, minus half - 1
+    private int phase;    // 0…L-1: fractional part of that position, in 1/L
+    private long inputFrames;
+    private long outputFrames;
+    private boolean flushed;
+
+    /** Accepts up to {@code maxBlockFrames} frames per {@link #process} call. */
+    public Resampler(int inRate, int outRate, int channels, int maxBlockFrames) {
+        if (inRate <= 0 || outRate <= 0 || channels <= 0) {
+            throw new IllegalArgumentException("Bad resampler setup: " + inRate + " → " + outRate + " Hz, " + channels + " ch");
+        }
+        int g = gcd(inRate, outRate);
+        this.inRate = inRate;
+        this.outRate = outRate;
+        this.channels = channels;
+        this.phases = outRate / g;
+        this.step = inRate / g;
+        if (phases > MAX_PHASES) {
+            throw new IllegalArgumentException("Unsupported rate ratio " + inRate + " → " + outRate
+                    + " (" + phases + " phases, at most " + MAX_PHASES + ")");
+        }
+        // both edges relative to the input Nyquist
+        double nyquist = Math.min(1.0, (double) outRate / inRate);
+        double transition = (1 - PASS_BAND) * nyquist;
+        this.taps = taps(transition);
+        this.half = taps / 2;
+        this.coefs = design(phases, taps, (1 + PASS_BAND) / 2 * nyquist);
+        this.capacity = maxBlockFrames + 2 * taps;
+        this.history = new float[channels][capacity];
+        this.filled = half - 1;  // zero history before the first frame
+    }
+
+    /** Kaiser's length estimate for {@link #STOP_BAND_DB}, rounded up to a multiple of 4. */
+    static int taps(double transition) {
+        double n = (STOP_BAND_DB - 7.95) / (2.285 * Math.PI * transition) + 1;
+        int taps = ((int) Math.ceil(n) + 3) & ~3;
+        if (taps > MAX_TAPS) {
+            throw new IllegalArgumentException("Rate ratio needs " + taps + " taps, at most " + MAX_TAPS);
+        }
+        return taps;
+    }
+
+    public int inRate() {
+        return inRate;
+    }
+
+    public int outRate() {
+        return outRate;
+    }
+
+    /** Filter length per output sample, in input frames. */
+    public int taps() {
+        return taps;
+    }
+
+    /** Upper bound on the frames one {@link #process} or {@link #flush} call can return for {@code inputFrames}. */
+    public int maxOutputFrames(int inputFrames) {
+        return (int) (((long) inputFrames + taps) * phases / step) + 2;
+    }
+
+    /**
+     * Consumes {@code frames} interleaved frames from {@code in[inOffset…]} and writes the
+     * output frames they complete to {@code out[outOffset…]}; returns how many were written.
+     */
+    public int process(short[] in, int inOffset, int frames, short[] out, int outOffset) {
+        if (flushed) throw new IllegalStateException("Resampler already flushed");
+        if (frames > capacity - 2 * taps) {
+            throw new IllegalArgumentException("Block of " + frames + " frames exceeds " + (capacity - 2 * taps));
+        }
+        compact();
+        for (int c = 0; c < channels; c++) {
+            float[] h = history[c];
+            for (int f = 0, i = inOffset + c; f < frames; f++, i += channels) {
+                h[filled + f] = in[i];
+            }
+        }
+        filled += frames;
+        inputFrames += frames;
+        return drain(out, outOffset, Long.MAX_VALUE);
+    }
+
+    /** Ends the stream: emits the frames still held back for the filter's look-ahead. */
+    public int flush(short[] out, int outOffset) {
+        if (flushed) return 0;
+        flushed = true;
+        compact();
+        for (float[] h : history) {
+            Arrays.fill(h, filled, filled + half + 1, 0f);
+        }
+        filled += half + 1;
+        long total = (inputFrames * phases + step - 1) / step;
+        return drain(out, outOffset, total);
+    }
+
+    /** Output frames for {@code inputFrames} input frames of a finished stream. */
+    public long outputFrames(long inputFrames) {
+        return (inputFrames * phases + step - 1) / step;
+    }
+
+    private int drain(short[] out, int outOffset, long limit) {
+        int written = 0;
+        int o = outOffset;
+        while (pos + taps <= filled && outputFrames < limit) {
+            int c0 = phase * taps;
+            for (int c = 0; c < channels; c++) {
+                float[] h = history[c];
+                float a0 = 0, a1 = 0, a2 = 0, a3 = 0;
+                for (int j = 0; j < taps; j += 4) {
+                    a0 += coefs[c0 + j] * h[pos + j];
+                    a1 += coefs[c0 + j + 1] * h[pos + j + 1];
+                    a2 += coefs[c0 + j + 2] * h[pos + j + 2];
+                    a3 += coefs[c0 + j + 3] * h[pos + j + 3];
+                }
+                int s = Math.round((a0 + a1) + (a2 + a3));
+                out[o++] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, s));
+            }
+            written++;
+            outputFrames++;
+            phase += step;
+            pos += phase / phases;
+            phase %= phases;
+        }
+        return written;
+    }
+
+    /** Drops history no future output needs. */
+    private void compact() {
+        if (pos == 0) return;
+        int keep = Math.max(0, filled - pos);
+        for (float[] h : history) {
+            System.arraycopy(h, pos, h, 0, keep);
+        }
+        filled = keep;
+        pos = 0;
+    }
+
+    /**
+     * Phase {@code p}, tap {@code j} is the prototype at input offset {@code j - (half - 1) - p/L}
+     * from the output position; {@code cutoff} (the -6 dB point) is relative to the input Nyquist.
+     */
+    private static float[] design(int phases, int taps, double cutoff) {
+        int half = taps / 2;
+        float[] table = new float[phases * taps];
+        double norm = bessel0(KAISER_BETA);
+        double[] phase = new double[taps];
+        for (int p = 0; p < phases; p++) {
+            double frac = (double) p / phases;
+            double sum = 0;
+            for (int j = 0; j < taps; j++) {
+                double x = j - (half - 1) - frac;
+                double w = x / half;
+                double window = Math.abs(w) >= 1 ? 0 : bessel0(KAISER_BETA * Math.sqrt(1 - w * w)) / norm;
+                phase[j] = cutoff * sinc(cutoff * x) * window;
+                sum += phase[j];
+            }
+            for (int j = 0; j < taps; j++) {
+                table[p * taps + j] = (float) (phase[j] / sum);
+            }
+        }
+        return table;
+    }
+
+    private static double sinc(double x) {
+        return x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+    }
+
+    /** Zeroth-order modified Bessel function of the first kind (series). */
+    private static double bessel0(double x) {
+        double sum = 1, term = 1, q = x * x / 4;
+        for (int k = 1; k < 50 && term > 1e-12 * sum; k++) {
+            term *= q / ((double) k * k);
+            sum += term;
+        }
+        return sum;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.genai.audio;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+
+/** A track's 16-bit PCM samples, pulled block by block by {@link MultiTrackMixer}. */
+public interface SampleSource {
+
+    /** {@link #frames()} of a source that never ends (a looping bed). */
+    long UNBOUNDED = Long.MAX_VALUE;
+
+    /** 16-bit signed little-endian; rate and channels must match the mix. */
+    AudioFormat format();
+
+    /** Total length in frames, {@link #UNBOUNDED}, or -1 if not known up front. */
+    long frames();
+
+    /**
+     * Reads up to {@code samples} interleaved samples into {@code dst[offset…]};
+     * returns how many were read, fewer only once the source has ended.
+     */
+    int read(short[] dst, int offset, int samples) throws IOException;
+
+    /**
+     * Any stream {@code AudioSystem} can open (WAV, MP3 through the SPI) decoded to 16-bit
+     * PCM at its own rate and channel count; rate and channel changes are left to
+     * {@link PcmConverter}, as the JDK's own conversions there are unreliable.
+     */
+    static SampleSource decode(AudioInputStream encoded) {
+        AudioFormat f = encoded.getFormat();
+        float rate = f.getSampleRate() == AudioSystem.NOT_SPECIFIED ? 44100f : f.getSampleRate(); // fallback
+        AudioFormat pcm = BedCache.format(rate, f.getChannels());
+        return of(f.matches(pcm) ? encoded : AudioSystem.getAudioInputStream(pcm, encoded));
+    }
+
+    /** A PCM_SIGNED 16-bit little-endian stream. */
+    static SampleSource of(AudioInputStream pcm) {
+        return new SampleSource() {
+            private byte[] bytes = new byte[0];
+
+            @Override
+            public AudioFormat format() {
+                return pcm.getFormat();
+            }
+
+            @Override
+            public long frames() {
+                long frames = pcm.getFrameLength();
+                return frames == AudioSystem.NOT_SPECIFIED ? -1 : frames;
+            }
+
+            @Override
+            public int read(short[] dst, int offset, int samples) throws IOException {
+                int len = samples * 2;
+                if (bytes.length < len) bytes = new byte[len];
+                int total = 0;
+                while (total < len) {
+                    int n = pcm.read(bytes, total, len - total);
+                    if (n < 0) break;
+                    total += n;
+                }
+                int read = total / 2;
+                Pcm16.toShorts(bytes, 0, dst, offset, read);
+                return read;
+            }
+        };
+    }
+}
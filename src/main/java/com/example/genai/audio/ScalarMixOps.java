@@ -0,0 +1,41 @@
+package com.example.genai.audio;
+
+import static com.example.genai.audio.MixKernel.SHIFT;
+import static com.example.genai.audio.MixKernel.UNITY;
+
+/** Plain loops; used when the Vector API module isn't available. */
+final class ScalarMixOps implements MixOps {
+
+    private static final int HALF = 1 << (SHIFT - 1);
+
+    @Override
+    public String describe() {
+        return "scalar";
+    }
+
+    @Override
+    public void mix(short[] a, int gainA, short[] b, int gainB, short[] out, int samples) {
+        for (int i = 0; i < samples; i++) {
+            int s = ((a[i] * gainA + HALF) >> SHIFT) + ((b[i] * gainB + HALF) >> SHIFT);
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, s));
+        }
+    }
+
+    @Override
+    public void accumulate(short[] src, int gain, int[] acc, int samples) {
+        if (gain == UNITY) {
+            for (int i = 0; i < samples; i++) acc[i] += src[i];
+            return;
+        }
+        for (int i = 0; i < samples; i++) {
+            acc[i] += (src[i] * gain + HALF) >> SHIFT;
+        }
+    }
+
+    @Override
+    public void saturate(int[] acc, short[] out, int samples) {
+        for (int i = 0; i < samples; i++) {
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, acc[i]));
+        }
+    }
+}
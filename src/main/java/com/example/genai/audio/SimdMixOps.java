@@ -0,0 +1,69 @@
+package com.example.genai.audio;
+
+import jdk.incubator.vector.*;
+
+import static com.example.genai.audio.MixKernel.SHIFT;
+
+/**
+ * Vector API mixing loops. Shorts are loaded at half the preferred width and
+ * sign-extended to full-width int lanes, so every multiply happens in 32 bits
+ * exactly as in {@link ScalarMixOps} and both give identical output.
+ * Loaded reflectively by {@link MixKernel} only when the module is present.
+ */
+final class SimdMixOps implements MixOps {
+
+    private static final VectorSpecies<Integer> I = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Short> S = VectorSpecies.of(short.class, VectorShape.forBitSize(I.vectorBitSize() / 2));
+    private static final int STEP = I.length();
+    private static final int HALF = 1 << (SHIFT - 1);
+
+    @Override
+    public String describe() {
+        return "simd (" + I.vectorBitSize() + "-bit, " + STEP + " samples per op)";
+    }
+
+    @Override
+    public void mix(short[] a, int gainA, short[] b, int gainB, short[] out, int samples) {
+        int i = 0;
+        for (int bound = S.loopBound(samples); i < bound; i += STEP) {
+            IntVector x = widen(a, i).mul(gainA).add(HALF).lanewise(VectorOperators.ASHR, SHIFT);
+            IntVector y = widen(b, i).mul(gainB).add(HALF).lanewise(VectorOperators.ASHR, SHIFT);
+            narrow(x.add(y).max(Short.MIN_VALUE).min(Short.MAX_VALUE), out, i);
+        }
+        for (; i < samples; i++) {
+            int s = ((a[i] * gainA + HALF) >> SHIFT) + ((b[i] * gainB + HALF) >> SHIFT);
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, s));
+        }
+    }
+
+    @Override
+    public void accumulate(short[] src, int gain, int[] acc, int samples) {
+        int i = 0;
+        for (int bound = S.loopBound(samples); i < bound; i += STEP) {
+            IntVector x = widen(src, i).mul(gain).add(HALF).lanewise(VectorOperators.ASHR, SHIFT);
+            IntVector.fromArray(I, acc, i).add(x).intoArray(acc, i);
+        }
+        for (; i < samples; i++) {
+            acc[i] += (src[i] * gain + HALF) >> SHIFT;
+        }
+    }
+
+    @Override
+    public void saturate(int[] acc, short[] out, int samples) {
+        int i = 0;
+        for (int bound = S.loopBound(samples); i < bound; i += STEP) {
+            narrow(IntVector.fromArray(I, acc, i).max(Short.MIN_VALUE).min(Short.MAX_VALUE), out, i);
+        }
+        for (; i < samples; i++) {
+            out[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, acc[i]));
+        }
+    }
+
+    private static IntVector widen(short[] src, int i) {
+        return (IntVector) ShortVector.fromArray(S, src, i).convertShape(VectorOperators.S2I, I, 0);
+    }
+
+    private static void narrow(IntVector v, short[] out, int i) {
+        ((ShortVector) v.convertShape(VectorOperators.I2S, S, 0)).intoArray(out, i);
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.genai.audio;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.UUID;
+
+/**
+ * Writes a PCM WAV file straight to disk: a 44-byte header with placeholder sizes
+ * goes out first, samples are appended as they arrive, and {@link #finish()} patches
+ * the RIFF and data sizes in place. Memory use doesn't depend on the audio length.
+ *
+ * The file is written next to the target as a temp file and moved into place by
+ * {@code finish()}, so a failed or interrupted write never leaves a truncated WAV
+ * behind; {@link #close()} without {@code finish()} discards it.
+ */
+public final class WavWriter implements PcmSink {
+
+    public static final int HEADER_BYTES = 44;
+    /** Largest data chunk a RIFF header can describe; also the length sent for streams of unknown size. */
+    public static final long MAX_DATA_BYTES = 0xFFFF_FFFFL - 36;
+    private static final int STREAM_BUFFER = 64 * 1024;
+
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final int sampleRate;
+    private final int channels;
+    private final int bitsPerSample;
+
+    private long dataBytes;
+    private boolean finished;
+    private Stream stream;
+
+    private WavWriter(Path target, int sampleRate, int channels, int bitsPerSample) throws IOException {
+        if (channels < 1 || (bitsPerSample != 8 && bitsPerSample != 16 && bitsPerSample != 24 && bitsPerSample != 32)) {
+            throw new IllegalArgumentException("Unsupported PCM layout: " + channels + " ch, " + bitsPerSample + " bit");
+        }
+        this.target = target;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+        this.bitsPerSample = bitsPerSample;
+
+        Path dir = target.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        this.temp = tempFileFor(target);
+        this.channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+        writeFully(header(sampleRate, channels, bitsPerSample, 0), 0);
+    }
+
+    public static WavWriter create(Path target, int sampleRate, int channels, int bitsPerSample) throws IOException {
+        return new WavWriter(target, sampleRate, channels, bitsPerSample);
+    }
+
+    /** For little-endian signed PCM (unsigned for 8 bit, as WAV stores it). */
+    public static WavWriter create(Path target, AudioFormat format) throws IOException {
+        boolean pcm = AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())
+                || (format.getSampleSizeInBits() == 8 && AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding()));
+        if (!pcm || (format.getSampleSizeInBits() > 8 && format.isBigEndian())) {
+            throw new IllegalArgumentException("WAV needs little-endian PCM, got " + format);
+        }
+        return new WavWriter(target, Math.round(format.getSampleRate()), format.getChannels(), format.getSampleSizeInBits());
+    }
+
+    /**
+     * Unused name next to {@code target} to write it under before the move; open it with
+     * {@code CREATE_NEW}. Unlike {@link Files#createTempFile} (owner-only 0600), that gives
+     * the file the umask permissions a direct write would, so the moved file stays readable.
+     */
+    static Path tempFileFor(Path target) {
+        return target.toAbsolutePath().resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".part");
+    }
+
+    public int frameSize() {
+        return channels * bitsPerSample / 8;
+    }
+
+    @Override
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    @Override
+    public int channels() {
+        return channels;
+    }
+
+    public long dataBytes() {
+        return dataBytes;
+    }
+
+    @Override
+    public void write(byte[] pcm, int offset, int length) throws IOException {
+        write(ByteBuffer.wrap(pcm, offset, length));
+    }
+
+    /** Appends the buffer's remaining bytes. */
+    public void write(ByteBuffer pcm) throws IOException {
+        int n = pcm.remaining();
+        if (dataBytes + n > MAX_DATA_BYTES) {
+            throw new IOException("WAV data would exceed 4 GB: " + target);
+        }
+        writeFully(pcm, HEADER_BYTES + dataBytes);
+        dataBytes += n;
+    }
+
+    /**
+     * A buffered {@link OutputStream} view for producers that push arbitrary-sized byte
+     * chunks (e.g. a base64 decoder); {@link #finish()} flushes it. Closing the view
+     * only flushes, the writer stays open.
+     */
+    @Override
+    public OutputStream stream() {
+        if (stream == null) stream = new Stream();
+        return stream;
+    }
+
+    /** Patches the header sizes and moves the file into place. */
+    @Override
+    public Path finish() throws IOException {
+        if (finished) return target;
+        if (stream != null) stream.flush();
+        if (dataBytes % frameSize() != 0) {
+            throw new IOException("WAV data ends mid-frame (" + dataBytes + " bytes, frame " + frameSize() + ")");
+        }
+        ByteBuffer sizes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        writeFully(sizes.putInt(0, (int) (36 + dataBytes)), 4);
+        writeFully(sizes.clear().putInt(0, (int) dataBytes), 40);
+        channel.close();
+
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finished = true;
+        return target;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (finished) return;
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private final class Stream extends OutputStream {
+        private final ByteBuffer buffer = ByteBuffer.allocate(STREAM_BUFFER);
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (len >= buffer.capacity()) {
+                flush();
+                WavWriter.this.write(b, off, len);
+                return;
+            }
+            if (len > buffer.remaining()) flush();
+            buffer.put(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer.position() == 0) return;
+            WavWriter.this.write(buffer.flip());
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /** A canonical 44-byte PCM header (fmt chunk size 16). */
+    public static ByteBuffer header(int sampleRate, int channels, int bitsPerSample, long dataBytes) {
+        int blockAlign = channels * bitsPerSample / 8;
+        ByteBuffer h = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        h.put((byte) 'R').put((byte) 'I').put((byte) 'F').put((byte) 'F');
+        h.putInt((int) (36 + dataBytes));
+        h.put((byte) 'W').put((byte) 'A').put((byte) 'V').put((byte) 'E');
+        h.put((byte) 'f').put((byte) 'm').put((byte) 't').put((byte) ' ');
+        h.putInt(16);
+        h.putShort((short) 1);  // PCM
+        h.putShort((short) channels);
+        h.putInt(sampleRate);
+        h.putInt(sampleRate * blockAlign);
+        h.putShort((short) blockAlign);
+        h.putShort((short) bitsPerSample);
+        h.put((byte) 'd').put((byte) 'a').put((byte) 't').put((byte) 'a');
+        h.putInt((int) dataBytes);
+        return h.flip();
+    }
+
+    private void writeFully(ByteBuffer src, long position) throws IOException {
+        while (src.hasRemaining()) {
+            position += channel.write(src, position);
+        }
+    }
+}
@@ -22,7 +22,7 @@ public class GeminiWebClientConfig {
     @Value("${gemini.ssl.trustAll:false}")
     private boolean trustAll;
 
-    // e.g. 10MB; increase if you generate longer audio
+    // e.g. 10MB; only for bodies read whole (error messages) – TTS audio is streamed
     @Value("${gemini.webclient.maxInMemorySizeBytes:10485760}")
     private int maxInMemorySizeBytes;
 
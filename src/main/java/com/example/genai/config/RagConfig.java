@@ -0,0 +1,68 @@
+package com.example.genai.config;
+
+import com.example.genai.rag.EmbeddingStore;
+import com.example.genai.rag.FlatIndex;
+import com.example.genai.rag.HnswIndex;
+import com.example.genai.rag.QuantizedIndex;
+import com.example.genai.rag.VectorIndex;
+import com.example.genai.util.VectorMath;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Configuration
+public class RagConfig {
+
+    // flat = exact scan, hnsw = approximate graph search, sq8 / pq = quantized scan + exact re-rank
+    @Value("${app.rag.index:hnsw}")
+    private String indexType;
+
+    @Value("${app.rag.hnsw.m:16}")
+    private int m;
+
+    @Value("${app.rag.hnsw.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${app.rag.hnsw.ef-search:64}")
+    private int efSearch;
+
+    @Value("${app.rag.quantization.train-size:20000}")
+    private int trainSize;
+
+    @Value("${app.rag.quantization.pq-dims-per-subspace:8}")
+    private int pqDimsPerSubspace;
+
+    @Value("${app.rag.quantization.recall-target:0.95}")
+    private double recallTarget;
+
+    @Value("${app.rag.quantization.max-rerank-factor:32}")
+    private int maxRerankFactor;
+
+    // empty = in-memory only
+    @Value("${app.rag.store-dir:}")
+    private String storeDir;
+
+    @Value("${app.rag.snapshot-interval-seconds:300}")
+    private long snapshotIntervalSeconds;
+
+    @Bean(destroyMethod = "close")
+    public EmbeddingStore embeddingStore() throws IOException {
+        VectorIndex index = switch (indexType.toLowerCase()) {
+            case "flat" -> new FlatIndex();
+            case "hnsw" -> new HnswIndex(m, efConstruction, efSearch);
+            case "sq8" -> new QuantizedIndex(QuantizedIndex.Method.SQ8, trainSize, pqDimsPerSubspace, recallTarget, maxRerankFactor);
+            case "pq" -> new QuantizedIndex(QuantizedIndex.Method.PQ, trainSize, pqDimsPerSubspace, recallTarget, maxRerankFactor);
+            default -> throw new IllegalArgumentException("Unknown app.rag.index: " + indexType);
+        };
+        System.out.println("[RagConfig] vector index=" + indexType + ", kernels=" + VectorMath.implementation()
+                + (index instanceof HnswIndex ? " (m=" + m + ", efConstruction=" + efConstruction + ", efSearch=" + efSearch + ")" : ""));
+        if (storeDir == null || storeDir.isBlank()) {
+            return new EmbeddingStore(index);
+        }
+        return EmbeddingStore.open(index, Paths.get(storeDir), Duration.ofSeconds(snapshotIntervalSeconds));
+    }
+}
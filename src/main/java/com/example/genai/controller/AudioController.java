@@ -1,26 +1,111 @@
 package com.example.genai.controller;
 
+import com.example.genai.audio.AudioDelivery;
+import com.example.genai.entity.GenerationJob;
 import com.example.genai.service.AudioGenerationService;
+import com.example.genai.service.GeminiAudioService;
+import com.example.genai.service.JobProgress;
+import com.example.genai.service.JobService;
+import com.example.genai.service.TtsAudioCache;
+import com.example.genai.service.TtsScheduler;
+import com.example.genai.service.TtsStats;
+import com.example.genai.util.FileRangeSender;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/audio")
 public class AudioController {
 
-    private final AudioGenerationService audioService;
+    private final JobService jobService;
+    private final TtsScheduler ttsScheduler;
+    private final AudioGenerationService audioGenerationService;
+    private final GeminiAudioService geminiAudioService;
+    private final TtsAudioCache audioCache;
 
     @Autowired
-    public AudioController(AudioGenerationService audioService) {
-        this.audioService = audioService;
+    public AudioController(JobService jobService,
+                           TtsScheduler ttsScheduler,
+                           AudioGenerationService audioGenerationService,
+                           GeminiAudioService geminiAudioService,
+                           TtsAudioCache audioCache) {
+        this.jobService = jobService;
+        this.ttsScheduler = ttsScheduler;
+        this.audioGenerationService = audioGenerationService;
+        this.geminiAudioService = geminiAudioService;
+        this.audioCache = audioCache;
     }
 
     @PostMapping("/generate")
-    public String generate() throws Exception {
-        audioService.generateAllAudio();
-        return "Audio generation started!";
+    public String generate() {
+        JobProgress job = jobService.start(GenerationJob.Type.OPENAI_AUDIO);
+        return "Audio generation started! Track it at /api/jobs/" + job.id();
+    }
+
+    // mixed narration, generated on first request; Range / If-None-Match let clients seek and resume
+    @GetMapping("/{responseId}")
+    public void audio(@PathVariable("responseId") Long responseId,
+                      HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        Optional<Path> file = geminiAudioService.mixedAudio(responseId);
+        if (file.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        // revalidated through the ETag once stale; a regenerated file gets a new one
+        MediaType type = MediaType.parseMediaType(AudioDelivery.Format.of(file.get()).mediaType());
+        FileRangeSender.send(file.get(), type, CacheControl.maxAge(1, TimeUnit.DAYS), request, response);
+    }
+
+    // narration synthesized on the fly (playback starts when the first sentence chunk lands),
+    // or sent from the TTS cache once it has been synthesized
+    @GetMapping("/{responseId}/stream")
+    public ResponseEntity<StreamingResponseBody> stream(@PathVariable("responseId") Long responseId,
+                                                        HttpServletRequest request,
+                                                        HttpServletResponse response) throws IOException {
+        Optional<String> text = audioGenerationService.narration(responseId);
+        if (text.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Optional<TtsAudioCache.Lease> cached = audioGenerationService.cachedNarration(text.get());
+        if (cached.isPresent()) {
+            try (TtsAudioCache.Lease lease = cached.get()) {
+                MediaType type = MediaType.parseMediaType(AudioDelivery.Format.of(lease.path()).mediaType());
+                FileRangeSender.send(lease.path(), type, CacheControl.noCache(), request, response);
+            }
+            return null;  // already written
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(AudioDelivery.Format.WAV.mediaType()))
+                .body(out -> audioGenerationService.streamNarration(text.get(), out));
+    }
+
+    // per-provider TTS throughput, retries and in-flight work
+    @GetMapping("/tts/stats")
+    public List<TtsStats> ttsStats() {
+        return ttsScheduler.stats();
     }
-}
 
+    // synthesized speech reused by content: hits, misses, size against the disk budget
+    @GetMapping("/cache/stats")
+    public TtsAudioCache.CacheStats cacheStats() {
+        return audioCache.stats();
+    }
+}
@@ -18,7 +18,11 @@ import java.nio.file.Paths;
 @RequestMapping("/audio")
 public class AudioMixController {
 
-    private final AudioMixService audioMixService = new AudioMixService();
+    private final AudioMixService audioMixService;
+
+    public AudioMixController(AudioMixService audioMixService) {
+        this.audioMixService = audioMixService;
+    }
 
     @GetMapping("/mix")
     public ResponseEntity<Resource> mix() throws Exception {
@@ -1,6 +1,7 @@
 package com.example.genai.controller;
 
 import com.example.genai.component.ChatMemoryStore;
+import com.example.genai.llm.ChatCache;
 import com.example.genai.llm.LLMResult;
 import com.example.genai.llm.OpenAIClient;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,16 +22,19 @@ public class ChatController {
 
     private final OpenAIClient client;
     private final ChatMemoryStore memoryStore;
+    private final ChatCache chatCache;
 
     @Autowired
-    public ChatController(OpenAIClient client, ChatMemoryStore memoryStore) {
+    public ChatController(OpenAIClient client, ChatMemoryStore memoryStore, ChatCache chatCache) {
         this.client = client;
         this.memoryStore = memoryStore;
+        this.chatCache = chatCache;
     }
 
     /**
      * SINGLE CHAT (unchanged behaviour: request -> answer)
-     * Keeps your existing endpoint working.
+     * Keeps your existing endpoint working. Repeated (or, with the semantic tier,
+     * near-identical) questions are answered from {@link ChatCache}.
      */
     @PostMapping("/chat")
     public Map<String, Object> chat(@RequestBody ChatRequest req) {
@@ -38,12 +42,7 @@ public class ChatController {
                 .orElse("You are a helpful Java assistant.");
         String user = req.prompt();
 
-        // Pass only the user message; chatOnce() will inject the system message.
-        var msgs = List.of(
-                Map.of("role", "user", "content", user)
-        );
-
-        LLMResult answer = client.chatOnce(system, msgs).block();
+        LLMResult answer = chatCache.chat(system, user).block();
 
         return Map.of("answer", answer != null ? answer.getContent() : "");
     }
@@ -120,6 +119,12 @@ public class ChatController {
     }
 
 
+    // hit rate per tier and the tokens it saved
+    @GetMapping("/chat/cache/stats")
+    public ChatCache.ChatCacheStats cacheStats() {
+        return chatCache.stats();
+    }
+
     @DeleteMapping("/chat/{sessionId}")
     public Map<String, Object> reset(@PathVariable("sessionId") String sessionId) {
         memoryStore.clear(sessionId);
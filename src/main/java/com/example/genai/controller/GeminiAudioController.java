@@ -1,6 +1,8 @@
 package com.example.genai.controller;
 
-import com.example.genai.service.GeminiAudioService;
+import com.example.genai.entity.GenerationJob;
+import com.example.genai.service.JobProgress;
+import com.example.genai.service.JobService;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -9,15 +11,15 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/gemini/audio")
 public class GeminiAudioController {
 
-    private final GeminiAudioService geminiAudioService;
+    private final JobService jobService;
 
-    public GeminiAudioController(GeminiAudioService geminiAudioService) {
-        this.geminiAudioService = geminiAudioService;
+    public GeminiAudioController(JobService jobService) {
+        this.jobService = jobService;
     }
 
     @PostMapping("/generate")
-    public String generate() throws Exception {
-        geminiAudioService.generateAllGeminiAudio();
-        return "Gemini TTS (2.5 flash preview) mixed audio generation triggered.";
+    public String generate() {
+        JobProgress job = jobService.start(GenerationJob.Type.GEMINI_AUDIO);
+        return "Gemini TTS (2.5 flash preview) mixed audio generation triggered. Track it at /api/jobs/" + job.id();
     }
 }
@@ -0,0 +1,45 @@
+package com.example.genai.controller;
+
+import com.example.genai.entity.GenerationJob;
+import com.example.genai.service.JobProgress;
+import com.example.genai.service.JobService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final JobService jobService;
+
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @PostMapping
+    public JobProgress start(@RequestParam("type") GenerationJob.Type type) {
+        return jobService.start(type);
+    }
+
+    @GetMapping
+    public List<JobProgress> recent() {
+        return jobService.recent();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<JobProgress> get(@PathVariable("id") Long id) {
+        return ResponseEntity.of(jobService.find(id));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<JobProgress> cancel(@PathVariable("id") Long id) {
+        return ResponseEntity.of(jobService.cancel(id));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<JobProgress> resume(@PathVariable("id") Long id) {
+        return ResponseEntity.of(jobService.resume(id));
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.genai.controller;
 
-import com.example.genai.service.PhotoService;
+import com.example.genai.entity.GenerationJob;
+import com.example.genai.service.JobProgress;
+import com.example.genai.service.JobService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -10,17 +12,17 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/photos")
 public class PhotoController {
 
-    private final PhotoService photoService;
+    private final JobService jobService;
 
     @Autowired
-    public PhotoController(PhotoService photoService) {
-        this.photoService = photoService;
+    public PhotoController(JobService jobService) {
+        this.jobService = jobService;
     }
 
 
     @PostMapping("/generate")
     public String generateAll() {
-        int spotsProcessed = photoService.downloadPhotosForAllSpots();
-        return "Photo generation finished for " + spotsProcessed + " spots.";
+        JobProgress job = jobService.start(GenerationJob.Type.PHOTOS);
+        return "Photo generation started! Track it at /api/jobs/" + job.id();
     }
 }
@@ -0,0 +1,58 @@
+package com.example.genai.controller;
+
+import com.example.genai.llm.EmbeddingClient;
+import com.example.genai.rag.EmbeddingStore;
+import com.example.genai.service.RagService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.*;
+
+@CrossOrigin(origins = "http://localhost:5173")
+@RestController
+@RequestMapping("/api/rag")
+@Profile("openai")
+public class RagController {
+
+    private final RagService ragService;
+    private final EmbeddingClient embeddings;
+    private final EmbeddingStore store;
+
+    public RagController(RagService ragService, EmbeddingClient embeddings, EmbeddingStore store) {
+        this.ragService = ragService;
+        this.embeddings = embeddings;
+        this.store = store;
+    }
+
+    @PostMapping("/upsert")
+    public Map<String, Object> upsert(@RequestBody Doc doc) {
+        ragService.upsert(Map.of(doc.id(), doc.text()));
+        return Map.of("id", doc.id(), "chunks", store.size());
+    }
+
+    /** Bulk ingest: texts are embedded in batched requests. */
+    @PostMapping("/upsert/batch")
+    public Map<String, Object> upsertBatch(@RequestBody List<Doc> docs) {
+        Map<String, String> byId = new LinkedHashMap<>();
+        for (Doc doc : docs) byId.put(doc.id(), doc.text());
+        return Map.of("upserted", ragService.upsert(byId), "chunks", store.size());
+    }
+
+    @PostMapping("/query")
+    public RagService.Answer query(@RequestBody Query req) {
+        return ragService.query(req.prompt(), req.k() != null ? req.k() : 4);
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("chunks", store.size());
+        stats.put("embeddings", embeddings.stats());
+        store.quantizationReport().ifPresent(r -> stats.put("quantization", r.summary()));
+        return stats;
+    }
+
+    public record Doc(String id, String text) {}
+
+    public record Query(String prompt, Integer k) {}
+}
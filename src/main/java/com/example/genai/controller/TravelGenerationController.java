@@ -1,21 +1,30 @@
 package com.example.genai.controller;
 
-import com.example.genai.service.TravelGenerationService;
+import com.example.genai.entity.GenerationJob;
+import com.example.genai.service.JobProgress;
+import com.example.genai.service.JobService;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/generate")
 public class TravelGenerationController {
 
-    private final TravelGenerationService travelService;
+    private final JobService jobService;
 
-    public TravelGenerationController(TravelGenerationService travelService) {
-        this.travelService = travelService;
+    public TravelGenerationController(JobService jobService) {
+        this.jobService = jobService;
     }
 
     @PostMapping("/travel")
     public String generate() {
-        travelService.generateAllTravelDescriptions();
-        return "Travel descriptions generated successfully!";
+        JobProgress job = jobService.start(GenerationJob.Type.TRAVEL_TEXT);
+        return "Travel description generation started! Track it at /api/jobs/" + job.id();
+    }
+
+    // Offline bulk generation through the OpenAI Batch API (cheaper, results within 24h)
+    @PostMapping("/travel/batch")
+    public String generateBatch() {
+        JobProgress job = jobService.start(GenerationJob.Type.TRAVEL_TEXT_BATCH);
+        return "Travel description batch generation started! Track it at /api/jobs/" + job.id();
     }
 }
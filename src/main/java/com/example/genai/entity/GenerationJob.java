@@ -0,0 +1,108 @@
+package com.example.genai.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A long-running bulk job (text, audio, photos) with its checkpoint.
+ * {@code cursor} is the id of the last entity fully processed, so a resumed job
+ * continues with the next id instead of re-scanning the catalog.
+ */
+@Entity
+@Table(name = "generation_job")
+public class GenerationJob {
+
+    public enum Type { TRAVEL_TEXT, TRAVEL_TEXT_BATCH, OPENAI_AUDIO, GEMINI_AUDIO, PHOTOS }
+
+    public enum Status { QUEUED, RUNNING, CANCELLING, CANCELLED, INTERRUPTED, FAILED, COMPLETED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Type type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private Status status;
+
+    // last processed entity id (spot id or response id depending on type)
+    @Column(name = "cursor_position", nullable = false)
+    private long cursor;
+
+    private long itemsTotal;
+    private long itemsDone;
+    private long itemsFailed;
+
+    // itemsDone when the current run started, to compute the rate of this run only
+    private long itemsAtRunStart;
+
+    @Column(nullable = false)
+    private Instant createdAt = Instant.now();
+
+    private Instant runStartedAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    public GenerationJob(Type type) {
+        this.type = type;
+        this.status = Status.QUEUED;
+    }
+
+    public GenerationJob() {
+    }
+
+    public boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING || status == Status.CANCELLING;
+    }
+
+    public boolean isResumable() {
+        return status == Status.CANCELLED || status == Status.INTERRUPTED || status == Status.FAILED;
+    }
+
+    // --- getters & setters ---
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public long getCursor() { return cursor; }
+    public void setCursor(long cursor) { this.cursor = cursor; }
+
+    public long getItemsTotal() { return itemsTotal; }
+    public void setItemsTotal(long itemsTotal) { this.itemsTotal = itemsTotal; }
+
+    public long getItemsDone() { return itemsDone; }
+    public void setItemsDone(long itemsDone) { this.itemsDone = itemsDone; }
+
+    public long getItemsFailed() { return itemsFailed; }
+    public void setItemsFailed(long itemsFailed) { this.itemsFailed = itemsFailed; }
+
+    public long getItemsAtRunStart() { return itemsAtRunStart; }
+    public void setItemsAtRunStart(long itemsAtRunStart) { this.itemsAtRunStart = itemsAtRunStart; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getRunStartedAt() { return runStartedAt; }
+    public void setRunStartedAt(Instant runStartedAt) { this.runStartedAt = runStartedAt; }
+
+    public Instant getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Instant updatedAt) { this.updatedAt = updatedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(Instant finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+}
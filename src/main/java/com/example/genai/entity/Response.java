@@ -54,6 +54,14 @@ public class Response {
     @Column(length = 500)
     private String audioS3Key;
 
+    // TTS audio cache entries the written files were made from (see TtsAudioCache);
+    // a different key for the current text means the file is stale
+    @Column(name = "openai_audio_key", length = 100)
+    private String openAiAudioKey;
+
+    @Column(name = "gemini_audio_key", length = 100)
+    private String geminiAudioKey;
+
     public Response(Long id,
                     Spot spot,
                     Language language,
@@ -182,4 +190,20 @@ public class Response {
     public void setAudioS3Key(String audioS3Key) {
         this.audioS3Key = audioS3Key;
     }
+
+    public String getOpenAiAudioKey() {
+        return openAiAudioKey;
+    }
+
+    public void setOpenAiAudioKey(String openAiAudioKey) {
+        this.openAiAudioKey = openAiAudioKey;
+    }
+
+    public String getGeminiAudioKey() {
+        return geminiAudioKey;
+    }
+
+    public void setGeminiAudioKey(String geminiAudioKey) {
+        this.geminiAudioKey = geminiAudioKey;
+    }
 }
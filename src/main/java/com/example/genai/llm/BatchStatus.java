@@ -0,0 +1,21 @@
+package com.example.genai.llm;
+
+/**
+ * Snapshot of an OpenAI batch (GET /batches/{id}).
+ * Status is one of validating, in_progress, finalizing, completed, failed, expired, cancelling, cancelled.
+ */
+public record BatchStatus(String id,
+                          String status,
+                          String outputFileId,
+                          String errorFileId,
+                          int total,
+                          int completed,
+                          int failed) {
+
+    public boolean isTerminal() {
+        return switch (status) {
+            case "completed", "failed", "expired", "cancelled" -> true;
+            default -> false;
+        };
+    }
+}
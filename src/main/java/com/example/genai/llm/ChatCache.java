@@ -0,0 +1,239 @@
+package com.example.genai.llm;
+
+import com.example.genai.rag.FlatIndex;
+import com.example.genai.rag.VectorIndex;
+import com.example.genai.util.Cosine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Answers for single-turn chats ({@code POST /api/chat}), in front of {@link OpenAIClient#chatOnce}:
+ * <ul>
+ *   <li>exact – SHA-256 of the normalized system prompt, prompt, model and temperature
+ *       (NFKC, lower case, whitespace collapsed); bounded LRU, entries expire after {@code ttl}</li>
+ *   <li>semantic (optional) – a miss embeds the prompt ({@link EmbeddingClient}, so it is
+ *       cached and batched too) and takes the closest cached answer for the same system
+ *       prompt / model / temperature if its cosine similarity is at least {@code threshold}</li>
+ *   <li>dedup – a question already in flight shares the pending answer</li>
+ * </ul>
+ * Empty answers and failures are not cached.
+ */
+@Component
+@Profile("openai")
+public class ChatCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // nearest cached prompts looked at for a semantic hit (some may be for another system prompt)
+    private static final int SEMANTIC_CANDIDATES = 8;
+
+    private final OpenAIClient openAIClient;
+    private final EmbeddingClient embeddings;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final boolean semantic;
+    private final float threshold;
+    private final Clock clock;
+
+    // exact key → answer, least recently used first; the vectors of the semantic tier are keyed the same
+    private final Map<String, Entry> entries;
+    private final VectorIndex vectors = new FlatIndex();
+    private final Map<String, Mono<LLMResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong exactHits = new AtomicLong();
+    private final AtomicLong semanticHits = new AtomicLong();
+    private final AtomicLong inFlightHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong tokensSaved = new AtomicLong();
+
+    @Autowired
+    public ChatCache(
+            OpenAIClient openAIClient,
+            EmbeddingClient embeddings,
+            @Value("${app.chat.cache.max-entries:10000}") int maxEntries,
+            @Value("${app.chat.cache.ttl-minutes:60}") long ttlMinutes,
+            @Value("${app.chat.cache.semantic.enabled:false}") boolean semantic,
+            @Value("${app.chat.cache.semantic.threshold:0.95}") double threshold
+    ) {
+        this(openAIClient, embeddings, maxEntries, ttlMinutes, semantic, threshold, Clock.systemUTC());
+    }
+
+    ChatCache(OpenAIClient openAIClient, EmbeddingClient embeddings, int maxEntries, long ttlMinutes,
+              boolean semantic, double threshold, Clock clock) {
+        this.clock = clock;
+        this.openAIClient = openAIClient;
+        this.embeddings = embeddings;
+        this.maxEntries = Math.max(0, maxEntries);
+        this.ttlMillis = Duration.ofMinutes(Math.max(1, ttlMinutes)).toMillis();
+        this.semantic = semantic;
+        this.threshold = (float) threshold;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= ChatCache.this.maxEntries) return false;
+                vectors.remove(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    /** The answer to {@code prompt} under {@code system}: cached, shared with a pending call, or asked for. */
+    public Mono<LLMResult> chat(String system, String prompt) {
+        return Mono.defer(() -> {
+            requested.incrementAndGet();
+            String normalizedPrompt = normalize(prompt);
+            String context = key(normalize(system), openAIClient.chatModel(),
+                    String.valueOf(OpenAIClient.CHAT_TEMPERATURE));
+            String key = key(context, normalizedPrompt);
+
+            Entry hit = exact(key);
+            if (hit != null) {
+                exactHits.incrementAndGet();
+                return Mono.just(saved(hit.result()));
+            }
+
+            boolean[] mine = new boolean[1];
+            Mono<LLMResult> shared = inFlight.computeIfAbsent(key, k -> {
+                mine[0] = true;
+                return load(system, prompt, normalizedPrompt, context, k)
+                        .doFinally(signal -> inFlight.remove(k))
+                        .cache();
+            });
+            if (!mine[0]) inFlightHits.incrementAndGet();
+            return shared;
+        });
+    }
+
+    public ChatCacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long requests = requested.get();
+        long hits = exactHits.get() + semanticHits.get() + inFlightHits.get();
+        return new ChatCacheStats(requests, exactHits.get(), semanticHits.get(), inFlightHits.get(),
+                misses.get(), expired.get(), size, vectors.size(), requests == 0 ? 0 : (double) hits / requests,
+                tokensSaved.get());
+    }
+
+    // ---------- tiers ----------
+
+    private Mono<LLMResult> load(String system, String prompt, String normalizedPrompt, String context, String key) {
+        if (!semantic) {
+            return ask(system, prompt, context, key, null);
+        }
+        return embeddings.embed(normalizedPrompt)
+                .map(v -> Optional.of(Cosine.normalize(v)))
+                .onErrorResume(e -> {
+                    // the semantic tier is an optimization: without a vector, just ask
+                    System.err.println("Chat cache: embedding failed – " + e.getMessage());
+                    return Mono.just(Optional.empty());
+                })
+                .flatMap(vector -> {
+                    Entry near = vector.map(v -> nearest(context, v)).orElse(null);
+                    if (near != null) {
+                        semanticHits.incrementAndGet();
+                        // the same wording next time is an exact hit
+                        put(key, new Entry(context, near.result(), near.expiresAt()), null);
+                        return Mono.just(saved(near.result()));
+                    }
+                    return ask(system, prompt, context, key, vector.orElse(null));
+                });
+    }
+
+    private Mono<LLMResult> ask(String system, String prompt, String context, String key, float[] vector) {
+        misses.incrementAndGet();
+        // Pass only the user message; chatOnce() will inject the system message.
+        return openAIClient.chatOnce(system, List.of(Map.of("role", "user", "content", prompt)))
+                .doOnNext(result -> {
+                    if (result.getContent() != null && !result.getContent().isBlank()) {
+                        put(key, new Entry(context, result, clock.millis() + ttlMillis), vector);
+                    }
+                });
+    }
+
+    private Entry exact(String key) {
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e == null) return null;
+            if (e.expiresAt() > clock.millis()) return e;
+            entries.remove(key);
+            vectors.remove(key);
+        }
+        expired.incrementAndGet();
+        return null;
+    }
+
+    /** Closest live answer for the same context at or above the threshold (hits come best first). */
+    private Entry nearest(String context, float[] vector) {
+        for (VectorIndex.Hit hit : vectors.search(vector, SEMANTIC_CANDIDATES)) {
+            if (hit.score() < threshold) break;
+            Entry e;
+            synchronized (entries) {
+                e = entries.get(hit.id());
+            }
+            if (e != null && e.context().equals(context) && e.expiresAt() > clock.millis()) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private void put(String key, Entry entry, float[] vector) {
+        if (maxEntries == 0) return;
+        synchronized (entries) {
+            // the vector under the same lock, so eviction never leaves one behind
+            if (vector != null) vectors.upsert(key, vector);
+            entries.put(key, entry);
+        }
+    }
+
+    private LLMResult saved(LLMResult result) {
+        tokensSaved.addAndGet(result.getPromptTokens() + result.getCompletionTokens());
+        return result;
+    }
+
+    static String normalize(String text) {
+        if (text == null) return "";
+        String s = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(s).replaceAll(" ").strip();
+    }
+
+    private static String key(String... parts) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                sha.update(part.getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(String context, LLMResult result, long expiresAt) {}
+
+    /**
+     * @param inFlightHits requests that shared an answer still being generated
+     * @param tokensSaved  prompt + completion tokens the hits would have cost
+     */
+    public record ChatCacheStats(long requested, long exactHits, long semanticHits, long inFlightHits,
+                                 long misses, long expired, int entries, int semanticEntries,
+                                 double hitRate, long tokensSaved) {}
+}
@@ -0,0 +1,82 @@
+package com.example.genai.llm;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+
+/**
+ * At most {@code permits} requests in flight for one provider. Further requests wait
+ * their turn in arrival order – without holding a thread – and start as earlier ones
+ * complete, fail or are cancelled.
+ */
+public class ConcurrencyLimiter {
+
+    private final int permits;
+    private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+    private int inUse;
+
+    public ConcurrencyLimiter(int permits) {
+        this.permits = Math.max(1, permits);
+    }
+
+    /** {@code request}, subscribed once a permit is free; the permit is held until it ends or is cancelled. */
+    public <T> Flux<T> limit(Flux<T> request) {
+        return Flux.usingWhen(Mono.fromSupplier(this::ticket),
+                ticket -> ticket.granted.asMono().thenMany(request),
+                ticket -> Mono.fromRunnable(ticket::release));
+    }
+
+    public synchronized int inUse() {
+        return inUse;
+    }
+
+    public synchronized int waiting() {
+        return waiting.size();
+    }
+
+    private Ticket ticket() {
+        Ticket ticket = new Ticket();
+        boolean now;
+        synchronized (this) {
+            now = inUse < permits;
+            if (now) {
+                inUse++;
+                ticket.holds = true;
+            } else {
+                waiting.add(ticket);
+            }
+        }
+        if (now) ticket.granted.tryEmitEmpty();
+        return ticket;
+    }
+
+    /** One request's place in line; its permit passes straight to the next one in line. */
+    private final class Ticket {
+        final Sinks.Empty<Void> granted = Sinks.empty();
+        // guarded by the limiter
+        boolean holds;
+        boolean released;
+
+        void release() {
+            Ticket next;
+            synchronized (ConcurrencyLimiter.this) {
+                if (released) return;
+                released = true;
+                if (!holds) {
+                    waiting.remove(this);  // cancelled while waiting
+                    return;
+                }
+                next = waiting.poll();
+                if (next != null) {
+                    next.holds = true;
+                } else {
+                    inUse--;
+                }
+            }
+            // outside the lock: the next request may start on this thread
+            if (next != null) next.granted.tryEmitEmpty();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.genai.llm;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-text embedding requests, coalesced before they reach /embeddings:
+ * <ul>
+ *   <li>cache – vectors by SHA-256 of model + text, bounded LRU</li>
+ *   <li>dedup – a text already in flight shares the pending result</li>
+ *   <li>micro-batching – misses wait up to {@code max-wait-millis} for at most
+ *       {@code max-batch-size} others and go out as one request</li>
+ * </ul>
+ * While all {@code max-concurrent-batches} requests are busy, further misses wait in
+ * the queue. Should the dispatcher still die, whatever it held fails and a new one
+ * takes over, so later calls aren't stuck behind it.
+ * Returned vectors are shared with the cache: don't modify them.
+ */
+@Component
+@Profile("openai")
+public class EmbeddingClient {
+
+    private final OpenAIClient openAIClient;
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private final int maxConcurrentBatches;
+    private final int cacheSize;
+
+    private final Map<String, float[]> cache;
+    private final Map<String, Sinks.One<float[]>> inFlight = new ConcurrentHashMap<>();
+    // replaced together when the dispatcher dies (guarded by this)
+    private Sinks.Many<Pending> queue;
+    private Disposable dispatcher;
+    private boolean stopped;
+
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong inFlightHits = new AtomicLong();
+    private final AtomicLong apiCalls = new AtomicLong();
+    private final AtomicLong apiTexts = new AtomicLong();
+    private final AtomicLong promptTokens = new AtomicLong();
+
+    public EmbeddingClient(
+            OpenAIClient openAIClient,
+            @Value("${app.openai.embeddings.max-batch-size:128}") int maxBatchSize,
+            @Value("${app.openai.embeddings.max-wait-millis:20}") long maxWaitMillis,
+            @Value("${app.openai.embeddings.max-concurrent-batches:4}") int maxConcurrentBatches,
+            @Value("${app.openai.embeddings.cache-size:10000}") int cacheSize
+    ) {
+        this.openAIClient = openAIClient;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxWait = Duration.ofMillis(Math.max(1, maxWaitMillis));
+        this.maxConcurrentBatches = Math.max(1, maxConcurrentBatches);
+        this.cacheSize = Math.max(0, cacheSize);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > EmbeddingClient.this.cacheSize;
+            }
+        };
+
+        start();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        stopped = true;
+        dispatcher.dispose();
+    }
+
+    public Mono<float[]> embed(String text) {
+        return Mono.defer(() -> {
+            requested.incrementAndGet();
+            String key = key(text);
+
+            float[] cached;
+            synchronized (cache) {
+                cached = cache.get(key);
+            }
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return Mono.just(cached);
+            }
+
+            Sinks.One<float[]> mine = Sinks.one();
+            Sinks.One<float[]> pending = inFlight.putIfAbsent(key, mine);
+            if (pending != null) {
+                inFlightHits.incrementAndGet();
+                return pending.asMono();
+            }
+            enqueue(new Pending(key, text, mine));
+            return mine.asMono();
+        });
+    }
+
+    /** Embeds many texts; they share batches, the cache and in-flight requests with everyone else. */
+    public Mono<List<float[]>> embedAll(List<String> texts) {
+        return Flux.fromIterable(texts)
+                .flatMapSequential(this::embed, maxBatchSize * 8)
+                .collectList();
+    }
+
+    public EmbeddingStats stats() {
+        int cached;
+        synchronized (cache) {
+            cached = cache.size();
+        }
+        return new EmbeddingStats(requested.get(), cacheHits.get(), inFlightHits.get(),
+                apiCalls.get(), apiTexts.get(), promptTokens.get(), cached);
+    }
+
+    // ---------- batching ----------
+
+    private synchronized void start() {
+        Sinks.Many<Pending> fresh = Sinks.many().unicast().onBackpressureBuffer();
+        queue = fresh;
+        dispatcher = fresh.asFlux()
+                // fair backpressure: with every send slot busy, texts stay queued instead of
+                // bufferTimeout emitting a batch nobody requested (an overflow error)
+                .bufferTimeout(maxBatchSize, maxWait, true)
+                .flatMap(this::send, maxConcurrentBatches)
+                .subscribe(null, e -> restart(fresh, e));
+    }
+
+    private synchronized void restart(Sinks.Many<Pending> failed, Throwable e) {
+        if (stopped || queue != failed) return;
+        System.err.println("Embedding dispatcher failed, restarting – " + e);
+        // queued and sending texts went down with it; their callers would wait forever
+        for (String key : List.copyOf(inFlight.keySet())) {
+            Sinks.One<float[]> pending = inFlight.remove(key);
+            if (pending != null) {
+                pending.tryEmitError(new IllegalStateException("Embedding dispatcher failed", e));
+            }
+        }
+        start();
+    }
+
+    private synchronized void enqueue(Pending p) {
+        Sinks.EmitResult result = queue.tryEmitNext(p);
+        if (result.isFailure()) {
+            inFlight.remove(p.key());
+            p.result().tryEmitError(new IllegalStateException("Embedding queue rejected request: " + result));
+        }
+    }
+
+    private Mono<Void> send(List<Pending> batch) {
+        List<String> texts = batch.stream().map(Pending::text).toList();
+
+        return openAIClient.embed(texts)
+                .retryWhen(RetryPolicy.retry(3, Duration.ofSeconds(1)))
+                .doOnNext(res -> {
+                    apiCalls.incrementAndGet();
+                    apiTexts.addAndGet(batch.size());
+                    promptTokens.addAndGet(res.getPromptTokens());
+                    for (int i = 0; i < batch.size(); i++) {
+                        Pending p = batch.get(i);
+                        float[] vector = res.getVectors().get(i);
+                        // cache before leaving in-flight, so a concurrent caller always finds one of them
+                        if (cacheSize > 0) {
+                            synchronized (cache) {
+                                cache.put(p.key(), vector);
+                            }
+                        }
+                        inFlight.remove(p.key());
+                        p.result().tryEmitValue(vector);
+                    }
+                })
+                .doOnError(e -> {
+                    System.err.println("Embedding batch of " + batch.size() + " failed – " + e.getMessage());
+                    for (Pending p : batch) {
+                        inFlight.remove(p.key());
+                        p.result().tryEmitError(e);
+                    }
+                })
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private String key(String text) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(openAIClient.embedModel().getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+            sha.update(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Pending(String key, String text, Sinks.One<float[]> result) {}
+
+    public record EmbeddingStats(long requested, long cacheHits, long inFlightHits,
+                                 long apiCalls, long apiTexts, long promptTokens, int cachedVectors) {}
+}
@@ -0,0 +1,17 @@
+package com.example.genai.llm;
+
+import java.util.List;
+
+public class EmbeddingResult {
+    private final List<float[]> vectors;
+    private final int promptTokens;
+
+    public EmbeddingResult(List<float[]> vectors, int promptTokens) {
+        this.vectors = vectors;
+        this.promptTokens = promptTokens;
+    }
+
+    /** One vector per input, in input order. */
+    public List<float[]> getVectors() { return vectors; }
+    public int getPromptTokens() { return promptTokens; }
+}
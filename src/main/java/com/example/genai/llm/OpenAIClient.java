@@ -1,14 +1,18 @@
 package com.example.genai.llm;
 
-import com.example.genai.util.StreamJsonParsers;
+import com.example.genai.util.DeltaContentReader;
+import com.example.genai.util.SseDecoder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -18,7 +22,8 @@ import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import reactor.netty.http.client.HttpClient;
 
-import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -75,21 +80,19 @@ public class OpenAIClient {
 
     // ---------- CHAT ONCE (returns text + token usage) ----------
 
-    public Mono<LLMResult> chatOnce(String system, List<Map<String, String>> messages) {
+    /** Sampling temperature of every chat call. */
+    public static final double CHAT_TEMPERATURE = 0.2;
 
-        var msgList = new ArrayList<Map<String, String>>(messages == null ? List.of() : messages);
+    public String chatModel() {
+        return chatModel;
+    }
 
-        // Ensure system is at the beginning only once
-        if (system != null && !system.isBlank()) {
-            if (msgList.isEmpty() || !"system".equals(msgList.get(0).get("role"))) {
-                msgList.add(0, Map.of("role", "system", "content", system));
-            }
-        }
+    public Mono<LLMResult> chatOnce(String system, List<Map<String, String>> messages) {
 
         Map<String, Object> payload = Map.of(
                 "model", chatModel,
-                "messages", msgList,
-                "temperature", 0.2
+                "messages", withSystem(system, messages),
+                "temperature", CHAT_TEMPERATURE
         );
 
         return http.post()
@@ -99,44 +102,133 @@ public class OpenAIClient {
                 .bodyValue(payload)
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
-                .map(res -> {
-                    int promptTokens = 0;
-                    int completionTokens = 0;
-
-                    Object usageObj = res.get("usage");
-                    if (usageObj instanceof Map<?, ?> usage) {
-                        promptTokens = safeInt(usage.get("prompt_tokens"));
-                        completionTokens = safeInt(usage.get("completion_tokens"));
-                    }
-
-                    Object choicesObj = res.get("choices");
-                    if (!(choicesObj instanceof List<?> choices) || choices.isEmpty()) {
-                        return new LLMResult("", promptTokens, completionTokens);
-                    }
-
-                    Object first = choices.get(0);
-                    if (!(first instanceof Map<?, ?> firstMap)) {
-                        return new LLMResult("", promptTokens, completionTokens);
-                    }
-
-                    Object messageObj = firstMap.get("message");
-                    String content = "";
-
-                    if (messageObj instanceof Map<?, ?> msgMap) {
-                        Object c = msgMap.get("content");
-                        content = c == null ? "" : c.toString();
-                    }
-
-                    content = content.replaceAll("\\s*\\n+\\s*", " ").trim();
-                    return new LLMResult(content, promptTokens, completionTokens);
-                });
+                .map(this::parseChatCompletion);
+    }
+
+    /** Extracts text + token usage from a /chat/completions response body. */
+    public LLMResult parseChatCompletion(Map<?, ?> res) {
+        int promptTokens = 0;
+        int completionTokens = 0;
+
+        Object usageObj = res.get("usage");
+        if (usageObj instanceof Map<?, ?> usage) {
+            promptTokens = safeInt(usage.get("prompt_tokens"));
+            completionTokens = safeInt(usage.get("completion_tokens"));
+        }
+
+        Object choicesObj = res.get("choices");
+        if (!(choicesObj instanceof List<?> choices) || choices.isEmpty()) {
+            return new LLMResult("", promptTokens, completionTokens);
+        }
+
+        Object first = choices.get(0);
+        if (!(first instanceof Map<?, ?> firstMap)) {
+            return new LLMResult("", promptTokens, completionTokens);
+        }
+
+        Object messageObj = firstMap.get("message");
+        String content = "";
+
+        if (messageObj instanceof Map<?, ?> msgMap) {
+            Object c = msgMap.get("content");
+            content = c == null ? "" : c.toString();
+        }
+
+        content = content.replaceAll("\\s*\\n+\\s*", " ").trim();
+        return new LLMResult(content, promptTokens, completionTokens);
+    }
+
+    // ---------- BATCH API (offline bulk chat completions) ----------
+
+    /** One line of a batch input file: a /chat/completions request tagged with {@code customId}. */
+    public Map<String, Object> batchChatRequest(String customId, String system, List<Map<String, String>> messages) {
+        return Map.of(
+                "custom_id", customId,
+                "method", "POST",
+                "url", "/v1/chat/completions",
+                "body", Map.of(
+                        "model", chatModel,
+                        "messages", withSystem(system, messages),
+                        "temperature", CHAT_TEMPERATURE
+                )
+        );
+    }
+
+    /** Uploads a JSONL request file with purpose=batch and returns its file id. */
+    public Mono<String> uploadBatchFile(Path jsonl) {
+        MultipartBodyBuilder parts = new MultipartBodyBuilder();
+        parts.part("purpose", "batch");
+        parts.part("file", new FileSystemResource(jsonl)).filename(jsonl.getFileName().toString());
+
+        return http.post()
+                .uri("/files")
+                .headers(h -> h.setBearerAuth(apiKey))
+                .body(BodyInserters.fromMultipartData(parts.build()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .map(res -> String.valueOf(res.get("id")));
+    }
+
+    public Mono<BatchStatus> createBatch(String inputFileId) {
+        Map<String, Object> payload = Map.of(
+                "input_file_id", inputFileId,
+                "endpoint", "/v1/chat/completions",
+                "completion_window", "24h"
+        );
+
+        return http.post()
+                .uri("/batches")
+                .contentType(MediaType.APPLICATION_JSON)
+                .headers(h -> h.setBearerAuth(apiKey))
+                .bodyValue(payload)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .map(this::toBatchStatus);
+    }
+
+    public Mono<BatchStatus> getBatch(String batchId) {
+        return http.get()
+                .uri("/batches/{id}", batchId)
+                .headers(h -> h.setBearerAuth(apiKey))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .map(this::toBatchStatus);
+    }
+
+    /** Streams a file's content (e.g. batch output) straight to disk without buffering it in memory. */
+    public Mono<Path> downloadFile(String fileId, Path target) {
+        Flux<DataBuffer> body = http.get()
+                .uri("/files/{id}/content", fileId)
+                .headers(h -> h.setBearerAuth(apiKey))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+
+        return DataBufferUtils.write(body, target,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)
+                .thenReturn(target);
+    }
+
+    private BatchStatus toBatchStatus(Map<?, ?> res) {
+        int total = 0, completed = 0, failed = 0;
+        if (res.get("request_counts") instanceof Map<?, ?> counts) {
+            total = safeInt(counts.get("total"));
+            completed = safeInt(counts.get("completed"));
+            failed = safeInt(counts.get("failed"));
+        }
+        return new BatchStatus(
+                String.valueOf(res.get("id")),
+                String.valueOf(res.get("status")),
+                res.get("output_file_id") instanceof String s ? s : null,
+                res.get("error_file_id") instanceof String s ? s : null,
+                total, completed, failed);
     }
 
     // ---------- CHAT STREAM (SSE tokens) ----------
 
     /**
      * Streams assistant tokens as Flux<String>.
-     * Robust SSE parsing using DataBuffer + "\n\n" event boundary.
+     * Buffers are decoded in place by {@link SseDecoder}; each event's delta is read
+     * by a streaming {@link DeltaContentReader}, so there's no per-chunk String or tree.
      */
     public Flux<String> chatStream(String system, List<Map<String, String>> messages) {
 
@@ -153,11 +245,12 @@ public class OpenAIClient {
             Map<String, Object> payload = new HashMap<>();
             payload.put("model", chatModel);
             payload.put("messages", msgList);
-            payload.put("temperature", 0.2);
+            payload.put("temperature", CHAT_TEMPERATURE);
             payload.put("stream", true);
 
-            // IMPORTANT: buffer must be per-subscription and processed sequentially
-            final StringBuilder buf = new StringBuilder();
+            // per-subscription decoder state; Reactor hands us the buffers one at a time
+            SseDecoder sse = new SseDecoder();
+            DeltaContentReader deltas = new DeltaContentReader();
 
             return http.post()
                     .uri("/chat/completions")
@@ -167,67 +260,86 @@ public class OpenAIClient {
                     .bodyValue(payload)
                     .retrieve()
                     .bodyToFlux(DataBuffer.class)
-
-                    // CRITICAL: concatMap ensures sequential processing (no concurrent delete/append)
-                    .concatMap(db -> {
-                        try {
-                            byte[] bytes = new byte[db.readableByteCount()];
-                            db.read(bytes);
-                            String chunk = new String(bytes, StandardCharsets.UTF_8);
-
-                            buf.append(chunk);
-
-                            List<String> out = new ArrayList<>();
-
-                            while (true) {
-                                int idxLfLf = buf.indexOf("\n\n");
-                                int idxCrLfCrLf = buf.indexOf("\r\n\r\n");
-
-                                int idx;
-                                int delimLen;
-
-                                if (idxLfLf >= 0 && (idxCrLfCrLf < 0 || idxLfLf < idxCrLfCrLf)) {
-                                    idx = idxLfLf;
-                                    delimLen = 2;
-                                } else if (idxCrLfCrLf >= 0) {
-                                    idx = idxCrLfCrLf;
-                                    delimLen = 4;
-                                } else {
-                                    break; // no complete SSE event yet
-                                }
-
-                                String eventBlock = buf.substring(0, idx);
-                                buf.delete(0, idx + delimLen);
-
-                                // Parse SSE lines
-                                for (String line : eventBlock.split("\\r?\\n")) {
-                                    line = line.trim();
-                                    if (!line.startsWith("data:")) continue;
-
-                                    String data = line.substring("data:".length()).trim();
-                                    if (data.isEmpty() || "[DONE]".equals(data)) continue;
-
-                                    // Your parser: should extract delta content tokens
-                                    List<String> tokens = StreamJsonParsers.extractDeltaContent(data);
-                                    if (tokens != null && !tokens.isEmpty()) {
-                                        out.addAll(tokens);
-                                    }
-                                }
+                    .flatMapIterable(db -> {
+                        List<String> tokens = new ArrayList<>(2);
+                        try (DataBuffer.ByteBufferIterator it = db.readableByteBuffers()) {
+                            while (it.hasNext()) {
+                                sse.feed(it.next(), (data, off, len) -> {
+                                    if (DeltaContentReader.isDone(data, off, len)) return;
+                                    String token = deltas.read(data, off, len);
+                                    // whitespace-only deltas are kept: they carry the newlines
+                                    if (token != null && !token.isEmpty()) tokens.add(token);
+                                });
                             }
-
-                            return Flux.fromIterable(out);
-
                         } finally {
                             DataBufferUtils.release(db);
                         }
-                    })
-                    .filter(s -> s != null && !s.isBlank());
+                        return tokens;
+                    });
         });
     }
 
 
+    // ---------- EMBEDDINGS ----------
+
+    /** One /embeddings call for all inputs; see {@link EmbeddingClient} for batching and caching. */
+    public Mono<EmbeddingResult> embed(List<String> inputs) {
+        Map<String, Object> payload = Map.of(
+                "model", embedModel,
+                "input", inputs
+        );
+
+        return http.post()
+                .uri("/embeddings")
+                .contentType(MediaType.APPLICATION_JSON)
+                .headers(h -> h.setBearerAuth(apiKey))
+                .bodyValue(payload)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
+                .map(res -> parseEmbeddings(res, inputs.size()));
+    }
+
+    public String embedModel() {
+        return embedModel;
+    }
+
+    private EmbeddingResult parseEmbeddings(Map<?, ?> res, int expected) {
+        int promptTokens = res.get("usage") instanceof Map<?, ?> usage ? safeInt(usage.get("prompt_tokens")) : 0;
+
+        float[][] vectors = new float[expected][];
+        if (res.get("data") instanceof List<?> data) {
+            for (Object item : data) {
+                if (!(item instanceof Map<?, ?> entry) || !(entry.get("embedding") instanceof List<?> values)) continue;
+                int index = safeInt(entry.get("index"));
+                if (index < 0 || index >= expected) continue;
+
+                float[] v = new float[values.size()];
+                for (int i = 0; i < v.length; i++) v[i] = ((Number) values.get(i)).floatValue();
+                vectors[index] = v;
+            }
+        }
+        for (int i = 0; i < expected; i++) {
+            if (vectors[i] == null) {
+                throw new IllegalStateException("Embeddings response is missing input " + i + " of " + expected);
+            }
+        }
+        return new EmbeddingResult(Arrays.asList(vectors), promptTokens);
+    }
+
     // ---------- helpers ----------
 
+    // Ensure system is at the beginning only once
+    private List<Map<String, String>> withSystem(String system, List<Map<String, String>> messages) {
+        var msgList = new ArrayList<Map<String, String>>(messages == null ? List.of() : messages);
+
+        if (system != null && !system.isBlank()) {
+            if (msgList.isEmpty() || !"system".equals(msgList.get(0).get("role"))) {
+                msgList.add(0, Map.of("role", "system", "content", system));
+            }
+        }
+        return msgList;
+    }
+
     private int safeInt(Object value) {
         if (value == null) return 0;
         if (value instanceof Number num) return num.intValue();
@@ -238,16 +350,27 @@ public class OpenAIClient {
         return 0;
     }
 
-    // ---------- TEXT → SPEECH (MP3) ----------
+    // ---------- TEXT → SPEECH (PCM) ----------
 
-    public Mono<TtsResult> textToSpeech(String text, String voice) {
-        String instructions = "Please respond in sweet and friendly way so that the listener would be attracted and listens !!";
+    public static final String TTS_MODEL = "gpt-4o-mini-tts";
+
+    public static final String TTS_INSTRUCTIONS =
+            "Please respond in sweet and friendly way so that the listener would be attracted and listens !!";
+
+    /** Sample format of {@link #speechPcm}: 24 kHz, 16-bit signed little-endian, mono. */
+    public static final int PCM_SAMPLE_RATE = 24000;
+
+    /**
+     * Speech for {@code text} as raw PCM ({@link #PCM_SAMPLE_RATE}), emitted buffer by buffer
+     * as it arrives; nothing is aggregated. Errors are {@code WebClientResponseException}s.
+     */
+    public Flux<DataBuffer> speechPcm(String text, String voice) {
         Map<String, Object> payload = Map.of(
-                "model", "gpt-4o-mini-tts",
+                "model", TTS_MODEL,
                 "input", text,
                 "voice", voice,
-                "format", "wav",
-                "instructions", instructions
+                "response_format", "pcm",
+                "instructions", TTS_INSTRUCTIONS
         );
 
         return audioHttp.post()
@@ -256,17 +379,6 @@ public class OpenAIClient {
                 .headers(h -> h.setBearerAuth(apiKey))
                 .bodyValue(payload)
                 .retrieve()
-                .bodyToMono(byte[].class)
-                .map(bytes -> {
-                    int promptTokens = 0;      // TTS endpoint currently doesn't return usage
-                    int completionTokens = 0;
-
-                    System.out.println("TTS call completed, bytes length = " +
-                            (bytes != null ? bytes.length : 0));
-                    System.out.println("TTS Tokens → IN=" + promptTokens +
-                            " OUT=" + completionTokens);
-
-                    return new TtsResult(bytes, promptTokens, completionTokens);
-                });
+                .bodyToFlux(DataBuffer.class);
     }
 }
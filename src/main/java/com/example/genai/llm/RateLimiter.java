@@ -0,0 +1,77 @@
+package com.example.genai.llm;
+
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Requests-per-minute + tokens-per-minute budget for one API key.
+ * Callers reserve a request (with an estimated token cost) up front and wait out
+ * whatever deficit that leaves; the estimate is corrected once real usage is known.
+ * A budget of 0 or less means "unlimited".
+ */
+public class RateLimiter {
+
+    private static final double NANOS_PER_MINUTE = 60_000_000_000d;
+
+    private final double requestCapacity;
+    private final double tokenCapacity;
+    private final double requestsPerNano;
+    private final double tokensPerNano;
+
+    private double requests;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    public RateLimiter(int requestsPerMinute, int tokensPerMinute) {
+        this.requestCapacity = requestsPerMinute;
+        this.tokenCapacity = tokensPerMinute;
+        this.requestsPerNano = requestsPerMinute / NANOS_PER_MINUTE;
+        this.tokensPerNano = tokensPerMinute / NANOS_PER_MINUTE;
+        this.requests = requestsPerMinute;
+        this.tokens = tokensPerMinute;
+    }
+
+    /** Completes once one request costing {@code estimatedTokens} fits in the budget. */
+    public Mono<Void> acquire(int estimatedTokens) {
+        return Mono.defer(() -> {
+            Duration wait = reserve(estimatedTokens);
+            return wait.isZero() ? Mono.empty() : Mono.delay(wait).then();
+        });
+    }
+
+    /** Gives back (or charges) the difference between the estimate and actual usage. */
+    public synchronized void reconcile(int estimatedTokens, int actualTokens) {
+        if (tokenCapacity <= 0 || actualTokens <= 0) return;
+        refill();
+        tokens = Math.min(tokenCapacity, tokens + estimatedTokens - actualTokens);
+    }
+
+    synchronized Duration reserve(int estimatedTokens) {
+        refill();
+        long waitNanos = 0;
+
+        if (requestCapacity > 0) {
+            requests -= 1;
+            waitNanos = Math.max(waitNanos, deficitNanos(requests, requestsPerNano));
+        }
+        if (tokenCapacity > 0) {
+            // a single request larger than the whole budget would otherwise never fit
+            tokens -= Math.min(estimatedTokens, tokenCapacity);
+            waitNanos = Math.max(waitNanos, deficitNanos(tokens, tokensPerNano));
+        }
+        return Duration.ofNanos(waitNanos);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long elapsed = now - lastRefill;
+        lastRefill = now;
+        if (requestCapacity > 0) requests = Math.min(requestCapacity, requests + elapsed * requestsPerNano);
+        if (tokenCapacity > 0) tokens = Math.min(tokenCapacity, tokens + elapsed * tokensPerNano);
+    }
+
+    private static long deficitNanos(double balance, double ratePerNano) {
+        return balance >= 0 ? 0 : (long) Math.ceil(-balance / ratePerNano);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.genai.llm;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Which API failures are worth another attempt, and when. Only 429, 5xx and I/O or
+ * timeout errors are retried; a 400 / 401 / 404 (or a bug) fails at once instead of
+ * being sent again and charged against the rate budget. A 429's {@code Retry-After}
+ * is waited out; otherwise backoff is exponential with jitter.
+ */
+public final class RetryPolicy {
+
+    // never park a request longer than this on one Retry-After
+    private static final Duration MAX_RETRY_AFTER = Duration.ofMinutes(2);
+
+    private RetryPolicy() {}
+
+    public static boolean retryable(Throwable e) {
+        if (e instanceof WebClientResponseException w) {
+            return w.getStatusCode().value() == 429 || w.getStatusCode().is5xxServerError();
+        }
+        // connect / read failures, whatever wraps them
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof WebClientRequestException || t instanceof IOException
+                    || t instanceof TimeoutException || t instanceof io.netty.handler.timeout.TimeoutException) {
+                return true;
+            }
+            if (t.getCause() == t) break;
+        }
+        return false;
+    }
+
+    /** Server-requested wait of a 429 / 503 ({@code Retry-After}: seconds or an HTTP date). */
+    public static Optional<Duration> retryAfter(Throwable e) {
+        if (!(e instanceof WebClientResponseException w)) return Optional.empty();
+        String value = w.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (value == null || value.isBlank()) return Optional.empty();
+        Duration wait;
+        try {
+            wait = Duration.ofSeconds(Long.parseLong(value.trim()));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                wait = Duration.between(ZonedDateTime.now(),
+                        ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+            } catch (DateTimeParseException notDate) {
+                return Optional.empty();
+            }
+        }
+        if (wait.isNegative()) wait = Duration.ZERO;
+        return Optional.of(wait.compareTo(MAX_RETRY_AFTER) > 0 ? MAX_RETRY_AFTER : wait);
+    }
+
+    /** Delay before retry number {@code attempt} (0-based): {@code Retry-After}, else backoff ±50 %. */
+    public static Duration delay(Throwable e, long attempt, Duration minBackoff) {
+        return retryAfter(e).orElseGet(() -> {
+            long base = minBackoff.toMillis() << Math.min(attempt, 16);
+            long jitter = (long) (base * ThreadLocalRandom.current().nextDouble(-0.5, 0.5));
+            return Duration.ofMillis(Math.max(1, base + jitter));
+        });
+    }
+
+    /** {@code retryWhen} spec: up to {@code maxRetries} retries of {@link #retryable} failures. */
+    public static Retry retry(int maxRetries, Duration minBackoff) {
+        return Retry.from(signals -> signals.concatMap(signal -> {
+            Throwable failure = signal.failure();
+            if (signal.totalRetries() >= maxRetries || !retryable(failure)) {
+                return Mono.error(failure);
+            }
+            return Mono.delay(delay(failure, signal.totalRetries(), minBackoff));
+        }));
+    }
+}
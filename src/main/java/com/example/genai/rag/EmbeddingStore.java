@@ -1,24 +1,265 @@
 package com.example.genai.rag;
 
 import com.example.genai.util.Cosine;
+
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Chunk texts by id plus a {@link VectorIndex} over their normalized embeddings.
+ * Vectors are normalized once on upsert and live only in the index's off-heap
+ * slab, so queries only need dot products and the heap holds just the text.
+ *
+ * A store opened on a directory is persistent: {@link #snapshot()} writes a new
+ * {@code snapshot-<millis>} directory (vectors, ids, graph, texts, meta) and then
+ * atomically repoints {@code CURRENT} at it, so a crash never leaves a half-written
+ * snapshot in use. On startup the current snapshot's vectors are memory-mapped,
+ * not read or re-embedded; a damaged snapshot stops startup rather than being
+ * replaced by an empty store.
+ */
+public class EmbeddingStore implements AutoCloseable {
+
+    private static final String CURRENT = "CURRENT";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String META = "meta.properties";
+    private static final String TEXTS = "texts.bin";
+    private static final String FORMAT = "1";
+
+    private final Map<String, String> texts = new ConcurrentHashMap<>();
+    private final VectorIndex index;
+
+    private final Path dir;
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // mutations share the read side; a snapshot takes the write side to get a consistent cut
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    private ScheduledExecutorService snapshotter;
+
+    public EmbeddingStore() {
+        this(new FlatIndex());
+    }
+
+    public EmbeddingStore(VectorIndex index) {
+        this(index, null);
+    }
+
+    private EmbeddingStore(VectorIndex index, Path dir) {
+        this.index = index;
+        this.dir = dir;
+    }
 
-public class EmbeddingStore {
-    private final List<TextChunk> store = new CopyOnWriteArrayList<>();
+    /**
+     * Opens a persistent store in {@code dir}, restoring the current snapshot if any,
+     * and snapshots every {@code interval} while there are unsaved changes.
+     */
+    public static EmbeddingStore open(VectorIndex index, Path dir, Duration interval) throws IOException {
+        EmbeddingStore store = new EmbeddingStore(index, dir);
+        store.restore();
+        if (interval != null && !interval.isZero() && !interval.isNegative()) {
+            store.snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "rag-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            store.snapshotter.scheduleWithFixedDelay(store::snapshotIfDirty,
+                    interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return store;
+    }
 
     public void upsert(TextChunk chunk) {
-        store.removeIf(c -> c.id().equals(chunk.id()));
-        store.add(chunk);
+        snapshotLock.readLock().lock();
+        try {
+            index.upsert(chunk.id(), Cosine.normalize(chunk.embedding()));
+            texts.put(chunk.id(), chunk.text());
+            dirty.set(true);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    public boolean remove(String id) {
+        snapshotLock.readLock().lock();
+        try {
+            texts.remove(id);
+            dirty.set(true);
+            return index.remove(id);
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
     }
 
+    /** Best matches; the returned chunks carry the normalized embedding. */
     public List<TextChunk> topK(float[] query, int k) {
-        return store.stream()
-                .sorted((a,b) -> Float.compare(
-                        Cosine.similarity(b.embedding(), query),
-                        Cosine.similarity(a.embedding(), query)
-                ))
-                .limit(k)
-                .toList();
+        List<TextChunk> out = new ArrayList<>(k);
+        for (VectorIndex.Hit hit : search(query, k)) {
+            String text = texts.get(hit.id());
+            float[] embedding = index.vector(hit.id());
+            if (text != null && embedding != null) out.add(new TextChunk(hit.id(), text, embedding));
+        }
+        return out;
+    }
+
+    public Optional<String> text(String id) {
+        return Optional.ofNullable(texts.get(id));
+    }
+
+    /** Best {@code k} ids with their cosine similarity, highest first. */
+    public List<VectorIndex.Hit> search(float[] query, int k) {
+        return index.search(Cosine.normalize(query), k);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /** Compression / recall report when the index is quantized and trained. */
+    public Optional<QuantizationReport> quantizationReport() {
+        return index instanceof QuantizedIndex q ? q.report() : Optional.empty();
+    }
+
+    // ---------- persistence ----------
+
+    /** Writes a new snapshot and makes it current. No-op for in-memory stores. */
+    public void snapshot() throws IOException {
+        if (dir == null) return;
+        long start = System.currentTimeMillis();
+        String name;
+
+        snapshotLock.writeLock().lock();
+        try {
+            dirty.set(false);
+            // never reuse a directory: the current snapshot's vectors are mapped
+            long suffix = start;
+            while (Files.exists(dir.resolve(SNAPSHOT_PREFIX + suffix))) suffix++;
+            name = SNAPSHOT_PREFIX + suffix;
+            Path target = dir.resolve(name);
+            Files.createDirectories(target);
+
+            Properties meta = new Properties();
+            meta.setProperty("format", FORMAT);
+            meta.setProperty("byte-order", ByteOrder.nativeOrder().toString());
+            meta.setProperty("chunks", String.valueOf(texts.size()));
+            index.save(target, meta);
+            writeTexts(target.resolve(TEXTS));
+            try (OutputStream out = Files.newOutputStream(target.resolve(META))) {
+                meta.store(out, "EmbeddingStore snapshot");
+            }
+
+            Path tmp = dir.resolve(CURRENT + ".tmp");
+            Files.writeString(tmp, name);
+            Files.move(tmp, dir.resolve(CURRENT), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+
+        deleteSnapshotsOtherThan(name);
+        System.out.println("RAG store snapshot " + name + ": " + texts.size() + " chunks in "
+                + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    @Override
+    public void close() {
+        if (snapshotter != null) snapshotter.shutdownNow();
+        snapshotIfDirty();
+    }
+
+    private void snapshotIfDirty() {
+        if (!dirty.get()) return;
+        try {
+            snapshot();
+        } catch (Exception e) {
+            System.err.println("RAG store snapshot failed – " + e.getMessage());
+        }
+    }
+
+    private void restore() throws IOException {
+        Files.createDirectories(dir);
+        Path current = dir.resolve(CURRENT);
+        if (!Files.exists(current)) {
+            System.out.println("RAG store " + dir + " is empty");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Path snapshot = dir.resolve(Files.readString(current).trim());
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(snapshot.resolve(META))) {
+            meta.load(in);
+        }
+        if (!FORMAT.equals(meta.getProperty("format"))
+                || !ByteOrder.nativeOrder().toString().equals(meta.getProperty("byte-order"))) {
+            System.err.println("RAG store snapshot " + snapshot + " has an unsupported format, starting empty");
+            return;
+        }
+
+        String how = "mapped";
+        try {
+            if (!index.load(snapshot, meta)) {
+                // index type or build settings changed: rebuild from the saved vectors (no embedding calls)
+                SnapshotFiles.forEachLive(snapshot, meta, index::upsert);
+                how = "rebuilt " + meta.getProperty(SnapshotFiles.KEY_INDEX) + " snapshot into the configured index";
+                dirty.set(true);
+            }
+            readTexts(snapshot.resolve(TEXTS));
+        } catch (IOException | RuntimeException e) {
+            // refuse to start rather than overwrite the only copy with an empty store
+            throw new IOException("RAG store snapshot " + snapshot + " is damaged – restore it or delete " + current
+                    + " to start empty: " + e.getMessage(), e);
+        }
+        System.out.println("RAG store restored " + index.size() + " vectors / " + texts.size() + " chunks from "
+                + snapshot.getFileName() + " (" + how + ") in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private void writeTexts(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(texts.size());
+            for (Map.Entry<String, String> e : texts.entrySet()) {
+                out.writeUTF(e.getKey());
+                byte[] text = e.getValue().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(text.length);
+                out.write(text);
+            }
+        }
+    }
+
+    private void readTexts(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            for (int i = in.readInt(); i > 0; i--) {
+                String id = in.readUTF();
+                byte[] text = new byte[in.readInt()];
+                in.readFully(text);
+                texts.put(id, new String(text, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private void deleteSnapshotsOtherThan(String keep) {
+        try (Stream<Path> entries = Files.list(dir)) {
+            for (Path old : entries.filter(p -> p.getFileName().toString().startsWith(SNAPSHOT_PREFIX)
+                    && !p.getFileName().toString().equals(keep)).toList()) {
+                try (Stream<Path> files = Files.walk(old)) {
+                    for (Path f : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(f);
+                } catch (IOException e) {
+                    // e.g. still memory-mapped on Windows; retried after the next snapshot
+                    System.err.println("Could not delete old RAG snapshot " + old + " – " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list RAG store " + dir + " – " + e.getMessage());
+        }
     }
 }
@@ -0,0 +1,181 @@
+package com.example.genai.rag;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Exact search: one linear scan over the {@link VectorSlab}, scored in blocks by
+ * the SIMD kernels and kept in a bounded min-heap (O(n log k), no per-query sort).
+ * Deletes move the last slot into the hole, so the slab stays dense.
+ */
+public class FlatIndex implements VectorIndex {
+
+    static final String KIND = "flat";
+    private static final int BLOCK = 256;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private String[] ids = new String[64];
+    VectorSlab slab;
+
+    @Override
+    public void upsert(String id, float[] normalized) {
+        lock.writeLock().lock();
+        try {
+            if (slab == null) slab = newSlab(normalized.length);
+            Integer slot = slots.get(id);
+            if (slot != null) {
+                slab.set(slot, normalized);
+            } else {
+                slot = slab.append(normalized);
+                if (slot == ids.length) ids = Arrays.copyOf(ids, slot * 2);
+                ids[slot] = id;
+                slots.put(id, slot);
+            }
+            written(slot, normalized);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(id);
+            if (slot == null) return false;
+            int last = slab.size() - 1;
+            if (slot != last) {
+                slab.copy(last, slot);
+                ids[slot] = ids[last];
+                slots.put(ids[slot], slot);
+                moved(last, slot);
+            }
+            slab.removeLast();
+            removedLast();
+            ids[last] = null;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Hit> search(float[] query, int k) {
+        if (k <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            return searchExact(query, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Exact scan; caller holds the lock. */
+    List<Hit> searchExact(float[] query, int k) {
+        if (slab == null) return List.of();
+        slab.checkDimension(query);
+        ScoreHeap top = ScoreHeap.min(k);
+        float[] block = new float[BLOCK];
+        for (int first = 0, n = slab.size(); first < n; first += BLOCK) {
+            int count = Math.min(BLOCK, n - first);
+            slab.dotMany(first, count, query, block);
+            for (int j = 0; j < count; j++) {
+                top.offerBounded(block[j], first + j, k);
+            }
+        }
+        return hits(top);
+    }
+
+    /** Drains a top-k heap of slots into hits, best first. */
+    List<Hit> hits(ScoreHeap top) {
+        float[] scores = new float[top.size()];
+        int[] best = top.drainBestFirst(scores);
+        List<Hit> hits = new ArrayList<>(best.length);
+        for (int i = 0; i < best.length; i++) {
+            hits.add(new Hit(ids[best[i]], scores[i]));
+        }
+        return hits;
+    }
+
+    @Override
+    public float[] vector(String id) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(id);
+            return slot == null ? null : slab.get(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slots.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void save(Path dir, Properties meta) throws IOException {
+        lock.readLock().lock();
+        try {
+            meta.setProperty(SnapshotFiles.KEY_INDEX, kind());
+            SnapshotFiles.writeSlab(dir, slab, ids, null, meta);
+            saveExtra(dir, meta);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean load(Path dir, Properties meta) throws IOException {
+        if (!accepts(meta)) return false;
+        lock.writeLock().lock();
+        try {
+            int slotCount = SnapshotFiles.slots(meta);
+            if (slotCount == 0) return true;
+            String[] saved = SnapshotFiles.readIds(dir.resolve(SnapshotFiles.IDS), slotCount);
+            slab = VectorSlab.map(dir.resolve(SnapshotFiles.VECTORS), SnapshotFiles.dimension(meta), slotCount);
+            ids = Arrays.copyOf(saved, Math.max(64, Integer.highestOneBit(slotCount) << 1));
+            for (int i = 0; i < slotCount; i++) {
+                slots.put(saved[i], i);
+            }
+            loadExtra(dir, meta);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------- hooks for subclasses keeping per-slot data (called with the lock held) ----------
+
+    /** The slab a fresh index stores its vectors in. */
+    VectorSlab newSlab(int dimension) {
+        return new VectorSlab(dimension);
+    }
+
+    String kind() {
+        return KIND;
+    }
+
+    boolean accepts(Properties meta) {
+        return kind().equals(meta.getProperty(SnapshotFiles.KEY_INDEX));
+    }
+
+    void written(int slot, float[] normalized) {}
+
+    void moved(int from, int to) {}
+
+    void removedLast() {}
+
+    void saveExtra(Path dir, Properties meta) throws IOException {}
+
+    void loadExtra(Path dir, Properties meta) throws IOException {}
+}
@@ -0,0 +1,446 @@
+package com.example.genai.rag;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph (Malkov &amp; Yashunin) over normalized vectors
+ * held in a {@link VectorSlab} (node number = slab slot).
+ * <ul>
+ *   <li>{@code m} – links per node on upper layers ({@code 2m} on layer 0)</li>
+ *   <li>{@code efConstruction} – candidate list size while inserting (build quality)</li>
+ *   <li>{@code efSearch} – candidate list size while querying (recall vs latency)</li>
+ * </ul>
+ * Removal tombstones the node: it still routes searches but never takes one of the
+ * {@code ef} result places, so churn doesn't cost recall. Upserting an existing id
+ * tombstones the old node and inserts a fresh one. Once tombstones make up
+ * {@code COMPACT_RATIO} of the nodes, the graph is rebuilt from the live ones, which
+ * frees their slab rows and links.
+ */
+public class HnswIndex implements VectorIndex {
+
+    static final String KIND = "hnsw";
+    private static final String GRAPH = "hnsw.bin";
+    // rebuild once this share of the nodes are tombstones (and at least MIN_TOMBSTONES of them)
+    static final double COMPACT_RATIO = 0.25;
+    static final int MIN_TOMBSTONES = 64;
+
+    private final int m;
+    private final int mMax0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> nodeById = new HashMap<>();
+
+    private String[] ids = new String[64];
+    private VectorSlab slab;
+    /** links[node][level] = {count, n1, n2, ...} */
+    private int[][][] links = new int[64][][];
+    private final BitSet deleted = new BitSet();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    public HnswIndex(int m, int efConstruction, int efSearch) {
+        this.m = Math.max(2, m);
+        this.mMax0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.efSearch = Math.max(1, efSearch);
+        this.levelMultiplier = 1 / Math.log(this.m);
+    }
+
+    @Override
+    public void upsert(String id, float[] normalized) {
+        lock.writeLock().lock();
+        try {
+            if (slab == null) slab = new VectorSlab(normalized.length);
+            slab.checkDimension(normalized);
+            Integer old = nodeById.get(id);
+            if (old != null) deleted.set(old);
+            nodeById.put(id, insert(id, normalized));
+            if (old != null) compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeById.remove(id);
+            if (node == null) return false;
+            deleted.set(node);
+            compactIfNeeded();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Hit> search(float[] query, int k) {
+        if (k <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            if (nodeById.isEmpty()) return List.of();
+            slab.checkDimension(query);
+
+            int ep = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                ep = greedyClosest(query, ep, level);
+            }
+            ScoreHeap found = searchLayer(query, ep, Math.max(efSearch, k), 0, true);
+
+            ScoreHeap top = ScoreHeap.min(k);
+            while (!found.isEmpty()) {
+                float score = found.topScore();
+                top.offerBounded(score, found.pop(), k);
+            }
+            float[] scores = new float[top.size()];
+            int[] best = top.drainBestFirst(scores);
+            List<Hit> hits = new ArrayList<>(best.length);
+            for (int i = 0; i < best.length; i++) {
+                hits.add(new Hit(ids[best[i]], scores[i]));
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public float[] vector(String id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodeById.get(id);
+            return node == null ? null : slab.get(node);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Nodes in the graph, tombstones included. */
+    int nodes() {
+        lock.readLock().lock();
+        try {
+            return slab == null ? 0 : slab.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------- snapshot (vectors + ids + graph) ----------
+
+    @Override
+    public void save(Path dir, Properties meta) throws IOException {
+        lock.readLock().lock();
+        try {
+            meta.setProperty(SnapshotFiles.KEY_INDEX, KIND);
+            meta.setProperty("hnsw.m", String.valueOf(m));
+            meta.setProperty("hnsw.ef-construction", String.valueOf(efConstruction));
+            SnapshotFiles.writeSlab(dir, slab, ids, deleted, meta);
+
+            int nodes = slab == null ? 0 : slab.size();
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(dir.resolve(GRAPH)), 1 << 16))) {
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                for (int node = 0; node < nodes; node++) {
+                    out.writeByte(links[node].length);
+                    for (int[] list : links[node]) {
+                        out.writeShort(list[0]);
+                        for (int i = 1; i <= list[0]; i++) out.writeInt(list[i]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Loads a graph built with the same {@code m} and {@code efConstruction}; {@code efSearch} may differ. */
+    @Override
+    public boolean load(Path dir, Properties meta) throws IOException {
+        if (!KIND.equals(meta.getProperty(SnapshotFiles.KEY_INDEX))
+                || !String.valueOf(m).equals(meta.getProperty("hnsw.m"))
+                || !String.valueOf(efConstruction).equals(meta.getProperty("hnsw.ef-construction"))) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            int nodes = SnapshotFiles.slots(meta);
+            if (nodes == 0) return true;
+            String[] saved = SnapshotFiles.readIds(dir.resolve(SnapshotFiles.IDS), nodes);
+            int capacity = Math.max(64, Integer.highestOneBit(nodes) << 1);
+            int[][][] graph = new int[capacity][][];
+            int entry, top;
+
+            Path file = dir.resolve(GRAPH);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+                entry = in.readInt();
+                top = in.readInt();
+                if (entry < 0 || entry >= nodes) throw new IOException(file + ": entry point " + entry + " out of range");
+                for (int node = 0; node < nodes; node++) {
+                    int levels = in.readUnsignedByte();
+                    graph[node] = new int[levels][];
+                    for (int l = 0; l < levels; l++) {
+                        int[] list = new int[maxLinks(l) + 1];
+                        list[0] = in.readUnsignedShort();
+                        if (list[0] > maxLinks(l)) throw new IOException(file + ": node " + node + " has " + list[0] + " links");
+                        for (int i = 1; i <= list[0]; i++) {
+                            list[i] = in.readInt();
+                            if (list[i] < 0 || list[i] >= nodes) {
+                                throw new IOException(file + ": node " + node + " links to " + list[i]);
+                            }
+                        }
+                        graph[node][l] = list;
+                    }
+                }
+            }
+            VectorSlab mapped = VectorSlab.map(dir.resolve(SnapshotFiles.VECTORS), SnapshotFiles.dimension(meta), nodes);
+
+            // everything read and checked: only now replace the (empty) state
+            ids = Arrays.copyOf(saved, capacity);
+            links = graph;
+            entryPoint = entry;
+            maxLevel = top;
+            slab = mapped;
+            for (int node = 0; node < nodes; node++) {
+                if (saved[node] == null) deleted.set(node);
+                else nodeById.put(saved[node], node);
+            }
+            compactIfNeeded();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---------- construction ----------
+
+    /** Rebuilds the graph from the live nodes once there are too many tombstones; caller holds the write lock. */
+    private void compactIfNeeded() {
+        int tombstones = deleted.cardinality();
+        if (tombstones < MIN_TOMBSTONES || tombstones < slab.size() * COMPACT_RATIO) return;
+
+        long start = System.currentTimeMillis();
+        VectorSlab old = slab;
+        String[] oldIds = ids;
+        int oldNodes = old.size();
+        int live = nodeById.size();
+
+        slab = new VectorSlab(old.dimension());
+        int capacity = Math.max(64, Integer.highestOneBit(Math.max(1, live)) << 1);
+        ids = new String[capacity];
+        links = new int[capacity][][];
+        entryPoint = -1;
+        maxLevel = -1;
+        nodeById.clear();
+        for (int node = 0; node < oldNodes; node++) {
+            if (deleted.get(node)) continue;
+            nodeById.put(oldIds[node], insert(oldIds[node], old.get(node)));
+        }
+        deleted.clear();
+        System.out.println("[HnswIndex] compacted " + oldNodes + " → " + slab.size() + " nodes ("
+                + tombstones + " tombstones) in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    private int insert(String id, float[] vector) {
+        int node = slab.append(vector);
+        if (node == ids.length) {
+            ids = Arrays.copyOf(ids, node * 2);
+            links = Arrays.copyOf(links, node * 2);
+        }
+        int level = randomLevel();
+        ids[node] = id;
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxLinks(l) + 1];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(vector, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            ScoreHeap found = searchLayer(vector, ep, efConstruction, l, false);
+            float[] scores = new float[found.size()];
+            int[] candidates = found.drainBestFirst(scores);
+            ep = candidates[0];
+
+            int[] neighbours = selectNeighbours(candidates, scores, m);
+            for (int n : neighbours) {
+                addLink(node, n, l);
+                addLink(n, node, l);
+            }
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? mMax0 : m;
+    }
+
+    /** Adds {@code to} to {@code from}'s list, re-pruning with the heuristic when full. */
+    private void addLink(int from, int to, int level) {
+        int[] list = links[from][level];
+        int size = list[0];
+        if (size < list.length - 1) {
+            list[++size] = to;
+            list[0] = size;
+            return;
+        }
+
+        ScoreHeap byScore = ScoreHeap.max(size + 1);
+        byScore.push(slab.dot(from, to), to);
+        for (int i = 1; i <= size; i++) {
+            byScore.push(slab.dot(from, list[i]), list[i]);
+        }
+        float[] scores = new float[byScore.size()];
+        int[] candidates = byScore.drainBestFirst(scores);
+        int[] kept = selectNeighbours(candidates, scores, list.length - 1);
+        list[0] = kept.length;
+        System.arraycopy(kept, 0, list, 1, kept.length);
+    }
+
+    /**
+     * HNSW neighbour heuristic: take a candidate only if it is closer to the base
+     * than to any neighbour already taken, which keeps links spread out; leftover
+     * slots are filled with the closest pruned candidates.
+     */
+    private int[] selectNeighbours(int[] candidates, float[] scores, int max) {
+        int[] chosen = new int[Math.min(max, candidates.length)];
+        int n = 0;
+        boolean[] taken = new boolean[candidates.length];
+        for (int i = 0; i < candidates.length && n < chosen.length; i++) {
+            boolean diverse = true;
+            for (int j = 0; j < n && diverse; j++) {
+                diverse = slab.dot(candidates[i], chosen[j]) < scores[i];
+            }
+            if (diverse) {
+                chosen[n++] = candidates[i];
+                taken[i] = true;
+            }
+        }
+        for (int i = 0; i < candidates.length && n < chosen.length; i++) {
+            if (!taken[i]) chosen[n++] = candidates[i];
+        }
+        return chosen;
+    }
+
+    // ---------- search ----------
+
+    private int greedyClosest(float[] query, int ep, int level) {
+        float best = slab.dot(ep, query);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[ep][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float s = slab.dot(list[i], query);
+                if (s > best) {
+                    best = s;
+                    ep = list[i];
+                    changed = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    /**
+     * Best-first search on one layer; returns up to {@code ef} nodes in a min-heap. With
+     * {@code liveOnly}, tombstones are traversed but not collected, so the {@code ef} places
+     * all go to nodes that can be returned.
+     */
+    private ScoreHeap searchLayer(float[] query, int ep, int ef, int level, boolean liveOnly) {
+        Visited seen = visited.get();
+        seen.reset(slab.size());
+        seen.mark(ep);
+
+        ScoreHeap candidates = ScoreHeap.max(ef * 2);
+        ScoreHeap results = ScoreHeap.min(ef + 1);
+        float s = slab.dot(ep, query);
+        candidates.push(s, ep);
+        if (!liveOnly || !deleted.get(ep)) results.push(s, ep);
+
+        while (!candidates.isEmpty()) {
+            float score = candidates.topScore();
+            int current = candidates.pop();
+            if (results.size() >= ef && score < results.topScore()) break;
+
+            int[][] nodeLinks = links[current];
+            if (level >= nodeLinks.length) continue;
+            int[] list = nodeLinks[level];
+            for (int i = 1; i <= list[0]; i++) {
+                int next = list[i];
+                if (!seen.mark(next)) continue;
+                float ns = slab.dot(next, query);
+                if (results.size() < ef || ns > results.topScore()) {
+                    candidates.push(ns, next);
+                    if (liveOnly && deleted.get(next)) continue;
+                    results.push(ns, next);
+                    if (results.size() > ef) results.pop();
+                }
+            }
+        }
+        return results;
+    }
+
+    /** Per-thread visited marks, cleared in O(1) by bumping an epoch. */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int epoch;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /** @return true if the node was not visited yet */
+        boolean mark(int node) {
+            if (marks[node] == epoch) return false;
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
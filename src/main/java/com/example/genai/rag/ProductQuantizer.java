@@ -0,0 +1,179 @@
+package com.example.genai.rag;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Product quantization: the vector is split into subspaces of a few dimensions
+ * and each sub-vector is replaced by the index of its nearest of 256 k-means
+ * centroids, so a code is one byte per subspace (e.g. 1536 dims / 8 = 192 bytes,
+ * 32× smaller). Queries are scored by asymmetric distance: a per-query table of
+ * query·centroid for every subspace, then one lookup per code byte.
+ */
+final class ProductQuantizer implements Quantizer {
+
+    static final String NAME = "pq";
+    private static final int CENTROIDS = 256;
+    private static final int ITERATIONS = 12;
+
+    private final int dimension;
+    /** subspace j covers dimensions [start[j], start[j + 1]) */
+    private final int[] start;
+    /** centroids[j][i * 256 + c]: dimension-major so per-dimension loops over centroids vectorize */
+    private final float[][] centroids;
+
+    private ProductQuantizer(int dimension, int[] start, float[][] centroids) {
+        this.dimension = dimension;
+        this.start = start;
+        this.centroids = centroids;
+    }
+
+    static ProductQuantizer train(float[][] sample, int dimsPerSubspace, long seed) {
+        int dimension = sample[0].length;
+        int subspaces = Math.max(1, (dimension + dimsPerSubspace - 1) / dimsPerSubspace);
+        int[] start = new int[subspaces + 1];
+        for (int j = 0; j <= subspaces; j++) start[j] = (int) ((long) j * dimension / subspaces);
+
+        float[][] centroids = new float[subspaces][];
+        IntStream.range(0, subspaces).parallel()
+                .forEach(j -> centroids[j] = kMeans(sample, start[j], start[j + 1], new Random(seed + j)));
+        return new ProductQuantizer(dimension, start, centroids);
+    }
+
+    static ProductQuantizer read(DataInputStream in) throws IOException {
+        int dimension = in.readInt();
+        int[] start = new int[in.readInt() + 1];
+        for (int j = 0; j < start.length; j++) start[j] = in.readInt();
+        float[][] centroids = new float[start.length - 1][];
+        for (int j = 0; j < centroids.length; j++) {
+            centroids[j] = new float[(start[j + 1] - start[j]) * CENTROIDS];
+            for (int i = 0; i < centroids[j].length; i++) centroids[j][i] = in.readFloat();
+        }
+        return new ProductQuantizer(dimension, start, centroids);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int codeBytes() {
+        return centroids.length;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] code) {
+        float[] distances = new float[CENTROIDS];
+        for (int j = 0; j < centroids.length; j++) {
+            code[j] = (byte) nearest(centroids[j], vector, start[j], start[j + 1] - start[j], CENTROIDS, distances);
+        }
+    }
+
+    @Override
+    public Scorer prepare(float[] query) {
+        int subspaces = centroids.length;
+        float[] table = new float[subspaces * CENTROIDS];
+        for (int j = 0; j < subspaces; j++) {
+            int from = start[j], len = start[j + 1] - from;
+            float[] cj = centroids[j];
+            int row = j * CENTROIDS;
+            for (int i = 0; i < len; i++) {
+                float x = query[from + i];
+                int base = i * CENTROIDS;
+                for (int c = 0; c < CENTROIDS; c++) table[row + c] += x * cj[base + c];
+            }
+        }
+        return (ByteBuffer codes, int offset) -> {
+            float sum = 0f;
+            for (int j = 0; j < subspaces; j++) {
+                sum += table[j * CENTROIDS + (codes.get(offset + j) & 0xff)];
+            }
+            return sum;
+        };
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(dimension);
+        out.writeInt(centroids.length);
+        for (int s : start) out.writeInt(s);
+        for (float[] c : centroids) {
+            for (float v : c) out.writeFloat(v);
+        }
+    }
+
+    // ---------- training ----------
+
+    /** Lloyd's k-means on one subspace; unused centroid slots repeat the first centroid. */
+    private static float[] kMeans(float[][] sample, int from, int to, Random random) {
+        int len = to - from;
+        int n = sample.length;
+        int k = Math.min(CENTROIDS, n);
+        float[] centroids = new float[len * CENTROIDS];
+
+        // init from k distinct random points (partial Fisher–Yates)
+        int[] order = IntStream.range(0, n).toArray();
+        for (int c = 0; c < k; c++) {
+            int pick = c + random.nextInt(n - c);
+            int t = order[c]; order[c] = order[pick]; order[pick] = t;
+            setCentroid(centroids, c, sample[order[c]], from, len);
+        }
+
+        int[] assignment = new int[n];
+        float[] sums = new float[len * CENTROIDS];
+        int[] counts = new int[CENTROIDS];
+        float[] distances = new float[CENTROIDS];
+        for (int iter = 0; iter < ITERATIONS; iter++) {
+            for (int p = 0; p < n; p++) {
+                assignment[p] = nearest(centroids, sample[p], from, len, k, distances);
+            }
+            Arrays.fill(sums, 0f);
+            Arrays.fill(counts, 0);
+            for (int p = 0; p < n; p++) {
+                int c = assignment[p];
+                counts[c]++;
+                for (int i = 0; i < len; i++) sums[i * CENTROIDS + c] += sample[p][from + i];
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    // empty cluster: reseed on a random point
+                    setCentroid(centroids, c, sample[random.nextInt(n)], from, len);
+                    continue;
+                }
+                for (int i = 0; i < len; i++) centroids[i * CENTROIDS + c] = sums[i * CENTROIDS + c] / counts[c];
+            }
+        }
+        for (int i = 0; i < len; i++) {
+            Arrays.fill(centroids, i * CENTROIDS + k, (i + 1) * CENTROIDS, centroids[i * CENTROIDS]);
+        }
+        return centroids;
+    }
+
+    private static void setCentroid(float[] centroids, int c, float[] v, int from, int len) {
+        for (int i = 0; i < len; i++) centroids[i * CENTROIDS + c] = v[from + i];
+    }
+
+    /** Index of the centroid with the smallest squared L2 distance to {@code v[from, from + len)}. */
+    private static int nearest(float[] centroids, float[] v, int from, int len, int k, float[] distances) {
+        Arrays.fill(distances, 0, k, 0f);
+        for (int i = 0; i < len; i++) {
+            float x = v[from + i];
+            int base = i * CENTROIDS;
+            for (int c = 0; c < k; c++) {
+                float diff = x - centroids[base + c];
+                distances[c] += diff * diff;
+            }
+        }
+        int best = 0;
+        for (int c = 1; c < k; c++) {
+            if (distances[c] < distances[best]) best = c;
+        }
+        return best;
+    }
+}
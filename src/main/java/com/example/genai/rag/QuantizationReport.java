@@ -0,0 +1,29 @@
+package com.example.genai.rag;
+
+/**
+ * Outcome of training a {@link QuantizedIndex}: compression, the re-rank factor
+ * chosen to meet the recall target, and measured recall@10 / latency against
+ * an exact scan on sample queries.
+ */
+public record QuantizationReport(String method,
+                                 int vectors,
+                                 int bytesPerVector,
+                                 double compression,
+                                 int rerankFactor,
+                                 double recallAt10,
+                                 double recallTarget,
+                                 double exactMillisPerQuery,
+                                 double quantizedMillisPerQuery,
+                                 int sampleQueries) {
+
+    public boolean meetsTarget() {
+        return recallAt10 >= recallTarget;
+    }
+
+    public String summary() {
+        return String.format("%s over %d vectors: %d B/vector (%.1fx smaller), re-rank %dx → recall@10 %.3f (target %.2f%s), "
+                        + "%.2f ms/query vs %.2f ms exact (%d sample queries)",
+                method, vectors, bytesPerVector, compression, rerankFactor, recallAt10, recallTarget,
+                meetsTarget() ? "" : ", NOT met", quantizedMillisPerQuery, exactMillisPerQuery, sampleQueries);
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.genai.rag;
+
+import com.example.genai.util.Cosine;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * {@link FlatIndex} that scans compact codes (int8 scalar or product quantized)
+ * instead of full vectors, then re-ranks the best {@code k × rerankFactor}
+ * candidates exactly against the full-precision slab. The full vectors are never
+ * held in memory: restored from a snapshot they stay mapped from it, and otherwise
+ * they are written to a mapped temp file. Either way only re-ranked candidates are
+ * paged in once the quantizer is trained, so the resident footprint is the codes
+ * (plus whatever the page cache keeps warm).
+ *
+ * The quantizer trains itself in the background once {@code trainSize} vectors
+ * are present (searches stay exact until then). Training ends by picking the
+ * smallest re-rank factor whose measured recall@10 meets {@code recallTarget};
+ * see {@link #report()}.
+ */
+public class QuantizedIndex extends FlatIndex {
+
+    public enum Method { SQ8, PQ }
+
+    private static final int REPORT_QUERIES = 100;
+
+    private final Method method;
+    private final int trainSize;
+    private final int pqDimsPerSubspace;
+    private final double recallTarget;
+    private final int maxRerankFactor;
+
+    private volatile Quantizer quantizer;
+    private volatile RecordSlab codes;
+    private volatile int rerankFactor;
+    private volatile QuantizationReport report;
+    private volatile boolean training;
+
+    private final ExecutorService trainer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "rag-quantizer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public QuantizedIndex(Method method, int trainSize, int pqDimsPerSubspace, double recallTarget, int maxRerankFactor) {
+        this.method = method;
+        this.trainSize = Math.max(256, trainSize);
+        this.pqDimsPerSubspace = Math.max(1, pqDimsPerSubspace);
+        this.recallTarget = recallTarget;
+        this.maxRerankFactor = Math.max(1, maxRerankFactor);
+        this.rerankFactor = this.maxRerankFactor;
+    }
+
+    @Override
+    VectorSlab newSlab(int dimension) {
+        VectorSlab fresh = new VectorSlab(dimension);
+        try {
+            fresh.spillTo(Files.createTempFile("rag-vectors-", ".f32"));
+        } catch (IOException e) {
+            System.err.println("QuantizedIndex: no temp file for the full vectors, keeping them off-heap – " + e.getMessage());
+        }
+        return fresh;
+    }
+
+    public Optional<QuantizationReport> report() {
+        return Optional.ofNullable(report);
+    }
+
+    @Override
+    public List<Hit> search(float[] query, int k) {
+        if (k <= 0) return List.of();
+        lock.readLock().lock();
+        try {
+            Quantizer q = quantizer;
+            if (q == null) return searchExact(query, k);
+            return searchQuantized(q, codes, query, k, rerankFactor);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Trains (or retrains) the quantizer on a sample, re-encodes every vector and tunes the re-rank factor. */
+    public QuantizationReport train() {
+        float[][] sample;
+        lock.readLock().lock();
+        try {
+            if (slab == null || slab.size() == 0) return null;
+            sample = sample(Math.min(trainSize, slab.size()), new Random(7));
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        long start = System.currentTimeMillis();
+        Quantizer trained = method == Method.SQ8
+                ? ScalarQuantizer.train(sample)
+                : ProductQuantizer.train(sample, pqDimsPerSubspace, 7);
+        long trainedAt = System.currentTimeMillis();
+
+        // read lock: writers wait while we encode, searches keep running (exact until the swap)
+        lock.readLock().lock();
+        try {
+            int n = slab.size();
+            RecordSlab fresh = new RecordSlab(trained.codeBytes());
+            for (int i = 0; i < n; i++) fresh.allocate();
+            IntStream.range(0, n).parallel().forEach(slot -> {
+                byte[] code = new byte[trained.codeBytes()];
+                trained.encode(slab.get(slot), code);
+                fresh.put(slot, code);
+            });
+            codes = fresh;
+            quantizer = trained;
+
+            report = measure(trained, fresh, sample);
+            rerankFactor = report.rerankFactor();
+        } finally {
+            lock.readLock().unlock();
+        }
+        System.out.println("Quantizer trained on " + sample.length + " vectors in " + (trainedAt - start)
+                + " ms, encoded in " + (System.currentTimeMillis() - trainedAt) + " ms – " + report.summary());
+        return report;
+    }
+
+    // ---------- search ----------
+
+    private List<Hit> searchQuantized(Quantizer q, RecordSlab codeSlab, float[] query, int k, int factor) {
+        slab.checkDimension(query);
+        int n = codeSlab.size();
+        int candidates = Math.min(n, k * factor);
+
+        Quantizer.Scorer scorer = q.prepare(query);
+        ScoreHeap approx = ScoreHeap.min(candidates);
+        for (int slot = 0; slot < n; slot++) {
+            approx.offerBounded(scorer.score(codeSlab.segment(slot), codeSlab.byteOffset(slot)), slot, candidates);
+        }
+
+        ScoreHeap top = ScoreHeap.min(k);
+        while (!approx.isEmpty()) {
+            int slot = approx.pop();
+            top.offerBounded(slab.dot(slot, query), slot, k);
+        }
+        return hits(top);
+    }
+
+    /** Recall@10 and latency for doubling re-rank factors until the target is met. */
+    private QuantizationReport measure(Quantizer q, RecordSlab codeSlab, float[][] sample) {
+        Random random = new Random(11);
+        int queries = Math.min(REPORT_QUERIES, sample.length);
+        float[][] probes = new float[queries][];
+        for (int i = 0; i < queries; i++) {
+            // in-distribution probes that are not themselves stored vectors
+            float[] a = sample[random.nextInt(sample.length)], b = sample[random.nextInt(sample.length)];
+            float[] mid = new float[a.length];
+            for (int d = 0; d < a.length; d++) mid[d] = a[d] + b[d];
+            probes[i] = Cosine.normalize(mid);
+        }
+
+        List<Set<String>> exact = new ArrayList<>(queries);
+        long t = System.nanoTime();
+        for (float[] probe : probes) {
+            Set<String> ids = new HashSet<>();
+            for (Hit hit : searchExact(probe, 10)) ids.add(hit.id());
+            exact.add(ids);
+        }
+        double exactMillis = (System.nanoTime() - t) / 1e6 / queries;
+
+        int factor = 1;
+        double recall;
+        double quantizedMillis;
+        while (true) {
+            int found = 0;
+            t = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                for (Hit hit : searchQuantized(q, codeSlab, probes[i], 10, factor)) {
+                    if (exact.get(i).contains(hit.id())) found++;
+                }
+            }
+            quantizedMillis = (System.nanoTime() - t) / 1e6 / queries;
+            recall = found / (10.0 * queries);
+            if (recall >= recallTarget || factor >= maxRerankFactor) break;
+            factor = Math.min(maxRerankFactor, factor * 2);
+        }
+
+        int bytes = q.codeBytes();
+        return new QuantizationReport(q.name(), codeSlab.size(), bytes, slab.dimension() * (double) Float.BYTES / bytes,
+                factor, recall, recallTarget, exactMillis, quantizedMillis, queries);
+    }
+
+    private float[][] sample(int count, Random random) {
+        int n = slab.size();
+        float[][] out = new float[count][];
+        if (count == n) {
+            for (int i = 0; i < n; i++) out[i] = slab.get(i);
+            return out;
+        }
+        // distinct random slots
+        BitSet taken = new BitSet(n);
+        for (int i = 0; i < count; ) {
+            int slot = random.nextInt(n);
+            if (!taken.get(slot)) {
+                taken.set(slot);
+                out[i++] = slab.get(slot);
+            }
+        }
+        return out;
+    }
+
+    // ---------- keep codes aligned with the slab ----------
+
+    @Override
+    String kind() {
+        return method == Method.SQ8 ? ScalarQuantizer.NAME : ProductQuantizer.NAME;
+    }
+
+    @Override
+    boolean accepts(Properties meta) {
+        return super.accepts(meta)
+                && (method == Method.SQ8 || String.valueOf(pqDimsPerSubspace).equals(meta.getProperty("pq.dims-per-subspace")));
+    }
+
+    @Override
+    void written(int slot, float[] normalized) {
+        Quantizer q = quantizer;
+        if (q != null) {
+            byte[] code = new byte[q.codeBytes()];
+            q.encode(normalized, code);
+            if (slot == codes.size()) codes.append(code);
+            else codes.put(slot, code);
+        } else if (!training && slab.size() >= trainSize) {
+            training = true;
+            trainer.submit(this::trainInBackground);
+        }
+    }
+
+    @Override
+    void moved(int from, int to) {
+        if (codes != null) codes.copy(from, to);
+    }
+
+    @Override
+    void removedLast() {
+        if (codes != null) codes.removeLast();
+    }
+
+    @Override
+    void saveExtra(Path dir, Properties meta) throws IOException {
+        if (method == Method.PQ) meta.setProperty("pq.dims-per-subspace", String.valueOf(pqDimsPerSubspace));
+        Quantizer q = quantizer;
+        if (q == null) return;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve("quantizer.bin"))))) {
+            q.write(out);
+        }
+        codes.writeTo(dir.resolve("codes.bin"));
+        meta.setProperty("quantizer.rerank-factor", String.valueOf(rerankFactor));
+    }
+
+    @Override
+    void loadExtra(Path dir, Properties meta) throws IOException {
+        Path file = dir.resolve("quantizer.bin");
+        if (Files.exists(file)) {
+            Quantizer q;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                q = method == Method.SQ8 ? ScalarQuantizer.read(in) : ProductQuantizer.read(in);
+            }
+            RecordSlab loaded = new RecordSlab(q.codeBytes());
+            loaded.mapFrom(dir.resolve("codes.bin"), slab.size());
+            codes = loaded;
+            quantizer = q;
+            rerankFactor = Integer.parseInt(meta.getProperty("quantizer.rerank-factor", String.valueOf(maxRerankFactor)));
+        } else if (slab.size() >= trainSize) {
+            training = true;
+            trainer.submit(this::trainInBackground);
+        }
+    }
+
+    private void trainInBackground() {
+        try {
+            train();
+        } catch (Exception e) {
+            System.err.println("Quantizer training failed – " + e.getMessage());
+        } finally {
+            training = false;
+        }
+    }
+}
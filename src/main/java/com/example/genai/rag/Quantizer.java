@@ -0,0 +1,24 @@
+package com.example.genai.rag;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/** Compresses normalized vectors into fixed-size byte codes that can be scored without decoding. */
+interface Quantizer {
+
+    String name();
+
+    int codeBytes();
+
+    void encode(float[] vector, byte[] code);
+
+    /** Per-query precomputation; the returned scorer approximates {@code dot(query, vector)}. */
+    Scorer prepare(float[] query);
+
+    void write(DataOutputStream out) throws IOException;
+
+    interface Scorer {
+        float score(ByteBuffer codes, int offset);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.genai.rag;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size records packed back to back in off-heap segments (direct buffers
+ * of up to 64 MB, a power-of-two number of slots each). A slot is just an int:
+ * no per-record object, nothing for the GC to trace, and scans read straight
+ * from the segment without copying.
+ *
+ * A slab can be written to a flat file ({@link #writeTo}) and mapped back
+ * copy-on-write ({@link #mapFrom}): startup costs no reads, pages fault in on
+ * first use, and later writes stay private to the process so the file remains
+ * a consistent snapshot.
+ *
+ * Not thread-safe; the owning index guards it with its lock.
+ */
+class RecordSlab {
+
+    private static final int SEGMENT_BYTES = 64 << 20;
+
+    private final int recordBytes;
+    private final int slotShift;
+    private final int slotMask;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private int size;
+    // when set, new segments are mapped from this file instead of allocated off-heap
+    private FileChannel spill;
+
+    RecordSlab(int recordBytes) {
+        if (recordBytes <= 0) throw new IllegalArgumentException("record size must be > 0");
+        this.recordBytes = recordBytes;
+        int slotsPerSegment = Integer.highestOneBit(Math.max(1, SEGMENT_BYTES / recordBytes));
+        this.slotShift = Integer.numberOfTrailingZeros(slotsPerSegment);
+        this.slotMask = slotsPerSegment - 1;
+    }
+
+    public int size() { return size; }
+
+    public int recordBytes() { return recordBytes; }
+
+    /** Bytes reserved off-heap (or mapped). */
+    public long capacityBytes() {
+        return (long) segments.size() * segmentBytes();
+    }
+
+    /** Appends a record and returns its slot. */
+    public int append(byte[] record) {
+        int slot = allocate();
+        put(slot, record);
+        return slot;
+    }
+
+    public void put(int slot, byte[] record) {
+        segment(slot).put(byteOffset(slot), record, 0, recordBytes);
+    }
+
+    public void get(int slot, byte[] out) {
+        segment(slot).get(byteOffset(slot), out, 0, recordBytes);
+    }
+
+    /** Copies slot {@code from} over slot {@code to} (used by swap-with-last deletes). */
+    public void copy(int from, int to) {
+        segment(to).put(byteOffset(to), segment(from), byteOffset(from), recordBytes);
+    }
+
+    /** Drops the last slot (its memory is reused by the next append). */
+    public void removeLast() {
+        if (size > 0) size--;
+    }
+
+    /** Writes the used part of the slab to {@code file} and fsyncs it. */
+    public void writeTo(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long remaining = (long) size * recordBytes;
+            for (ByteBuffer segment : segments) {
+                if (remaining <= 0) break;
+                ByteBuffer view = segment.duplicate().clear();
+                view.limit((int) Math.min(view.capacity(), remaining));
+                remaining -= view.remaining();
+                while (view.hasRemaining()) ch.write(view);
+            }
+            ch.force(true);
+        }
+    }
+
+    /** Maps {@code size} records from a file written by {@link #writeTo} into this empty slab. */
+    void mapFrom(Path file, int size) throws IOException {
+        if (this.size != 0 || !segments.isEmpty()) throw new IllegalStateException("slab is not empty");
+        int segmentBytes = segmentBytes();
+        long used = (long) size * recordBytes;
+
+        // PRIVATE mappings need a writable channel even though the file is never written
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (ch.size() < used) {
+                throw new IOException(file + " holds " + ch.size() + " bytes, expected " + used);
+            }
+            for (long pos = 0; pos < used; pos += segmentBytes) {
+                if (pos + segmentBytes <= ch.size()) {
+                    addSegment(ch.map(FileChannel.MapMode.PRIVATE, pos, segmentBytes));
+                } else {
+                    // partial tail segment: copy it into a full-size buffer so appends can continue
+                    ByteBuffer tail = ByteBuffer.allocateDirect(segmentBytes);
+                    tail.limit((int) (ch.size() - pos));
+                    while (tail.hasRemaining()) {
+                        if (ch.read(tail, pos + tail.position()) < 0) break;
+                    }
+                    addSegment(tail.clear());
+                }
+            }
+        }
+        this.size = size;
+    }
+
+    /**
+     * Backs segments added from now on with {@code file} (a shared read-write mapping,
+     * deleted on close or exit) instead of direct buffers: the OS can then write cold
+     * records back and drop them from memory, at the cost of page faults on access.
+     */
+    void spillTo(Path file) throws IOException {
+        spill = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    /** Reserves the next slot (contents undefined until written). */
+    int allocate() {
+        int slot = size;
+        if ((slot >>> slotShift) == segments.size()) {
+            addSegment(spill != null ? spillSegment() : ByteBuffer.allocateDirect(segmentBytes()));
+        }
+        size++;
+        return slot;
+    }
+
+    ByteBuffer segment(int slot) {
+        return segments.get(slot >>> slotShift);
+    }
+
+    int byteOffset(int slot) {
+        return (slot & slotMask) * recordBytes;
+    }
+
+    /** Slots left in {@code slot}'s segment, counting {@code slot} itself. */
+    int remainingInSegment(int slot) {
+        return (slotMask + 1) - (slot & slotMask);
+    }
+
+    private int segmentBytes() {
+        return (slotMask + 1) * recordBytes;
+    }
+
+    private ByteBuffer spillSegment() {
+        try {
+            return spill.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * segmentBytes(), segmentBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not map another segment of the spill file", e);
+        }
+    }
+
+    private void addSegment(ByteBuffer segment) {
+        segments.add(segment.order(ByteOrder.nativeOrder()));
+    }
+}
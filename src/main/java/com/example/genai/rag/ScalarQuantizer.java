@@ -0,0 +1,90 @@
+package com.example.genai.rag;
+
+import com.example.genai.util.VectorMath;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * int8 scalar quantization (4× smaller): each dimension is mapped linearly from
+ * its trained [min, max] onto 256 levels. Scoring folds the per-dimension step
+ * into the query, so it is one float × int8 SIMD dot plus a constant:
+ * {@code q·x ≈ Σ q·(min + 128·step) + Σ (q·step)·code}.
+ */
+final class ScalarQuantizer implements Quantizer {
+
+    static final String NAME = "sq8";
+
+    private final float[] min;
+    private final float[] step;
+
+    private ScalarQuantizer(float[] min, float[] step) {
+        this.min = min;
+        this.step = step;
+    }
+
+    static ScalarQuantizer train(float[][] sample) {
+        int dimension = sample[0].length;
+        float[] min = new float[dimension], max = new float[dimension], step = new float[dimension];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        for (float[] v : sample) {
+            for (int i = 0; i < dimension; i++) {
+                if (v[i] < min[i]) min[i] = v[i];
+                if (v[i] > max[i]) max[i] = v[i];
+            }
+        }
+        for (int i = 0; i < dimension; i++) {
+            float range = max[i] - min[i];
+            step[i] = range > 0 ? range / 255f : 1f;
+        }
+        return new ScalarQuantizer(min, step);
+    }
+
+    static ScalarQuantizer read(DataInputStream in) throws IOException {
+        int dimension = in.readInt();
+        float[] min = new float[dimension], step = new float[dimension];
+        for (int i = 0; i < dimension; i++) min[i] = in.readFloat();
+        for (int i = 0; i < dimension; i++) step[i] = in.readFloat();
+        return new ScalarQuantizer(min, step);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int codeBytes() {
+        return min.length;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] code) {
+        for (int i = 0; i < min.length; i++) {
+            int level = Math.round((vector[i] - min[i]) / step[i]);
+            code[i] = (byte) (Math.max(0, Math.min(255, level)) - 128);
+        }
+    }
+
+    @Override
+    public Scorer prepare(float[] query) {
+        float[] scaled = new float[min.length];
+        float bias = 0f;
+        for (int i = 0; i < min.length; i++) {
+            scaled[i] = query[i] * step[i];
+            bias += query[i] * (min[i] + 128 * step[i]);
+        }
+        float constant = bias;
+        return (codes, offset) -> constant + VectorMath.dotInt8(scaled, codes, offset);
+    }
+
+    @Override
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(min.length);
+        for (float v : min) out.writeFloat(v);
+        for (float v : step) out.writeFloat(v);
+    }
+}
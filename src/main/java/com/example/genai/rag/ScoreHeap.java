@@ -0,0 +1,112 @@
+package com.example.genai.rag;
+
+import java.util.Arrays;
+
+/**
+ * Binary heap of (float score, int id) pairs in parallel primitive arrays.
+ * A min-heap keeps the worst score on top (bounded top-k), a max-heap the best
+ * (best-first graph traversal).
+ */
+final class ScoreHeap {
+
+    private final boolean max;
+    private float[] scores;
+    private int[] ids;
+    private int size;
+
+    ScoreHeap(int capacity, boolean max) {
+        this.max = max;
+        this.scores = new float[Math.max(2, capacity)];
+        this.ids = new int[Math.max(2, capacity)];
+    }
+
+    static ScoreHeap min(int capacity) { return new ScoreHeap(capacity, false); }
+
+    static ScoreHeap max(int capacity) { return new ScoreHeap(capacity, true); }
+
+    int size() { return size; }
+
+    boolean isEmpty() { return size == 0; }
+
+    float topScore() { return scores[0]; }
+
+    int topId() { return ids[0]; }
+
+    void clear() { size = 0; }
+
+    /** Min-heap helper: keep only the {@code k} highest scores seen so far. */
+    void offerBounded(float score, int id, int k) {
+        if (size < k) {
+            push(score, id);
+        } else if (score > scores[0]) {
+            scores[0] = score;
+            ids[0] = id;
+            siftDown(0);
+        }
+    }
+
+    void push(float score, int id) {
+        if (size == scores.length) {
+            scores = Arrays.copyOf(scores, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        scores[size] = score;
+        ids[size] = id;
+        siftUp(size++);
+    }
+
+    /** Removes the top entry and returns its id. */
+    int pop() {
+        int top = ids[0];
+        size--;
+        if (size > 0) {
+            scores[0] = scores[size];
+            ids[0] = ids[size];
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /** Drains the heap into ids ordered best score first. */
+    int[] drainBestFirst(float[] scoresOut) {
+        int n = size;
+        int[] out = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            float s = scores[0];
+            int id = pop();
+            int pos = max ? n - 1 - i : i;
+            out[pos] = id;
+            if (scoresOut != null) scoresOut[pos] = s;
+        }
+        return out;
+    }
+
+    private boolean above(int a, int b) {
+        return max ? scores[a] > scores[b] : scores[a] < scores[b];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!above(i, parent)) break;
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int l = 2 * i + 1, r = l + 1, best = i;
+            if (l < size && above(l, best)) best = l;
+            if (r < size && above(r, best)) best = r;
+            if (best == i) return;
+            swap(i, best);
+            i = best;
+        }
+    }
+
+    private void swap(int a, int b) {
+        float s = scores[a]; scores[a] = scores[b]; scores[b] = s;
+        int t = ids[a]; ids[a] = ids[b]; ids[b] = t;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.genai.rag;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Properties;
+import java.util.function.BiConsumer;
+
+/**
+ * File names and helpers shared by the {@link VectorIndex} snapshot formats.
+ * Every snapshot has {@code vectors.f32} (the raw slab) and {@code ids.bin}
+ * (slot → id, with dead slots marked), so any index can be rebuilt from any
+ * other index's snapshot without re-embedding.
+ */
+final class SnapshotFiles {
+
+    static final String VECTORS = "vectors.f32";
+    static final String IDS = "ids.bin";
+
+    static final String KEY_INDEX = "index";
+    static final String KEY_DIMENSION = "dimension";
+    static final String KEY_SLOTS = "slots";
+
+    private SnapshotFiles() {}
+
+    static void writeIds(Path file, String[] ids, int slots, BitSet dead) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(slots);
+            for (int i = 0; i < slots; i++) {
+                boolean live = ids[i] != null && (dead == null || !dead.get(i));
+                out.writeBoolean(live);
+                if (live) out.writeUTF(ids[i]);
+            }
+        }
+    }
+
+    /** Slot → id; dead slots are null. Fails if the file doesn't hold exactly {@code slots} entries. */
+    static String[] readIds(Path file, int slots) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int count = in.readInt();
+            if (count != slots) throw new IOException(file + " holds " + count + " ids, expected " + slots);
+            String[] ids = new String[count];
+            for (int i = 0; i < ids.length; i++) {
+                if (in.readBoolean()) ids[i] = in.readUTF();
+            }
+            return ids;
+        }
+    }
+
+    /** Writes the common part of a snapshot and records it in {@code meta}. */
+    static void writeSlab(Path dir, VectorSlab slab, String[] ids, BitSet dead, Properties meta) throws IOException {
+        int slots = slab == null ? 0 : slab.size();
+        if (slab == null) {
+            Files.write(dir.resolve(VECTORS), new byte[0]);
+        } else {
+            slab.writeTo(dir.resolve(VECTORS));
+        }
+        writeIds(dir.resolve(IDS), ids, slots, dead);
+        meta.setProperty(KEY_DIMENSION, String.valueOf(slab == null ? 0 : slab.dimension()));
+        meta.setProperty(KEY_SLOTS, String.valueOf(slots));
+    }
+
+    static int dimension(Properties meta) {
+        return Integer.parseInt(meta.getProperty(KEY_DIMENSION, "0"));
+    }
+
+    static int slots(Properties meta) {
+        return Integer.parseInt(meta.getProperty(KEY_SLOTS, "0"));
+    }
+
+    /** Visits every live (id, vector) pair of any snapshot. */
+    static void forEachLive(Path dir, Properties meta, BiConsumer<String, float[]> consumer) throws IOException {
+        int slots = slots(meta);
+        if (slots == 0) return;
+        String[] ids = readIds(dir.resolve(IDS), slots);
+        VectorSlab slab = VectorSlab.map(dir.resolve(VECTORS), dimension(meta), slots);
+        for (int i = 0; i < slots; i++) {
+            if (ids[i] != null) consumer.accept(ids[i], slab.get(i));
+        }
+    }
+}
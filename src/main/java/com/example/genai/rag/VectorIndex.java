@@ -0,0 +1,42 @@
+package com.example.genai.rag;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Nearest-neighbour index over L2-normalized vectors, scored by dot product
+ * (= cosine similarity). Implementations must allow concurrent searches.
+ */
+public interface VectorIndex {
+
+    /** Adds the vector for {@code id}, replacing any previous one. */
+    void upsert(String id, float[] normalized);
+
+    boolean remove(String id);
+
+    /** Best {@code k} matches, highest score first. */
+    List<Hit> search(float[] normalizedQuery, int k);
+
+    /** Copy of the stored (normalized) vector, or null. */
+    float[] vector(String id);
+
+    int size();
+
+    /**
+     * Writes a snapshot into the (empty) directory {@code dir}: at least
+     * {@code vectors.f32} and {@code ids.bin}, plus its own kind, settings and
+     * sizes in {@code meta}.
+     */
+    void save(Path dir, Properties meta) throws IOException;
+
+    /**
+     * Loads a snapshot into this empty index, mapping the vectors instead of reading them.
+     * @return false if the snapshot came from another kind of index or incompatible
+     *         settings; the caller then rebuilds from the saved vectors instead
+     */
+    boolean load(Path dir, Properties meta) throws IOException;
+
+    record Hit(String id, float score) {}
+}
@@ -0,0 +1,84 @@
+package com.example.genai.rag;
+
+import com.example.genai.util.VectorMath;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Path;
+
+/**
+ * Fixed-dimension float vectors in a {@link RecordSlab}, scored in place by
+ * {@link VectorMath} (no copy out of the off-heap segment).
+ */
+public final class VectorSlab extends RecordSlab {
+
+    private final int dimension;
+
+    public VectorSlab(int dimension) {
+        super(dimension * Float.BYTES);
+        this.dimension = dimension;
+    }
+
+    /** Maps {@code size} vectors from a file written by {@link #writeTo}. */
+    public static VectorSlab map(Path file, int dimension, int size) throws IOException {
+        VectorSlab slab = new VectorSlab(dimension);
+        slab.mapFrom(file, size);
+        return slab;
+    }
+
+    public int dimension() { return dimension; }
+
+    /** Stores the vector in a new slot at the end and returns it. */
+    public int append(float[] vector) {
+        checkDimension(vector);
+        int slot = allocate();
+        set(slot, vector);
+        return slot;
+    }
+
+    public void set(int slot, float[] vector) {
+        checkDimension(vector);
+        floats(slot).put(vector);
+    }
+
+    public float[] get(int slot) {
+        float[] out = new float[dimension];
+        floats(slot).get(out);
+        return out;
+    }
+
+    public float dot(int slot, float[] query) {
+        return VectorMath.dot(query, segment(slot), byteOffset(slot));
+    }
+
+    public float dot(int a, int b) {
+        return VectorMath.dot(segment(a), byteOffset(a), segment(b), byteOffset(b), dimension);
+    }
+
+    /** Scores slots {@code [first, first + count)} against {@code query} into {@code out[0..count)}. */
+    public void dotMany(int first, int count, float[] query, float[] out) {
+        int done = 0;
+        while (done < count) {
+            int slot = first + done;
+            // a run never crosses a segment boundary
+            int run = Math.min(count - done, remainingInSegment(slot));
+            float[] target = done == 0 ? out : new float[run];
+            VectorMath.dotMany(query, segment(slot), byteOffset(slot), run, target);
+            if (target != out) System.arraycopy(target, 0, out, done, run);
+            done += run;
+        }
+    }
+
+    public void checkDimension(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + "-dim vector, got " + vector.length);
+        }
+    }
+
+    private FloatBuffer floats(int slot) {
+        return segment(slot).slice(byteOffset(slot), dimension * Float.BYTES)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+}
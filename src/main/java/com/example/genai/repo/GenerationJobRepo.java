@@ -0,0 +1,13 @@
+package com.example.genai.repo;
+
+import com.example.genai.entity.GenerationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface GenerationJobRepo extends JpaRepository<GenerationJob, Long> {
+    List<GenerationJob> findByStatusIn(Collection<GenerationJob.Status> statuses);
+    List<GenerationJob> findByTypeAndStatusIn(GenerationJob.Type type, Collection<GenerationJob.Status> statuses);
+    List<GenerationJob> findTop50ByOrderByIdDesc();
+}
@@ -3,9 +3,15 @@ package com.example.genai.repo;
 import com.example.genai.entity.Language;
 import com.example.genai.entity.Response;
 import com.example.genai.entity.Spot;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 
+import java.util.List;
 import java.util.Optional;
 
 public interface ResponseRepo extends JpaRepository<Response, Long> {
@@ -13,4 +19,32 @@ public interface ResponseRepo extends JpaRepository<Response, Long> {
             Long spotId, Long languageId, String templateKey);
     Optional<Response> findBySpotAndLanguageAndTemplateKey(Spot spot, Language language, String templateKey);
 
+    // keyset page for resumable jobs
+    List<Response> findByIdGreaterThanOrderByIdAsc(Long id, Pageable page);
+
+    // [spotId, languageId] of every response for a template within a spot id range (one query, no entities)
+    @Query("select r.spot.id, r.language.id from Response r " +
+            "where r.templateKey = :templateKey and r.spot.id between :fromSpotId and :toSpotId")
+    List<Object[]> findSpotLanguageIds(@Param("templateKey") String templateKey,
+                                       @Param("fromSpotId") Long fromSpotId,
+                                       @Param("toSpotId") Long toSpotId);
+
+    // audio token usage, written from TTS worker threads without loading the entity
+    @Modifying
+    @Transactional
+    @Query("update Response r set r.audioTokensIn = :tokensIn, r.audioTokensOut = :tokensOut where r.id = :id")
+    int updateAudioTokens(@Param("id") Long id,
+                          @Param("tokensIn") Integer tokensIn,
+                          @Param("tokensOut") Integer tokensOut);
+
+    @Modifying
+    @Transactional
+    @Query("update Response r set r.openAiAudioKey = :audioKey where r.id = :id")
+    int updateOpenAiAudioKey(@Param("id") Long id, @Param("audioKey") String audioKey);
+
+    @Modifying
+    @Transactional
+    @Query("update Response r set r.geminiAudioKey = :audioKey where r.id = :id")
+    int updateGeminiAudioKey(@Param("id") Long id, @Param("audioKey") String audioKey);
+
 }
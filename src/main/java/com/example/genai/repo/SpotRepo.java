@@ -2,10 +2,22 @@ package com.example.genai.repo;
 
 import com.example.genai.entity.City;
 import com.example.genai.entity.Spot;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface SpotRepo extends JpaRepository<Spot, Long> {
     Optional<Spot> findByCityAndNameIgnoreCase(City city, String name);
+
+    // keyset page for resumable jobs
+    List<Spot> findByIdGreaterThanOrderByIdAsc(Long id, Pageable page);
+
+    // same page with city + country loaded in the same query (no lazy load per spot)
+    @Query("select s from Spot s join fetch s.city c join fetch c.country " +
+            "where s.id > :after order by s.id")
+    List<Spot> findPageWithCityAndCountry(@Param("after") Long after, Pageable page);
 }
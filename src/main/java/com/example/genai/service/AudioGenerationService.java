@@ -1,75 +1,230 @@
 package com.example.genai.service;
+import com.example.genai.audio.AudioDelivery;
 import com.example.genai.entity.*;
-import com.example.genai.llm.OpenAIClient;
-import com.example.genai.llm.TtsResult;
 import com.example.genai.repo.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Service
-public class AudioGenerationService {
+public class AudioGenerationService implements JobHandler {
 
     private final ResponseRepo responseRepo;
-    private final OpenAIClient openAIClient;
+    private final ChunkedTtsService chunkedTts;
+    private final TtsScheduler ttsScheduler;
+    private final AudioMixService audioMixService;
+    private final TtsAudioCache audioCache;
+    private final TransactionTemplate readOnlyTx;
 
-    private final Path outputDir = Paths.get("C:\\Users\\mohahama\\Downloads\\World-Traveler\\generated_audio");
+    public static final String VOICE = "nova";  // your chosen voice
+
+    private final Path outputDir;
 
     @Autowired
-    public AudioGenerationService(ResponseRepo responseRepo, OpenAIClient openAIClient) {
+    public AudioGenerationService(ResponseRepo responseRepo,
+                                  ChunkedTtsService chunkedTts,
+                                  TtsScheduler ttsScheduler,
+                                  AudioMixService audioMixService,
+                                  TtsAudioCache audioCache,
+                                  PlatformTransactionManager txManager,
+                                  @Value("${app.audio.openai-dir:C:\\Users\\mohahama\\Downloads\\World-Traveler\\generated_audio}")
+                                  String outputDir) {
         this.responseRepo = responseRepo;
-        this.openAIClient = openAIClient;
+        this.chunkedTts = chunkedTts;
+        this.ttsScheduler = ttsScheduler;
+        this.audioMixService = audioMixService;
+        this.audioCache = audioCache;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.outputDir = Paths.get(outputDir);
     }
 
-    @Transactional
     public void generateAllAudio() throws IOException {
 
         if (!Files.exists(outputDir)) {
             Files.createDirectories(outputDir);
         }
 
-        List<Response> responses = responseRepo.findAll();
+        List<Narration> all = readOnlyTx.execute(status -> responseRepo.findAll().stream()
+                .map(AudioGenerationService::narration)
+                .toList());
+        ttsScheduler.run(TtsScheduler.Provider.OPENAI, tasksFor(all));
+    }
+
+    /** Narration text of a response, for streaming it straight to a client. */
+    @Transactional(readOnly = true)
+    public Optional<String> narration(Long responseId) {
+        return responseRepo.findById(responseId).map(Response::getContent);
+    }
+
+    /** The cached narration of {@code text}, if a job or an earlier stream synthesized it; close the lease. */
+    public Optional<TtsAudioCache.Lease> cachedNarration(String text) {
+        return audioCache.get(chunkedTts.cacheEntry(text, VOICE, audioMixService.delivery()));
+    }
+
+    /**
+     * Streams the narration of {@code text} to {@code out} as WAV while it is synthesized on
+     * the OpenAI lane, and caches it for the next request and the audio job. A failure is
+     * retried only until the first byte has gone out, as a retry would then repeat audio.
+     */
+    public void streamNarration(String text, OutputStream out) {
+        AudioDelivery delivery = audioMixService.delivery();
+        String entry = chunkedTts.cacheEntry(text, VOICE, delivery);
+        SentStream client = new SentStream(out);
+        ttsScheduler.runNow(TtsScheduler.Provider.OPENAI, TtsTask.of("stream " + entry, () -> {
+            try {
+                TtsAudioCache.Producer synthesize = target -> chunkedTts.streamWav(text, VOICE, client, target, delivery);
+                try (TtsAudioCache.Lease cached = audioCache.getOrCreate(entry, synthesize)) {
+                    // another request synthesized it while this one waited
+                    if (!client.sent) chunkedTts.streamWav(cached.path(), client);
+                    return cached.path();
+                }
+            } catch (Exception e) {
+                if (client.sent) throw new IllegalStateException("Narration stream broke off – " + e.getMessage(), e);
+                throw e;
+            }
+        }));
+    }
+
+    // ---------- job slices (one item = one Response) ----------
+
+    @Override
+    public GenerationJob.Type type() {
+        return GenerationJob.Type.OPENAI_AUDIO;
+    }
+
+    @Override
+    public long countItems() {
+        return responseRepo.count();
+    }
 
-        for (Response r : responses) {
+    @Override
+    public JobSlice processAfter(long cursor, int pageSize) {
+        try {
+            if (!Files.exists(outputDir)) {
+                Files.createDirectories(outputDir);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create output directory: " + outputDir, e);
+        }
+
+        // the page is read in a short transaction; synthesis runs after it has ended
+        List<Narration> page = readOnlyTx.execute(status -> responseRepo
+                .findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, pageSize)).stream()
+                .map(AudioGenerationService::narration)
+                .toList());
+        List<TtsTask> tasks = tasksFor(page);
+        GenerationStats stats = ttsScheduler.run(TtsScheduler.Provider.OPENAI, tasks);
+
+        long next = page.isEmpty() ? cursor : page.get(page.size() - 1).id();
+        // files that are up to date count as done
+        int skipped = page.size() - tasks.size();
+        return new JobSlice(next, skipped + stats.generated(), stats.failed(), page.size() < pageSize);
+    }
 
-            String filename = r.getSpot().getName().replace(" ", "_")
-                    + "_" + r.getLanguage().getName().replace(" ", "_")
-                    + ".wav";
+    /** One task per response whose file is missing or was made from other text. */
+    private List<TtsTask> tasksFor(List<Narration> narrations) {
+        AudioDelivery delivery = audioMixService.delivery();
+        List<TtsTask> tasks = new ArrayList<>();
+        for (Narration n : narrations) {
+            String spot = n.spot();
+            String language = n.language();
+            String baseName = spot.replace(" ", "_") + "_" + language.replace(" ", "_");
+            String filename = baseName + "." + delivery.extension();
 
             Path file = outputDir.resolve(filename);
+            Long id = n.id();
+            String content = n.content();
+            String entry = chunkedTts.cacheEntry(content, VOICE, delivery);
 
-            // avoid regenerating if file exists
-            if (Files.exists(file)) {
+            // avoid regenerating if the file was made from this text
+            if (entry.equals(n.storedEntry()) && Files.exists(file)) {
                 System.out.println("Already exists → " + filename);
                 continue;
             }
+            // files from before the cache have no key: take them as they are
+            if (n.storedEntry() == null
+                    && (Files.exists(file) || audioMixService.transcodeLegacy(outputDir.resolve(baseName + ".wav"), file))) {
+                responseRepo.updateOpenAiAudioKey(id, entry);
+                continue;
+            }
 
-            System.out.println("Generating TTS → " + filename);
+            tasks.add(TtsTask.of(filename, () -> generateAudio(id, spot, language, content, entry, file)));
+        }
+        return tasks;
+    }
 
-            TtsResult result = openAIClient
-                    .textToSpeech(r.getContent(), "nova")  // your chosen voice
-                    .block();
+    /**
+     * What a task needs, read inside the transaction so the workers never touch lazy
+     * associations (or hold a connection while synthesizing).
+     */
+    private record Narration(Long id, String spot, String language, String content, String storedEntry) {}
 
-            Files.write(file, result.getAudio());
+    private static Narration narration(Response r) {
+        return new Narration(r.getId(), r.getSpot().getName(), r.getLanguage().getName(),
+                r.getContent(), r.getOpenAiAudioKey());
+    }
 
-            // ✅ AUDIO tokens only
-            r.setAudioTokensIn(result.getPromptTokens());
-            r.setAudioTokensOut(result.getCompletionTokens());
-            responseRepo.save(r);
+    /** The client's stream, noting whether anything was written to it. */
+    private static final class SentStream extends FilterOutputStream {
+        volatile boolean sent;
+
+        SentStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            sent = true;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            sent = true;
+            out.write(b, off, len);
+        }
+    }
+
+    private Path generateAudio(Long responseId, String spot, String language, String content, String entry, Path file)
+            throws IOException {
+
+        TtsAudioCache.Producer synthesize = target -> {
+            System.out.println("Generating TTS → " + file.getFileName());
+
+            // sentence chunks synthesized concurrently, PCM encoded to the file in order as it lands
+            chunkedTts.synthesizeToFile(content, VOICE, target, audioMixService.delivery());
+
+            // ✅ AUDIO usage: the speech endpoint reports no tokens, so IN is the character count
+            int chars = content.length();
+            responseRepo.updateAudioTokens(responseId, chars, 0);
             System.out.println(
-                    "AUDIO TOKENS for " + r.getSpot().getName() + " | " + r.getLanguage().getName() +
-                            " → IN=" + result.getPromptTokens() +
-                            " OUT=" + result.getCompletionTokens()
+                    "AUDIO TOKENS for " + spot + " | " + language +
+                            " → IN=" + chars + " chars" +
+                            " OUT=0"
             );
+        };
 
-            System.out.println("Saved file → " + file);
+        // synthesized only if no response has had this text (and voice / format) yet
+        try (TtsAudioCache.Lease cached = audioCache.getOrCreate(entry, synthesize)) {
+            audioCache.materialize(cached.path(), file);
         }
+        responseRepo.updateOpenAiAudioKey(responseId, entry);
+        System.out.println("Saved file → " + file);
+        return file;
     }
 }
-
@@ -1,62 +1,86 @@
 package com.example.genai.service;
 
+import com.example.genai.audio.AudioDelivery;
+import com.example.genai.audio.BedCache;
+import com.example.genai.audio.Ducking;
+import com.example.genai.audio.MixTrack;
+import com.example.genai.audio.MultiTrackMixer;
+import com.example.genai.audio.PcmBed;
+import com.example.genai.audio.PcmConverter;
+import com.example.genai.audio.PcmSink;
+import com.example.genai.audio.SampleSource;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.sound.sampled.*;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Arrays;
+import java.nio.file.Paths;
+import java.util.List;
 
 @Service
 public class AudioMixService {
 
-    // Background music volume relative to speech
-    private static final double BG_GAIN = 0.500; // 30%
+    private final BedCache bedCache;
+    private final boolean loopBed;
+    private final int sampleRate;
+    private final double bedGain;
+    private final double fadeInSeconds;
+    private final double fadeOutSeconds;
+    private final double tailSeconds;
+    private final Ducking ducking;
+    private final AudioDelivery delivery;
+
+    public AudioMixService(
+            @Value("${app.audio.bed-cache.dir:${java.io.tmpdir}/genai-beds}") String bedCacheDir,
+            @Value("${app.audio.bed-cache.mmap-threshold-mb:16}") long mmapThresholdMb,
+            @Value("${app.audio.bed-cache.loop:true}") boolean loopBed,
+            @Value("${app.audio.mix.sample-rate:0}") int sampleRate,
+            @Value("${app.audio.mix.bed-gain:0.5}") double bedGain,
+            @Value("${app.audio.mix.fade-in-seconds:0.5}") double fadeInSeconds,
+            @Value("${app.audio.mix.fade-out-seconds:1.5}") double fadeOutSeconds,
+            @Value("${app.audio.mix.tail-seconds:1.5}") double tailSeconds,
+            @Value("${app.audio.mix.duck.threshold-db:-35}") double duckThresholdDb,
+            @Value("${app.audio.mix.duck.depth-db:6}") double duckDepthDb,
+            @Value("${app.audio.mix.duck.attack-ms:40}") double duckAttackMs,
+            @Value("${app.audio.mix.duck.release-ms:400}") double duckReleaseMs,
+            @Value("${app.audio.delivery.format:mp3}") String deliveryFormat,
+            @Value("${app.audio.delivery.bitrate-kbps:64}") int bitrateKbps
+    ) {
+        this.bedCache = new BedCache(Paths.get(bedCacheDir), mmapThresholdMb * 1024 * 1024);
+        this.loopBed = loopBed;
+        this.sampleRate = sampleRate;
+        this.bedGain = bedGain;
+        this.fadeInSeconds = fadeInSeconds;
+        this.fadeOutSeconds = fadeOutSeconds;
+        this.tailSeconds = tailSeconds;
+        this.ducking = new Ducking(duckThresholdDb, duckDepthDb, duckAttackMs, duckReleaseMs);
+        this.delivery = new AudioDelivery(AudioDelivery.Format.valueOf(deliveryFormat.trim().toUpperCase()), bitrateKbps);
+    }
+
+    /** Format for stored narrations; name output files with its extension. */
+    public AudioDelivery delivery() {
+        return delivery;
+    }
 
     public Path mixSpeechWithBackground(Path speechPath, Path bgPath, Path outputPath) throws Exception {
-        // Open original audio streams (MP3/MPEG)
-        try (AudioInputStream speechIn = AudioSystem.getAudioInputStream(speechPath.toFile());
-             AudioInputStream bgIn = AudioSystem.getAudioInputStream(bgPath.toFile())) {
+        // Open original speech stream (WAV/MP3)
+        try (AudioInputStream speechIn = AudioSystem.getAudioInputStream(speechPath.toFile())) {
 
-            AudioFormat speechFormat = speechIn.getFormat();
+            SampleSource speech = SampleSource.decode(speechIn);
+            int rate = sampleRate > 0 ? sampleRate : Math.round(speech.format().getSampleRate());
 
-            float sampleRate = speechFormat.getSampleRate();
-            if (sampleRate == AudioSystem.NOT_SPECIFIED) {
-                sampleRate = 44100f; // fallback
-            }
+            // Both become 16-bit, stereo, little-endian PCM at the mix rate, converted in-process
+            AudioFormat targetFormat = BedCache.format(rate, 2);
 
-            // Force both to 16-bit, stereo, little-endian PCM
-            AudioFormat targetFormat = new AudioFormat(
-                    AudioFormat.Encoding.PCM_SIGNED,
-                    sampleRate,
-                    16,        // bits per sample
-                    2,         // channels: force stereo
-                    4,         // frame size = 2 bytes * 2 channels
-                    sampleRate,
-                    false      // little endian
-            );
-
-            try (AudioInputStream speechPcm = AudioSystem.getAudioInputStream(targetFormat, speechIn);
-                 AudioInputStream bgPcm = AudioSystem.getAudioInputStream(targetFormat, bgIn)) {
-
-                byte[] mixedBytes = mixPcmStreams(speechPcm, bgPcm, targetFormat);
-
-                //If directory exists
-                if (outputPath.getParent() != null) {
-                    Files.createDirectories(outputPath.getParent());
-                }
-
-                try (ByteArrayInputStream bais = new ByteArrayInputStream(mixedBytes);
-                     AudioInputStream mixedStream = new AudioInputStream(
-                             bais,
-                             targetFormat,
-                             mixedBytes.length / targetFormat.getFrameSize())) {
-
-                    AudioSystem.write(mixedStream, AudioFileFormat.Type.WAVE, outputPath.toFile());
-                }
+            // the bed is decoded once per rate and shared; see BedCache
+            PcmBed bed = bedCache.get(bgPath, rate, 2);
+
+            // WAV or MP3 by the output's extension, encoded as the mix is written
+            try (PcmSink out = delivery.open(outputPath, targetFormat)) {
+                mixPcmStreams(PcmConverter.convert(speech, rate, 2), bed, out);
+                out.finish();
             }
         }
 
@@ -64,62 +88,60 @@ public class AudioMixService {
     }
 
     /**
-     * Mix two PCM_SIGNED 16-bit little-endian stereo streams.
-     * Duration = speech stream length (bg is truncated or padded as silence).
+     * Mixes any set of tracks (all in {@code format}) into {@code outputPath} (WAV or MP3),
+     * with this service's ducking and tail settings.
      */
-    private byte[] mixPcmStreams(AudioInputStream speechPcm,
-                                 AudioInputStream bgPcm,
-                                 AudioFormat format) throws IOException {
-
-        int frameSize = format.getFrameSize(); // should be 4 (stereo 16-bit)
-        int bufferFrames = 1024;
-        int bufferSize = frameSize * bufferFrames;
-
-        byte[] speechBuf = new byte[bufferSize];
-        byte[] bgBuf = new byte[bufferSize];
-        byte[] outBuf = new byte[bufferSize];
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-
-        int speechBytesRead;
-        while ((speechBytesRead = speechPcm.read(speechBuf)) != -1) {
-            int bgBytesRead = bgPcm.read(bgBuf);
-
-            if (bgBytesRead == -1) {
-                // BG finished: treat as silence for the remaining speech part
-                Arrays.fill(bgBuf, 0, speechBytesRead, (byte) 0);
-                bgBytesRead = speechBytesRead;
-            }
-
-            // iterate per 16-bit sample (2 bytes) – this naturally covers both channels
-            for (int i = 0; i < speechBytesRead; i += 2) {
-                short speechSample = bytesToShortLE(speechBuf, i);
-                short bgSample = (i < bgBytesRead) ? bytesToShortLE(bgBuf, i) : 0;
-
-                int mixed = (int) speechSample + (int) (bgSample * BG_GAIN);
-
-                // clamp to 16-bit range
-                if (mixed > Short.MAX_VALUE) mixed = Short.MAX_VALUE;
-                if (mixed < Short.MIN_VALUE) mixed = Short.MIN_VALUE;
-
-                shortToBytesLE((short) mixed, outBuf, i);
-            }
-
-            baos.write(outBuf, 0, speechBytesRead);
+    public Path mixTracks(List<MixTrack> tracks, AudioFormat format, Path outputPath) throws IOException {
+        try (PcmSink out = delivery.open(outputPath, format)) {
+            new MultiTrackMixer(format, ducking, tailSeconds).mix(tracks, out);
+            out.finish();
         }
+        return outputPath;
+    }
 
-        // We stop when speech ends → background beyond that is ignored
-        return baos.toByteArray();
+    /**
+     * Narration over a music bed: speech and a decoded bed (both in the sink's format)
+     * mixed straight into the writer in one
+     * streaming pass. The bed fades in, ducks under the speech, loops if configured and
+     * fades out over a short tail after the speech ends.
+     */
+    void mixPcmStreams(SampleSource speechPcm, PcmBed bed, PcmSink out) throws IOException {
+        MixTrack speech = MixTrack.of("speech", speechPcm).asKey();
+        MixTrack music = MixTrack.of("music", bed.cursor(loopBed))
+                .gain(bedGain)
+                .fades(fadeInSeconds, fadeOutSeconds)
+                .asDucked();
+        new MultiTrackMixer(bed.format(), ducking, tailSeconds).mix(List.of(speech, music), out);
     }
 
-    private short bytesToShortLE(byte[] buffer, int offset) {
-        int low = buffer[offset] & 0xFF;
-        int high = buffer[offset + 1]; // signed
-        return (short) ((high << 8) | low);
+    /**
+     * If {@code target} is compressed and a WAV from before compressed delivery exists at
+     * {@code legacyWav}, re-encodes that instead of paying for synthesis again. The WAV is
+     * left in place. Returns whether {@code target} now exists.
+     */
+    public boolean transcodeLegacy(Path legacyWav, Path target) {
+        if (legacyWav.equals(target) || !Files.exists(legacyWav)) return false;
+        try {
+            long start = System.currentTimeMillis();
+            transcode(legacyWav, target);
+            System.out.println("Transcoded " + legacyWav.getFileName() + " → " + target.getFileName()
+                    + " (" + Files.size(legacyWav) / 1024 + " KB → " + Files.size(target) / 1024 + " KB) in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return true;
+        } catch (Exception e) {
+            System.err.println("Could not transcode " + legacyWav + " – " + e.getMessage());
+            return false;
+        }
     }
 
-    private void shortToBytesLE(short value, byte[] buffer, int offset) {
-        buffer[offset] = (byte) (value & 0xFF);
-        buffer[offset + 1] = (byte) ((value >> 8) & 0xFF);
+    /** Re-encodes an existing audio file (e.g. a WAV from before MP3 delivery) to {@code target}'s format. */
+    public Path transcode(Path source, Path target) throws Exception {
+        try (AudioInputStream in = AudioSystem.getAudioInputStream(source.toFile())) {
+            SampleSource pcm = SampleSource.decode(in);
+            try (PcmSink out = delivery.open(target, pcm.format())) {
+                out.writeAll(pcm);
+                return out.finish();
+            }
+        }
     }
 }
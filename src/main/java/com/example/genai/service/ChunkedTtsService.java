@@ -0,0 +1,177 @@
+package com.example.genai.service;
+
+import com.example.genai.audio.AudioDelivery;
+import com.example.genai.audio.BedCache;
+import com.example.genai.audio.Pcm16;
+import com.example.genai.audio.PcmConverter;
+import com.example.genai.audio.PcmSink;
+import com.example.genai.audio.SampleSource;
+import com.example.genai.audio.WavWriter;
+import com.example.genai.llm.OpenAIClient;
+import com.example.genai.util.DataBufferInputStream;
+import com.example.genai.util.SentenceChunker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.util.concurrent.Queues;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * OpenAI narration synthesized sentence-chunk by chunk: the text is split on sentence
+ * boundaries ({@link SentenceChunker}), up to {@code concurrency} chunks are requested
+ * at once, and their PCM is emitted in text order as it lands. The first chunk is kept
+ * short, so audio starts after one small request instead of the whole narration.
+ *
+ * Every chunk request goes through the OpenAI lane of {@link TtsScheduler}, so chunks of
+ * all narrations together stay within {@code app.tts.openai.max-concurrent}. Chunks are
+ * not retried here: the scheduler retries the narration.
+ */
+@Service
+public class ChunkedTtsService {
+
+    private static final int SAMPLE_RATE = OpenAIClient.PCM_SAMPLE_RATE;
+    private static final int CHANNELS = 1;
+    private static final int BITS = 16;
+    // network buffers a chunk may queue while an earlier chunk is still being read
+    private static final int CHUNK_PREFETCH = Queues.SMALL_BUFFER_SIZE;
+    private static final int READ_PREFETCH = 16;
+
+    private final OpenAIClient openAIClient;
+    private final TtsScheduler ttsScheduler;
+    private final int firstChunkChars;
+    private final int maxChunkChars;
+    private final int concurrency;
+
+    public ChunkedTtsService(
+            OpenAIClient openAIClient,
+            TtsScheduler ttsScheduler,
+            @Value("${app.tts.chunk.first-chars:200}") int firstChunkChars,
+            @Value("${app.tts.chunk.max-chars:600}") int maxChunkChars,
+            @Value("${app.tts.chunk.concurrency:3}") int concurrency
+    ) {
+        this.openAIClient = openAIClient;
+        this.ttsScheduler = ttsScheduler;
+        this.firstChunkChars = Math.max(1, firstChunkChars);
+        this.maxChunkChars = Math.max(this.firstChunkChars, maxChunkChars);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    public List<String> chunks(String text) {
+        return SentenceChunker.split(text, firstChunkChars, maxChunkChars);
+    }
+
+    /** Raw PCM for {@code text} (24 kHz 16-bit mono), in order, as the chunks arrive. */
+    public Flux<DataBuffer> streamPcm(String text, String voice) {
+        List<String> chunks = chunks(text);
+        if (chunks.isEmpty()) {
+            return Flux.error(new IllegalStateException("Nothing to synthesize"));
+        }
+
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean firstAudio = new AtomicBoolean();
+            return Flux.fromIterable(chunks)
+                    .flatMapSequential(chunk -> synthesizeChunk(chunk, voice), concurrency, CHUNK_PREFETCH)
+                    .doOnNext(b -> {
+                        if (firstAudio.compareAndSet(false, true)) {
+                            System.out.println("TTS first audio after " + (System.nanoTime() - start) / 1_000_000
+                                    + " ms (" + chunks.size() + " chunks)");
+                        }
+                    })
+                    .doOnComplete(() -> System.out.println("TTS " + chunks.size() + " chunks done in "
+                            + (System.nanoTime() - start) / 1_000_000 + " ms"))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /**
+     * {@link TtsAudioCache} entry for {@code text} as {@link #synthesizeToFile} would write it:
+     * everything that changes the audio (chunk sizes too, they decide the joins) goes into the key.
+     */
+    public String cacheEntry(String text, String voice, AudioDelivery delivery) {
+        return TtsAudioCache.key("openai", OpenAIClient.TTS_MODEL, voice, OpenAIClient.TTS_INSTRUCTIONS,
+                firstChunkChars + "/" + maxChunkChars, delivery.format() + "/" + delivery.bitrateKbps(), text)
+                + "." + delivery.extension();
+    }
+
+    /**
+     * Synthesizes {@code text} into {@code target} (WAV or MP3 by its extension, see
+     * {@link AudioDelivery#open}), writing/encoding each buffer as it arrives.
+     */
+    public Path synthesizeToFile(String text, String voice, Path target, AudioDelivery delivery) throws IOException {
+        try (PcmSink out = delivery.open(target, BedCache.format(SAMPLE_RATE, CHANNELS));
+             InputStream pcm = new DataBufferInputStream(streamPcm(text, voice), READ_PREFETCH)) {
+            pcm.transferTo(out.stream());
+            return out.finish();
+        }
+    }
+
+    /**
+     * Writes a streaming WAV to {@code out} – a header with the maximum data length (the real
+     * one isn't known yet), then PCM as it arrives – and the same narration to {@code target}
+     * as {@link #synthesizeToFile} would. Blocks until the narration is done.
+     */
+    public Path streamWav(String text, String voice, OutputStream out, Path target, AudioDelivery delivery)
+            throws IOException {
+        try (PcmSink file = delivery.open(target, BedCache.format(SAMPLE_RATE, CHANNELS));
+             InputStream pcm = new DataBufferInputStream(streamPcm(text, voice), READ_PREFETCH)) {
+            OutputStream copy = file.stream();
+            byte[] buf = new byte[16 * 1024];
+            boolean started = false;
+            int n;
+            while ((n = pcm.read(buf)) > 0) {
+                // not before the first audio: until then a failed request can still be retried
+                if (!started) {
+                    writeHeader(out);
+                    started = true;
+                }
+                out.write(buf, 0, n);
+                copy.write(buf, 0, n);
+                // flush per buffer, so the client gets audio as soon as it lands
+                if (pcm.available() == 0) out.flush();
+            }
+            out.flush();
+            return file.finish();
+        }
+    }
+
+    /** Writes a stored narration ({@code audio}, WAV or MP3) to {@code out} as a streaming WAV. */
+    public void streamWav(Path audio, OutputStream out) throws IOException {
+        try (AudioInputStream encoded = AudioSystem.getAudioInputStream(audio.toFile())) {
+            SampleSource pcm = PcmConverter.convert(SampleSource.decode(encoded), SAMPLE_RATE, CHANNELS);
+            writeHeader(out);
+            short[] block = new short[8 * 1024 * CHANNELS];
+            byte[] bytes = new byte[block.length * 2];
+            int n;
+            while ((n = pcm.read(block, 0, block.length)) > 0) {
+                Pcm16.toBytes(block, n, bytes, 0);
+                out.write(bytes, 0, n * 2);
+            }
+        } catch (UnsupportedAudioFileException e) {
+            throw new IOException("Unreadable narration " + audio, e);
+        }
+        out.flush();
+    }
+
+    private static void writeHeader(OutputStream out) throws IOException {
+        ByteBuffer header = WavWriter.header(SAMPLE_RATE, CHANNELS, BITS, WavWriter.MAX_DATA_BYTES);
+        out.write(header.array(), header.arrayOffset(), header.remaining());
+    }
+
+    /** One chunk's PCM, requested once the OpenAI lane has room for another request. */
+    private Flux<DataBuffer> synthesizeChunk(String chunk, String voice) {
+        return ttsScheduler.request(TtsScheduler.Provider.OPENAI, openAIClient.speechPcm(chunk, voice));
+    }
+}
@@ -1,62 +1,90 @@
 package com.example.genai.service;
 
+import com.example.genai.audio.WavWriter;
+import com.example.genai.entity.GenerationJob;
 import com.example.genai.entity.Response;
 import com.example.genai.repo.ResponseRepo;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.genai.util.DataBufferInputStream;
+import com.example.genai.util.InlineDataReader;
 import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.retry.Retry;
 import org.springframework.core.io.ClassPathResource;
 
 import java.io.InputStream;
 import java.nio.file.StandardCopyOption;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.time.Duration;
-import java.util.Base64;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
-public class GeminiAudioService {
+public class GeminiAudioService implements JobHandler {
 
     private final ResponseRepo responseRepo;
     private final AudioMixService audioMixService;
     private final WebClient geminiClient;
+    private final TtsScheduler ttsScheduler;
+    private final TransactionTemplate readOnlyTx;
+    private final TtsAudioCache audioCache;
 
     private static final int SAMPLE_RATE = 24000;
     private static final short CHANNELS = 1;
     private static final short BITS = 16;
+    // network buffers queued ahead of the JSON parser
+    private static final int BODY_PREFETCH = 16;
+    private static final String TTS_MODEL = "gemini-2.5-flash-preview-tts";
+    private static final String NARRATION_PROMPT = "Please narrate in a warm, friendly travel-guide tone:\n\n";
     private Path bgAudioPath;
 
     @Value("${gemini.tts.voiceName:Leda}")
     private String voiceName;
 
-    private final Path outputDir =
-            Paths.get("C:\\Users\\mohahama\\Downloads\\World-Traveler\\audio-mix-gemini");
+    private final Path outputDir;
+
+    // on-demand generations in progress, so concurrent requests for one narration share it
+    private final Map<Path, CompletableFuture<Path>> generating = new ConcurrentHashMap<>();
 
     //private final Path bgAudioPath =
             //Paths.get("java-genai-llm-backend/src/main/resources/bg-audio/Calm1.mp3");
 
     public GeminiAudioService(ResponseRepo responseRepo,
                               AudioMixService audioMixService,
-                              @Qualifier("geminiWebClient") WebClient geminiClient) {
+                              @Qualifier("geminiWebClient") WebClient geminiClient,
+                              TtsScheduler ttsScheduler,
+                              PlatformTransactionManager txManager,
+                              TtsAudioCache audioCache,
+                              @Value("${app.audio.gemini-dir:C:\\Users\\mohahama\\Downloads\\World-Traveler\\audio-mix-gemini}")
+                              String outputDir) {
         this.responseRepo = responseRepo;
         this.audioMixService = audioMixService;
         this.geminiClient = geminiClient;
+        this.ttsScheduler = ttsScheduler;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.audioCache = audioCache;
+        this.outputDir = Paths.get(outputDir);
     }
     @PostConstruct
     public void initBgAudio() throws Exception {
@@ -82,74 +110,219 @@ public class GeminiAudioService {
         return tempFile;
     }
 
-    @Transactional
     public void generateAllGeminiAudio() throws Exception {
 
         Files.createDirectories(outputDir);
 
-        for (Response r : responseRepo.findAll()) {
+        List<Narration> all = readOnlyTx.execute(status -> responseRepo.findAll().stream()
+                .map(this::narration)
+                .toList());
+        ttsScheduler.run(TtsScheduler.Provider.GEMINI, tasksFor(all));
+    }
+
+    /* ================= ON DEMAND ================= */
+
+    /**
+     * The mixed narration for a response, generated on the first request and then served
+     * from disk. Empty if there is no such response. Generation runs on the Gemini lane
+     * of the scheduler, so it counts against the same concurrency limit as the jobs.
+     */
+    public Optional<Path> mixedAudio(Long responseId) throws IOException {
+        // looked up on every request, so an edited text is never answered with the old mix;
+        // names and text only, no transaction is held during synthesis
+        Narration narration = readOnlyTx.execute(status -> responseRepo.findById(responseId)
+                .map(this::narration)
+                .orElse(null));
+        if (narration == null) return Optional.empty();
+
+        Path mixed = mixedPath(narration.baseName());
+        if (upToDate(narration, mixed)) return Optional.of(mixed);
+
+        Files.createDirectories(outputDir);
+        CompletableFuture<Path> mine = new CompletableFuture<>();
+        CompletableFuture<Path> existing = generating.putIfAbsent(mixed, mine);
+        if (existing == null) {
+            try {
+                ttsScheduler.runNow(TtsScheduler.Provider.GEMINI, taskFor(narration));
+                mine.complete(mixed);
+            } catch (RuntimeException e) {
+                mine.completeExceptionally(e);
+            } finally {
+                generating.remove(mixed);
+            }
+        }
+
+        try {
+            return Optional.of((existing != null ? existing : mine).get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + mixed, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Gemini narration failed for response " + responseId
+                    + ": " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /* ================= JOB SLICES (one item = one Response) ================= */
 
-            String baseName = r.getSpot().getName().replace(" ", "_")
-                    + "_" + r.getLanguage().getName().replace(" ", "_");
+    @Override
+    public GenerationJob.Type type() {
+        return GenerationJob.Type.GEMINI_AUDIO;
+    }
+
+    @Override
+    public long countItems() {
+        return responseRepo.count();
+    }
 
-            Path raw = outputDir.resolve(baseName + "_raw.wav");
-            Path mixed = outputDir.resolve(baseName + "_mixed.wav");
+    @Override
+    public JobSlice processAfter(long cursor, int pageSize) {
+        try {
+            Files.createDirectories(outputDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create output directory: " + outputDir, e);
+        }
 
-            if (Files.exists(mixed)) {
+        // the page is read in a short transaction; synthesis and mixing run after it has ended
+        List<Narration> page = readOnlyTx.execute(status -> responseRepo
+                .findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, pageSize)).stream()
+                .map(this::narration)
+                .toList());
+        List<TtsTask> tasks = tasksFor(page);
+        GenerationStats stats = ttsScheduler.run(TtsScheduler.Provider.GEMINI, tasks);
+
+        long next = page.isEmpty() ? cursor : page.get(page.size() - 1).id();
+        // up-to-date mixes count as done
+        int skipped = page.size() - tasks.size();
+        return new JobSlice(next, skipped + stats.generated(), stats.failed(), page.size() < pageSize);
+    }
+
+    /**
+     * Synthesis (network) and mixing (CPU) as separate steps, so the scheduler mixes one
+     * narration while the next is still streaming in. Retries are the scheduler's; a
+     * failed attempt discards its partial WAV, so a retry starts from an empty file.
+     */
+    private List<TtsTask> tasksFor(List<Narration> narrations) {
+        List<TtsTask> tasks = new ArrayList<>();
+        for (Narration narration : narrations) {
+            Path mixed = mixedPath(narration.baseName());
+
+            if (upToDate(narration, mixed)) {
                 System.out.println("Already exists → " + mixed);
                 continue;
             }
+            tasks.add(taskFor(narration));
+        }
+        return tasks;
+    }
 
-            System.out.println("Calling Gemini 2.5 Flash Preview TTS for → " + baseName);
+    /**
+     * The mix was made from this text. Mixes from before the cache have no key; they are
+     * taken as they are (older {@code .wav} ones re-encoded).
+     */
+    private boolean upToDate(Narration n, Path mixed) {
+        if (n.speechEntry().equals(n.storedEntry())) return Files.exists(mixed);
+        if (n.storedEntry() == null
+                && (Files.exists(mixed) || audioMixService.transcodeLegacy(legacyMixedPath(n.baseName()), mixed))) {
+            responseRepo.updateGeminiAudioKey(n.id(), n.speechEntry());
+            return true;
+        }
+        return false;
+    }
 
-            byte[] pcm = callGeminiTts(r.getContent());
+    /**
+     * The speech is cached as WAV – the mixer's input, kept lossless – so the same text
+     * is synthesized once, whichever response or job asks for it, and a remix (new bed,
+     * new delivery format) costs no API call.
+     */
+    private TtsTask taskFor(Narration n) {
+        Path mixed = mixedPath(n.baseName());
+        // held from synthesis until the task ends, so eviction can't delete the speech before the mix
+        AtomicReference<TtsAudioCache.Lease> speechLease = new AtomicReference<>();
+
+        return new TtsTask(n.baseName(),
+                () -> {
+                    TtsAudioCache.Lease lease = audioCache.getOrCreate(n.speechEntry(), target -> {
+                        System.out.println("Calling Gemini 2.5 Flash Preview TTS for → " + n.baseName());
+                        synthesizeToWav(n.content(), target);
+                    });
+                    // a retried attempt (e.g. the size check failed) leased the same entry already
+                    release(speechLease.getAndSet(lease));
+                    return lease.path();
+                },
+                speech -> {
+                    audioMixService.mixSpeechWithBackground(speech, bgAudioPath, mixed);
+                    responseRepo.updateGeminiAudioKey(n.id(), n.speechEntry());
+                },
+                // success, failure or cancellation – the mix may never run
+                () -> release(speechLease.getAndSet(null)));
+    }
 
-            byte[] wav = pcmToWav(pcm, SAMPLE_RATE, CHANNELS, BITS);
-            Files.write(raw, wav);
+    private static void release(TtsAudioCache.Lease lease) {
+        if (lease != null) lease.close();
+    }
 
-            audioMixService.mixSpeechWithBackground(raw, bgAudioPath, mixed);
-        }
+    /** What a narration needs outside the transaction. */
+    private record Narration(Long id, String baseName, String content, String speechEntry, String storedEntry) {}
+
+    private Narration narration(Response r) {
+        String content = r.getContent();
+        String entry = TtsAudioCache.key("gemini", TTS_MODEL, voiceName, NARRATION_PROMPT, "wav", content) + ".wav";
+        return new Narration(r.getId(), baseName(r), content, entry, r.getGeminiAudioKey());
     }
 
-    /* ================= GEMINI CALL ================= */
+    /** The delivered mix: {@code _mixed.mp3} (or {@code .wav}, per {@code app.audio.delivery.format}). */
+    private Path mixedPath(String baseName) {
+        return outputDir.resolve(baseName + "_mixed." + audioMixService.delivery().extension());
+    }
 
-    private byte[] callGeminiTts(String text) {
+    private Path legacyMixedPath(String baseName) {
+        return outputDir.resolve(baseName + "_mixed.wav");
+    }
 
-        return geminiClient.post()
-                .uri("/v1beta/models/gemini-2.5-flash-preview-tts:generateContent")
-                .bodyValue(buildGeminiTtsRequest(text))
-                .exchangeToMono(this::handleResponse)
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(2)))
-                .map(this::extractPcm)
-                .block();
+    private static String baseName(Response r) {
+        return r.getSpot().getName().replace(" ", "_")
+                + "_" + r.getLanguage().getName().replace(" ", "_");
     }
 
-    private Mono<JsonNode> handleResponse(ClientResponse response) {
+    /* ================= GEMINI CALL ================= */
 
-        if (response.statusCode().is2xxSuccessful()) {
-            return response.bodyToMono(JsonNode.class);
+    /** One synthesis attempt: PCM goes from the network buffers straight into the WAV file. */
+    private Path synthesizeToWav(String text, Path target) throws IOException {
+        try (WavWriter wav = WavWriter.create(target, SAMPLE_RATE, CHANNELS, BITS)) {
+            callGeminiTts(text, wav.stream());
+            return wav.finish();
         }
-
-        return response.bodyToMono(String.class)
-                .defaultIfEmpty("")
-                .flatMap(body -> Mono.error(
-                        new RuntimeException(
-                                "Gemini API error " +
-                                        response.statusCode().value() +
-                                        " : " + body
-                        )
-                ));
     }
 
-    private byte[] extractPcm(JsonNode json) {
+    /**
+     * Synthesizes {@code text} and writes the decoded 24 kHz mono PCM to {@code pcmOut}
+     * while the response is still arriving; the body is never held whole, so long
+     * narrations don't run into {@code gemini.webclient.maxInMemorySizeBytes}.
+     */
+    private void callGeminiTts(String text, OutputStream pcmOut) throws IOException {
 
-        JsonNode node = json.at("/candidates/0/content/parts/0/inlineData/data");
+        Flux<DataBuffer> body = geminiClient.post()
+                .uri("/v1beta/models/" + TTS_MODEL + ":generateContent")
+                .bodyValue(buildGeminiTtsRequest(text))
+                .retrieve()
+                .onStatus(HttpStatusCode::isError, this::apiError)
+                .bodyToFlux(DataBuffer.class);
 
-        if (node.isMissingNode()) {
-            throw new IllegalStateException("No audio returned by Gemini: " + json);
+        try (InputStream json = new DataBufferInputStream(body, BODY_PREFETCH)) {
+            InlineDataReader.copyInlineData(json, pcmOut);
         }
+    }
+
+    /** Keeps the status on the exception, so the scheduler only retries 429 / 5xx. */
+    private Mono<? extends Throwable> apiError(ClientResponse response) {
 
-        return Base64.getDecoder().decode(node.asText());
+        return response.bodyToMono(String.class)
+                .defaultIfEmpty("")
+                .map(body -> WebClientResponseException.create(
+                        response.statusCode(),
+                        "Gemini API error : " + body,  // message: "<status> Gemini API error : ..."
+                        response.headers().asHttpHeaders(), null, null, null));
     }
 
     /* ================= REQUEST ================= */
@@ -159,8 +332,7 @@ public class GeminiAudioService {
         return Map.of(
                 "contents", List.of(
                         Map.of("parts", List.of(
-                                Map.of("text",
-                                        "Please narrate in a warm, friendly travel-guide tone:\n\n" + text)
+                                Map.of("text", NARRATION_PROMPT + text)
                         ))
                 ),
                 "generationConfig", Map.of(
@@ -175,41 +347,4 @@ public class GeminiAudioService {
                 )
         );
     }
-
-    /* ================= PCM → WAV ================= */
-
-    private static byte[] pcmToWav(byte[] pcm, int rate, short channels, short bits)
-            throws IOException {
-
-        int byteRate = rate * channels * bits / 8;
-        int dataSize = pcm.length;
-        int chunkSize = 36 + dataSize;
-
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-
-        out.write("RIFF".getBytes());
-        out.write(intLE(chunkSize));
-        out.write("WAVE".getBytes());
-        out.write("fmt ".getBytes());
-        out.write(intLE(16));
-        out.write(shortLE((short) 1));
-        out.write(shortLE(channels));
-        out.write(intLE(rate));
-        out.write(intLE(byteRate));
-        out.write(shortLE((short) (channels * bits / 8)));
-        out.write(shortLE(bits));
-        out.write("data".getBytes());
-        out.write(intLE(dataSize));
-        out.write(pcm);
-
-        return out.toByteArray();
-    }
-
-    private static byte[] intLE(int v) {
-        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(v).array();
-    }
-
-    private static byte[] shortLE(short v) {
-        return ByteBuffer.allocate(2).order(ByteOrder.LITTLE_ENDIAN).putShort(v).array();
-    }
 }
@@ -0,0 +1,26 @@
+package com.example.genai.service;
+
+/**
+ * Outcome of one generation run: how many items were attempted, saved and failed,
+ * plus token usage and throughput.
+ */
+public record GenerationStats(int planned,
+                              int generated,
+                              int failed,
+                              long tokensIn,
+                              long tokensOut,
+                              long elapsedMillis) {
+
+    public static GenerationStats empty() {
+        return new GenerationStats(0, 0, 0, 0, 0, 0);
+    }
+
+    public double itemsPerSecond() {
+        return elapsedMillis == 0 ? 0 : generated * 1000d / elapsedMillis;
+    }
+
+    public String summary() {
+        return String.format("%d/%d generated, %d failed in %.1fs (%.2f items/s, tokens IN=%d OUT=%d)",
+                generated, planned, failed, elapsedMillis / 1000d, itemsPerSecond(), tokensIn, tokensOut);
+    }
+}
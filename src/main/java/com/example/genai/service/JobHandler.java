@@ -0,0 +1,22 @@
+package com.example.genai.service;
+
+import com.example.genai.entity.GenerationJob;
+
+/**
+ * A bulk operation that {@link JobService} can run in checkpointed slices.
+ * Items are walked in ascending id order so the last id of a slice is a valid resume cursor.
+ */
+public interface JobHandler {
+
+    GenerationJob.Type type();
+
+    /** Total number of items the job will report progress against. */
+    long countItems();
+
+    /**
+     * Processes up to {@code pageSize} entities with an id greater than {@code cursor}.
+     * Called outside any transaction: read the page in a short one and do the network
+     * work after it ends, so no connection is held for the length of a slice.
+     */
+    JobSlice processAfter(long cursor, int pageSize);
+}
@@ -0,0 +1,47 @@
+package com.example.genai.service;
+
+import com.example.genai.entity.GenerationJob;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Progress view of a {@link GenerationJob} as returned by {@code GET /api/jobs/{id}}.
+ * Rate and ETA only consider the current run, so a resumed job is not skewed by
+ * items finished before the restart.
+ */
+public record JobProgress(Long id,
+                          GenerationJob.Type type,
+                          GenerationJob.Status status,
+                          long itemsTotal,
+                          long itemsDone,
+                          long itemsFailed,
+                          double itemsPerSecond,
+                          Long etaSeconds,
+                          long cursor,
+                          Instant createdAt,
+                          Instant runStartedAt,
+                          Instant finishedAt,
+                          String lastError) {
+
+    public static JobProgress of(GenerationJob job) {
+        double rate = 0;
+        Long eta = null;
+
+        if (job.getRunStartedAt() != null) {
+            Instant end = job.isActive() || job.getFinishedAt() == null ? Instant.now() : job.getFinishedAt();
+            long millis = Duration.between(job.getRunStartedAt(), end).toMillis();
+            long runItems = job.getItemsDone() + job.getItemsFailed() - job.getItemsAtRunStart();
+            if (millis > 0 && runItems > 0) {
+                rate = runItems * 1000d / millis;
+                long remaining = Math.max(0, job.getItemsTotal() - job.getItemsDone() - job.getItemsFailed());
+                eta = job.isActive() ? (long) Math.ceil(remaining / rate) : 0L;
+            }
+        }
+
+        return new JobProgress(job.getId(), job.getType(), job.getStatus(),
+                job.getItemsTotal(), job.getItemsDone(), job.getItemsFailed(),
+                rate, eta, job.getCursor(),
+                job.getCreatedAt(), job.getRunStartedAt(), job.getFinishedAt(), job.getLastError());
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.genai.service;
+
+import com.example.genai.entity.GenerationJob;
+import com.example.genai.entity.GenerationJob.Status;
+import com.example.genai.repo.GenerationJobRepo;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs {@link JobHandler}s off the request thread, one slice at a time,
+ * persisting the cursor and counters after every slice so a crashed or
+ * cancelled job resumes where it stopped.
+ */
+@Service
+public class JobService {
+
+    private static final Set<Status> ACTIVE = EnumSet.of(Status.QUEUED, Status.RUNNING, Status.CANCELLING);
+
+    private final GenerationJobRepo jobRepo;
+    private final Map<GenerationJob.Type, JobHandler> handlers = new EnumMap<>(GenerationJob.Type.class);
+    private final Set<Long> cancelRequested = Collections.synchronizedSet(new HashSet<>());
+    private final ExecutorService executor;
+
+    private final int pageSize;
+    private final boolean resumeOnStartup;
+
+    public JobService(GenerationJobRepo jobRepo,
+                      List<JobHandler> handlerList,
+                      @Value("${app.jobs.threads:2}") int threads,
+                      @Value("${app.jobs.page-size:20}") int pageSize,
+                      @Value("${app.jobs.resume-on-startup:false}") boolean resumeOnStartup) {
+        this.jobRepo = jobRepo;
+        for (JobHandler h : handlerList) {
+            handlers.put(h.type(), h);
+        }
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "generation-job");
+            t.setDaemon(true);
+            return t;
+        });
+        this.pageSize = Math.max(1, pageSize);
+        this.resumeOnStartup = resumeOnStartup;
+    }
+
+    /**
+     * Jobs still marked active were owned by a process that died:
+     * mark them interrupted (or resume them straight away if configured).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverInterruptedJobs() {
+        for (GenerationJob job : jobRepo.findByStatusIn(ACTIVE)) {
+            job.setStatus(Status.INTERRUPTED);
+            job.setUpdatedAt(Instant.now());
+            jobRepo.save(job);
+            System.out.println("Job " + job.getId() + " (" + job.getType() + ") interrupted at cursor " + job.getCursor());
+
+            if (resumeOnStartup) {
+                resume(job.getId());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Starts a job of the given type, or returns the one already running. */
+    public synchronized JobProgress start(GenerationJob.Type type) {
+        if (!handlers.containsKey(type)) {
+            throw new IllegalArgumentException("No handler for job type " + type);
+        }
+
+        List<GenerationJob> running = jobRepo.findByTypeAndStatusIn(type, ACTIVE);
+        if (!running.isEmpty()) {
+            return JobProgress.of(running.get(0));
+        }
+
+        GenerationJob job = jobRepo.save(new GenerationJob(type));
+        submit(job.getId());
+        return JobProgress.of(job);
+    }
+
+    public synchronized Optional<JobProgress> resume(Long id) {
+        return jobRepo.findById(id).map(job -> {
+            if (job.isResumable()) {
+                job.setStatus(Status.QUEUED);
+                job.setFinishedAt(null);
+                job.setLastError(null);
+                job = jobRepo.save(job);
+                submit(job.getId());
+            }
+            return JobProgress.of(job);
+        });
+    }
+
+    public synchronized Optional<JobProgress> cancel(Long id) {
+        return jobRepo.findById(id).map(job -> {
+            if (job.getStatus() == Status.QUEUED) {
+                // not picked up yet: the runner will see the flag and stop immediately
+                cancelRequested.add(id);
+                job.setStatus(Status.CANCELLED);
+                job.setFinishedAt(Instant.now());
+                job = jobRepo.save(job);
+            } else if (job.getStatus() == Status.RUNNING) {
+                cancelRequested.add(id);
+                job.setStatus(Status.CANCELLING);
+                job = jobRepo.save(job);
+            }
+            return JobProgress.of(job);
+        });
+    }
+
+    public Optional<JobProgress> find(Long id) {
+        return jobRepo.findById(id).map(JobProgress::of);
+    }
+
+    public List<JobProgress> recent() {
+        return jobRepo.findTop50ByOrderByIdDesc().stream().map(JobProgress::of).toList();
+    }
+
+    // ---------- runner ----------
+
+    private void submit(Long jobId) {
+        executor.submit(() -> run(jobId));
+    }
+
+    private void run(Long jobId) {
+        GenerationJob job = jobRepo.findById(jobId).orElse(null);
+        if (job == null) return;
+        if (cancelRequested.remove(jobId) || job.getStatus() != Status.QUEUED) return;
+
+        JobHandler handler = handlers.get(job.getType());
+        try {
+            job.setStatus(Status.RUNNING);
+            job.setItemsTotal(handler.countItems());
+            job.setItemsAtRunStart(job.getItemsDone() + job.getItemsFailed());
+            job.setRunStartedAt(Instant.now());
+            job.setUpdatedAt(Instant.now());
+            job = jobRepo.save(job);
+            System.out.println("Job " + jobId + " (" + job.getType() + ") running from cursor " + job.getCursor());
+
+            while (true) {
+                if (cancelRequested.remove(jobId)) {
+                    finish(job, Status.CANCELLED);
+                    return;
+                }
+
+                JobSlice slice = handler.processAfter(job.getCursor(), pageSize);
+
+                // checkpoint
+                job.setCursor(slice.nextCursor());
+                job.setItemsDone(job.getItemsDone() + slice.done());
+                job.setItemsFailed(job.getItemsFailed() + slice.failed());
+                job.setUpdatedAt(Instant.now());
+                // re-read status so a concurrent cancel() isn't overwritten
+                Status current = jobRepo.findById(jobId).map(GenerationJob::getStatus).orElse(job.getStatus());
+                job.setStatus(current);
+                job = jobRepo.save(job);
+
+                if (slice.last()) {
+                    cancelRequested.remove(jobId);
+                    finish(job, Status.COMPLETED);
+                    return;
+                }
+            }
+        } catch (Throwable e) {
+            // Errors too (e.g. OutOfMemoryError): a job left RUNNING could never be resumed or restarted
+            System.err.println("Job " + jobId + " failed at cursor " + job.getCursor() + " – " + e);
+            String error = e.getMessage() != null ? e.getMessage() : e.toString();
+            job.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+            cancelRequested.remove(jobId);
+            finish(job, Status.FAILED);
+            if (e instanceof Error err) throw err;
+        }
+    }
+
+    private void finish(GenerationJob job, Status status) {
+        job.setStatus(status);
+        job.setFinishedAt(Instant.now());
+        job.setUpdatedAt(Instant.now());
+        jobRepo.save(job);
+        System.out.println("Job " + job.getId() + " (" + job.getType() + ") " + status
+                + ": done=" + job.getItemsDone() + " failed=" + job.getItemsFailed());
+    }
+}
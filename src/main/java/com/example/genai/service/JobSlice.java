@@ -0,0 +1,12 @@
+package com.example.genai.service;
+
+/**
+ * Result of one {@link JobHandler#processAfter} call.
+ *
+ * @param nextCursor id of the last entity handled in this slice
+ * @param done       items completed (generated or already present)
+ * @param failed     items that failed and were skipped
+ * @param last       true when there is nothing after {@code nextCursor}
+ */
+public record JobSlice(long nextCursor, int done, int failed, boolean last) {
+}
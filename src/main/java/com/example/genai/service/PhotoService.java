@@ -2,12 +2,15 @@ package com.example.genai.service;
 
 import com.example.genai.entity.City;
 import com.example.genai.entity.Country;
+import com.example.genai.entity.GenerationJob;
 import com.example.genai.entity.Spot;
 import com.example.genai.repo.SpotRepo;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -21,11 +24,12 @@ import java.util.List;
 import java.util.Map;
 
 @Service
-public class PhotoService {
+public class PhotoService implements JobHandler {
 
     private final SpotRepo spotRepo;
     private final WebClient webClient;
     private final String googleApiKey;
+    private final TransactionTemplate readOnlyTx;
 
     // Where to save the images
     private final Path outputDir = Paths.get(
@@ -35,10 +39,13 @@ public class PhotoService {
     public PhotoService(
             SpotRepo spotRepo,
             WebClient.Builder webClientBuilder,
+            PlatformTransactionManager txManager,
             @Value("${app.google.api-key}") String googleApiKey
     ) {
         this.spotRepo = spotRepo;
         this.googleApiKey = googleApiKey;
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
 
         // Base client for Places API (New)
         this.webClient = webClientBuilder
@@ -49,39 +56,86 @@ public class PhotoService {
     /**
      * Downloads up to 20 photos for every Spot in DB.
      */
-    @Transactional(readOnly = true)
     public int downloadPhotosForAllSpots() {
-        try {
-            if (!Files.exists(outputDir)) {
-                Files.createDirectories(outputDir);
+        createOutputDir();
+
+        List<SpotQuery> spots = readOnlyTx.execute(status -> queries(spotRepo.findAll()));
+
+        for (SpotQuery spot : spots) {
+            try {
+                downloadPhotosForSpot(spot);
+            } catch (Exception ex) {
+                System.err.println("Failed to download photos for spot: "
+                        + spot.name() + " – " + ex.getMessage());
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Could not create output directory: " + outputDir, e);
         }
 
-        List<Spot> spots = spotRepo.findAll();
+        return spots.size();
+    }
+
+    // ---------- job slices (one item = one Spot) ----------
+
+    @Override
+    public GenerationJob.Type type() {
+        return GenerationJob.Type.PHOTOS;
+    }
 
-        for (Spot spot : spots) {
+    @Override
+    public long countItems() {
+        return spotRepo.count();
+    }
+
+    /** The page is read in a short transaction; no connection is held while downloading. */
+    @Override
+    public JobSlice processAfter(long cursor, int pageSize) {
+        createOutputDir();
+
+        List<SpotQuery> page = readOnlyTx.execute(status ->
+                queries(spotRepo.findByIdGreaterThanOrderByIdAsc(cursor, PageRequest.of(0, pageSize))));
+        int done = 0, failed = 0;
+        for (SpotQuery spot : page) {
             try {
                 downloadPhotosForSpot(spot);
+                done++;
             } catch (Exception ex) {
+                failed++;
                 System.err.println("Failed to download photos for spot: "
-                        + spot.getName() + " – " + ex.getMessage());
+                        + spot.name() + " – " + ex.getMessage());
             }
         }
 
-        return spots.size();
+        long next = page.isEmpty() ? cursor : page.get(page.size() - 1).id();
+        return new JobSlice(next, done, failed, page.size() < pageSize);
+    }
+
+    private void createOutputDir() {
+        try {
+            if (!Files.exists(outputDir)) {
+                Files.createDirectories(outputDir);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create output directory: " + outputDir, e);
+        }
+    }
+
+    /** What a download needs from a Spot, read while its city and country can still be loaded. */
+    private record SpotQuery(Long id, String name, String query) {}
+
+    private static List<SpotQuery> queries(List<Spot> spots) {
+        return spots.stream().map(spot -> {
+            City city = spot.getCity();
+            Country country = city.getCountry();
+            return new SpotQuery(spot.getId(), spot.getName(),
+                    spot.getName() + ", " + city.getName() + ", " + country.getName());
+        }).toList();
     }
 
     /**
      * Use Places API (New) searchText to find a place + photos,
      * then call the media endpoint and follow 302 redirects to get actual bytes.
      */
-    private void downloadPhotosForSpot(Spot spot) throws IOException {
-        City city = spot.getCity();
-        Country country = city.getCountry();
-
-        String query = spot.getName() + ", " + city.getName() + ", " + country.getName();
+    private void downloadPhotosForSpot(SpotQuery spot) throws IOException {
+        String query = spot.query();
         System.out.println("Searching photos for: " + query);
 
         Map<String, Object> response = webClient.post()
@@ -117,7 +171,7 @@ public class PhotoService {
         }
 
         int max = Math.min(20, photos.size());
-        String baseName = normalizeFileName(spot.getName());
+        String baseName = normalizeFileName(spot.name());
 
         for (int i = 0; i < max; i++) {
             Object photoObj = photos.get(i);
@@ -136,7 +190,7 @@ public class PhotoService {
                 continue;
             }
 
-            System.out.println("Downloading photo " + (i + 1) + " for " + spot.getName());
+            System.out.println("Downloading photo " + (i + 1) + " for " + spot.name());
             System.out.println("  photoName = " + photoName);
 
             byte[] bytes = fetchPhotoBytes(photoName);
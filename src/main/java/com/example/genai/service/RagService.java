@@ -0,0 +1,66 @@
+package com.example.genai.service;
+
+import com.example.genai.llm.EmbeddingClient;
+import com.example.genai.llm.LLMResult;
+import com.example.genai.llm.OpenAIClient;
+import com.example.genai.rag.EmbeddingStore;
+import com.example.genai.rag.TextChunk;
+import com.example.genai.rag.VectorIndex;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Ingest and question answering over the {@link EmbeddingStore}.
+ * Embeddings go through {@link EmbeddingClient}, so a bulk ingest costs one
+ * request per batch and re-ingesting unchanged text costs none.
+ */
+@Service
+@Profile("openai")
+public class RagService {
+
+    private final EmbeddingStore store;
+    private final EmbeddingClient embeddings;
+    private final OpenAIClient openAIClient;
+
+    public RagService(EmbeddingStore store, EmbeddingClient embeddings, OpenAIClient openAIClient) {
+        this.store = store;
+        this.embeddings = embeddings;
+        this.openAIClient = openAIClient;
+    }
+
+    /** Embeds and stores the documents (id → text); returns how many were stored. */
+    public int upsert(Map<String, String> docs) {
+        List<String> ids = new ArrayList<>(docs.keySet());
+        List<String> texts = ids.stream().map(docs::get).toList();
+        List<float[]> vectors = embeddings.embedAll(texts).block();
+
+        for (int i = 0; i < ids.size(); i++) {
+            store.upsert(new TextChunk(ids.get(i), texts.get(i), vectors.get(i)));
+        }
+        return ids.size();
+    }
+
+    public Answer query(String prompt, int k) {
+        float[] query = embeddings.embed(prompt).block();
+
+        List<Source> sources = new ArrayList<>();
+        StringBuilder context = new StringBuilder();
+        for (VectorIndex.Hit hit : store.search(query, k)) {
+            Optional<String> text = store.text(hit.id());
+            if (text.isEmpty()) continue;
+            sources.add(new Source(hit.id(), hit.score()));
+            context.append("[").append(hit.id()).append("]\n").append(text.get()).append("\n\n");
+        }
+
+        String system = "Answer using only the context below. If it doesn't contain the answer, say so.\n\n"
+                + "Context:\n" + context;
+        LLMResult answer = openAIClient.chatOnce(system, List.of(Map.of("role", "user", "content", prompt))).block();
+        return new Answer(answer != null ? answer.getContent() : "", sources);
+    }
+
+    public record Source(String id, float score) {}
+
+    public record Answer(String answer, List<Source> sources) {}
+}
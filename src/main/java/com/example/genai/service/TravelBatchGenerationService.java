@@ -0,0 +1,287 @@
+package com.example.genai.service;
+
+import com.example.genai.entity.GenerationJob;
+import com.example.genai.llm.BatchStatus;
+import com.example.genai.llm.LLMResult;
+import com.example.genai.llm.OpenAIClient;
+import com.example.genai.service.TravelGenerationService.GeneratedText;
+import com.example.genai.service.TravelGenerationService.GenerationTask;
+import com.example.genai.util.LongHashSet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Offline variant of {@link TravelGenerationService} using the OpenAI Batch API:
+ * missing pairs are written to JSONL request files, submitted as batches, polled
+ * until done, and the output files are streamed back into {@code Response} rows.
+ *
+ * Submitted batch ids are recorded in {@code pending-batches.txt} in the work dir,
+ * so a restarted job collects those results instead of paying for them twice. A batch
+ * stays listed – and its downloaded output kept – until every result is saved.
+ *
+ * As a job, each slice does one step – submit, or one poll of the pending batches
+ * (ingesting those that finished, then waiting {@code poll-interval-seconds}) – so
+ * a cancel takes effect at the next poll instead of after the batch window.
+ * Cursor 0 means nothing was submitted by this run yet, 1 that it was. Like the
+ * online job, progress counts every pair: the submit slice reports the pairs that
+ * already have a description as done (leftovers collected before it included).
+ */
+@Service
+public class TravelBatchGenerationService implements JobHandler {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long SUBMITTED = 1;
+
+    private final TravelGenerationService travelService;
+    private final OpenAIClient openAIClient;
+
+    private final Path workDir;
+    private final Path pendingFile;
+    private final Duration pollInterval;
+    private final int maxRequestsPerFile;
+    private final int saveBatchSize;
+
+    public TravelBatchGenerationService(
+            TravelGenerationService travelService,
+            OpenAIClient openAIClient,
+            @Value("${app.openai.batch.work-dir:${java.io.tmpdir}/genai-batches}") String workDir,
+            @Value("${app.openai.batch.poll-interval-seconds:60}") long pollIntervalSeconds,
+            @Value("${app.openai.batch.max-requests-per-file:50000}") int maxRequestsPerFile,
+            @Value("${app.generation.batch-size:25}") int saveBatchSize
+    ) {
+        this.travelService = travelService;
+        this.openAIClient = openAIClient;
+        this.workDir = Paths.get(workDir);
+        this.pendingFile = this.workDir.resolve("pending-batches.txt");
+        this.pollInterval = Duration.ofSeconds(Math.max(1, pollIntervalSeconds));
+        this.maxRequestsPerFile = Math.max(1, maxRequestsPerFile);
+        this.saveBatchSize = Math.max(1, saveBatchSize);
+    }
+
+    // ---------- job (one slice = submit, or one poll of the pending batches) ----------
+
+    @Override
+    public GenerationJob.Type type() {
+        return GenerationJob.Type.TRAVEL_TEXT_BATCH;
+    }
+
+    @Override
+    public long countItems() {
+        return travelService.countItems();
+    }
+
+    @Override
+    public synchronized JobSlice processAfter(long cursor, int pageSize) {
+        try {
+            Files.createDirectories(workDir);
+            List<String> pending = readPending();
+
+            // batches left by an earlier run are collected before planning, or their pairs would be submitted again
+            if (cursor < SUBMITTED && pending.isEmpty()) {
+                long pairs = travelService.countItems();
+                int submitted = submitMissing(pending);
+                return new JobSlice(SUBMITTED, (int) (pairs - submitted), 0, submitted == 0);
+            }
+            if (pending.isEmpty()) {
+                return new JobSlice(cursor, 0, 0, true);
+            }
+
+            Totals totals = pollOnce(pending);
+            if (!pending.isEmpty()) {
+                Thread.sleep(pollInterval.toMillis());
+            }
+            if (totals.generated + totals.failed > 0) {
+                System.out.println("Batch travel generation: " + totals.generated + " saved, "
+                        + totals.failed + " failed, " + pending.size() + " batches pending");
+            }
+            if (cursor < SUBMITTED) {
+                // leftovers are counted by the submit slice (saved ones exist by then, failed ones are planned again)
+                return new JobSlice(cursor, 0, 0, false);
+            }
+            return new JobSlice(cursor, totals.generated, totals.failed, pending.isEmpty());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for OpenAI batch", e);
+        }
+    }
+
+    /** Plans what's still missing and submits it in files of at most max-requests-per-file. */
+    private int submitMissing(List<String> pending) throws IOException {
+        List<GenerationTask> tasks = travelService.planAllMissing();
+        System.out.println("Planned " + tasks.size() + " travel descriptions for batch generation");
+
+        for (int from = 0; from < tasks.size(); from += maxRequestsPerFile) {
+            List<GenerationTask> chunk = tasks.subList(from, Math.min(tasks.size(), from + maxRequestsPerFile));
+            pending.add(submit(chunk, from / maxRequestsPerFile));
+            writePending(pending);
+        }
+        return tasks.size();
+    }
+
+    // ---------- submit ----------
+
+    private String submit(List<GenerationTask> chunk, int part) throws IOException {
+        Path requests = workDir.resolve("travel-requests-" + System.currentTimeMillis() + "-" + part + ".jsonl");
+
+        try (BufferedWriter out = Files.newBufferedWriter(requests, StandardCharsets.UTF_8)) {
+            for (GenerationTask task : chunk) {
+                Map<String, Object> line = openAIClient.batchChatRequest(
+                        customId(task), "system", TravelGenerationService.messagesFor(task));
+                out.write(MAPPER.writeValueAsString(line));
+                out.write('\n');
+            }
+        }
+
+        String fileId = openAIClient.uploadBatchFile(requests).block();
+        BatchStatus batch = openAIClient.createBatch(fileId).block();
+        System.out.println("Submitted OpenAI batch " + batch.id() + " with " + chunk.size() + " requests");
+        Files.deleteIfExists(requests);
+        return batch.id();
+    }
+
+    /**
+     * Checks every pending batch once; finished ones are ingested and dropped from {@code pending}.
+     * A batch whose results could not all be saved stays pending and is ingested again next poll.
+     */
+    private Totals pollOnce(List<String> pending) throws IOException {
+        Totals totals = new Totals();
+        for (String batchId : new ArrayList<>(pending)) {
+            BatchStatus status = openAIClient.getBatch(batchId).block();
+            if (!status.isTerminal()) {
+                System.out.println("OpenAI batch " + batchId + " " + status.status()
+                        + " – " + status.completed() + "/" + status.total());
+                continue;
+            }
+            System.out.println("OpenAI batch " + batchId + " " + status.status()
+                    + " (" + status.completed() + "/" + status.total() + " completed, " + status.failed() + " failed)");
+            try {
+                ingest(status, totals);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to save results of batch " + batchId + ", kept for the next poll – "
+                        + e.getMessage());
+                continue;
+            }
+            pending.remove(batchId);
+            writePending(pending);
+        }
+        return totals;
+    }
+
+    // ---------- ingest ----------
+
+    private void ingest(BatchStatus status, Totals totals) throws IOException {
+        if (status.outputFileId() == null) {
+            totals.failed += status.total();
+            return;
+        }
+
+        // kept from an earlier attempt whose saves failed; downloaded under another name so it is always whole
+        Path output = workDir.resolve(status.id() + "-output.jsonl");
+        if (!Files.exists(output)) {
+            Path part = workDir.resolve(status.id() + "-output.jsonl.part");
+            openAIClient.downloadFile(status.outputFileId(), part).block();
+            Files.move(part, output, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // a resumed batch may have been partly ingested before the crash
+        LongHashSet existing = travelService.existingPairs(0, Long.MAX_VALUE);
+
+        List<GeneratedText> buffer = new ArrayList<>(saveBatchSize);
+        int failedLines = 0;  // counted once the whole file is saved, or a retry would count them twice
+        try (BufferedReader in = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                GeneratedText g = parseResultLine(line);
+                if (g == null) {
+                    failedLines++;
+                    continue;
+                }
+                if (existing.contains(LongHashSet.pair(g.task().spotId(), g.task().languageId()))) {
+                    continue;
+                }
+                buffer.add(g);
+                if (buffer.size() >= saveBatchSize) {
+                    flush(buffer, totals);
+                }
+            }
+        }
+        flush(buffer, totals);
+
+        // requests that errored out are listed in the error file, not the output file
+        totals.failed += failedLines + status.failed();
+        Files.deleteIfExists(output);
+    }
+
+    private GeneratedText parseResultLine(String line) throws IOException {
+        Map<?, ?> result = MAPPER.readValue(line, Map.class);
+        if (!(result.get("custom_id") instanceof String customId)
+                || !(result.get("response") instanceof Map<?, ?> response)
+                || !(response.get("body") instanceof Map<?, ?> body)
+                || !Objects.equals(200, response.get("status_code"))) {
+            Object code = result.get("response") instanceof Map<?, ?> r ? r.get("status_code") : null;
+            System.err.println("Batch request failed → " + result.get("custom_id")
+                    + " – status " + code + ", error " + result.get("error"));
+            return null;
+        }
+
+        String[] ids = customId.split(":");
+        GenerationTask task = new GenerationTask(Long.valueOf(ids[0]), Long.valueOf(ids[1]), customId, "");
+        LLMResult llm = openAIClient.parseChatCompletion(body);
+        return llm.getContent().isBlank() ? null : new GeneratedText(task, llm);
+    }
+
+    /** Saves the buffered results; a failure is thrown, so the batch stays pending. */
+    private void flush(List<GeneratedText> buffer, Totals totals) {
+        if (buffer.isEmpty()) return;
+        travelService.saveBatch(buffer);
+        totals.generated += buffer.size();
+        for (GeneratedText g : buffer) {
+            totals.tokensIn += g.result().getPromptTokens();
+            totals.tokensOut += g.result().getCompletionTokens();
+        }
+        buffer.clear();
+    }
+
+    // ---------- helpers ----------
+
+    private static String customId(GenerationTask task) {
+        return task.spotId() + ":" + task.languageId();
+    }
+
+    private List<String> readPending() throws IOException {
+        if (!Files.exists(pendingFile)) return new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (String line : Files.readAllLines(pendingFile)) {
+            if (!line.isBlank()) ids.add(line.trim());
+        }
+        return ids;
+    }
+
+    private void writePending(List<String> ids) throws IOException {
+        Files.write(pendingFile, ids, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private static class Totals {
+        int generated, failed;
+        long tokensIn, tokensOut;
+    }
+}
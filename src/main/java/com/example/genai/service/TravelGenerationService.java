@@ -3,15 +3,30 @@ package com.example.genai.service;
 import com.example.genai.entity.*;
 import com.example.genai.llm.LLMResult;
 import com.example.genai.llm.OpenAIClient;
+import com.example.genai.llm.RateLimiter;
+import com.example.genai.llm.RetryPolicy;
 import com.example.genai.repo.*;
+import com.example.genai.util.LongHashSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
-public class TravelGenerationService {
+public class TravelGenerationService implements JobHandler {
+
+    private static final String TEMPLATE_KEY = "TRAVEL_DESC_V1";
 
     private final SpotRepo spotRepo;
     private final LanguageRepo languageRepo;
@@ -19,88 +34,232 @@ public class TravelGenerationService {
     private final ResponseRepo responseRepo;
     private final OpenAIClient openAIClient;
 
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readOnlyTx;
+    private final RateLimiter rateLimiter;
+
+    private final int maxInFlight;
+    private final int batchSize;
+    private final int expectedCompletionTokens;
+
     public TravelGenerationService(
             SpotRepo spotRepo,
             LanguageRepo languageRepo,
             PromptTemplateRepo templateRepo,
             ResponseRepo responseRepo,
-            OpenAIClient openAIClient
+            OpenAIClient openAIClient,
+            PlatformTransactionManager txManager,
+            @Value("${app.generation.max-in-flight:8}") int maxInFlight,
+            @Value("${app.generation.requests-per-minute:500}") int requestsPerMinute,
+            @Value("${app.generation.tokens-per-minute:200000}") int tokensPerMinute,
+            @Value("${app.generation.batch-size:25}") int batchSize,
+            @Value("${app.generation.expected-completion-tokens:900}") int expectedCompletionTokens
     ) {
         this.spotRepo = spotRepo;
         this.languageRepo = languageRepo;
         this.templateRepo = templateRepo;
         this.responseRepo = responseRepo;
         this.openAIClient = openAIClient;
+
+        this.tx = new TransactionTemplate(txManager);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.rateLimiter = new RateLimiter(requestsPerMinute, tokensPerMinute);
+
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.batchSize = Math.max(1, batchSize);
+        this.expectedCompletionTokens = expectedCompletionTokens;
+    }
+
+    /**
+     * Generates every missing Spot × Language description.
+     * Pairs are planned in one read-only transaction, generated with at most
+     * {@code max-in-flight} concurrent requests inside the RPM/TPM budget,
+     * and saved in small batches so a crash only loses the current batch.
+     */
+    public GenerationStats generateAllTravelDescriptions() {
+        List<GenerationTask> tasks = planAllMissing();
+        System.out.println("Planned " + tasks.size() + " travel descriptions to generate");
+        return execute(tasks);
+    }
+
+    // ---------- job slices (one item = one Spot × Language pair) ----------
+
+    @Override
+    public GenerationJob.Type type() {
+        return GenerationJob.Type.TRAVEL_TEXT;
+    }
+
+    @Override
+    public long countItems() {
+        return spotRepo.count() * languageRepo.count();
+    }
+
+    @Override
+    public JobSlice processAfter(long cursor, int pageSize) {
+        List<Spot> spots = new ArrayList<>();
+        Plan plan = readOnlyTx.execute(status -> {
+            spots.addAll(spotRepo.findPageWithCityAndCountry(cursor, PageRequest.of(0, pageSize)));
+            return planMissing(spots);
+        });
+
+        GenerationStats stats = execute(plan.tasks());
+        long lastId = spots.isEmpty() ? cursor : spots.get(spots.size() - 1).getId();
+        return new JobSlice(lastId, plan.pairs() - stats.failed(), stats.failed(), spots.size() < pageSize);
     }
 
-    @Transactional
-    public void generateAllTravelDescriptions() {
+    // ---------- planning ----------
+
+    List<GenerationTask> planAllMissing() {
+        return readOnlyTx.execute(status ->
+                planMissing(spotRepo.findPageWithCityAndCountry(0L, Pageable.unpaged())).tasks());
+    }
 
-        PromptTemplate template = templateRepo.findByKey("TRAVEL_DESC_V1")
+    /**
+     * Works out which pairs of the given spots (ascending id, city and country
+     * already fetched) still need a description. Existing pairs come from a
+     * single projection query over the spots' id range, so planning costs a
+     * constant number of queries regardless of spots × languages.
+     */
+    private Plan planMissing(List<Spot> spots) {
+        PromptTemplate template = templateRepo.findByKey(TEMPLATE_KEY)
                 .orElseThrow(() -> new IllegalStateException("Template TRAVEL_DESC_V1 missing."));
 
-        List<Spot> spots = spotRepo.findAll();
         List<Language> languages = languageRepo.findAll();
+        if (spots.isEmpty()) return new Plan(List.of(), 0);
 
+        LongHashSet existing = existingPairs(spots.get(0).getId(), spots.get(spots.size() - 1).getId());
+
+        List<GenerationTask> tasks = new ArrayList<>();
         for (Spot spot : spots) {
             City city = spot.getCity();
             Country country = city.getCountry();
 
+            String spotPrompt = null;
+
             for (Language language : languages) {
 
                 // Skip duplicates
-                if (responseRepo
-                        .findBySpotAndLanguageAndTemplateKey(spot, language, "TRAVEL_DESC_V1")
-                        .isPresent()) {
+                if (existing.contains(LongHashSet.pair(spot.getId(), language.getId()))) {
                     continue;
                 }
 
                 // Build final prompt
-                String prompt = template.getText()
-                        .replace("{spot}", spot.getName())
-                        .replace("{city}", city.getName())
-                        .replace("{country}", country.getName())
-                        + "\n\nWrite the response in: " + language.getName();
-
-                // Build messages for your chatOnce()
-                List<Map<String, String>> messages = List.of(
-                        Map.of("role", "system", "content", "You are an expert travel writer."),
-                        Map.of("role", "user", "content", prompt)
-                );
-
-                // Call LLM (block for result)
-                LLMResult result = openAIClient
-                        .chatOnce("system", messages)
-                        .onErrorReturn(new LLMResult("FAILED_TO_GENERATE", 0, 0))
-                        .block();
-
-                String content = result.getContent();
-                int promptTokens = result.getPromptTokens();
-                int completionTokens = result.getCompletionTokens();
+                if (spotPrompt == null) {
+                    spotPrompt = template.getText()
+                            .replace("{spot}", spot.getName())
+                            .replace("{city}", city.getName())
+                            .replace("{country}", country.getName());
+                }
+                String prompt = spotPrompt + "\n\nWrite the response in: " + language.getName();
+
+                tasks.add(new GenerationTask(spot.getId(), language.getId(),
+                        spot.getName() + " | " + language.getName(), prompt));
+            }
+        }
+        return new Plan(tasks, spots.size() * languages.size());
+    }
+
+    LongHashSet existingPairs(long fromSpotId, long toSpotId) {
+        List<Object[]> rows = responseRepo.findSpotLanguageIds(TEMPLATE_KEY, fromSpotId, toSpotId);
+        LongHashSet keys = new LongHashSet(rows.size());
+        for (Object[] row : rows) {
+            keys.add(LongHashSet.pair(((Number) row[0]).longValue(), ((Number) row[1]).longValue()));
+        }
+        return keys;
+    }
+
+    // ---------- execution ----------
+
+    private GenerationStats execute(List<GenerationTask> tasks) {
+        if (tasks.isEmpty()) return GenerationStats.empty();
+
+        long start = System.currentTimeMillis();
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicLong tokensIn = new AtomicLong();
+        AtomicLong tokensOut = new AtomicLong();
+
+        Flux.fromIterable(tasks)
+                .flatMap(task -> generate(task)
+                        .onErrorResume(e -> {
+                            failed.incrementAndGet();
+                            System.err.println("Failed → " + task.label() + " – " + e.getMessage());
+                            return Mono.empty();
+                        }), maxInFlight)
+                .bufferTimeout(batchSize, Duration.ofSeconds(10))
+                .concatMap(batch -> Mono.fromRunnable(() -> saveBatch(batch))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .doOnSuccess(v -> {
+                            int done = saved.addAndGet(batch.size());
+                            batch.forEach(g -> {
+                                tokensIn.addAndGet(g.result().getPromptTokens());
+                                tokensOut.addAndGet(g.result().getCompletionTokens());
+                            });
+                            double perSec = done * 1000d / Math.max(1, System.currentTimeMillis() - start);
+                            System.out.printf("Saved batch of %d → %d/%d (%.2f items/s)%n",
+                                    batch.size(), done, tasks.size(), perSec);
+                        })
+                        .onErrorResume(e -> {
+                            failed.addAndGet(batch.size());
+                            System.err.println("Failed to save batch of " + batch.size() + " – " + e.getMessage());
+                            return Mono.empty();
+                        }))
+                .blockLast();
+
+        GenerationStats stats = new GenerationStats(tasks.size(), saved.get(), failed.get(),
+                tokensIn.get(), tokensOut.get(), System.currentTimeMillis() - start);
+        System.out.println("Travel generation finished: " + stats.summary());
+        return stats;
+    }
 
+    private Mono<GeneratedText> generate(GenerationTask task) {
+        List<Map<String, String>> messages = messagesFor(task);
+        int estimatedTokens = task.prompt().length() / 4 + expectedCompletionTokens;
+
+        return rateLimiter.acquire(estimatedTokens)
+                .then(Mono.defer(() -> openAIClient.chatOnce("system", messages)))
+                // 429 / 5xx / I/O only, waiting out Retry-After; each attempt is charged again
+                .retryWhen(RetryPolicy.retry(3, Duration.ofSeconds(2)))
+                .doOnNext(result -> rateLimiter.reconcile(estimatedTokens,
+                        result.getPromptTokens() + result.getCompletionTokens()))
+                .map(result -> new GeneratedText(task, result));
+    }
+
+    // Build messages for your chatOnce()
+    static List<Map<String, String>> messagesFor(GenerationTask task) {
+        return List.of(
+                Map.of("role", "system", "content", "You are an expert travel writer."),
+                Map.of("role", "user", "content", task.prompt())
+        );
+    }
+
+    void saveBatch(List<GeneratedText> batch) {
+        tx.executeWithoutResult(status -> {
+            List<Response> rows = new ArrayList<>(batch.size());
+            for (GeneratedText g : batch) {
                 Response r = new Response();
-                r.setSpot(spot);
-                r.setLanguage(language);
-                r.setTemplateKey("TRAVEL_DESC_V1");
-                r.setContent(content);
+                r.setSpot(spotRepo.getReferenceById(g.task().spotId()));
+                r.setLanguage(languageRepo.getReferenceById(g.task().languageId()));
+                r.setTemplateKey(TEMPLATE_KEY);
+                r.setContent(g.result().getContent());
                 r.setModel("gpt-4o-mini");
 
-               // ✅ TEXT tokens
-                r.setTokensIn(promptTokens);
-                r.setTokensOut(completionTokens);
+                // ✅ TEXT tokens
+                r.setTokensIn(g.result().getPromptTokens());
+                r.setTokensOut(g.result().getCompletionTokens());
 
                 // ❌ DO NOT touch audio tokens here
-                // r.setAudioTokensIn(...);
-                // r.setAudioTokensOut(...);
-
                 r.setCreatedAt(Instant.now());
+                rows.add(r);
+            }
+            responseRepo.saveAll(rows);
+        });
+    }
 
-                responseRepo.save(r);
+    private record Plan(List<GenerationTask> tasks, int pairs) {}
 
+    record GenerationTask(Long spotId, Long languageId, String label, String prompt) {}
 
-                System.out.println("Saved → " +
-                        spot.getName() + " | " + language.getName());
-            }
-        }
-    }
+    record GeneratedText(GenerationTask task, LLMResult result) {}
 }
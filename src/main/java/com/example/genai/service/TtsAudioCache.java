@@ -0,0 +1,341 @@
+package com.example.genai.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Synthesized speech by content: an entry is named after a hash of everything that
+ * shapes the audio (provider, model, voice, instructions, output format and the text),
+ * so a narration is only paid for again when one of those changes, and identical text
+ * under another spot or language is synthesized once. Both audio jobs and the on-demand
+ * endpoint share it.
+ *
+ * Entries live under {@code dir} (sharded by the first two hex digits). The index –
+ * entry sizes in least-recently-used order – is held in memory, saved to
+ * {@code dir/index} on shutdown and rebuilt from it (then file times) on startup. Past
+ * {@code maxBytes} the least recently used entries are deleted; files linked out of
+ * the cache keep their content. Concurrent requests for one entry share one synthesis.
+ * An entry is handed out as a {@link Lease} and is never evicted while one is open.
+ */
+@Service
+public class TtsAudioCache {
+
+    /** Writes the audio to {@code target} (with the temp-file-and-move of the writers). */
+    @FunctionalInterface
+    public interface Producer {
+        void writeTo(Path target) throws Exception;
+    }
+
+    private static final String INDEX_FILE = "index";
+
+    private final Path dir;
+    private final long maxBytes;
+
+    // entry name → bytes, least recently used first
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private final Map<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    // entry → open leases (guarded by index)
+    private final Map<String, Integer> pins = new HashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong sharedHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TtsAudioCache(
+            @Value("${app.audio.cache.dir:data/tts-cache}") String dir,
+            @Value("${app.audio.cache.max-size-mb:20480}") long maxSizeMb
+    ) {
+        this.dir = Paths.get(dir);
+        this.maxBytes = Math.max(1, maxSizeMb) * 1024 * 1024;
+    }
+
+    @PostConstruct
+    public void load() throws IOException {
+        Files.createDirectories(dir);
+        Map<String, Long> sizes = new HashMap<>();
+        Map<String, Long> times = new HashMap<>();
+        try (Stream<Path> files = Files.find(dir, 2, (p, a) -> a.isRegularFile() && p.getParent() != null
+                && !p.getParent().equals(dir))) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (name.endsWith(".part")) {
+                    Files.deleteIfExists(p);  // left by a crash mid-write
+                    continue;
+                }
+                BasicFileAttributes a = Files.readAttributes(p, BasicFileAttributes.class);
+                sizes.put(name, a.size());
+                times.put(name, a.lastModifiedTime().toMillis());
+            }
+        }
+
+        // saved order first, then anything newer by file time
+        List<String> order = new ArrayList<>();
+        Path saved = dir.resolve(INDEX_FILE);
+        if (Files.exists(saved)) {
+            for (String line : Files.readAllLines(saved, StandardCharsets.UTF_8)) {
+                if (sizes.containsKey(line)) order.add(line);
+            }
+        }
+        Set<String> known = new HashSet<>(order);
+        sizes.keySet().stream()
+                .filter(name -> !known.contains(name))
+                .sorted(Comparator.comparing(times::get))
+                .forEach(order::add);
+
+        synchronized (index) {
+            for (String name : order) {
+                index.put(name, sizes.get(name));
+                totalBytes += sizes.get(name);
+            }
+        }
+        System.out.println("[TtsAudioCache] " + order.size() + " entries, " + totalBytes / (1024 * 1024)
+                + " MB of " + maxBytes / (1024 * 1024) + " MB in " + dir.toAbsolutePath());
+        evict();
+    }
+
+    @PreDestroy
+    public void saveIndex() {
+        List<String> order;
+        synchronized (index) {
+            order = new ArrayList<>(index.keySet());
+        }
+        try {
+            Path temp = Files.createTempFile(dir, INDEX_FILE, ".part");
+            Files.write(temp, order, StandardCharsets.UTF_8);
+            Files.move(temp, dir.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("[TtsAudioCache] Could not save index – " + e.getMessage());
+        }
+    }
+
+    /** Hex SHA-256 (128 bits) of the parts; add the file extension for an entry name. */
+    public static String key(String... parts) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String part : parts) {
+            sha.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            sha.update((byte) 0);
+        }
+        return HexFormat.of().formatHex(sha.digest(), 0, 16);
+    }
+
+    /** The cached file for {@code entry}, if there is one; close the lease when done with it. */
+    public Optional<Lease> get(String entry) {
+        Lease lease = pin(entry);
+        if (lease == null) return Optional.empty();
+        if (!Files.exists(lease.path())) {
+            lease.close();
+            remove(entry);  // deleted behind our back
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(lease);
+    }
+
+    /** The cached file for {@code entry}, produced first if it isn't cached; close the lease when done with it. */
+    public Lease getOrCreate(String entry, Producer producer) throws IOException {
+        while (true) {
+            Optional<Lease> cached = get(entry);
+            if (cached.isPresent()) return cached.get();
+
+            CompletableFuture<Path> mine = new CompletableFuture<>();
+            CompletableFuture<Path> existing = inFlight.putIfAbsent(entry, mine);
+            if (existing == null) {
+                return produce(entry, producer, mine);
+            }
+            await(existing, entry);
+            Lease shared = pin(entry);
+            if (shared != null) {
+                sharedHits.incrementAndGet();
+                return shared;
+            }
+            // evicted again before this thread got to it: look it up (or make it) afresh
+        }
+    }
+
+    private Lease produce(String entry, Producer producer, CompletableFuture<Path> mine) throws IOException {
+        Lease lease = null;
+        try {
+            // whoever produced it last may have finished between our lookup and putIfAbsent
+            lease = pin(entry);
+            if (lease != null) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+                Path target = path(entry);
+                Files.createDirectories(target.getParent());
+                producer.writeTo(target);
+                lease = add(entry, Files.size(target));
+            }
+            mine.complete(lease.path());
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+        } finally {
+            inFlight.remove(entry);
+        }
+        evict();
+        await(mine, entry);  // throws what the producer threw
+        return lease;
+    }
+
+    private static Path await(CompletableFuture<Path> production, String entry) throws IOException {
+        try {
+            return production.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for " + entry, e);
+        } catch (ExecutionException e) {
+            // as thrown, so the scheduler can tell a 429 from a bad request
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Puts a cached file at {@code target}: a hard link (no extra space, and it survives
+     * eviction), or a copy where links aren't possible (another volume).
+     */
+    public Path materialize(Path cached, Path target) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        if (Files.exists(target) && Files.isSameFile(cached, target)) return target;
+        Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".part");
+        try {
+            try {
+                Files.createLink(temp, cached);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(cached, temp);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target;
+    }
+
+    public CacheStats stats() {
+        int entries;
+        long bytes;
+        synchronized (index) {
+            entries = index.size();
+            bytes = totalBytes;
+        }
+        long hit = hits.get(), shared = sharedHits.get(), miss = misses.get();
+        long lookups = hit + shared + miss;
+        double hitRate = lookups == 0 ? 0 : (double) (hit + shared) / lookups;
+        return new CacheStats(entries, bytes, maxBytes, hit, shared, miss, evictions.get(), hitRate);
+    }
+
+    private Path path(String entry) {
+        return dir.resolve(entry.substring(0, 2)).resolve(entry);
+    }
+
+    /** Leases {@code entry} if it is indexed (and marks it used). */
+    private Lease pin(String entry) {
+        synchronized (index) {
+            if (index.get(entry) == null) return null;
+            pins.merge(entry, 1, Integer::sum);
+        }
+        return new Lease(entry, path(entry));
+    }
+
+    /** Indexes a produced entry, leased to its producer. */
+    private Lease add(String entry, long bytes) {
+        synchronized (index) {
+            Long old = index.put(entry, bytes);
+            totalBytes += bytes - (old == null ? 0 : old);
+            pins.merge(entry, 1, Integer::sum);
+        }
+        return new Lease(entry, path(entry));
+    }
+
+    private void remove(String entry) {
+        synchronized (index) {
+            Long old = index.remove(entry);
+            if (old != null) totalBytes -= old;
+        }
+    }
+
+    /** Deletes least recently used entries until the cache fits its budget (never the newest or a leased one). */
+    private void evict() {
+        List<String> victims = new ArrayList<>();
+        synchronized (index) {
+            Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+            while (totalBytes > maxBytes && index.size() > 1 && it.hasNext()) {
+                Map.Entry<String, Long> e = it.next();
+                if (inFlight.containsKey(e.getKey()) || pins.containsKey(e.getKey())) continue;
+                totalBytes -= e.getValue();
+                it.remove();
+                victims.add(e.getKey());
+            }
+        }
+        for (String entry : victims) {
+            try {
+                Files.deleteIfExists(path(entry));
+                evictions.incrementAndGet();
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("[TtsAudioCache] Could not evict " + entry + " – " + e.getMessage());
+            }
+        }
+    }
+
+    /** A cached file that stays on disk until the lease is closed. */
+    public final class Lease implements AutoCloseable {
+        private final String entry;
+        private final Path path;
+        private boolean closed;
+
+        private Lease(String entry, Path path) {
+            this.entry = entry;
+            this.path = path;
+        }
+
+        public Path path() {
+            return path;
+        }
+
+        @Override
+        public void close() {
+            synchronized (index) {
+                if (closed) return;
+                closed = true;
+                pins.computeIfPresent(entry, (k, n) -> n == 1 ? null : n - 1);
+            }
+            evict();  // it may have been all that kept the cache over budget
+        }
+    }
+
+    /**
+     * @param sharedHits requests that joined a synthesis already in progress
+     * @param misses     entries synthesized
+     */
+    public record CacheStats(int entries, long bytes, long maxBytes,
+                             long hits, long sharedHits, long misses, long evictions, double hitRate) {}
+}
@@ -0,0 +1,206 @@
+package com.example.genai.service;
+
+import com.example.genai.llm.ConcurrencyLimiter;
+import com.example.genai.llm.RetryPolicy;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs narration work for the audio jobs. Synthesis runs on one pool per provider,
+ * sized to that provider's concurrency limit and shared by every job using it, with
+ * retry and backoff; the CPU-bound step (mixing) runs on a separate pool, so the next
+ * narrations are already being synthesized while earlier ones mix.
+ *
+ * A narration that makes several requests at once (sentence chunks) sends each through
+ * {@link #request}, so the provider limit counts requests, not narrations. Retrying is
+ * left to this class: a failed narration is synthesized again as a whole.
+ */
+@Service
+public class TtsScheduler {
+
+    public enum Provider { OPENAI, GEMINI }
+
+    private final Map<Provider, Lane> lanes = new EnumMap<>(Provider.class);
+    private final Scheduler mixPool;
+    private final int mixThreads;
+    private final int maxRetries;
+    private final Duration backoff;
+
+    public TtsScheduler(
+            @Value("${app.tts.openai.max-concurrent:4}") int openAiConcurrent,
+            @Value("${app.tts.gemini.max-concurrent:2}") int geminiConcurrent,
+            @Value("${app.tts.mix-threads:0}") int mixThreads,
+            @Value("${app.tts.max-retries:3}") int maxRetries,
+            @Value("${app.tts.backoff-millis:2000}") long backoffMillis
+    ) {
+        lanes.put(Provider.OPENAI, new Lane(Provider.OPENAI, openAiConcurrent));
+        lanes.put(Provider.GEMINI, new Lane(Provider.GEMINI, geminiConcurrent));
+        // 0 = one per core
+        this.mixThreads = mixThreads > 0 ? mixThreads : Runtime.getRuntime().availableProcessors();
+        this.mixPool = Schedulers.newBoundedElastic(this.mixThreads, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE, "tts-mix");
+        this.maxRetries = Math.max(0, maxRetries);
+        this.backoff = Duration.ofMillis(Math.max(1, backoffMillis));
+        System.out.println("[TtsScheduler] openai=" + openAiConcurrent + ", gemini=" + geminiConcurrent
+                + " concurrent, mix-threads=" + this.mixThreads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(l -> l.pool.dispose());
+        mixPool.dispose();
+    }
+
+    /**
+     * Runs all tasks on the provider's lane and waits for them. Failures are counted and
+     * logged, not thrown, so one bad narration doesn't stop the rest.
+     */
+    public GenerationStats run(Provider provider, List<TtsTask> tasks) {
+        if (tasks.isEmpty()) return GenerationStats.empty();
+
+        Lane lane = lanes.get(provider);
+        long start = System.currentTimeMillis();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        Flux.fromIterable(tasks)
+                .flatMap(task -> process(lane, task)
+                        .doOnSuccess(v -> {
+                            int n = done.incrementAndGet();
+                            double perSec = n * 1000d / Math.max(1, System.currentTimeMillis() - start);
+                            System.out.printf("TTS %s done → %s (%d/%d, %.2f items/s)%n",
+                                    provider, task.label(), n, tasks.size(), perSec);
+                        })
+                        .onErrorResume(e -> {
+                            failed.incrementAndGet();
+                            lane.failed.increment();
+                            System.err.println("Failed TTS (" + provider + ") → " + task.label() + " – " + e.getMessage());
+                            return Mono.empty();
+                        }), lane.maxConcurrent * 2 + mixThreads)
+                .blockLast();
+
+        GenerationStats stats = new GenerationStats(tasks.size(), done.get(), failed.get(), 0, 0,
+                System.currentTimeMillis() - start);
+        lane.lastRun = stats;
+        System.out.println("TTS " + provider + " finished: " + stats.summary());
+        return stats;
+    }
+
+    /**
+     * Runs one task on the provider's lane right away, sharing its concurrency limit with
+     * any running jobs, and waits for it. Unlike {@link #run}, a failure is thrown.
+     */
+    public void runNow(Provider provider, TtsTask task) {
+        Lane lane = lanes.get(provider);
+        process(lane, task)
+                .doOnError(e -> lane.failed.increment())
+                .block();
+    }
+
+    /** One provider request, started once fewer than the provider's limit are in flight. */
+    public <T> Flux<T> request(Provider provider, Flux<T> request) {
+        return lanes.get(provider).requests.limit(request);
+    }
+
+    public List<TtsStats> stats() {
+        return lanes.values().stream().map(Lane::stats).toList();
+    }
+
+    private Mono<Path> process(Lane lane, TtsTask task) {
+        lane.submitted.increment();
+        lane.inFlight.increment();
+
+        Mono<Path> speech = Mono.fromCallable(() -> {
+                    long t0 = System.nanoTime();
+                    Path path = task.synthesize().call();
+                    lane.synthesisNanos.add(System.nanoTime() - t0);
+                    lane.synthesized.increment();
+                    lane.audioBytes.add(Files.size(path));
+                    return path;
+                })
+                .subscribeOn(lane.pool)
+                .retryWhen(Retry.backoff(maxRetries, backoff)
+                        .filter(TtsScheduler::retryable)
+                        .doBeforeRetry(signal -> {
+                            lane.retries.increment();
+                            System.err.println("Retrying TTS (" + lane.provider + ") → " + task.label()
+                                    + " after " + signal.failure().getMessage());
+                        })
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+
+        Mono<Path> done = speech
+                .flatMap(path -> Mono.fromCallable(() -> {
+                    if (task.mix() != null) {
+                        long t0 = System.nanoTime();
+                        task.mix().run(path);
+                        lane.mixNanos.add(System.nanoTime() - t0);
+                        lane.mixed.increment();
+                    }
+                    return path;
+                }).subscribeOn(mixPool))
+                .doOnSuccess(path -> lane.completed.increment());
+        // released before the outcome is signalled, whichever it is
+        Mono<Path> released = task.release() == null ? done
+                : Mono.usingWhen(Mono.just(task), t -> done, t -> Mono.fromRunnable(t.release()));
+        return released.doFinally(signal -> lane.inFlight.decrement());
+    }
+
+    /**
+     * Only 429 / 5xx and I/O or timeout failures: no point retrying a request the provider
+     * rejected, a 200 that carried no audio, or a bug.
+     */
+    static boolean retryable(Throwable e) {
+        return RetryPolicy.retryable(e);
+    }
+
+    /** One provider's pool and counters. */
+    private static final class Lane {
+        final Provider provider;
+        final int maxConcurrent;
+        final Scheduler pool;
+        final ConcurrencyLimiter requests;
+        final LongAdder submitted = new LongAdder();
+        final LongAdder synthesized = new LongAdder();
+        final LongAdder mixed = new LongAdder();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder inFlight = new LongAdder();
+        final LongAdder audioBytes = new LongAdder();
+        final LongAdder synthesisNanos = new LongAdder();
+        final LongAdder mixNanos = new LongAdder();
+        volatile GenerationStats lastRun;
+
+        Lane(Provider provider, int maxConcurrent) {
+            this.provider = provider;
+            this.maxConcurrent = Math.max(1, maxConcurrent);
+            this.pool = Schedulers.newBoundedElastic(this.maxConcurrent, Schedulers.DEFAULT_BOUNDED_ELASTIC_QUEUESIZE,
+                    "tts-" + provider.name().toLowerCase());
+            this.requests = new ConcurrencyLimiter(this.maxConcurrent);
+        }
+
+        TtsStats stats() {
+            long s = synthesized.sum();
+            long m = mixed.sum();
+            return new TtsStats(provider.name(), maxConcurrent, submitted.sum(), completed.sum(), failed.sum(),
+                    retries.sum(), inFlight.sum(), audioBytes.sum(),
+                    s == 0 ? 0 : synthesisNanos.sum() / 1e6 / s,
+                    m == 0 ? 0 : mixNanos.sum() / 1e6 / m,
+                    lastRun);
+        }
+    }
+}
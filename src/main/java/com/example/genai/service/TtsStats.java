@@ -0,0 +1,22 @@
+package com.example.genai.service;
+
+/**
+ * Counters for one TTS provider since startup, plus the last finished run.
+ *
+ * @param completed  narrations synthesized and (if they have one) mixed
+ * @param retries    synthesis attempts repeated after a retryable error
+ * @param inFlight   narrations submitted but not finished yet
+ * @param audioBytes size of the synthesized speech files
+ */
+public record TtsStats(String provider,
+                       int maxConcurrent,
+                       long submitted,
+                       long completed,
+                       long failed,
+                       long retries,
+                       long inFlight,
+                       long audioBytes,
+                       double avgSynthesisMillis,
+                       double avgMixMillis,
+                       GenerationStats lastRun) {
+}
@@ -0,0 +1,26 @@
+package com.example.genai.service;
+
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+/**
+ * One narration for {@link TtsScheduler}: a network-bound synthesis step that writes
+ * the speech file, then an optional CPU-bound step (mixing) run on the mix pool.
+ * {@code release}, if set, runs once when the task has ended however it ended – for
+ * anything held from synthesis to mix.
+ */
+public record TtsTask(String label, Callable<Path> synthesize, Step mix, Runnable release) {
+
+    public TtsTask(String label, Callable<Path> synthesize, Step mix) {
+        this(label, synthesize, mix, null);
+    }
+
+    @FunctionalInterface
+    public interface Step {
+        void run(Path speech) throws Exception;
+    }
+
+    public static TtsTask of(String label, Callable<Path> synthesize) {
+        return new TtsTask(label, synthesize, null);
+    }
+}
@@ -2,10 +2,23 @@ package com.example.genai.util;
 
 public class Cosine {
     public static float similarity(float[] a, float[] b) {
-        float dot = 0f, na = 0f, nb = 0f;
-        int n = Math.min(a.length, b.length);
-        for (int i = 0; i < n; i++) { dot += a[i]*b[i]; na += a[i]*a[i]; nb += b[i]*b[i]; }
+        float na = VectorMath.norm(a), nb = VectorMath.norm(b);
         if (na == 0 || nb == 0) return 0f;
-        return (float)(dot / (Math.sqrt(na) * Math.sqrt(nb)));
+        return VectorMath.dot(a, b) / (na * nb);
+    }
+
+    /** Dot product; equals cosine similarity when both vectors are L2-normalized. */
+    public static float dot(float[] a, float[] b) {
+        return VectorMath.dot(a, b);
+    }
+
+    /** Returns an L2-normalized copy (all zeros stays all zeros). */
+    public static float[] normalize(float[] v) {
+        float norm = VectorMath.norm(v);
+        float[] out = new float[v.length];
+        if (norm == 0) return out;
+        float inv = 1f / norm;
+        for (int i = 0; i < v.length; i++) out[i] = v[i] * inv;
+        return out;
     }
 }
@@ -0,0 +1,163 @@
+package com.example.genai.util;
+
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * A blocking {@link InputStream} over a response body {@code Flux<DataBuffer>}, for
+ * parsers that want a stream (Jackson) without the body being aggregated first.
+ * At most {@code prefetch} network buffers are requested ahead of the reader; each is
+ * released once read. {@link #close()} cancels the rest of the body and releases
+ * whatever is queued, as well as buffers that race in after the cancel.
+ *
+ * A failed body ends the stream after the buffers that arrived before the error:
+ * runtime exceptions (e.g. a {@code WebClientResponseException}) are rethrown as they
+ * are, so callers can still tell a 429 from a bad request.
+ *
+ * Reads block, so use it from a worker thread, not a Reactor event loop.
+ */
+public final class DataBufferInputStream extends InputStream {
+
+    private final BodySubscriber body;
+    private DataBuffer current;
+    private boolean closed;
+
+    public DataBufferInputStream(Flux<DataBuffer> body, int prefetch) {
+        this.body = new BodySubscriber(Math.max(1, prefetch));
+        body.subscribe(this.body);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!advance()) return -1;
+        return current.read() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!advance()) return -1;
+        int n = Math.min(len, current.readableByteCount());
+        current.read(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.readableByteCount();
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        release();
+        body.close();
+    }
+
+    /** Makes {@code current} a buffer with bytes left; false at the end of the body. */
+    private boolean advance() throws IOException {
+        if (closed) throw new IOException("Stream closed");
+        while (current == null || current.readableByteCount() == 0) {
+            release();
+            current = body.take();
+            if (current == null) return false;
+        }
+        return true;
+    }
+
+    private void release() {
+        if (current != null) {
+            DataBufferUtils.release(current);
+            current = null;
+        }
+    }
+
+    /** Bounded hand-over from the network thread to the reader; guarded by its own monitor. */
+    private static final class BodySubscriber extends BaseSubscriber<DataBuffer> {
+
+        private final int prefetch;
+        private final ArrayDeque<DataBuffer> queue;
+        private boolean done;
+        private boolean closed;
+        private Throwable error;
+
+        BodySubscriber(int prefetch) {
+            this.prefetch = prefetch;
+            this.queue = new ArrayDeque<>(prefetch);
+        }
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            subscription.request(prefetch);
+        }
+
+        @Override
+        protected void hookOnNext(DataBuffer buffer) {
+            synchronized (this) {
+                if (!closed) {
+                    queue.add(buffer);
+                    notifyAll();
+                    return;
+                }
+            }
+            DataBufferUtils.release(buffer);  // arrived after close
+        }
+
+        @Override
+        protected synchronized void hookOnError(Throwable e) {
+            error = e;
+            done = true;
+            notifyAll();
+        }
+
+        @Override
+        protected synchronized void hookOnComplete() {
+            done = true;
+            notifyAll();
+        }
+
+        /** The next buffer, null at the end of the body; blocks until one arrives. */
+        DataBuffer take() throws IOException {
+            DataBuffer next;
+            synchronized (this) {
+                while (queue.isEmpty() && !done) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for the response body");
+                    }
+                }
+                next = queue.poll();
+                if (next == null) {
+                    if (error instanceof RuntimeException re) throw re;
+                    if (error instanceof IOException io) throw io;
+                    if (error != null) throw new IOException(error);
+                    return null;
+                }
+            }
+            request(1);  // outside the lock: it may deliver the next buffer on this thread
+            return next;
+        }
+
+        void close() {
+            cancel();
+            synchronized (this) {
+                closed = true;
+                DataBuffer queued;
+                while ((queued = queue.poll()) != null) {
+                    DataBufferUtils.release(queued);
+                }
+            }
+        }
+    }
+}
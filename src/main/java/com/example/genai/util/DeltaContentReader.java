@@ -0,0 +1,141 @@
+package com.example.genai.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+
+/**
+ * Pulls {@code choices[0].delta.content} out of chat-completion stream events
+ * without building a tree. One non-blocking Jackson parser is reused for the whole
+ * stream: each event's bytes are fed in place, field names come from the parser's
+ * symbol table, and the content string is the only per-event allocation.
+ * One instance per stream; not thread-safe.
+ */
+public final class DeltaContentReader {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final byte[] DONE = {'[', 'D', 'O', 'N', 'E', ']'};
+
+    private JsonParser parser;
+
+    /** True for the {@code [DONE]} sentinel that ends an OpenAI stream. */
+    public static boolean isDone(byte[] data, int offset, int length) {
+        if (length != DONE.length) return false;
+        for (int i = 0; i < length; i++) {
+            if (data[offset + i] != DONE[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Content of one complete JSON event, or null when it has none
+     * (role/finish chunks) or isn't valid JSON.
+     */
+    public String read(byte[] json, int offset, int length) {
+        try {
+            if (parser == null) parser = FACTORY.createNonBlockingByteArrayParser();
+            JsonParser p = parser;
+            ((ByteArrayFeeder) p.getNonBlockingInputFeeder()).feedInput(json, offset, offset + length);
+
+            String content = event(p);
+            // the event must be exactly one value; drain to the end of this input
+            if (p.nextToken() != JsonToken.NOT_AVAILABLE) {
+                throw new JsonParseException(p, "Trailing content after event");
+            }
+            return content;
+        } catch (IOException | RuntimeException e) {
+            parser = null;  // the parser's state is unknown now; the next event gets a fresh one
+            return null;
+        }
+    }
+
+    /** One-off variant for a single event; a fresh non-blocking parser costs more than a plain one. */
+    public static String readOnce(String json) {
+        try (JsonParser p = FACTORY.createParser(json)) {
+            String content = event(p);
+            return p.nextToken() == null ? content : null;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String event(JsonParser p) throws IOException {
+        JsonToken t = next(p);
+        if (t != JsonToken.START_OBJECT) {
+            skip(p, t);
+            return null;
+        }
+        String content = null;
+        while (next(p) == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken value = next(p);
+            if ("choices".equals(name) && value == JsonToken.START_ARRAY) {
+                content = firstChoice(p);
+            } else {
+                skip(p, value);
+            }
+        }
+        return content;
+    }
+
+    private static String firstChoice(JsonParser p) throws IOException {
+        JsonToken t = next(p);
+        if (t == JsonToken.END_ARRAY) return null;
+
+        String content = null;
+        if (t == JsonToken.START_OBJECT) {
+            while (next(p) == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                JsonToken value = next(p);
+                if ("delta".equals(name) && value == JsonToken.START_OBJECT) {
+                    content = deltaContent(p);
+                } else {
+                    skip(p, value);
+                }
+            }
+        } else {
+            skip(p, t);
+        }
+
+        while ((t = next(p)) != JsonToken.END_ARRAY) {
+            skip(p, t);
+        }
+        return content;
+    }
+
+    private static String deltaContent(JsonParser p) throws IOException {
+        String content = null;
+        while (next(p) == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            JsonToken value = next(p);
+            if ("content".equals(name) && value == JsonToken.VALUE_STRING) {
+                content = p.getText();
+            } else {
+                skip(p, value);
+            }
+        }
+        return content;
+    }
+
+    private static void skip(JsonParser p, JsonToken t) throws IOException {
+        if (t != JsonToken.START_OBJECT && t != JsonToken.START_ARRAY) return;
+        for (int depth = 1; depth > 0; ) {
+            t = next(p);
+            if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) depth++;
+            else if (t == JsonToken.END_OBJECT || t == JsonToken.END_ARRAY) depth--;
+        }
+    }
+
+    /** Like nextToken(), but running out of input mid-event is an error, not a pause. */
+    private static JsonToken next(JsonParser p) throws IOException {
+        JsonToken t = p.nextToken();
+        if (t == null || t == JsonToken.NOT_AVAILABLE) {
+            throw new JsonParseException(p, "Truncated event");
+        }
+        return t;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.genai.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * Serves a file with {@code ETag} / {@code Last-Modified} validators, conditional GET
+ * (304 / 412) and single byte ranges (206 / 416), so clients can seek and resume.
+ *
+ * The body is sent with Tomcat's sendfile when the connector supports it, otherwise
+ * with {@link FileChannel#transferTo}; neither copies the file through the heap.
+ * A multi-range request gets the whole file, which RFC 9110 allows.
+ */
+public final class FileRangeSender {
+
+    // Tomcat request attributes (org.apache.catalina.Globals)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileRangeSender() {}
+
+    public static void send(Path file, MediaType contentType, CacheControl cacheControl,
+                            HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        String etag = etag(length, lastModified);
+
+        if (!ifMatchHolds(request, etag)) {
+            response.setStatus(HttpStatus.PRECONDITION_FAILED.value());
+            return;
+        }
+        // sets ETag / Last-Modified, and answers 304 / 412 (If-Unmodified-Since) by itself
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setContentType(contentType.toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+
+        long start = 0, end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null && ifRangeMatches(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of();  // malformed: ignore it and send the whole file
+            }
+            if (ranges.size() == 1) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(length);
+                    end = range.getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    start = length;
+                }
+                if (start >= length || start > end) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // the connector writes the region straight from the file after we return
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (count > 0) {
+                long n = in.transferTo(position, count, out);
+                if (n <= 0) break;
+                position += n;
+                count -= n;
+            }
+        }
+    }
+
+    /** Strong validator from size and modification time; a regenerated file gets a new one. */
+    public static String etag(long length, long lastModified) {
+        return "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+    }
+
+    /**
+     * No {@code If-Match}, or it names this version (strong comparison; {@code *} matches
+     * any file). Spring's {@code checkNotModified} only evaluates If-Match for unsafe
+     * methods, so without this a GET of a changed file would get a 200.
+     */
+    private static boolean ifMatchHolds(HttpServletRequest request, String etag) {
+        Enumeration<String> ifMatch = request.getHeaders(HttpHeaders.IF_MATCH);
+        if (ifMatch == null || !ifMatch.hasMoreElements()) return true;
+        while (ifMatch.hasMoreElements()) {
+            for (String tag : ifMatch.nextElement().split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || tag.equals(etag)) return true;  // a weak W/ tag never equals ours
+            }
+        }
+        return false;
+    }
+
+    /** No {@code If-Range}, or it still names this version of the file. */
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        if (ifRange.startsWith("\"")) return ifRange.equals(etag);
+        if (ifRange.startsWith("W/")) return false;  // weak tags never match If-Range
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
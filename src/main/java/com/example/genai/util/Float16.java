@@ -0,0 +1,49 @@
+package com.example.genai.util;
+
+/** IEEE 754 half-precision conversions (Java 17 has no Float.floatToFloat16). */
+public final class Float16 {
+
+    private Float16() {}
+
+    public static float toFloat(short half) {
+        int bits = half & 0xffff;
+        int sign = (bits & 0x8000) << 16;
+        int exp = (bits >>> 10) & 0x1f;
+        int mant = bits & 0x3ff;
+        if (exp == 0) {
+            float subnormal = mant * 0x1p-24f;
+            return sign == 0 ? subnormal : -subnormal;
+        }
+        if (exp == 31) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mant << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exp + 112) << 23) | (mant << 13));
+    }
+
+    /** Rounds to nearest, ties to even; overflows to infinity. */
+    public static short fromFloat(float f) {
+        int bits = Float.floatToRawIntBits(f);
+        short sign = (short) ((bits >>> 16) & 0x8000);
+        if (Float.isNaN(f)) return (short) (sign | 0x7e00);
+
+        float abs = Math.abs(f);
+        if (abs >= 65520f) return (short) (sign | 0x7c00);
+        if (abs <= 0x1p-25f) return sign;
+
+        int exp = Math.getExponent(f);
+        int shift = 13;
+        int significand = bits & 0x007fffff;
+        if (exp < -14) {
+            // subnormal half: shift the implicit leading one in as well
+            shift += -14 - exp;
+            exp = -15;
+            significand |= 0x00800000;
+        }
+        int half = significand >> shift;
+        int lsb = significand & (1 << shift);
+        int round = significand & (1 << (shift - 1));
+        int sticky = significand & ((1 << (shift - 1)) - 1);
+        if (round != 0 && (lsb | sticky) != 0) half++;
+        return (short) (sign | (((exp + 15) << 10) + half));
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.genai.util;
+
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Copies the audio out of a Gemini {@code generateContent} response: the base64
+ * {@code candidates[0].content.parts[*].inlineData.data} field is decoded straight
+ * from the parser's input buffer into an {@link OutputStream}, so neither the
+ * base64 string nor the decoded audio is ever held whole. Everything else in the
+ * response is skipped without building a tree.
+ */
+public final class InlineDataReader {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private InlineDataReader() {}
+
+    /**
+     * Streams the first part's inline data, decoded, into {@code out}; returns the byte count.
+     * Throws IllegalStateException when the response carries no inline data.
+     */
+    public static long copyInlineData(InputStream json, OutputStream out) throws IOException {
+        try (JsonParser p = FACTORY.createParser(json)) {
+            if (p.nextToken() == JsonToken.START_OBJECT
+                    && field(p, "candidates") && p.currentToken() == JsonToken.START_ARRAY
+                    && p.nextToken() == JsonToken.START_OBJECT
+                    && field(p, "content") && p.currentToken() == JsonToken.START_OBJECT
+                    && field(p, "parts") && p.currentToken() == JsonToken.START_ARRAY) {
+
+                // parts without inlineData (text) are skipped; the first one with it decides
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    if (field(p, "inlineData")) {
+                        if (p.currentToken() == JsonToken.START_OBJECT
+                                && field(p, "data") && p.currentToken() == JsonToken.VALUE_STRING) {
+                            return p.readBinaryValue(Base64Variants.MIME_NO_LINEFEEDS, out);
+                        }
+                        break;
+                    }
+                }
+            }
+            throw new IllegalStateException("No audio returned by Gemini (no candidates[0].content.parts[].inlineData.data)");
+        }
+    }
+
+    /**
+     * Moves to the value of {@code name} in the current object, skipping other fields;
+     * false, positioned on the object's end, if it isn't there.
+     */
+    private static boolean field(JsonParser p, String name) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String current = p.currentName();
+            p.nextToken();
+            if (name.equals(current)) return true;
+            p.skipChildren();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.genai.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Similarity kernels behind {@link VectorMath}. Buffer arguments hold values
+ * in native byte order starting at a byte offset; {@code n} is the dimension.
+ */
+interface Kernels {
+
+    String describe();
+
+    float dot(float[] a, float[] b, int n);
+
+    float dot(float[] q, ByteBuffer v, int offset, int n);
+
+    float dot(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset, int n);
+
+    /** Scores {@code count} consecutive vectors against {@code q} into {@code out[0..count)}. */
+    void dotMany(float[] q, ByteBuffer v, int offset, int count, float[] out);
+
+    int dotInt8(byte[] a, byte[] b, int n);
+
+    float dotInt8(float[] q, ByteBuffer codes, int offset, int n);
+
+    float dotF16(float[] q, ByteBuffer halfs, int offset, int n);
+
+    float sumSquares(float[] a);
+}
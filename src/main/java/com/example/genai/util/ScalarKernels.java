@@ -0,0 +1,69 @@
+package com.example.genai.util;
+
+import java.nio.ByteBuffer;
+
+/** Plain loops; used when the Vector API module isn't available. */
+final class ScalarKernels implements Kernels {
+
+    @Override
+    public String describe() {
+        return "scalar";
+    }
+
+    @Override
+    public float dot(float[] a, float[] b, int n) {
+        float sum = 0f;
+        for (int i = 0; i < n; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] q, ByteBuffer v, int offset, int n) {
+        float sum = 0f;
+        for (int i = 0; i < n; i++) sum += q[i] * v.getFloat(offset + i * Float.BYTES);
+        return sum;
+    }
+
+    @Override
+    public float dot(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset, int n) {
+        float sum = 0f;
+        for (int i = 0; i < n; i++) {
+            sum += a.getFloat(aOffset + i * Float.BYTES) * b.getFloat(bOffset + i * Float.BYTES);
+        }
+        return sum;
+    }
+
+    @Override
+    public void dotMany(float[] q, ByteBuffer v, int offset, int count, float[] out) {
+        int stride = q.length * Float.BYTES;
+        for (int j = 0; j < count; j++) out[j] = dot(q, v, offset + j * stride, q.length);
+    }
+
+    @Override
+    public int dotInt8(byte[] a, byte[] b, int n) {
+        int sum = 0;
+        for (int i = 0; i < n; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    @Override
+    public float dotInt8(float[] q, ByteBuffer codes, int offset, int n) {
+        float sum = 0f;
+        for (int i = 0; i < n; i++) sum += q[i] * codes.get(offset + i);
+        return sum;
+    }
+
+    @Override
+    public float dotF16(float[] q, ByteBuffer halfs, int offset, int n) {
+        float sum = 0f;
+        for (int i = 0; i < n; i++) sum += q[i] * Float16.toFloat(halfs.getShort(offset + i * 2));
+        return sum;
+    }
+
+    @Override
+    public float sumSquares(float[] a) {
+        float sum = 0f;
+        for (float x : a) sum += x * x;
+        return sum;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.genai.util;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits narration text into TTS-sized chunks on sentence boundaries.
+ *
+ * Whole sentences are packed into chunks of at most {@code maxChars}; the first chunk
+ * is capped at {@code firstChars} so its audio comes back quickly. A sentence longer
+ * than the cap is split at the last space or comma before it (or hard-split for
+ * scripts without spaces). Concatenating the chunks gives back the text, minus
+ * whitespace at the chunk edges.
+ */
+public final class SentenceChunker {
+
+    private SentenceChunker() {}
+
+    public static List<String> split(String text, int firstChars, int maxChars) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) return chunks;
+
+        BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+        sentences.setText(text);
+
+        StringBuilder chunk = new StringBuilder();
+        int start = sentences.first();
+        for (int end = sentences.next(); end != BreakIterator.DONE; start = end, end = sentences.next()) {
+            String sentence = text.substring(start, end);
+            int cap = chunks.isEmpty() ? firstChars : maxChars;
+
+            if (chunk.length() > 0 && chunk.length() + sentence.strip().length() > cap) {
+                add(chunks, chunk);
+                cap = maxChars;
+            }
+            // a single sentence over the cap: emit all but the last piece
+            while (sentence.strip().length() > cap) {
+                int cut = cutPoint(sentence, cap);
+                chunk.append(sentence, 0, cut);
+                add(chunks, chunk);
+                sentence = sentence.substring(cut);
+                cap = maxChars;
+            }
+            chunk.append(sentence);
+        }
+        add(chunks, chunk);
+        return chunks;
+    }
+
+    private static void add(List<String> chunks, StringBuilder chunk) {
+        String s = chunk.toString().strip();
+        if (!s.isEmpty()) chunks.add(s);
+        chunk.setLength(0);
+    }
+
+    /** Index to cut {@code s} at so the head fits {@code cap}: after a comma or space, else at the cap. */
+    private static int cutPoint(String s, int cap) {
+        int lead = s.length() - s.stripLeading().length();
+        int limit = Math.min(s.length(), lead + cap);
+        for (int i = limit - 1; i > lead + cap / 2; i--) {
+            char c = s.charAt(i);
+            if (c == ',' || c == ';' || c == '\u060C' || c == '\u3001' || c == '\uFF0C') return i + 1;
+        }
+        for (int i = limit - 1; i > lead + cap / 2; i--) {
+            if (Character.isWhitespace(s.charAt(i))) return i + 1;
+        }
+        return Character.isHighSurrogate(s.charAt(limit - 1)) ? limit - 1 : limit;
+    }
+}
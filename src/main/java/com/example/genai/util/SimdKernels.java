@@ -0,0 +1,166 @@
+package com.example.genai.util;
+
+import jdk.incubator.vector.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Vector API (jdk.incubator.vector) kernels at the platform's preferred width.
+ * Loaded reflectively by {@link VectorMath} only when the module is present.
+ *
+ * The float loops keep two FMA accumulators to hide FMA latency. Quantized
+ * inputs are widened to float lanes of the same count (bytes → 1/4 width,
+ * halves → 1/2 width) so one load feeds one FMA. Half-precision subnormals
+ * (|x| &lt; 6.1e-5) are flushed to zero here; the effect on a dot product of
+ * normalized vectors is below float rounding noise.
+ */
+final class SimdKernels implements Kernels {
+
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> I = VectorSpecies.of(int.class, F.vectorShape());
+    private static final VectorSpecies<Byte> B = VectorSpecies.of(byte.class, VectorShape.forBitSize(F.length() * 8));
+    private static final VectorSpecies<Short> S = VectorSpecies.of(short.class, VectorShape.forBitSize(F.length() * 16));
+    private static final ByteOrder ORDER = ByteOrder.nativeOrder();
+    private static final int STEP = F.length();
+
+    @Override
+    public String describe() {
+        return "simd (" + F.vectorBitSize() + "-bit, " + STEP + " floats per op)";
+    }
+
+    @Override
+    public float dot(float[] a, float[] b, int n) {
+        FloatVector acc0 = FloatVector.zero(F), acc1 = FloatVector.zero(F);
+        int i = 0;
+        for (int bound = n - 2 * STEP; i <= bound; i += 2 * STEP) {
+            acc0 = FloatVector.fromArray(F, a, i).fma(FloatVector.fromArray(F, b, i), acc0);
+            acc1 = FloatVector.fromArray(F, a, i + STEP).fma(FloatVector.fromArray(F, b, i + STEP), acc1);
+        }
+        for (int bound = F.loopBound(n); i < bound; i += STEP) {
+            acc0 = FloatVector.fromArray(F, a, i).fma(FloatVector.fromArray(F, b, i), acc0);
+        }
+        float sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] q, ByteBuffer v, int offset, int n) {
+        FloatVector acc0 = FloatVector.zero(F), acc1 = FloatVector.zero(F);
+        int i = 0;
+        for (int bound = n - 2 * STEP; i <= bound; i += 2 * STEP) {
+            acc0 = FloatVector.fromArray(F, q, i)
+                    .fma(FloatVector.fromByteBuffer(F, v, offset + i * Float.BYTES, ORDER), acc0);
+            acc1 = FloatVector.fromArray(F, q, i + STEP)
+                    .fma(FloatVector.fromByteBuffer(F, v, offset + (i + STEP) * Float.BYTES, ORDER), acc1);
+        }
+        for (int bound = F.loopBound(n); i < bound; i += STEP) {
+            acc0 = FloatVector.fromArray(F, q, i)
+                    .fma(FloatVector.fromByteBuffer(F, v, offset + i * Float.BYTES, ORDER), acc0);
+        }
+        float sum = acc0.add(acc1).reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) sum += q[i] * v.getFloat(offset + i * Float.BYTES);
+        return sum;
+    }
+
+    @Override
+    public float dot(ByteBuffer a, int aOffset, ByteBuffer b, int bOffset, int n) {
+        FloatVector acc = FloatVector.zero(F);
+        int i = 0;
+        for (int bound = F.loopBound(n); i < bound; i += STEP) {
+            int off = i * Float.BYTES;
+            acc = FloatVector.fromByteBuffer(F, a, aOffset + off, ORDER)
+                    .fma(FloatVector.fromByteBuffer(F, b, bOffset + off, ORDER), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) sum += a.getFloat(aOffset + i * Float.BYTES) * b.getFloat(bOffset + i * Float.BYTES);
+        return sum;
+    }
+
+    @Override
+    public void dotMany(float[] q, ByteBuffer v, int offset, int count, float[] out) {
+        int stride = q.length * Float.BYTES;
+        // two vectors per pass: each query load is reused twice
+        int j = 0;
+        for (; j + 1 < count; j += 2) {
+            int o0 = offset + j * stride, o1 = o0 + stride;
+            FloatVector acc0 = FloatVector.zero(F), acc1 = FloatVector.zero(F);
+            int i = 0;
+            for (int bound = F.loopBound(q.length); i < bound; i += STEP) {
+                FloatVector qv = FloatVector.fromArray(F, q, i);
+                int off = i * Float.BYTES;
+                acc0 = qv.fma(FloatVector.fromByteBuffer(F, v, o0 + off, ORDER), acc0);
+                acc1 = qv.fma(FloatVector.fromByteBuffer(F, v, o1 + off, ORDER), acc1);
+            }
+            float s0 = acc0.reduceLanes(VectorOperators.ADD), s1 = acc1.reduceLanes(VectorOperators.ADD);
+            for (; i < q.length; i++) {
+                s0 += q[i] * v.getFloat(o0 + i * Float.BYTES);
+                s1 += q[i] * v.getFloat(o1 + i * Float.BYTES);
+            }
+            out[j] = s0;
+            out[j + 1] = s1;
+        }
+        if (j < count) out[j] = dot(q, v, offset + j * stride, q.length);
+    }
+
+    @Override
+    public int dotInt8(byte[] a, byte[] b, int n) {
+        IntVector acc = IntVector.zero(I);
+        int i = 0;
+        for (int bound = B.loopBound(n); i < bound; i += STEP) {
+            IntVector av = (IntVector) ByteVector.fromArray(B, a, i).convertShape(VectorOperators.B2I, I, 0);
+            IntVector bv = (IntVector) ByteVector.fromArray(B, b, i).convertShape(VectorOperators.B2I, I, 0);
+            acc = acc.add(av.mul(bv));
+        }
+        int sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) sum += a[i] * b[i];
+        return sum;
+    }
+
+    @Override
+    public float dotInt8(float[] q, ByteBuffer codes, int offset, int n) {
+        FloatVector acc = FloatVector.zero(F);
+        int i = 0;
+        for (int bound = B.loopBound(n); i < bound; i += STEP) {
+            FloatVector cv = (FloatVector) ByteVector.fromByteBuffer(B, codes, offset + i, ORDER)
+                    .convertShape(VectorOperators.B2F, F, 0);
+            acc = FloatVector.fromArray(F, q, i).fma(cv, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) sum += q[i] * codes.get(offset + i);
+        return sum;
+    }
+
+    @Override
+    public float dotF16(float[] q, ByteBuffer halfs, int offset, int n) {
+        FloatVector acc = FloatVector.zero(F);
+        int i = 0;
+        for (int bound = S.loopBound(n); i < bound; i += STEP) {
+            IntVector h = (IntVector) ShortVector.fromByteBuffer(S, halfs, offset + i * 2, ORDER)
+                    .convertShape(VectorOperators.S2I, I, 0);
+            IntVector magnitude = h.and(0x7fff);
+            // rebias exponent 15 → 127 and widen the mantissa 10 → 23 bits
+            IntVector bits = magnitude.lanewise(VectorOperators.LSHL, 13).add(112 << 23)
+                    .blend(0, magnitude.compare(VectorOperators.LT, 0x0400))
+                    .or(h.and(0x8000).lanewise(VectorOperators.LSHL, 16));
+            acc = FloatVector.fromArray(F, q, i).fma(bits.reinterpretAsFloats(), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) sum += q[i] * Float16.toFloat(halfs.getShort(offset + i * 2));
+        return sum;
+    }
+
+    @Override
+    public float sumSquares(float[] a) {
+        FloatVector acc = FloatVector.zero(F);
+        int i = 0;
+        for (int bound = F.loopBound(a.length); i < bound; i += STEP) {
+            FloatVector v = FloatVector.fromArray(F, a, i);
+            acc = v.fma(v, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) sum += a[i] * a[i];
+        return sum;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.genai.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Incremental Server-Sent Events decoder over raw bytes.
+ * Network buffers are scanned in place as they arrive; the {@code data} of each
+ * complete event (several data lines joined by '\n') is handed to the listener as a
+ * slice of an internal array that is only valid during the call.
+ * Line endings may be LF, CRLF or CR and may be split across buffers, and so may
+ * multi-byte UTF-8 sequences – nothing is decoded to characters here.
+ * Comments and fields other than {@code data} are ignored.
+ * One instance per stream; not thread-safe.
+ */
+public final class SseDecoder {
+
+    @FunctionalInterface
+    public interface DataListener {
+        void onData(byte[] data, int offset, int length);
+    }
+
+    private byte[] line = new byte[256];  // only a line split across buffers lands here
+    private ByteBuffer lineView = ByteBuffer.wrap(line);
+    private int lineLength;
+
+    private byte[] data = new byte[1024];
+    private int dataLength;
+    private boolean hasData;
+
+    private boolean skipLf;  // previous buffer ended in CR; a leading LF belongs to it
+
+    public void feed(byte[] bytes, int offset, int length, DataListener listener) {
+        feed(ByteBuffer.wrap(bytes, offset, length), listener);
+    }
+
+    /** Consumes the buffer's remaining bytes without moving its position. */
+    public void feed(ByteBuffer buffer, DataListener listener) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+
+        if (skipLf && pos < limit) {
+            if (buffer.get(pos) == '\n') pos++;
+            skipLf = false;
+        }
+
+        while (pos < limit) {
+            int eol = pos;
+            byte b = 0;
+            while (eol < limit && (b = buffer.get(eol)) != '\n' && b != '\r') eol++;
+
+            if (eol == limit) {
+                appendLine(buffer, pos, limit - pos);
+                return;
+            }
+
+            if (lineLength == 0) {
+                processLine(buffer, pos, eol - pos, listener);
+            } else {
+                appendLine(buffer, pos, eol - pos);
+                processLine(lineView, 0, lineLength, listener);
+                lineLength = 0;
+            }
+
+            pos = eol + 1;
+            if (b == '\r') {
+                if (pos < limit) {
+                    if (buffer.get(pos) == '\n') pos++;
+                } else {
+                    skipLf = true;
+                }
+            }
+        }
+    }
+
+    private void processLine(ByteBuffer src, int off, int len, DataListener listener) {
+        if (len == 0) {
+            if (hasData) {
+                hasData = false;
+                int n = dataLength;
+                dataLength = 0;
+                listener.onData(data, 0, n);
+            }
+            return;
+        }
+        if (len < 4 || src.get(off) != 'd' || src.get(off + 1) != 'a'
+                || src.get(off + 2) != 't' || src.get(off + 3) != 'a') {
+            return;  // comment, other field, or a field name we don't use
+        }
+
+        int value = off + 4;
+        int end = off + len;
+        if (value < end) {
+            if (src.get(value) != ':') return;  // e.g. "database: …"
+            value++;
+            if (value < end && src.get(value) == ' ') value++;
+        }
+
+        if (hasData) appendData((byte) '\n');
+        hasData = true;
+        int n = end - value;
+        ensureData(dataLength + n);
+        src.get(value, data, dataLength, n);
+        dataLength += n;
+    }
+
+    private void appendLine(ByteBuffer src, int off, int len) {
+        if (lineLength + len > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + len));
+            lineView = ByteBuffer.wrap(line);
+        }
+        src.get(off, line, lineLength, len);
+        lineLength += len;
+    }
+
+    private void appendData(byte b) {
+        ensureData(dataLength + 1);
+        data[dataLength++] = b;
+    }
+
+    private void ensureData(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, capacity));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.genai.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Similarity kernels for embeddings: SIMD via the Vector API when the JVM runs
+ * with {@code --add-modules jdk.incubator.vector}, plain loops otherwise
+ * (or when started with {@code -Dgenai.simd=false}).
+ *
+ * Buffer variants read {@code q.length} values in native byte order starting
+ * at {@code byteOffset}.
+ */
+public final class VectorMath {
+
+    private static final Kernels KERNELS = load();
+
+    private VectorMath() {}
+
+    public static String implementation() {
+        return KERNELS.describe();
+    }
+
+    public static float dot(float[] a, float[] b) {
+        return KERNELS.dot(a, b, Math.min(a.length, b.length));
+    }
+
+    public static float dot(float[] q, ByteBuffer vectors, int byteOffset) {
+        return KERNELS.dot(q, vectors, byteOffset, q.length);
+    }
+
+    public static float dot(ByteBuffer a, int aByteOffset, ByteBuffer b, int bByteOffset, int dimension) {
+        return KERNELS.dot(a, aByteOffset, b, bByteOffset, dimension);
+    }
+
+    /** One query against {@code count} back-to-back vectors; scores land in {@code out[0..count)}. */
+    public static void dotMany(float[] q, ByteBuffer vectors, int byteOffset, int count, float[] out) {
+        KERNELS.dotMany(q, vectors, byteOffset, count, out);
+    }
+
+    public static int dotInt8(byte[] a, byte[] b) {
+        return KERNELS.dotInt8(a, b, Math.min(a.length, b.length));
+    }
+
+    /** Float query against signed 8-bit codes (asymmetric scoring). */
+    public static float dotInt8(float[] q, ByteBuffer codes, int byteOffset) {
+        return KERNELS.dotInt8(q, codes, byteOffset, q.length);
+    }
+
+    /** Float query against IEEE half-precision values, see {@link Float16}. */
+    public static float dotF16(float[] q, ByteBuffer halfs, int byteOffset) {
+        return KERNELS.dotF16(q, halfs, byteOffset, q.length);
+    }
+
+    public static float norm(float[] a) {
+        return (float) Math.sqrt(KERNELS.sumSquares(a));
+    }
+
+    private static Kernels load() {
+        boolean enabled = Boolean.parseBoolean(System.getProperty("genai.simd", "true"));
+        if (enabled && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                // reflective so this class never links against the incubator module itself
+                return (Kernels) Class.forName("com.example.genai.util.SimdKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+                System.err.println("Vector API unavailable, using scalar kernels – " + e);
+            }
+        }
+        return new ScalarKernels();
+    }
+}
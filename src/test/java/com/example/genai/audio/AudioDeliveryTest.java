@@ -0,0 +1,61 @@
+package com.example.genai.audio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AudioDeliveryTest {
+
+    @TempDir
+    Path dir;
+
+    private final AudioDelivery mp3 = new AudioDelivery(AudioDelivery.Format.MP3, 64);
+
+    @Test
+    void formatFollowsTheFileExtension() {
+        assertThat(AudioDelivery.Format.of(Path.of("a/narration.mp3"))).isEqualTo(AudioDelivery.Format.MP3);
+        assertThat(AudioDelivery.Format.of(Path.of("NARRATION.MP3"))).isEqualTo(AudioDelivery.Format.MP3);
+        assertThat(AudioDelivery.Format.of(Path.of("narration.wav"))).isEqualTo(AudioDelivery.Format.WAV);
+        assertThat(AudioDelivery.Format.of(Path.of("narration.mp3.part"))).isEqualTo(AudioDelivery.Format.WAV);
+        assertThat(mp3.extension()).isEqualTo("mp3");
+        assertThat(AudioDelivery.Format.MP3.mediaType()).isEqualTo("audio/mpeg");
+    }
+
+    @Test
+    void opensAnMp3WriterForMp3Targets() throws IOException {
+        Path target = dir.resolve("narration.mp3");
+
+        try (PcmSink out = mp3.open(target, BedCache.format(24000, 2))) {
+            assertThat(out).isInstanceOf(Mp3Writer.class);
+            out.write(Mp3WriterTest.tone(440, 0.5, 2), 0, 4 * 12000);
+            out.finish();
+        }
+
+        byte[] head = Arrays.copyOf(Files.readAllBytes(target), 2);
+        assertThat(head[0] & 0xFF).isEqualTo(0xFF);
+        assertThat(head[1] & 0xE0).isEqualTo(0xE0);
+    }
+
+    @Test
+    void stillWritesAWavWhenTheCallerAsksForOne() throws IOException {
+        Path target = dir.resolve("speech.wav");
+        byte[] pcm = Mp3WriterTest.tone(440, 0.25, 1);
+
+        try (PcmSink out = mp3.open(target, BedCache.format(24000, 1))) {
+            assertThat(out).isInstanceOf(WavWriter.class);
+            out.write(pcm, 0, pcm.length);
+            out.finish();
+        }
+
+        byte[] wav = Files.readAllBytes(target);
+        assertThat(new String(wav, 0, 4, StandardCharsets.US_ASCII)).isEqualTo("RIFF");
+        assertThat(Arrays.copyOfRange(wav, WavWriter.HEADER_BYTES, wav.length)).isEqualTo(pcm);
+    }
+}
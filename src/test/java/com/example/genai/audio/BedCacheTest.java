@@ -0,0 +1,129 @@
+package com.example.genai.audio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BedCacheTest {
+
+    private static final int RATE = 24000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentRequestsShareOneDecode() throws Exception {
+        Path source = wav("music.wav", 1.0);
+        BedCache cache = new BedCache(dir.resolve("beds"), Long.MAX_VALUE);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<PcmBed>> beds = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                beds.add(pool.submit(() -> {
+                    start.await();
+                    return cache.get(source, RATE, 2);
+                }));
+            }
+            start.countDown();
+
+            PcmBed first = beds.get(0).get();
+            for (Future<PcmBed> bed : beds) assertThat(bed.get()).isSameAs(first);
+            assertThat(first.frames()).isEqualTo(RATE);
+            assertThat(cache.stats().decodes()).isEqualTo(1);
+            assertThat(cache.stats().beds()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // another format of the same file is its own bed
+        assertThat(cache.get(source, RATE, 1).channels()).isEqualTo(1);
+        assertThat(cache.stats().beds()).isEqualTo(2);
+        assertThat(cache.stats().decodes()).isEqualTo(2);
+    }
+
+    @Test
+    void aNewInstanceReusesTheSpillFileOfAnEarlierOne() throws Exception {
+        Path source = wav("music.wav", 0.5);
+        Path spill = dir.resolve("beds");
+        short[] decoded = samples(new BedCache(spill, 0).get(source, RATE, 2));
+
+        // after a restart, and with the same music uploaded under another name
+        Path copy = Files.copy(source, dir.resolve("music-copy.wav"));
+        BedCache restarted = new BedCache(spill, 0);
+        PcmBed bed = restarted.get(copy, RATE, 2);
+
+        assertThat(restarted.stats().decodes()).isZero();
+        assertThat(restarted.stats().spillReuses()).isEqualTo(1);
+        assertThat(samples(bed)).isEqualTo(decoded);
+        assertThat(pcmFiles(spill)).hasSize(1);
+    }
+
+    @Test
+    void bedsBelowTheThresholdStayOnTheHeapAndLargerOnesAreMapped() throws Exception {
+        Path source = wav("music.wav", 0.5);
+        long bytes = RATE / 2 * 2 * 2;
+
+        PcmBed heap = new BedCache(dir.resolve("heap"), bytes + 1).get(source, RATE, 2);
+        PcmBed mapped = new BedCache(dir.resolve("mapped"), bytes).get(source, RATE, 2);
+
+        assertThat(heap.mapped()).isFalse();
+        assertThat(mapped.mapped()).isTrue();
+        assertThat(samples(mapped)).isEqualTo(samples(heap));
+    }
+
+    @Test
+    void aFailedDecodeLeavesNothingBehindAndCanBeRetried() throws Exception {
+        Path source = dir.resolve("music.wav");
+        Files.write(source, new byte[]{'n', 'o', 't', ' ', 'a', 'u', 'd', 'i', 'o'});
+        Path spill = dir.resolve("beds");
+        BedCache cache = new BedCache(spill, Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> cache.get(source, RATE, 2)).isInstanceOf(UnsupportedAudioFileException.class);
+        assertThat(cache.stats().beds()).isZero();
+        try (Stream<Path> files = Files.list(spill)) {
+            assertThat(files).isEmpty();
+        }
+
+        Files.delete(source);
+        Files.copy(wav("real.wav", 0.25), source);
+        assertThat(cache.get(source, RATE, 2).frames()).isEqualTo(RATE / 4);
+    }
+
+    // ---------- helpers ----------
+
+    private Path wav(String name, double seconds) throws IOException {
+        Path path = dir.resolve(name);
+        try (WavWriter out = WavWriter.create(path, RATE, 2, 16)) {
+            out.stream().write(Mp3WriterTest.tone(440, seconds, 2));
+            out.finish();
+        }
+        return path;
+    }
+
+    private static short[] samples(PcmBed bed) {
+        short[] out = new short[(int) bed.frames() * bed.channels()];
+        bed.cursor(false).read(out, 0, out.length);
+        return out;
+    }
+
+    private static List<Path> pcmFiles(Path spill) throws IOException {
+        try (Stream<Path> files = Files.list(spill)) {
+            return files.filter(p -> p.toString().endsWith(".pcm")).toList();
+        }
+    }
+}
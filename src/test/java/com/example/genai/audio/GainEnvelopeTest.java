@@ -0,0 +1,51 @@
+package com.example.genai.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class GainEnvelopeTest {
+
+    @Test
+    void interpolatesBetweenPointsAndHoldsOutside() {
+        GainEnvelope envelope = GainEnvelope.constant(1).then(2, 0.5).then(4, 0.5).then(5, 0);
+
+        assertThat(envelope.at(-1)).isEqualTo(1);
+        assertThat(envelope.at(0)).isEqualTo(1);
+        assertThat(envelope.at(1)).isCloseTo(0.75, within(1e-12));
+        assertThat(envelope.at(2)).isEqualTo(0.5);
+        assertThat(envelope.at(3)).isEqualTo(0.5);
+        assertThat(envelope.at(4.5)).isCloseTo(0.25, within(1e-12));
+        assertThat(envelope.at(5)).isZero();
+        assertThat(envelope.at(60)).isZero();
+        assertThat(envelope.isConstant()).isFalse();
+    }
+
+    @Test
+    void pointsAtTheSameTimeStepTheGain() {
+        GainEnvelope step = GainEnvelope.constant(1).then(1, 1).then(1, 0.25);
+
+        assertThat(step.at(0.999)).isCloseTo(1, within(1e-12));
+        assertThat(step.at(1.001)).isEqualTo(0.25);
+    }
+
+    @Test
+    void thenLeavesTheOriginalUnchanged() {
+        GainEnvelope flat = GainEnvelope.constant(0.5);
+        GainEnvelope ramp = flat.then(1, 1);
+
+        assertThat(flat.at(1)).isEqualTo(0.5);
+        assertThat(flat.isConstant()).isTrue();
+        assertThat(ramp.at(1)).isEqualTo(1);
+        assertThat(flat.then(3, 0.5).isConstant()).isTrue();
+    }
+
+    @Test
+    void rejectsPointsOutOfOrder() {
+        assertThatThrownBy(() -> GainEnvelope.constant(1).then(2, 1).then(1, 0))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("time order");
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.genai.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Vector API mixing loops against the scalar ones. Surefire runs this class with and
+ * without {@code --add-modules jdk.incubator.vector}, like {@code VectorMathTest}.
+ */
+class MixKernelTest {
+
+    /** Every tail length up to two 512-bit blocks, plus a 100 ms stereo buffer. */
+    private static final int[] LENGTHS = {0, 1, 2, 7, 8, 9, 15, 16, 17, 31, 32, 33, 47, 4801};
+    private static final int[] GAINS = {0, 1, 4096, MixKernel.gain(0.3), MixKernel.gain(0.5),
+            MixKernel.UNITY - 1, MixKernel.UNITY, MixKernel.UNITY + 1, MixKernel.MAX_GAIN};
+    /** Untouched by the kernels: anything past {@code samples} must keep it. */
+    private static final short SENTINEL = 12345;
+
+    private static final boolean VECTOR_MODULE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private final ScalarMixOps scalar = new ScalarMixOps();
+    private final Random random = new Random(11);
+
+    @Test
+    void picksTheImplementationTheModuleAllows() {
+        if (VECTOR_MODULE) {
+            assertThat(MixKernel.implementation()).startsWith("simd");
+        } else {
+            assertThat(MixKernel.implementation()).isEqualTo("scalar");
+        }
+    }
+
+    @Test
+    void mixIsBitIdenticalToScalar() {
+        MixOps simd = simd();
+        for (int n : LENGTHS) {
+            short[] a = randomSamples(n), b = randomSamples(n);
+            for (int gainA : GAINS) {
+                for (int gainB : GAINS) {
+                    short[] expected = padded(n), actual = padded(n);
+                    scalar.mix(a, gainA, b, gainB, expected, n);
+                    simd.mix(a, gainA, b, gainB, actual, n);
+                    assertThat(actual).as("n=%d, gains %d/%d", n, gainA, gainB).isEqualTo(expected);
+                    assertThat(actual[n]).isEqualTo(SENTINEL);
+                }
+            }
+        }
+    }
+
+    @Test
+    void mixMayWriteIntoAnInput() {
+        MixOps simd = simd();
+        short[] a = randomSamples(33), b = randomSamples(33);
+        short[] expected = new short[33];
+        scalar.mix(a, MixKernel.UNITY, b, MixKernel.gain(0.5), expected, 33);
+
+        simd.mix(a, MixKernel.UNITY, b, MixKernel.gain(0.5), a, 33);
+
+        assertThat(a).isEqualTo(expected);
+    }
+
+    @Test
+    void accumulateAndSaturateAreBitIdenticalToScalar() {
+        MixOps simd = simd();
+        for (int n : LENGTHS) {
+            short[][] tracks = {randomSamples(n), randomSamples(n), randomSamples(n)};
+            int[] expected = new int[n + 1], actual = new int[n + 1];
+            for (int t = 0; t < tracks.length; t++) {
+                int gain = GAINS[(t * 3 + n) % GAINS.length];
+                scalar.accumulate(tracks[t], gain, expected, n);
+                simd.accumulate(tracks[t], gain, actual, n);
+            }
+            assertThat(actual).as("n=%d", n).isEqualTo(expected);
+
+            short[] expectedOut = padded(n), actualOut = padded(n);
+            scalar.saturate(expected, expectedOut, n);
+            simd.saturate(actual, actualOut, n);
+            assertThat(actualOut).as("n=%d", n).isEqualTo(expectedOut);
+            assertThat(actualOut[n]).isEqualTo(SENTINEL);
+        }
+    }
+
+    @Test
+    void staysWithinOneLsbOfTheLegacyLoop() {
+        // the loop AudioMixService used before: speech + (int) (bed × 0.5), clamped
+        for (int n : LENGTHS) {
+            short[] speech = randomSamples(n), bed = randomSamples(n);
+            short[] mixed = new short[n];
+            MixKernel.mix(speech, MixKernel.UNITY, bed, MixKernel.gain(0.5), mixed, n);
+
+            for (int i = 0; i < n; i++) {
+                int legacy = speech[i] + (int) (bed[i] * 0.5);
+                legacy = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, legacy));
+                assertThat(Math.abs(mixed[i] - legacy)).as("sample %d of %d", i, n).isLessThanOrEqualTo(1);
+            }
+        }
+    }
+
+    @Test
+    void saturatesAtTheSixteenBitRange() {
+        MixOps simd = simd();
+        for (MixOps ops : new MixOps[]{scalar, simd}) {
+            int n = 37;
+            short[] high = filled(n, Short.MAX_VALUE), low = filled(n, Short.MIN_VALUE);
+            short[] out = new short[n];
+
+            ops.mix(high, MixKernel.MAX_GAIN, high, MixKernel.MAX_GAIN, out, n);
+            assertThat(out).as(ops.describe()).containsOnly(Short.MAX_VALUE);
+            ops.mix(low, MixKernel.MAX_GAIN, low, MixKernel.MAX_GAIN, out, n);
+            assertThat(out).as(ops.describe()).containsOnly(Short.MIN_VALUE);
+            // one loud track cancelled by an equally loud one doesn't clip on the way
+            ops.mix(high, MixKernel.UNITY, low, MixKernel.UNITY, out, n);
+            assertThat(out).as(ops.describe()).containsOnly((short) -1);
+
+            int[] acc = new int[n];
+            for (int t = 0; t < 4; t++) ops.accumulate(high, MixKernel.UNITY, acc, n);
+            ops.accumulate(low, MixKernel.UNITY, acc, n);
+            assertThat(acc).as(ops.describe()).containsOnly(3 * Short.MAX_VALUE - 1);
+            ops.saturate(acc, out, n);
+            assertThat(out).as(ops.describe()).containsOnly(Short.MAX_VALUE);
+        }
+    }
+
+    @Test
+    void gainsRoundToTheNearestQ14Step() {
+        assertThat(MixKernel.gain(1)).isEqualTo(MixKernel.UNITY);
+        assertThat(MixKernel.gain(0.5)).isEqualTo(8192);
+        assertThat(MixKernel.gain(1 / 3d)).isEqualTo(5461);   // 5461.33
+        assertThat(MixKernel.gain(2 / 3d)).isEqualTo(10923);  // 10922.67
+        assertThat(MixKernel.gain(-0.1)).isZero();
+        assertThat(MixKernel.gain(5)).isEqualTo(MixKernel.MAX_GAIN);
+        assertThat(MixKernel.gainDb(0)).isEqualTo(MixKernel.UNITY);
+        assertThat(MixKernel.gainDb(-6)).isEqualTo(8211);     // 0.50119 × 16384 = 8211.45
+        assertThat(MixKernel.gainDb(-120)).isZero();
+    }
+
+    @Test
+    void scaledSamplesRoundHalfUp() {
+        short[] samples = {3, -3, 1, -1, 2, Short.MAX_VALUE, Short.MIN_VALUE};
+        short[] zero = new short[samples.length];
+        short[] out = new short[samples.length];
+
+        MixKernel.mix(samples, MixKernel.gain(0.5), zero, 0, out, samples.length);
+
+        // ±1.5 → 2 / −1, ±0.5 → 1 / 0
+        assertThat(out).containsExactly(2, -1, 1, 0, 1, 16384, -16384);
+    }
+
+    @Test
+    void rampsRunLinearlyTowardsTheTarget() {
+        int frames = 480;
+        int[] up = new int[frames], down = new int[frames];
+        MixKernel.ramp(up, frames, 0, MixKernel.UNITY);
+        MixKernel.ramp(down, frames, MixKernel.UNITY, MixKernel.gain(0.25));
+
+        assertThat(up[0]).isZero();
+        assertThat(down[0]).isEqualTo(MixKernel.UNITY);
+        // the target itself is the first frame after the ramp
+        assertThat(up[frames - 1]).isBetween(MixKernel.UNITY - MixKernel.UNITY / frames - 1, MixKernel.UNITY - 1);
+        assertThat(down[frames - 1]).isBetween(MixKernel.gain(0.25) + 1, MixKernel.gain(0.25) + 3 * MixKernel.UNITY / 4 / frames + 1);
+        for (int f = 1; f < frames; f++) {
+            assertThat(up[f] - up[f - 1]).as("frame %d", f).isBetween(MixKernel.UNITY / frames - 1, MixKernel.UNITY / frames + 1);
+            assertThat(down[f]).as("frame %d", f).isLessThanOrEqualTo(down[f - 1]);
+        }
+    }
+
+    @Test
+    void rampWritesOnlyItsRange() {
+        int[] gains = new int[20];
+        Arrays.fill(gains, -1);
+
+        MixKernel.ramp(gains, 5, 10, 0, 1000);
+        MixKernel.ramp(gains, 15, 3, 700, 700);
+
+        assertThat(Arrays.copyOfRange(gains, 0, 5)).containsOnly(-1);
+        assertThat(Arrays.copyOfRange(gains, 5, 15)).containsExactly(0, 100, 200, 300, 400, 500, 600, 700, 800, 900);
+        assertThat(Arrays.copyOfRange(gains, 15, 18)).containsOnly(700);
+        assertThat(Arrays.copyOfRange(gains, 18, 20)).containsOnly(-1);
+    }
+
+    @Test
+    void frameGainsApplyToEveryChannelOfTheirFrame() {
+        for (int channels = 1; channels <= 3; channels++) {
+            int frames = 101;
+            short[] src = randomSamples(frames * channels);
+            int[] frameGains = new int[frames];
+            MixKernel.ramp(frameGains, frames, MixKernel.UNITY, 0);
+
+            int[] curve = new int[frames * channels];
+            MixKernel.accumulate(src, channels, frameGains, curve, frames);
+
+            int[] expected = new int[frames * channels];
+            short[] one = new short[1];
+            int[] sum = new int[1];
+            for (int i = 0; i < expected.length; i++) {
+                one[0] = src[i];
+                sum[0] = 0;
+                scalar.accumulate(one, frameGains[i / channels], sum, 1);
+                expected[i] = sum[0];
+            }
+            assertThat(curve).as("%d channels", channels).isEqualTo(expected);
+        }
+    }
+
+    /** The Vector API loops, or the scalar fallback {@link MixKernel} uses when the module is missing. */
+    private MixOps simd() {
+        if (!VECTOR_MODULE) return new ScalarMixOps();
+        try {
+            return (MixOps) Class.forName("com.example.genai.audio.SimdMixOps").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            assumeTrue(false, "SimdMixOps not loadable: " + e);
+            return null;
+        }
+    }
+
+    /** Mostly speech-level noise, with full-scale peaks mixed in. */
+    private short[] randomSamples(int n) {
+        short[] s = new short[n];
+        for (int i = 0; i < n; i++) {
+            int pick = random.nextInt(10);
+            s[i] = pick == 0 ? Short.MAX_VALUE : pick == 1 ? Short.MIN_VALUE : (short) random.nextInt(1 << 16);
+        }
+        return s;
+    }
+
+    private static short[] padded(int n) {
+        short[] out = new short[n + 1];
+        out[n] = SENTINEL;
+        return out;
+    }
+
+    private static short[] filled(int n, short value) {
+        short[] out = new short[n];
+        Arrays.fill(out, value);
+        return out;
+    }
+}
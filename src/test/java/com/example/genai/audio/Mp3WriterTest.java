@@ -0,0 +1,184 @@
+package com.example.genai.audio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class Mp3WriterTest {
+
+    private static final int RATE = 24000;
+    /** MPEG-2 layer III bitrates (kbps) by header index. */
+    private static final int[] MPEG2_KBPS = {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void encodesAToneThatDecodesToTheSameLengthAndPitch() throws Exception {
+        Path target = dir.resolve("tone.mp3");
+        byte[] pcm = tone(440, 3.0, 2);
+
+        try (Mp3Writer out = Mp3Writer.create(target, BedCache.format(RATE, 2), 64)) {
+            assertThat(out.bitrateKbps()).isEqualTo(64);
+            // odd-sized writes, so the encoder buffer fills across calls
+            for (int off = 0; off < pcm.length; off += 1000) out.write(pcm, off, Math.min(1000, pcm.length - off));
+            assertThat(out.finish()).isEqualTo(target);
+        }
+
+        short[] decoded = decode(target, 2);
+        double seconds = decoded.length / 2.0 / RATE;
+        // LAME's encoder delay and padding add a few frames of 24 ms at most
+        assertThat(seconds).isCloseTo(3.0, within(0.1));
+        assertThat(zeroCrossings(decoded, 2, RATE / 2, RATE / 2 + RATE) / 2.0).isCloseTo(440, within(5.0));
+        assertThat(rms(decoded, RATE / 2, RATE / 2 + RATE)).isGreaterThan(5000);
+    }
+
+    @Test
+    void everyFrameHasTheSameBitrate() throws IOException {
+        Path target = dir.resolve("tone.mp3");
+        try (Mp3Writer out = Mp3Writer.create(target, BedCache.format(RATE, 1), 64)) {
+            out.stream().write(tone(1000, 2.0, 1));
+            out.finish();
+        }
+
+        List<Integer> bitrates = frameBitrates(Files.readAllBytes(target));
+
+        assertThat(bitrates).containsOnly(64);
+        // 576 samples per MPEG-2 frame: two seconds is 84 frames, plus LAME's delay and flush
+        assertThat(bitrates.size()).isBetween(84, 90);
+        assertThat(Files.size(target)).isCloseTo(2 * 64_000 / 8, within(2_000L));
+    }
+
+    @Test
+    void finishRejectsInputEndingMidFrame() throws IOException {
+        Path target = dir.resolve("broken.mp3");
+        Mp3Writer out = Mp3Writer.create(target, BedCache.format(RATE, 2), 64);
+        out.write(tone(440, 0.1, 2), 0, 4 * 100 + 2);
+
+        assertThatThrownBy(out::finish).isInstanceOf(IOException.class).hasMessageContaining("mid-frame");
+        out.close();
+
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void closeWithoutFinishDiscardsTheFile() throws IOException {
+        Path target = dir.resolve("abandoned.mp3");
+        try (Mp3Writer out = Mp3Writer.create(target, BedCache.format(RATE, 2), 64)) {
+            out.write(tone(440, 1.0, 2), 0, 4 * RATE);
+            assertThat(files()).hasSize(1).allMatch(name -> name.endsWith(".part"));
+        }
+
+        assertThat(files()).isEmpty();
+    }
+
+    @Test
+    void finishReplacesAnExistingFile() throws IOException {
+        Path target = dir.resolve("narration.mp3");
+        Files.write(target, new byte[]{1, 2, 3});
+
+        try (Mp3Writer out = Mp3Writer.create(target, BedCache.format(RATE, 1), 64)) {
+            out.write(tone(440, 0.5, 1), 0, RATE);
+            assertThat(Files.readAllBytes(target)).containsExactly(1, 2, 3);
+            out.finish();
+        }
+
+        assertThat(files()).containsExactly("narration.mp3");
+        assertThat(frameBitrates(Files.readAllBytes(target))).isNotEmpty();
+    }
+
+    @Test
+    void rejectsPcmItCannotEncode() {
+        AudioFormat eightBit = new AudioFormat(RATE, 8, 1, true, false);
+        AudioFormat bigEndian = new AudioFormat(RATE, 16, 1, true, true);
+        AudioFormat surround = new AudioFormat(RATE, 16, 6, true, false);
+
+        for (AudioFormat format : new AudioFormat[]{eightBit, bigEndian, surround}) {
+            assertThatThrownBy(() -> Mp3Writer.create(dir.resolve("x.mp3"), format, 64))
+                    .as(format.toString())
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    // ---------- helpers ----------
+
+    /** A full-scale-ish sine, 16-bit little-endian, the same on every channel. */
+    static byte[] tone(double hz, double seconds, int channels) {
+        int frames = (int) Math.round(seconds * RATE);
+        short[] samples = new short[frames * channels];
+        for (int f = 0; f < frames; f++) {
+            short s = (short) Math.round(16000 * Math.sin(2 * Math.PI * hz * f / RATE));
+            for (int c = 0; c < channels; c++) samples[f * channels + c] = s;
+        }
+        byte[] pcm = new byte[samples.length * 2];
+        Pcm16.toBytes(samples, samples.length, pcm, 0);
+        return pcm;
+    }
+
+    /** Decodes through the MP3 SPI, as the JDK's AudioSystem does for the bed. */
+    private static short[] decode(Path mp3, int channels) throws Exception {
+        try (AudioInputStream encoded = AudioSystem.getAudioInputStream(mp3.toFile());
+             AudioInputStream pcm = AudioSystem.getAudioInputStream(BedCache.format(RATE, channels), encoded)) {
+            byte[] bytes = pcm.readAllBytes();
+            short[] out = new short[bytes.length / 2];
+            Pcm16.toShorts(bytes, 0, out, out.length);
+            return out;
+        }
+    }
+
+    /** Left-channel sign changes per second between frames {@code from} and {@code to}. */
+    private static double zeroCrossings(short[] samples, int channels, int from, int to) {
+        int crossings = 0;
+        for (int f = from + 1; f < to; f++) {
+            if ((samples[f * channels] >= 0) != (samples[(f - 1) * channels] >= 0)) crossings++;
+        }
+        return crossings * (double) RATE / (to - from);
+    }
+
+    private static double rms(short[] samples, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) sum += (double) samples[i] * samples[i];
+        return Math.sqrt(sum / (to - from));
+    }
+
+    /**
+     * Bitrate of every MPEG-2 layer III frame, walking header to header; fails on
+     * anything else, so a stray byte between frames shows up too.
+     */
+    private static List<Integer> frameBitrates(byte[] mp3) {
+        List<Integer> out = new ArrayList<>();
+        int pos = 0;
+        while (pos + 4 <= mp3.length) {
+            int header = ((mp3[pos] & 0xFF) << 24) | ((mp3[pos + 1] & 0xFF) << 16) | ((mp3[pos + 2] & 0xFF) << 8) | (mp3[pos + 3] & 0xFF);
+            assertThat(header >>> 21).as("frame sync at %d", pos).isEqualTo(0x7FF);
+            assertThat((header >>> 19) & 3).as("MPEG-2 at %d", pos).isEqualTo(2);
+            assertThat((header >>> 17) & 3).as("layer III at %d", pos).isEqualTo(1);
+            assertThat((header >>> 10) & 3).as("24 kHz at %d", pos).isEqualTo(1);
+            int kbps = MPEG2_KBPS[(header >>> 12) & 0xF];
+            int padding = (header >>> 9) & 1;
+            out.add(kbps);
+            pos += 72 * kbps * 1000 / RATE + padding;
+        }
+        assertThat(pos).as("file ends on a frame boundary").isEqualTo(mp3.length);
+        return out;
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.map(p -> p.getFileName().toString()).toList();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.genai.audio;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class MultiTrackMixerTest {
+
+    /** 1024-frame segments are exactly 1/8 s, so fades and speech can start on segment edges. */
+    private static final int RATE = 8192;
+    private static final int SEGMENT = MultiTrackMixer.SEGMENT_FRAMES;
+    private static final Ducking NARRATION = new Ducking(-35, 6, 40, 400);
+
+    @Test
+    void offsetsPlaceTracksOnTheTimeline() throws IOException {
+        MixTrack a = MixTrack.of("a", tone(1000, RATE, 1).cursor(false));
+        MixTrack b = MixTrack.of("b", tone(2000, RATE / 2, 1).cursor(false)).offset(0.25);
+
+        short[] out = mix(1, Ducking.OFF, 0, a, b);
+
+        assertThat(out).hasSize(RATE);
+        assertRange(out, 0, RATE / 4, 1000);
+        assertRange(out, RATE / 4, 3 * RATE / 4, 3000);
+        assertRange(out, 3 * RATE / 4, RATE, 1000);
+    }
+
+    @Test
+    void mixRunsTheTailPastTheLastTrack() throws IOException {
+        MixTrack a = MixTrack.of("a", tone(1000, RATE, 1).cursor(false)).offset(0.5);
+
+        short[] out = mix(1, Ducking.OFF, 0.25, a);
+
+        assertThat(out).hasSize(RATE / 2 + RATE + RATE / 4);
+        assertRange(out, 0, RATE / 2, 0);
+        assertRange(out, RATE / 2, 3 * RATE / 2, 1000);
+        assertRange(out, 3 * RATE / 2, out.length, 0);
+    }
+
+    @Test
+    void fadesRampEveryChannelInAndOut() throws IOException {
+        MixTrack a = MixTrack.of("a", tone(10000, RATE, 2).cursor(false)).fades(0.25, 0.5);
+
+        short[] out = mix(2, Ducking.OFF, 0, a);
+
+        assertThat(out).hasSize(2 * RATE);
+        assertThat(out[0]).isZero();
+        for (int frame : new int[]{SEGMENT / 2, SEGMENT, 3 * SEGMENT / 2}) {
+            double expected = 10000.0 * frame / (2 * SEGMENT);
+            assertThat(out[2 * frame]).as("frame %d", frame).isCloseTo((short) expected, within((short) 2));
+            assertThat(out[2 * frame + 1]).isEqualTo(out[2 * frame]);
+        }
+        assertRange(out, 2 * 2 * SEGMENT, 2 * (RATE / 2), 10000);
+        // out over the last half second, reaching zero at the end
+        int fadeOut = RATE / 2;
+        assertThat(out[2 * (RATE - fadeOut / 2)]).isCloseTo((short) 5000, within((short) 2));
+        assertThat(out[2 * (RATE - 1)]).isBetween((short) 0, (short) 10);
+    }
+
+    @Test
+    void envelopeShapesTheGainRelativeToTheTrackStart() throws IOException {
+        GainEnvelope swell = GainEnvelope.constant(0.5).then(0.25, 0.5).then(0.5, 1.0);
+        MixTrack a = MixTrack.of("a", tone(8000, RATE, 1).cursor(false)).offset(0.25).envelope(swell);
+
+        short[] out = mix(1, Ducking.OFF, 0, a);
+
+        int start = RATE / 4;
+        assertRange(out, start, start + RATE / 4, 4000);
+        assertThat(out[start + 3 * RATE / 8]).isCloseTo((short) 6000, within((short) 2));
+        assertRange(out, start + RATE / 2, start + RATE, 8000);
+    }
+
+    @Test
+    void loopingBedRepeatsUnderLongerSpeechAndFadesOutInTheTail() throws IOException {
+        int bedFrames = 3000;
+        short[] pattern = new short[bedFrames];
+        for (int i = 0; i < bedFrames; i++) pattern[i] = (short) i;
+        MixTrack speech = MixTrack.of("speech", tone(1000, RATE, 1).cursor(false)).asKey();
+        MixTrack bed = MixTrack.of("bed", bed(pattern, 1).cursor(true)).fades(0, 0.25).asDucked();
+
+        short[] out = mix(1, Ducking.OFF, 0.5, speech, bed);
+
+        assertThat(out).hasSize(RATE + RATE / 2);
+        for (int f = 0; f < RATE; f++) {
+            assertThat(out[f]).as("frame %d", f).isEqualTo((short) (1000 + f % bedFrames));
+        }
+        for (int f = RATE; f < RATE + RATE / 4; f++) {
+            assertThat(out[f]).as("frame %d", f).isEqualTo((short) (f % bedFrames));
+        }
+        // then fades over the last quarter second of the mix
+        assertThat(out[out.length - 1]).isBetween((short) 0, (short) 3);
+    }
+
+    @Test
+    void duckingAttacksUnderSpeechAndReleasesAfterIt() throws IOException {
+        // silence, one second of speech, silence; the bed sits at 8000 throughout
+        short[] speechPcm = new short[5 * RATE / 2];
+        for (int f = RATE / 2; f < 3 * RATE / 2; f++) speechPcm[f] = (short) (f % 2 == 0 ? 10000 : -10000);
+        MixTrack speech = MixTrack.of("speech", bed(speechPcm, 1).cursor(false)).asKey();
+        MixTrack music = MixTrack.of("music", tone(8000, RATE, 1).cursor(true)).asDucked();
+
+        short[] out = mix(1, NARRATION, 0, speech, music);
+        int[] level = new int[out.length];
+        for (int f = 0; f < out.length; f++) level[f] = out[f] - speechPcm[f];
+
+        int depth = (8000 * MixKernel.gainDb(-6) + (1 << 13)) >> 14;
+        assertRange(level, 0, RATE / 2, 8000);
+        // 40 ms attack: fully ducked within the first segment of speech
+        assertThat(level[RATE / 2 + SEGMENT / 2]).isBetween(depth, 8000);
+        assertRange(level, RATE / 2 + SEGMENT, 3 * RATE / 2, depth);
+        // 400 ms release: about 3.2 segments back up, rising all the way
+        int released = 3 * RATE / 2;
+        assertThat(level[released + SEGMENT]).isBetween(depth + 1000, depth + 1600);
+        for (int f = released + 1; f < released + 4 * SEGMENT; f++) {
+            assertThat(level[f]).as("frame %d", f).isGreaterThanOrEqualTo(level[f - 1]);
+        }
+        assertRange(level, released + 4 * SEGMENT, out.length, 8000);
+    }
+
+    @Test
+    void quietSpeechDoesNotDuck() throws IOException {
+        // -40 dBFS RMS, under the -35 dB threshold
+        MixTrack speech = MixTrack.of("speech", tone(328, RATE, 1).cursor(false)).asKey();
+        MixTrack music = MixTrack.of("music", tone(8000, RATE, 1).cursor(true)).asDucked();
+
+        short[] out = mix(1, NARRATION, 0, speech, music);
+
+        assertRange(out, 0, RATE, 8328);
+    }
+
+    @Test
+    void sourceOfUnknownLengthEndsTheMixWhenItRunsDry() throws IOException {
+        int speechFrames = 5000;
+        MixTrack speech = MixTrack.of("speech", unknownLength(tone(1000, speechFrames, 1))).asKey();
+        MixTrack music = MixTrack.of("music", tone(500, RATE, 1).cursor(true)).asDucked();
+        MemorySink sink = new MemorySink(1);
+
+        long frames = new MultiTrackMixer(BedCache.format(RATE, 1), Ducking.OFF, 0.5).mix(List.of(speech, music), sink);
+
+        assertThat(frames).isEqualTo(speechFrames + RATE / 2);
+        short[] out = sink.samples();
+        assertThat(out).hasSize(speechFrames + RATE / 2);
+        assertRange(out, 0, speechFrames, 1500);
+        assertRange(out, speechFrames, out.length, 500);
+    }
+
+    @Test
+    void rejectsMixesWithoutAnEnd() {
+        MixTrack music = MixTrack.of("music", tone(500, RATE, 1).cursor(true));
+
+        assertThatThrownBy(() -> mix(1, Ducking.OFF, 0, music))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Every track loops");
+    }
+
+    @Test
+    void rejectsTracksInAnotherFormat() {
+        MixTrack stereo = MixTrack.of("stereo", tone(500, RATE, 2).cursor(false));
+
+        assertThatThrownBy(() -> mix(1, Ducking.OFF, 0, stereo))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Track 'stereo'");
+    }
+
+    // ---------- helpers ----------
+
+    private static short[] mix(int channels, Ducking ducking, double tailSeconds, MixTrack... tracks) throws IOException {
+        MemorySink sink = new MemorySink(channels);
+        new MultiTrackMixer(BedCache.format(RATE, channels), ducking, tailSeconds).mix(List.of(tracks), sink);
+        return sink.samples();
+    }
+
+    private static PcmBed tone(int value, int frames, int channels) {
+        short[] samples = new short[frames * channels];
+        Arrays.fill(samples, (short) value);
+        return bed(samples, channels);
+    }
+
+    private static PcmBed bed(short[] samples, int channels) {
+        byte[] pcm = new byte[samples.length * 2];
+        Pcm16.toBytes(samples, samples.length, pcm, 0);
+        return PcmBed.of(pcm, BedCache.format(RATE, channels));
+    }
+
+    /** The same samples, but {@link SampleSource#frames()} doesn't tell how many. */
+    private static SampleSource unknownLength(PcmBed bed) {
+        SampleSource cursor = bed.cursor(false);
+        return new SampleSource() {
+            @Override
+            public AudioFormat format() {
+                return cursor.format();
+            }
+
+            @Override
+            public long frames() {
+                return -1;
+            }
+
+            @Override
+            public int read(short[] dst, int offset, int samples) throws IOException {
+                return cursor.read(dst, offset, samples);
+            }
+        };
+    }
+
+    private static void assertRange(short[] out, int from, int to, int expected) {
+        for (int i = from; i < to; i++) {
+            assertThat(out[i]).as("sample %d", i).isEqualTo((short) expected);
+        }
+    }
+
+    private static void assertRange(int[] out, int from, int to, int expected) {
+        for (int i = from; i < to; i++) {
+            assertThat(out[i]).as("frame %d", i).isEqualTo(expected);
+        }
+    }
+
+    /** Keeps the mix in memory. */
+    private static final class MemorySink implements PcmSink {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final int channels;
+
+        MemorySink(int channels) {
+            this.channels = channels;
+        }
+
+        short[] samples() {
+            byte[] pcm = bytes.toByteArray();
+            short[] out = new short[pcm.length / 2];
+            Pcm16.toShorts(pcm, 0, out, out.length);
+            return out;
+        }
+
+        @Override
+        public int sampleRate() {
+            return RATE;
+        }
+
+        @Override
+        public int channels() {
+            return channels;
+        }
+
+        @Override
+        public void write(byte[] pcm, int offset, int length) {
+            bytes.write(pcm, offset, length);
+        }
+
+        @Override
+        public OutputStream stream() {
+            return bytes;
+        }
+
+        @Override
+        public Path finish() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.genai.audio;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PcmBedTest {
+
+    @Test
+    void loopingCursorWrapsSampleExactAcrossReads() {
+        PcmBed bed = bed(1, 2, 3, 4, 5, 6);  // three stereo frames
+        PcmBed.Cursor cursor = bed.cursor(true);
+        short[] out = new short[14];
+
+        assertThat(cursor.frames()).isEqualTo(SampleSource.UNBOUNDED);
+        assertThat(cursor.read(out, 0, 4)).isEqualTo(4);
+        assertThat(cursor.read(out, 4, 10)).isEqualTo(10);
+
+        assertThat(out).containsExactly(1, 2, 3, 4, 5, 6, 1, 2, 3, 4, 5, 6, 1, 2);
+    }
+
+    @Test
+    void cursorWithoutLoopFillsSilenceAfterTheEnd() {
+        PcmBed bed = bed(1, 2, 3, 4, 5, 6);
+        PcmBed.Cursor cursor = bed.cursor(false);
+        short[] out = {9, 9, 9, 9, 9, 9, 9, 9, 9, 9};
+
+        assertThat(cursor.frames()).isEqualTo(3);
+        assertThat(cursor.read(out, 1, 8)).isEqualTo(6);
+        assertThat(out).containsExactly(9, 1, 2, 3, 4, 5, 6, 0, 0, 9);
+        assertThat(cursor.read(out, 0, 4)).isZero();
+        assertThat(out).startsWith(0, 0, 0, 0);
+    }
+
+    @Test
+    void cursorsReadIndependently() {
+        PcmBed bed = bed(1, 2, 3, 4);
+        PcmBed.Cursor a = bed.cursor(true);
+        PcmBed.Cursor b = bed.cursor(true);
+        short[] out = new short[2];
+
+        a.read(out, 0, 2);
+        b.read(out, 0, 2);
+        a.read(out, 0, 2);
+
+        assertThat(out).containsExactly(3, 4);
+        b.read(out, 0, 2);
+        assertThat(out).containsExactly(3, 4);
+    }
+
+    @Test
+    void emptyBedEndsEvenWhenLooping() {
+        PcmBed.Cursor cursor = bed().cursor(true);
+        short[] out = {7, 7};
+
+        assertThat(cursor.frames()).isZero();
+        assertThat(cursor.read(out, 0, 2)).isZero();
+        assertThat(out).containsExactly(0, 0);
+    }
+
+    private static PcmBed bed(int... samples) {
+        short[] s = new short[samples.length];
+        for (int i = 0; i < s.length; i++) s[i] = (short) samples[i];
+        byte[] pcm = new byte[s.length * 2];
+        Pcm16.toBytes(s, s.length, pcm, 0);
+        return PcmBed.of(pcm, BedCache.format(8000, 2));
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.genai.audio;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResamplerTest {
+
+    private static final int AMPLITUDE = 30000;
+
+    @Test
+    void outputLengthIsCeilOfInputTimesRatio() {
+        int[][] rates = {{24000, 44100}, {44100, 24000}, {48000, 24000}, {22050, 48000}, {16000, 24000}};
+        for (int[] r : rates) {
+            for (int frames : new int[]{0, 1, 7, 1000, 4097, 48000}) {
+                Resampler resampler = new Resampler(r[0], r[1], 2, 1024);
+                long expected = ((long) frames * r[1] + r[0] - 1) / r[0];
+                assertThat(run(resampler, new short[frames * 2], 2).length / 2)
+                        .as("%d → %d Hz, %d frames", r[0], r[1], frames)
+                        .isEqualTo(expected)
+                        .isEqualTo(resampler.outputFrames(frames));
+            }
+        }
+    }
+
+    @Test
+    void tapsGrowWithTheDecimationRatio() {
+        int up = new Resampler(24000, 44100, 1, 256).taps();
+        int down2 = new Resampler(48000, 24000, 1, 256).taps();
+        int down6 = new Resampler(96000, 16000, 1, 256).taps();
+        assertThat(up).isBetween(48, 80);
+        assertThat(down2).isGreaterThanOrEqualTo(2 * up - 4);
+        assertThat(down6).isGreaterThanOrEqualTo(5 * up);
+    }
+
+    @Test
+    void tonesAboveTheNewNyquistAreRejected() {
+        // 48 → 24 kHz: anything above 12 kHz would fold back into the audible band (12 kHz itself samples to zero)
+        for (int hz : new int[]{12_500, 13_000, 15_000, 20_000, 23_000}) {
+            assertThat(gainDb(48000, 24000, hz)).as("%d Hz", hz).isLessThan(-Resampler.STOP_BAND_DB + 5);
+        }
+        // 44.1 → 24 kHz, the narration / bed path
+        for (int hz : new int[]{12_500, 16_000, 21_000}) {
+            assertThat(gainDb(44100, 24000, hz)).as("%d Hz", hz).isLessThan(-Resampler.STOP_BAND_DB + 5);
+        }
+        // 24 → 44.1 kHz: images of the input above 12 kHz
+        assertThat(imageDb(24000, 44100, 11_000)).isLessThan(-Resampler.STOP_BAND_DB + 5);
+    }
+
+    @Test
+    void passBandIsFlat() {
+        for (int hz : new int[]{100, 1_000, 5_000, 9_000}) {
+            assertThat(gainDb(48000, 24000, hz)).as("%d Hz", hz).isBetween(-0.1, 0.1);
+            assertThat(gainDb(24000, 44100, hz)).as("%d Hz up", hz).isBetween(-0.1, 0.1);
+        }
+    }
+
+    /** Output level of a full-scale tone relative to its input level, in dB (RMS, edges skipped). */
+    private static double gainDb(int inRate, int outRate, int hz) {
+        short[] out = run(new Resampler(inRate, outRate, 1, 4096), tone(inRate, hz, inRate), 1);
+        double rms = rms(Arrays.copyOfRange(out, outRate / 10, out.length - outRate / 10));
+        return 20 * Math.log10(rms / (AMPLITUDE / Math.sqrt(2)));
+    }
+
+    /** Level of what isn't the tone itself (images, aliases, noise) after upsampling, in dB. */
+    private static double imageDb(int inRate, int outRate, int hz) {
+        short[] out = run(new Resampler(inRate, outRate, 1, 4096), tone(inRate, hz, inRate), 1);
+        int from = outRate / 10, to = out.length - outRate / 10;
+        double[] x = new double[to - from];
+        for (int i = 0; i < x.length; i++) x[i] = out[from + i];
+        // least-squares fit of the tone, then measure the residual
+        double ss = 0, sc = 0, cc = 0, xs = 0, xc = 0;
+        for (int i = 0; i < x.length; i++) {
+            double a = 2 * Math.PI * hz * (from + i) / outRate;
+            double s = Math.sin(a), c = Math.cos(a);
+            ss += s * s; sc += s * c; cc += c * c; xs += x[i] * s; xc += x[i] * c;
+        }
+        double det = ss * cc - sc * sc;
+        double bs = (xs * cc - xc * sc) / det, bc = (xc * ss - xs * sc) / det;
+        double residual = 0;
+        for (int i = 0; i < x.length; i++) {
+            double a = 2 * Math.PI * hz * (from + i) / outRate;
+            double e = x[i] - bs * Math.sin(a) - bc * Math.cos(a);
+            residual += e * e;
+        }
+        return 20 * Math.log10(Math.sqrt(residual / x.length) / (AMPLITUDE / Math.sqrt(2)));
+    }
+
+    private static short[] tone(int rate, int hz, int frames) {
+        short[] s = new short[frames];
+        for (int i = 0; i < frames; i++) {
+            s[i] = (short) Math.round(AMPLITUDE * Math.sin(2 * Math.PI * hz * i / rate));
+        }
+        return s;
+    }
+
+    /** Feeds {@code in} in uneven blocks and flushes; returns all output. */
+    private static short[] run(Resampler r, short[] in, int channels) {
+        int frames = in.length / channels;
+        short[] out = new short[(int) r.outputFrames(frames) * channels + r.maxOutputFrames(1024) * channels];
+        short[] block = new short[r.maxOutputFrames(1024) * channels];
+        int written = 0;
+        int[] sizes = {1024, 3, 700, 1, 513};
+        for (int f = 0, i = 0; f < frames; i++) {
+            int n = Math.min(Math.min(sizes[i % sizes.length], frames - f), 1024);
+            int got = r.process(in, f * channels, n, block, 0);
+            System.arraycopy(block, 0, out, written * channels, got * channels);
+            written += got;
+            f += n;
+        }
+        int got = r.flush(block, 0);
+        System.arraycopy(block, 0, out, written * channels, got * channels);
+        written += got;
+        return Arrays.copyOf(out, written * channels);
+    }
+
+    private static double rms(short[] s) {
+        double sum = 0;
+        for (short v : s) sum += (double) v * v;
+        return Math.sqrt(sum / Math.max(1, s.length));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.genai.audio;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class WavWriterTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void finishPatchesSizesAndMovesIntoPlace() throws Exception {
+        Path target = dir.resolve("out.wav");
+        try (WavWriter wav = WavWriter.create(target, 24000, 1, 16)) {
+            wav.write(new byte[1000], 0, 1000);
+            wav.finish();
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(target)).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(header.capacity()).isEqualTo(WavWriter.HEADER_BYTES + 1000);
+        assertThat(header.getInt(4)).isEqualTo(36 + 1000);
+        assertThat(header.getInt(40)).isEqualTo(1000);
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files).containsExactly(target);
+        }
+    }
+
+    @Test
+    void fileGetsTheSamePermissionsAsADirectWrite() throws Exception {
+        assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        Path direct = Files.write(dir.resolve("direct.bin"), new byte[1]);
+
+        Path target = dir.resolve("out.wav");
+        try (WavWriter wav = WavWriter.create(target, 24000, 1, 16)) {
+            wav.finish();
+        }
+
+        assertThat(Files.getPosixFilePermissions(target)).isEqualTo(Files.getPosixFilePermissions(direct));
+    }
+
+    @Test
+    void closeWithoutFinishLeavesNothing() throws Exception {
+        try (WavWriter wav = WavWriter.create(dir.resolve("out.wav"), 24000, 1, 16)) {
+            wav.write(new byte[10], 0, 10);
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
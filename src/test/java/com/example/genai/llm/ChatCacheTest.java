@@ -0,0 +1,160 @@
+package com.example.genai.llm;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChatCacheTest {
+
+    private final OpenAIClient openAI = mock(OpenAIClient.class);
+    private final EmbeddingClient embeddings = mock(EmbeddingClient.class);
+    private final MutableClock clock = new MutableClock();
+
+    @BeforeEach
+    void setUp() {
+        when(openAI.chatModel()).thenReturn("gpt-test");
+        when(openAI.chatOnce(anyString(), anyList())).thenAnswer(inv -> {
+            List<Map<String, String>> messages = inv.getArgument(1);
+            return Mono.just(new LLMResult("answer to " + messages.get(0).get("content"), 40, 60));
+        });
+    }
+
+    @Test
+    void normalizedRepeatIsAnExactHit() {
+        ChatCache cache = cache(100, false);
+
+        assertThat(ask(cache, "Guide", "Best  time to visit\tParis?")).isEqualTo("answer to Best  time to visit\tParis?");
+        assertThat(ask(cache, "guide ", " best time to visit paris?")).isEqualTo("answer to Best  time to visit\tParis?");
+
+        verify(openAI, times(1)).chatOnce(anyString(), anyList());
+        ChatCache.ChatCacheStats stats = cache.stats();
+        assertThat(stats.exactHits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.tokensSaved()).isEqualTo(100);
+    }
+
+    @Test
+    void otherSystemPromptIsAMiss() {
+        ChatCache cache = cache(100, false);
+        ask(cache, "Guide", "Paris?");
+        ask(cache, "Poet", "Paris?");
+
+        verify(openAI, times(2)).chatOnce(anyString(), anyList());
+        assertThat(cache.stats().exactHits()).isZero();
+    }
+
+    @Test
+    void entriesExpireAfterTheTtl() {
+        ChatCache cache = cache(100, false);
+        ask(cache, "Guide", "Paris?");
+
+        clock.advance(Duration.ofMinutes(59));
+        ask(cache, "Guide", "Paris?");
+        verify(openAI, times(1)).chatOnce(anyString(), anyList());
+
+        clock.advance(Duration.ofMinutes(2));
+        ask(cache, "Guide", "Paris?");
+        verify(openAI, times(2)).chatOnce(anyString(), anyList());
+        assertThat(cache.stats().expired()).isEqualTo(1);
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvictedPastMaxEntries() {
+        ChatCache cache = cache(2, false);
+        ask(cache, "Guide", "a");
+        ask(cache, "Guide", "b");
+        ask(cache, "Guide", "a");  // b is now the oldest
+        ask(cache, "Guide", "c");
+        assertThat(cache.stats().entries()).isEqualTo(2);
+
+        ask(cache, "Guide", "a");
+        verify(openAI, times(1)).chatOnce(anyString(), eq(List.of(Map.of("role", "user", "content", "a"))));
+        ask(cache, "Guide", "b");
+        verify(openAI, times(2)).chatOnce(anyString(), eq(List.of(Map.of("role", "user", "content", "b"))));
+    }
+
+    @Test
+    void concurrentQuestionSharesThePendingAnswer() {
+        doReturn(Mono.delay(Duration.ofMillis(50)).thenReturn(new LLMResult("slow", 1, 1)))
+                .when(openAI).chatOnce(anyString(), anyList());
+        ChatCache cache = cache(100, false);
+
+        var both = Mono.zip(cache.chat("Guide", "Paris?"), cache.chat("Guide", "paris?")).block(Duration.ofSeconds(5));
+
+        assertThat(both.getT1().getContent()).isEqualTo("slow");
+        assertThat(both.getT2()).isSameAs(both.getT1());
+        verify(openAI, times(1)).chatOnce(anyString(), anyList());
+        assertThat(cache.stats().inFlightHits()).isEqualTo(1);
+    }
+
+    @Test
+    void emptyAnswersAreNotCached() {
+        doReturn(Mono.just(new LLMResult(" ", 1, 0))).when(openAI).chatOnce(anyString(), anyList());
+        ChatCache cache = cache(100, false);
+        ask(cache, "Guide", "Paris?");
+        ask(cache, "Guide", "Paris?");
+
+        verify(openAI, times(2)).chatOnce(anyString(), anyList());
+        assertThat(cache.stats().entries()).isZero();
+    }
+
+    @Test
+    void similarPromptIsASemanticHitOnlyAboveTheThreshold() {
+        when(embeddings.embed("best time to visit paris?")).thenReturn(Mono.just(new float[]{1f, 0f, 0f}));
+        when(embeddings.embed("when should i visit paris?")).thenReturn(Mono.just(new float[]{0.99f, 0.1f, 0f}));
+        when(embeddings.embed("where to eat in rome?")).thenReturn(Mono.just(new float[]{0f, 1f, 0f}));
+        ChatCache cache = cache(100, true);
+
+        ask(cache, "Guide", "Best time to visit Paris?");
+        assertThat(ask(cache, "Guide", "When should I visit Paris?")).isEqualTo("answer to Best time to visit Paris?");
+        assertThat(ask(cache, "Guide", "Where to eat in Rome?")).isEqualTo("answer to Where to eat in Rome?");
+        // same wording under another system prompt never borrows an answer
+        assertThat(ask(cache, "Poet", "When should I visit Paris?")).isEqualTo("answer to When should I visit Paris?");
+
+        assertThat(cache.stats().semanticHits()).isEqualTo(1);
+        verify(openAI, times(3)).chatOnce(anyString(), anyList());
+    }
+
+    private ChatCache cache(int maxEntries, boolean semantic) {
+        return new ChatCache(openAI, embeddings, maxEntries, 60, semantic, 0.95, clock);
+    }
+
+    private static String ask(ChatCache cache, String system, String prompt) {
+        return cache.chat(system, prompt).block(Duration.ofSeconds(5)).getContent();
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-03-01T10:00:00Z");
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.genai.llm;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void neverMoreThanThePermitsInFlight() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(3);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        Long total = Flux.range(0, 20)
+                .flatMap(i -> limiter.limit(Flux.defer(() -> {
+                            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                            return Flux.just(1L, 2L).delayElements(Duration.ofMillis(5));
+                        })
+                        .doOnTerminate(inFlight::decrementAndGet)))
+                .count()
+                .block(Duration.ofSeconds(10));
+
+        assertThat(total).isEqualTo(40);
+        assertThat(peak).hasValue(3);
+        assertThat(limiter.inUse()).isZero();
+        assertThat(limiter.waiting()).isZero();
+    }
+
+    @Test
+    void cancelledRequestsGiveBackTheirPlace() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+        Sinks.Empty<Void> first = Sinks.empty();
+        AtomicInteger started = new AtomicInteger();
+
+        Disposable holding = limiter.limit(first.asMono().flux().doOnSubscribe(s -> started.incrementAndGet())).subscribe();
+        Disposable waitingThenCancelled = limiter.limit(Flux.<Void>empty().doOnSubscribe(s -> started.incrementAndGet()))
+                .subscribe();
+        assertThat(started).hasValue(1);
+        assertThat(limiter.waiting()).isEqualTo(1);
+
+        waitingThenCancelled.dispose();
+        assertThat(limiter.waiting()).isZero();
+        assertThat(started).hasValue(1);
+
+        holding.dispose();
+        assertThat(limiter.inUse()).isZero();
+        assertThat(limiter.limit(Flux.just("next")).blockLast(Duration.ofSeconds(1))).isEqualTo("next");
+    }
+
+    @Test
+    void failedRequestReleasesItsPermit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1);
+
+        limiter.limit(Flux.error(new IllegalStateException("boom"))).onErrorResume(e -> Flux.empty()).blockLast();
+
+        assertThat(limiter.inUse()).isZero();
+        assertThat(limiter.limit(Flux.just(1)).blockLast(Duration.ofSeconds(1))).isEqualTo(1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.genai.llm;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class EmbeddingClientTest {
+
+    private final OpenAIClient openAI = mock(OpenAIClient.class);
+    private EmbeddingClient client;
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) client.shutdown();
+    }
+
+    @Test
+    void batchesWaitWhileEverySendSlotIsBusy() {
+        // one slow request at a time, batches of 2: the rest has to queue up behind it
+        when(openAI.embedModel()).thenReturn("m");
+        when(openAI.embed(anyList())).thenAnswer(inv -> {
+            List<String> texts = inv.getArgument(0);
+            return Mono.delay(Duration.ofMillis(20)).thenReturn(result(texts));
+        });
+        client = new EmbeddingClient(openAI, 2, 1, 1, 100);
+
+        List<String> texts = IntStream.range(0, 40).mapToObj(i -> "text " + i).toList();
+        List<float[]> vectors = client.embedAll(texts).block(Duration.ofSeconds(10));
+
+        assertThat(vectors).hasSize(40);
+        for (int i = 0; i < 40; i++) {
+            assertThat(vectors.get(i)[0]).isEqualTo(i);
+        }
+        // and the dispatcher still serves later calls
+        assertThat(client.embed("text 41").block(Duration.ofSeconds(5))[0]).isEqualTo(41);
+    }
+
+    @Test
+    void repeatedTextIsSentOnce() {
+        when(openAI.embedModel()).thenReturn("m");
+        when(openAI.embed(anyList())).thenAnswer(inv -> Mono.just(result(inv.getArgument(0))));
+        client = new EmbeddingClient(openAI, 8, 5, 2, 100);
+
+        List<float[]> first = client.embedAll(List.of("text 1", "text 1", "text 2")).block(Duration.ofSeconds(5));
+        float[] again = client.embed("text 1").block(Duration.ofSeconds(5));
+
+        assertThat(first).hasSize(3);
+        assertThat(again).isSameAs(first.get(0));
+        EmbeddingClient.EmbeddingStats stats = client.stats();
+        assertThat(stats.apiTexts()).isEqualTo(2);
+        assertThat(stats.inFlightHits() + stats.cacheHits()).isEqualTo(2);
+    }
+
+    // the vector's first component is the number in the text
+    private static EmbeddingResult result(List<String> texts) {
+        List<float[]> vectors = texts.stream()
+                .map(t -> new float[]{Float.parseFloat(t.substring(t.indexOf(' ') + 1)), 1f})
+                .toList();
+        return new EmbeddingResult(vectors, texts.size());
+    }
+}
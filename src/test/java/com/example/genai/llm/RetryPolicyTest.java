@@ -0,0 +1,69 @@
+package com.example.genai.llm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetryPolicyTest {
+
+    @Test
+    void retriesOnlyRateLimitsServerErrorsAndIo() {
+        assertThat(RetryPolicy.retryable(status(HttpStatus.TOO_MANY_REQUESTS, null))).isTrue();
+        assertThat(RetryPolicy.retryable(status(HttpStatus.BAD_GATEWAY, null))).isTrue();
+        assertThat(RetryPolicy.retryable(new UncheckedIOException(new IOException("reset")))).isTrue();
+
+        assertThat(RetryPolicy.retryable(status(HttpStatus.BAD_REQUEST, null))).isFalse();
+        assertThat(RetryPolicy.retryable(status(HttpStatus.UNAUTHORIZED, null))).isFalse();
+        assertThat(RetryPolicy.retryable(status(HttpStatus.NOT_FOUND, null))).isFalse();
+        assertThat(RetryPolicy.retryable(new IllegalArgumentException("bug"))).isFalse();
+    }
+
+    @Test
+    void honorsRetryAfterSeconds() {
+        WebClientResponseException e = status(HttpStatus.TOO_MANY_REQUESTS, "7");
+
+        assertThat(RetryPolicy.retryAfter(e)).contains(Duration.ofSeconds(7));
+        assertThat(RetryPolicy.delay(e, 5, Duration.ofSeconds(2))).isEqualTo(Duration.ofSeconds(7));
+        assertThat(RetryPolicy.retryAfter(status(HttpStatus.TOO_MANY_REQUESTS, "soon"))).isEmpty();
+    }
+
+    @Test
+    void badRequestIsSentOnce() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(status(HttpStatus.BAD_REQUEST, null));
+        });
+
+        assertThatThrownBy(() -> call.retryWhen(RetryPolicy.retry(3, Duration.ofMillis(1))).block())
+                .isInstanceOf(WebClientResponseException.class);
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void serverErrorIsRetriedUpToTheLimit() {
+        AtomicInteger attempts = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> attempts.incrementAndGet() < 3
+                ? Mono.error(status(HttpStatus.SERVICE_UNAVAILABLE, "0"))
+                : Mono.just("ok"));
+
+        assertThat(call.retryWhen(RetryPolicy.retry(3, Duration.ofMillis(1))).block()).isEqualTo("ok");
+        assertThat(attempts).hasValue(3);
+    }
+
+    private static WebClientResponseException status(HttpStatus status, String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (retryAfter != null) headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        return WebClientResponseException.create(status.value(), status.getReasonPhrase(), headers, null, null);
+    }
+}
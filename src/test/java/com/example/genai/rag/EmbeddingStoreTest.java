@@ -0,0 +1,269 @@
+package com.example.genai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class EmbeddingStoreTest {
+
+    private static final int CHUNKS = 300;
+
+    @TempDir
+    Path dir;
+
+    private final Random random = new Random(31);
+    private final float[][] vectors = new float[CHUNKS][];
+
+    @Test
+    void hnswRestartKeepsGraphIdsAndTombstones() throws IOException {
+        List<List<VectorIndex.Hit>> before;
+        try (EmbeddingStore store = EmbeddingStore.open(hnsw(), dir, null)) {
+            fill(store);
+            // fewer than HnswIndex.MIN_TOMBSTONES, so they are saved rather than compacted away
+            for (int i = 0; i < 40; i += 2) store.remove("c" + i);
+            before = searches(store);
+            store.snapshot();
+        }
+        String[] ids = SnapshotFiles.readIds(current().resolve(SnapshotFiles.IDS), CHUNKS);
+        assertThat(Arrays.stream(ids).filter(id -> id == null).count()).isEqualTo(20);
+
+        try (EmbeddingStore store = EmbeddingStore.open(hnsw(), dir, null)) {
+            assertThat(store.size()).isEqualTo(CHUNKS - 20);
+            assertThat(searches(store)).isEqualTo(before);
+            assertThat(store.text("c0")).isEmpty();
+            assertThat(store.text("c1")).contains("text 1");
+            assertThat(store.search(vectors[0], 5)).extracting(VectorIndex.Hit::id).doesNotContain("c0");
+            assertThat(store.topK(vectors[1], 1).get(0).embedding()).containsExactly(vectors[1], within(1e-6f));
+        }
+    }
+
+    @Test
+    void flatRestartMatchesTheSavedStore() throws IOException {
+        List<List<VectorIndex.Hit>> before;
+        try (EmbeddingStore store = EmbeddingStore.open(new FlatIndex(), dir, null)) {
+            fill(store);
+            store.remove("c7");
+            before = searches(store);
+            store.snapshot();
+        }
+
+        try (EmbeddingStore store = EmbeddingStore.open(new FlatIndex(), dir, null)) {
+            assertThat(store.size()).isEqualTo(CHUNKS - 1);
+            assertThat(searches(store)).isEqualTo(before);
+            assertThat(store.text("c7")).isEmpty();
+        }
+    }
+
+    @Test
+    void quantizedRestartMapsTheSavedCodes() throws IOException {
+        List<List<VectorIndex.Hit>> before;
+        QuantizedIndex index = sq8();
+        try (EmbeddingStore store = EmbeddingStore.open(index, dir, null)) {
+            fill(store);
+            index.train();
+            before = searches(store);
+            store.snapshot();
+        }
+        assertThat(current().resolve("codes.bin")).exists();
+
+        try (EmbeddingStore store = EmbeddingStore.open(sq8(), dir, null)) {
+            assertThat(searches(store)).isEqualTo(before);
+        }
+    }
+
+    @Test
+    void writesAfterAWarmRestartStayOutOfTheMappedSnapshot() throws IOException {
+        try (EmbeddingStore store = EmbeddingStore.open(hnsw(), dir, null)) {
+            fill(store);
+            store.snapshot();
+        }
+        Path mapped = current();
+        byte[] saved = Files.readAllBytes(mapped.resolve(SnapshotFiles.VECTORS));
+
+        float[] replacement = HnswIndexTest.randomUnit(random);
+        try (EmbeddingStore store = EmbeddingStore.open(hnsw(), dir, null)) {
+            store.upsert(new TextChunk("c3", "moved", replacement));
+            store.upsert(new TextChunk("new", "added", HnswIndexTest.randomUnit(random)));
+            store.remove("c4");
+            assertThat(Files.readAllBytes(mapped.resolve(SnapshotFiles.VECTORS))).isEqualTo(saved);
+        }  // close() snapshots the unsaved changes
+
+        assertThat(current()).isNotEqualTo(mapped);
+        assertThat(mapped).doesNotExist();
+        try (EmbeddingStore store = EmbeddingStore.open(hnsw(), dir, null)) {
+            assertThat(store.size()).isEqualTo(CHUNKS);
+            assertThat(store.search(replacement, 1).get(0).id()).isEqualTo("c3");
+            assertThat(store.text("new")).contains("added");
+            assertThat(store.text("c4")).isEmpty();
+        }
+    }
+
+    @Test
+    void anotherIndexKindIsRebuiltFromTheSavedVectors() throws IOException {
+        try (EmbeddingStore store = EmbeddingStore.open(new FlatIndex(), dir, null)) {
+            fill(store);
+            store.snapshot();
+        }
+
+        try (EmbeddingStore store = EmbeddingStore.open(hnsw(), dir, null)) {
+            assertThat(store.size()).isEqualTo(CHUNKS);
+            assertThat(store.search(vectors[9], 1).get(0).id()).isEqualTo("c9");
+        }
+        assertThat(meta(current()).getProperty(SnapshotFiles.KEY_INDEX)).isEqualTo("hnsw");
+    }
+
+    @Test
+    void foreignByteOrderStartsEmpty() throws IOException {
+        try (EmbeddingStore store = EmbeddingStore.open(new FlatIndex(), dir, null)) {
+            fill(store);
+            store.snapshot();
+        }
+        Properties meta = meta(current());
+        meta.setProperty("byte-order", "SOMETHING_ELSE");
+        try (OutputStream out = Files.newOutputStream(current().resolve("meta.properties"))) {
+            meta.store(out, null);
+        }
+
+        try (EmbeddingStore store = EmbeddingStore.open(new FlatIndex(), dir, null)) {
+            assertThat(store.size()).isZero();
+        }
+    }
+
+    @Test
+    void truncatedVectorsStopStartup() throws IOException {
+        Path snapshot = savedHnsw();
+        truncate(snapshot.resolve(SnapshotFiles.VECTORS), 4);
+
+        assertDamaged(snapshot, "expected " + (long) CHUNKS * 32 * Float.BYTES);
+    }
+
+    @Test
+    void truncatedIdsStopStartup() throws IOException {
+        Path snapshot = savedHnsw();
+        truncate(snapshot.resolve(SnapshotFiles.IDS), 10);
+
+        assertDamaged(snapshot, "");
+    }
+
+    @Test
+    void idsForAnotherSlotCountStopStartup() throws IOException {
+        Path snapshot = savedHnsw();
+        String[] ids = SnapshotFiles.readIds(snapshot.resolve(SnapshotFiles.IDS), CHUNKS);
+        SnapshotFiles.writeIds(snapshot.resolve(SnapshotFiles.IDS), ids, CHUNKS - 1, null);
+
+        assertDamaged(snapshot, "holds " + (CHUNKS - 1) + " ids, expected " + CHUNKS);
+    }
+
+    @Test
+    void truncatedGraphStopsStartup() throws IOException {
+        Path snapshot = savedHnsw();
+        truncate(snapshot.resolve("hnsw.bin"), 100);
+
+        assertDamaged(snapshot, "");
+    }
+
+    @Test
+    void graphLinkOutOfRangeStopsStartup() throws IOException {
+        Path snapshot = savedHnsw();
+        // entry point, max level, then node 0: level count, link count, first link
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(snapshot.resolve("hnsw.bin")))) {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeByte(1);
+            out.writeShort(1);
+            out.writeInt(CHUNKS + 5);
+        }
+
+        assertDamaged(snapshot, "node 0 links to " + (CHUNKS + 5));
+    }
+
+    @Test
+    void truncatedTextsStopStartup() throws IOException {
+        Path snapshot = savedHnsw();
+        truncate(snapshot.resolve("texts.bin"), 3);
+
+        assertDamaged(snapshot, "");
+    }
+
+    // ---------- helpers ----------
+
+    private static HnswIndex hnsw() {
+        return new HnswIndex(8, 64, 32);
+    }
+
+    /** Trained explicitly by the test, never in the background. */
+    private static QuantizedIndex sq8() {
+        return new QuantizedIndex(QuantizedIndex.Method.SQ8, 1_000_000, 8, 0.9, 8);
+    }
+
+    private void fill(EmbeddingStore store) {
+        for (int i = 0; i < CHUNKS; i++) {
+            vectors[i] = HnswIndexTest.randomUnit(random);
+            store.upsert(new TextChunk("c" + i, "text " + i, vectors[i]));
+        }
+    }
+
+    private List<List<VectorIndex.Hit>> searches(EmbeddingStore store) {
+        List<List<VectorIndex.Hit>> out = new ArrayList<>();
+        for (int i = 0; i < CHUNKS; i += 10) out.add(store.search(vectors[i], 5));
+        return out;
+    }
+
+    private Path savedHnsw() throws IOException {
+        try (EmbeddingStore store = EmbeddingStore.open(hnsw(), dir, null)) {
+            fill(store);
+            store.snapshot();
+        }
+        return current();
+    }
+
+    /** Startup fails with a pointer at the snapshot, which is left as it was. */
+    private void assertDamaged(Path snapshot, String detail) throws IOException {
+        List<String> files;
+        try (var list = Files.list(snapshot)) {
+            files = list.map(p -> p.getFileName().toString()).sorted().toList();
+        }
+
+        assertThatThrownBy(() -> EmbeddingStore.open(hnsw(), dir, null))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining(snapshot + " is damaged")
+                .hasMessageContaining(detail);
+
+        assertThat(current()).isEqualTo(snapshot);
+        try (var list = Files.list(snapshot)) {
+            assertThat(list.map(p -> p.getFileName().toString()).sorted().toList()).isEqualTo(files);
+        }
+    }
+
+    private Path current() throws IOException {
+        return dir.resolve(Files.readString(dir.resolve("CURRENT")).trim());
+    }
+
+    private static Properties meta(Path snapshot) throws IOException {
+        Properties meta = new Properties();
+        try (InputStream in = Files.newInputStream(snapshot.resolve("meta.properties"))) {
+            meta.load(in);
+        }
+        return meta;
+    }
+
+    private static void truncate(Path file, int bytes) throws IOException {
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - bytes));
+    }
+}
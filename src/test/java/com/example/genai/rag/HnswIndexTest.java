@@ -0,0 +1,151 @@
+package com.example.genai.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIM = 32;
+
+    @Test
+    void recallMatchesFlatIndex() {
+        Random random = new Random(7);
+        HnswIndex hnsw = new HnswIndex(16, 100, 64);
+        FlatIndex flat = new FlatIndex();
+        for (int i = 0; i < 3000; i++) {
+            float[] v = randomUnit(random);
+            hnsw.upsert("v" + i, v);
+            flat.upsert("v" + i, v);
+        }
+
+        assertThat(recall(hnsw, flat, random, 100, 10)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void removedIdsAreNeverReturned() {
+        Random random = new Random(11);
+        HnswIndex hnsw = new HnswIndex(8, 64, 32);
+        float[][] vectors = new float[200][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomUnit(random);
+            hnsw.upsert("v" + i, vectors[i]);
+        }
+        for (int i = 0; i < vectors.length; i += 2) {
+            assertThat(hnsw.remove("v" + i)).isTrue();
+        }
+        assertThat(hnsw.remove("v0")).isFalse();
+
+        assertThat(hnsw.size()).isEqualTo(100);
+        assertThat(hnsw.vector("v0")).isNull();
+        for (int i = 0; i < vectors.length; i += 2) {
+            // its own vector as the query: the exact match is gone, the rest must be live
+            List<VectorIndex.Hit> hits = hnsw.search(vectors[i], 10);
+            assertThat(hits).hasSize(10);
+            assertThat(hits).allSatisfy(h -> assertThat(Integer.parseInt(h.id().substring(1)) % 2).isOne());
+        }
+    }
+
+    @Test
+    void upsertReplacesTheVector() {
+        Random random = new Random(13);
+        HnswIndex hnsw = new HnswIndex(8, 64, 32);
+        for (int i = 0; i < 300; i++) {
+            hnsw.upsert("v" + i, randomUnit(random));
+        }
+        float[] before = hnsw.vector("v5");
+        float[] after = randomUnit(random);
+
+        hnsw.upsert("v5", after);
+
+        assertThat(hnsw.size()).isEqualTo(300);
+        assertThat(hnsw.vector("v5")).containsExactly(after);
+        assertThat(hnsw.search(after, 1).get(0).id()).isEqualTo("v5");
+        assertThat(hnsw.search(after, 1).get(0).score()).isCloseTo(1f, org.assertj.core.data.Offset.offset(1e-5f));
+        assertThat(hnsw.search(before, 5)).extracting(VectorIndex.Hit::id)
+                .allSatisfy(id -> assertThat(id).isNotEqualTo("v5"));
+    }
+
+    @Test
+    void churnIsCompactedAndKeepsFullResults() {
+        Random random = new Random(17);
+        HnswIndex hnsw = new HnswIndex(8, 64, 32);
+        FlatIndex flat = new FlatIndex();
+        int live = 400;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < live; i++) {
+                float[] v = randomUnit(random);
+                hnsw.upsert("v" + i, v);
+                flat.upsert("v" + i, v);
+            }
+        }
+
+        assertThat(hnsw.size()).isEqualTo(live);
+        // 4000 upserts of 400 ids: tombstones are reclaimed instead of piling up
+        assertThat(hnsw.nodes()).isLessThan((int) (live / (1 - HnswIndex.COMPACT_RATIO)) + HnswIndex.MIN_TOMBSTONES);
+        for (int q = 0; q < 50; q++) {
+            assertThat(hnsw.search(randomUnit(random), 20)).hasSize(20);
+        }
+        assertThat(recall(hnsw, flat, random, 50, 10)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void tombstonesDoNotCrowdOutResults() {
+        Random random = new Random(19);
+        // no compaction below MIN_TOMBSTONES: every removed node stays in the graph
+        HnswIndex hnsw = new HnswIndex(8, 64, 16);
+        float[] centre = randomUnit(random);
+        for (int i = 0; i < HnswIndex.MIN_TOMBSTONES - 1; i++) {
+            hnsw.upsert("near" + i, near(centre, random));
+        }
+        for (int i = 0; i < 200; i++) {
+            hnsw.upsert("far" + i, randomUnit(random));
+        }
+        for (int i = 0; i < HnswIndex.MIN_TOMBSTONES - 1; i++) {
+            hnsw.remove("near" + i);
+        }
+        assertThat(hnsw.nodes()).isEqualTo(200 + HnswIndex.MIN_TOMBSTONES - 1);
+
+        // the 63 closest nodes are tombstones, far more than efSearch
+        assertThat(hnsw.search(centre, 10)).hasSize(10)
+                .allSatisfy(h -> assertThat(h.id()).startsWith("far"));
+    }
+
+    private static double recall(VectorIndex approx, VectorIndex exact, Random random, int queries, int k) {
+        int found = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnit(random);
+            Set<String> truth = new HashSet<>();
+            exact.search(query, k).forEach(h -> truth.add(h.id()));
+            for (VectorIndex.Hit h : approx.search(query, k)) {
+                if (truth.contains(h.id())) found++;
+            }
+        }
+        return (double) found / (queries * k);
+    }
+
+    static float[] randomUnit(Random random) {
+        float[] v = new float[DIM];
+        for (int i = 0; i < DIM; i++) v[i] = (float) random.nextGaussian();
+        return normalize(v);
+    }
+
+    private static float[] near(float[] centre, Random random) {
+        float[] v = centre.clone();
+        for (int i = 0; i < DIM; i++) v[i] += (float) (random.nextGaussian() * 0.05);
+        return normalize(v);
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = 0;
+        for (float x : v) norm += x * x;
+        float inv = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < v.length; i++) v[i] *= inv;
+        return v;
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.genai.rag;
+
+import com.example.genai.util.Cosine;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QuantizedIndexTest {
+
+    private static final int DIM = 64;
+    private static final int VECTORS = 2000;
+    /** Large enough that training never starts on its own; the tests call {@link QuantizedIndex#train()}. */
+    private static final int NO_AUTO_TRAIN = 1_000_000;
+
+    @Test
+    void sq8ScoresStayWithinHalfAStepPerDimension() {
+        Random random = new Random(3);
+        float[][] vectors = clustered(random, 500);
+        ScalarQuantizer sq = ScalarQuantizer.train(vectors);
+        assertThat(sq.codeBytes()).isEqualTo(DIM);
+
+        float[] query = clustered(random, 1)[0];
+        Quantizer.Scorer scorer = sq.prepare(query);
+        // a level is range/255 wide, so rounding moves each term by at most |q|·step/2
+        float bound = 0f;
+        for (int i = 0; i < DIM; i++) bound += Math.abs(query[i]) * range(vectors, i) / 255f / 2;
+        for (float[] v : vectors) {
+            assertThat(scorer.score(encode(sq, v), 0))
+                    .isCloseTo(Cosine.dot(query, v), within(bound + 1e-5f));
+        }
+    }
+
+    @Test
+    void pqScoresApproximateTheDotProduct() {
+        Random random = new Random(5);
+        float[][] vectors = clustered(random, 1000);
+        ProductQuantizer pq = ProductQuantizer.train(vectors, 8, 7);
+        assertThat(pq.codeBytes()).isEqualTo(DIM / 8);
+
+        float[] query = clustered(random, 1)[0];
+        Quantizer.Scorer scorer = pq.prepare(query);
+        double error = 0;
+        for (float[] v : vectors) error += Math.abs(scorer.score(encode(pq, v), 0) - Cosine.dot(query, v));
+
+        assertThat(error / vectors.length).isLessThan(0.05);
+    }
+
+    @Test
+    void quantizersSurviveAWriteReadRoundTrip() throws IOException {
+        Random random = new Random(9);
+        float[][] vectors = clustered(random, 300);
+        float[] query = clustered(random, 1)[0];
+
+        ScalarQuantizer sq = ScalarQuantizer.train(vectors);
+        ScalarQuantizer sqRead = ScalarQuantizer.read(roundTrip(sq));
+        ProductQuantizer pq = ProductQuantizer.train(vectors, 8, 7);
+        ProductQuantizer pqRead = ProductQuantizer.read(roundTrip(pq));
+
+        for (float[] v : vectors) {
+            assertThat(encode(sqRead, v)).isEqualTo(encode(sq, v));
+            assertThat(sqRead.prepare(query).score(encode(sq, v), 0)).isEqualTo(sq.prepare(query).score(encode(sq, v), 0));
+            assertThat(encode(pqRead, v)).isEqualTo(encode(pq, v));
+            assertThat(pqRead.prepare(query).score(encode(pq, v), 0)).isEqualTo(pq.prepare(query).score(encode(pq, v), 0));
+        }
+    }
+
+    @Test
+    void sq8RecallAfterRerankMeetsTheFloor() {
+        assertThat(recallAgainstFlat(QuantizedIndex.Method.SQ8)).isGreaterThanOrEqualTo(0.95);
+    }
+
+    @Test
+    void pqRecallAfterRerankMeetsTheFloor() {
+        assertThat(recallAgainstFlat(QuantizedIndex.Method.PQ)).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void reportDescribesTheTrainedCodes() {
+        Random random = new Random(13);
+        QuantizedIndex pq = new QuantizedIndex(QuantizedIndex.Method.PQ, NO_AUTO_TRAIN, 8, 0.9, 16);
+        fill(pq, null, clustered(random, VECTORS));
+
+        QuantizationReport report = pq.train();
+
+        assertThat(pq.report()).contains(report);
+        assertThat(report.method()).isEqualTo("pq");
+        assertThat(report.vectors()).isEqualTo(VECTORS);
+        assertThat(report.bytesPerVector()).isEqualTo(DIM / 8);
+        assertThat(report.compression()).isEqualTo(DIM * 4.0 / (DIM / 8));
+        assertThat(report.rerankFactor()).isIn(1, 2, 4, 8, 16);
+        assertThat(report.meetsTarget()).isEqualTo(report.recallAt10() >= 0.9);
+        assertThat(report.sampleQueries()).isEqualTo(100);
+        assertThat(report.summary()).startsWith("pq over 2000 vectors: 8 B/vector (32.0x smaller)");
+    }
+
+    @Test
+    void unreachableTargetStopsAtTheMaximumRerankFactor() {
+        Random random = new Random(17);
+        QuantizedIndex sq = new QuantizedIndex(QuantizedIndex.Method.SQ8, NO_AUTO_TRAIN, 8, 1.01, 4);
+        fill(sq, null, clustered(random, 500));
+
+        QuantizationReport report = sq.train();
+
+        assertThat(report.rerankFactor()).isEqualTo(4);
+        assertThat(report.meetsTarget()).isFalse();
+        assertThat(report.summary()).contains("NOT met");
+    }
+
+    @Test
+    void codesFollowUpsertsAndRemovesAfterTraining() {
+        Random random = new Random(19);
+        float[][] vectors = clustered(random, 600);
+        QuantizedIndex sq = new QuantizedIndex(QuantizedIndex.Method.SQ8, NO_AUTO_TRAIN, 8, 0.9, 8);
+        fill(sq, null, vectors);
+        sq.train();
+
+        // removes swap the last code into the hole; every survivor must still find itself
+        for (int i = 0; i < vectors.length; i += 3) assertThat(sq.remove("v" + i)).isTrue();
+        for (int i = 1; i < vectors.length; i += 3) {
+            assertThat(sq.search(vectors[i], 1).get(0).id()).isEqualTo("v" + i);
+        }
+        assertThat(sq.search(vectors[0], 10)).extracting(VectorIndex.Hit::id).doesNotContain("v0");
+
+        float[] moved = vectors[4];
+        sq.upsert("v1", moved);
+        assertThat(sq.search(moved, 2)).extracting(VectorIndex.Hit::id).containsExactlyInAnyOrder("v1", "v4");
+    }
+
+    @Test
+    void searchIsExactUntilTrained() {
+        Random random = new Random(23);
+        float[][] vectors = clustered(random, 300);
+        QuantizedIndex sq = new QuantizedIndex(QuantizedIndex.Method.SQ8, NO_AUTO_TRAIN, 8, 0.9, 8);
+        FlatIndex flat = new FlatIndex();
+        fill(sq, flat, vectors);
+
+        float[] query = clustered(random, 1)[0];
+        assertThat(sq.report()).isEmpty();
+        assertThat(sq.search(query, 10)).isEqualTo(flat.search(query, 10));
+    }
+
+    /** Mean recall@10 of the trained index against an exact scan on fresh in-distribution queries. */
+    private static double recallAgainstFlat(QuantizedIndex.Method method) {
+        Random random = new Random(29);
+        QuantizedIndex index = new QuantizedIndex(method, NO_AUTO_TRAIN, 8, 0.9, 16);
+        FlatIndex flat = new FlatIndex();
+        fill(index, flat, clustered(random, VECTORS));
+        index.train();
+
+        int found = 0, queries = 50;
+        for (float[] query : clustered(random, queries)) {
+            Set<String> exact = new HashSet<>();
+            for (VectorIndex.Hit hit : flat.search(query, 10)) exact.add(hit.id());
+            List<VectorIndex.Hit> hits = index.search(query, 10);
+            for (VectorIndex.Hit hit : hits) {
+                if (exact.contains(hit.id())) found++;
+            }
+        }
+        return found / (10.0 * queries);
+    }
+
+    private static void fill(QuantizedIndex index, FlatIndex flat, float[][] vectors) {
+        for (int i = 0; i < vectors.length; i++) {
+            index.upsert("v" + i, vectors[i]);
+            if (flat != null) flat.upsert("v" + i, vectors[i]);
+        }
+    }
+
+    /** Embedding-like data: unit vectors scattered around a few dozen topics. */
+    private static float[][] clustered(Random random, int count) {
+        Random topics = new Random(1);  // same topics for every call
+        float[][] centres = new float[40][];
+        for (int c = 0; c < centres.length; c++) {
+            centres[c] = new float[DIM];
+            for (int d = 0; d < DIM; d++) centres[c][d] = (float) topics.nextGaussian();
+            centres[c] = Cosine.normalize(centres[c]);
+        }
+        float[][] out = new float[count][];
+        for (int i = 0; i < count; i++) {
+            float[] v = centres[random.nextInt(centres.length)].clone();
+            for (int d = 0; d < DIM; d++) v[d] += (float) (random.nextGaussian() * 0.1);
+            out[i] = Cosine.normalize(v);
+        }
+        return out;
+    }
+
+    private static float range(float[][] vectors, int dimension) {
+        float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
+        for (float[] v : vectors) {
+            min = Math.min(min, v[dimension]);
+            max = Math.max(max, v[dimension]);
+        }
+        return max - min;
+    }
+
+    private static ByteBuffer encode(Quantizer quantizer, float[] v) {
+        byte[] code = new byte[quantizer.codeBytes()];
+        quantizer.encode(v, code);
+        return ByteBuffer.wrap(code);
+    }
+
+    private static DataInputStream roundTrip(Quantizer quantizer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            quantizer.write(out);
+        }
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
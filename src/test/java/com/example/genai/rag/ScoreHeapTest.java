@@ -0,0 +1,89 @@
+package com.example.genai.rag;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScoreHeapTest {
+
+    @Test
+    void boundedMinHeapKeepsTheTopK() {
+        Random random = new Random(5);
+        float[] scores = new float[1000];
+        for (int i = 0; i < scores.length; i++) scores[i] = random.nextFloat();
+
+        ScoreHeap top = ScoreHeap.min(10);
+        for (int i = 0; i < scores.length; i++) top.offerBounded(scores[i], i, 10);
+        float[] best = new float[10];
+        int[] ids = top.drainBestFirst(best);
+
+        int[] expected = IntStream.range(0, scores.length).boxed()
+                .sorted(Comparator.comparingDouble(i -> -scores[i]))
+                .limit(10).mapToInt(Integer::intValue).toArray();
+        assertThat(ids).containsExactly(expected);
+        for (int i = 0; i < ids.length; i++) assertThat(best[i]).isEqualTo(scores[ids[i]]);
+        assertThat(top.isEmpty()).isTrue();
+    }
+
+    @Test
+    void maxHeapPopsBestFirstAndGrowsPastItsCapacity() {
+        ScoreHeap heap = ScoreHeap.max(2);
+        float[] scores = {0.3f, 0.9f, -0.5f, 0.1f, 0.7f, 0.9f, 0.0f};
+        for (int i = 0; i < scores.length; i++) heap.push(scores[i], i);
+        assertThat(heap.size()).isEqualTo(scores.length);
+        assertThat(heap.topScore()).isEqualTo(0.9f);
+
+        float[] popped = new float[scores.length];
+        for (int i = 0; i < popped.length; i++) {
+            popped[i] = heap.topScore();
+            heap.pop();
+        }
+        float[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        for (int i = 0; i < sorted.length; i++) assertThat(popped[i]).isEqualTo(sorted[sorted.length - 1 - i]);
+    }
+
+    @Test
+    void minHeapTopIsTheWorstAndDrainsBestFirst() {
+        ScoreHeap heap = ScoreHeap.min(4);
+        heap.push(0.5f, 1);
+        heap.push(0.2f, 2);
+        heap.push(0.8f, 3);
+        assertThat(heap.topId()).isEqualTo(2);
+
+        // a score no better than the current worst is dropped
+        heap.offerBounded(0.1f, 4, 3);
+        assertThat(heap.topId()).isEqualTo(2);
+        heap.offerBounded(0.6f, 5, 3);
+        assertThat(heap.topId()).isEqualTo(1);
+
+        float[] best = new float[3];
+        assertThat(heap.drainBestFirst(best)).containsExactly(3, 5, 1);
+        assertThat(best).containsExactly(0.8f, 0.6f, 0.5f);
+    }
+
+    @Test
+    void maxHeapDrainsBestFirstToo() {
+        ScoreHeap heap = ScoreHeap.max(4);
+        heap.push(0.5f, 1);
+        heap.push(0.2f, 2);
+        heap.push(0.8f, 3);
+
+        assertThat(heap.drainBestFirst(null)).containsExactly(3, 1, 2);
+    }
+
+    @Test
+    void clearEmptiesTheHeap() {
+        ScoreHeap heap = ScoreHeap.min(4);
+        heap.push(1f, 1);
+        heap.clear();
+        assertThat(heap.isEmpty()).isTrue();
+        heap.push(2f, 2);
+        assertThat(heap.topId()).isEqualTo(2);
+    }
+}
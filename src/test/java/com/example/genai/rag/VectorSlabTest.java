@@ -0,0 +1,154 @@
+package com.example.genai.rag;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class VectorSlabTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesAndOverwritesVectors() {
+        VectorSlab slab = new VectorSlab(3);
+        int a = slab.append(new float[]{1, 2, 3});
+        int b = slab.append(new float[]{4, 5, 6});
+        slab.set(a, new float[]{7, 8, 9});
+
+        assertThat(slab.size()).isEqualTo(2);
+        assertThat(slab.get(a)).containsExactly(7, 8, 9);
+        assertThat(slab.get(b)).containsExactly(4, 5, 6);
+        assertThat(slab.dot(a, new float[]{1, 0, 1})).isEqualTo(16f);
+        assertThat(slab.dot(a, b)).isEqualTo(7 * 4 + 8 * 5 + 9 * 6f);
+        assertThatThrownBy(() -> slab.append(new float[2])).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void swapDeleteMovesTheLastRecordIntoTheHole() {
+        RecordSlab slab = new RecordSlab(2);
+        for (int i = 0; i < 5; i++) slab.append(new byte[]{(byte) i, (byte) -i});
+
+        slab.copy(4, 1);
+        slab.removeLast();
+        int reused = slab.append(new byte[]{9, 9});
+
+        assertThat(slab.size()).isEqualTo(5);
+        assertThat(reused).isEqualTo(4);
+        assertThat(record(slab, 1)).containsExactly(4, -4);
+        assertThat(record(slab, 4)).containsExactly(9, 9);
+    }
+
+    @Test
+    void flatIndexKeepsIdsAndVectorsPairedThroughSwapDeletes() {
+        Random random = new Random(3);
+        FlatIndex index = new FlatIndex();
+        float[][] vectors = new float[100][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = HnswIndexTest.randomUnit(random);
+            index.upsert("v" + i, vectors[i]);
+        }
+
+        // removing the front repeatedly moves a different last slot each time
+        for (int i = 0; i < vectors.length; i += 2) assertThat(index.remove("v" + i)).isTrue();
+        assertThat(index.remove("v0")).isFalse();
+
+        assertThat(index.size()).isEqualTo(50);
+        for (int i = 1; i < vectors.length; i += 2) {
+            assertThat(index.vector("v" + i)).containsExactly(vectors[i]);
+            assertThat(index.search(vectors[i], 1).get(0).id()).isEqualTo("v" + i);
+        }
+        assertThat(index.vector("v0")).isNull();
+    }
+
+    @Test
+    void dotManyMatchesSingleDotsAcrossSegmentBoundaries() {
+        // 4 MB vectors: 16 per 64 MB segment, so 20 of them span two segments
+        int dimension = 1 << 20;
+        VectorSlab slab = new VectorSlab(dimension);
+        for (int slot = 0; slot < 20; slot++) {
+            float[] v = new float[dimension];
+            for (int i = slot; i < dimension; i += 4096) v[i] = slot + 1;
+            slab.append(v);
+        }
+        assertThat(slab.remainingInSegment(10)).isEqualTo(6);
+        float[] query = new float[dimension];
+        for (int i = 0; i < dimension; i += 7) query[i] = 1f;
+
+        float[] out = new float[15];
+        slab.dotMany(5, 15, query, out);
+
+        for (int j = 0; j < out.length; j++) {
+            assertThat(out[j]).as("slot %d", 5 + j).isCloseTo(slab.dot(5 + j, query), within(1e-3f));
+        }
+    }
+
+    @Test
+    void mappedSnapshotReadsBackAndKeepsWritesPrivate() throws IOException {
+        // 4 MB vectors: the first 16 fill a segment that is mapped PRIVATE, the 17th is a copied tail
+        int dimension = 1 << 20;
+        VectorSlab slab = new VectorSlab(dimension);
+        for (int slot = 0; slot < 17; slot++) slab.append(marked(dimension, slot));
+        Path file = dir.resolve("vectors.f32");
+        slab.writeTo(file);
+        assertThat(Files.size(file)).isEqualTo(17L * dimension * Float.BYTES);
+        byte[] head = head(file);
+
+        VectorSlab mapped = VectorSlab.map(file, dimension, 17);
+        for (int slot = 0; slot < 17; slot++) assertThat(mapped.get(slot)).isEqualTo(marked(dimension, slot));
+
+        // copy-on-write: changes and appends after mapping never reach the file
+        mapped.set(0, marked(dimension, 99));
+        mapped.set(16, marked(dimension, 98));
+        int appended = mapped.append(marked(dimension, 97));
+        assertThat(appended).isEqualTo(17);
+        assertThat(mapped.get(0)).isEqualTo(marked(dimension, 99));
+        assertThat(mapped.get(16)).isEqualTo(marked(dimension, 98));
+        assertThat(mapped.get(appended)).isEqualTo(marked(dimension, 97));
+        assertThat(Files.size(file)).isEqualTo(17L * dimension * Float.BYTES);
+        assertThat(head(file)).isEqualTo(head);
+        assertThat(VectorSlab.map(file, dimension, 17).get(16)).isEqualTo(marked(dimension, 16));
+    }
+
+    @Test
+    void mappingATruncatedFileFails() throws IOException {
+        VectorSlab slab = new VectorSlab(4);
+        for (int i = 0; i < 10; i++) slab.append(new float[]{i, i, i, i});
+        Path file = dir.resolve("vectors.f32");
+        slab.writeTo(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThatThrownBy(() -> VectorSlab.map(file, 4, 10))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("expected 160");
+    }
+
+    /** Mostly zeros, with the slot number in a few places. */
+    private static float[] marked(int dimension, int slot) {
+        float[] v = new float[dimension];
+        for (int i = slot; i < dimension; i += 65536) v[i] = slot + 1;
+        return v;
+    }
+
+    private static byte[] head(Path file) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            return in.readNBytes(1 << 20);
+        }
+    }
+
+    private static byte[] record(RecordSlab slab, int slot) {
+        byte[] out = new byte[slab.recordBytes()];
+        slab.get(slot, out);
+        return out;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.genai.service;
+
+import com.example.genai.audio.BedCache;
+import com.example.genai.audio.Pcm16;
+import com.example.genai.audio.PcmBed;
+import com.example.genai.audio.WavWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.ClassPathResource;
+
+import javax.sound.sampled.AudioFormat;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AudioMixServiceTest {
+
+    private static final int RATE = 8192;
+    private static final AudioFormat FORMAT = BedCache.format(RATE, 1);
+
+    @TempDir
+    Path dir;
+
+    /** Pins how a narration sounds with the shipped application.yml: a changed default should be deliberate. */
+    @Test
+    void defaultNarrationDucksTheBedSixDbAndKeepsAOneAndAHalfSecondTail() throws IOException {
+        AudioMixService service = fromApplicationYml();
+        // half a second of silence, then a second of speech
+        short[] speech = new short[3 * RATE / 2];
+        for (int f = RATE / 2; f < speech.length; f++) speech[f] = (short) (f % 2 == 0 ? 10000 : -10000);
+        short[] bed = new short[RATE];
+        Arrays.fill(bed, (short) 8000);
+
+        Path target = dir.resolve("mix.wav");
+        try (WavWriter out = WavWriter.create(target, FORMAT)) {
+            service.mixPcmStreams(pcm(speech).cursor(false), pcm(bed), out);
+            out.finish();
+        }
+        short[] mixed = samples(target);
+
+        // speech, then the tail
+        assertThat(mixed).hasSize(speech.length + 3 * RATE / 2);
+        // the bed at half gain once faded in, 6 dB lower under the speech
+        double open = mixed[RATE / 2 - 1];
+        double ducked = mixed[RATE] - speech[RATE];
+        assertThat(open).isCloseTo(4000, within(10.0));
+        assertThat(20 * Math.log10(ducked / open)).isCloseTo(-6, within(0.05));
+        // the looped bed fades out over the tail
+        assertThat(mixed[mixed.length - 1]).isBetween((short) 0, (short) 10);
+        assertThat(mixed[speech.length + RATE / 2]).isGreaterThan(mixed[mixed.length - RATE / 4]);
+    }
+
+    private AudioMixService fromApplicationYml() {
+        YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+        yaml.setResources(new ClassPathResource("application.yml"));
+        Properties p = yaml.getObject();
+        return new AudioMixService(dir.resolve("beds").toString(), 16,
+                bool(p, "app.audio.bed-cache.loop"),
+                Integer.parseInt(p.getProperty("app.audio.mix.sample-rate")),
+                num(p, "app.audio.mix.bed-gain"),
+                num(p, "app.audio.mix.fade-in-seconds"),
+                num(p, "app.audio.mix.fade-out-seconds"),
+                num(p, "app.audio.mix.tail-seconds"),
+                num(p, "app.audio.mix.duck.threshold-db"),
+                num(p, "app.audio.mix.duck.depth-db"),
+                num(p, "app.audio.mix.duck.attack-ms"),
+                num(p, "app.audio.mix.duck.release-ms"),
+                "wav", 64);
+    }
+
+    private static double num(Properties p, String key) {
+        return Double.parseDouble(p.getProperty(key));
+    }
+
+    private static boolean bool(Properties p, String key) {
+        return Boolean.parseBoolean(p.getProperty(key));
+    }
+
+    private static PcmBed pcm(short[] samples) {
+        byte[] bytes = new byte[samples.length * 2];
+        Pcm16.toBytes(samples, samples.length, bytes, 0);
+        return PcmBed.of(bytes, FORMAT);
+    }
+
+    private static short[] samples(Path wav) throws IOException {
+        byte[] bytes = Files.readAllBytes(wav);
+        short[] out = new short[(bytes.length - WavWriter.HEADER_BYTES) / 2];
+        Pcm16.toShorts(bytes, WavWriter.HEADER_BYTES, out, out.length);
+        return out;
+    }
+}
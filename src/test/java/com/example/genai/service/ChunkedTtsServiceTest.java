@@ -0,0 +1,89 @@
+package com.example.genai.service;
+
+import com.example.genai.audio.AudioDelivery;
+import com.example.genai.audio.WavWriter;
+import com.example.genai.llm.OpenAIClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ChunkedTtsServiceTest {
+
+    private static final String TEXT = "First sentence here. Second one follows. A third for good measure. And the fourth.";
+    private static final AudioDelivery WAV = new AudioDelivery(AudioDelivery.Format.WAV, 64);
+
+    @TempDir
+    Path dir;
+
+    private final OpenAIClient openAI = mock(OpenAIClient.class);
+    private final TtsScheduler scheduler = new TtsScheduler(2, 1, 1, 3, 1);
+    // one sentence per chunk, three chunks of a narration requested at once
+    private final ChunkedTtsService tts = new ChunkedTtsService(openAI, scheduler, 25, 25, 3);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peak = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        when(openAI.speechPcm(anyString(), anyString())).thenAnswer(inv -> Flux.defer(() -> {
+                    peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return Flux.range(0, 3)
+                            .delayElements(Duration.ofMillis(5))
+                            .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(new byte[480]));
+                })
+                .doOnTerminate(inFlight::decrementAndGet));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void chunkRequestsOfAllNarrationsShareTheProviderLimit() {
+        assertThat(tts.chunks(TEXT)).hasSize(4);
+        List<TtsTask> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Path target = dir.resolve("n" + i + ".wav");
+            tasks.add(TtsTask.of("n" + i, () -> tts.synthesizeToFile(TEXT, "nova", target, WAV)));
+        }
+
+        GenerationStats stats = scheduler.run(TtsScheduler.Provider.OPENAI, tasks);
+
+        assertThat(stats.generated()).isEqualTo(4);
+        // 2 narrations on the lane × 3 chunks each would be 6
+        assertThat(peak.get()).isEqualTo(2);
+        verify(openAI, times(16)).speechPcm(anyString(), anyString());
+    }
+
+    @Test
+    void streamedNarrationIsAlsoWrittenToTheFile() throws Exception {
+        ByteArrayOutputStream client = new ByteArrayOutputStream();
+
+        Path file = tts.streamWav(TEXT, "nova", client, dir.resolve("s.wav"), WAV);
+
+        int pcmBytes = 4 * 3 * 480;
+        assertThat(client.size()).isEqualTo(WavWriter.HEADER_BYTES + pcmBytes);
+        assertThat(Files.size(file)).isEqualTo(WavWriter.HEADER_BYTES + pcmBytes);
+
+        // and played back from the stored file the same way
+        ByteArrayOutputStream replay = new ByteArrayOutputStream();
+        tts.streamWav(file, replay);
+        assertThat(replay.toByteArray()).isEqualTo(client.toByteArray());
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.genai.service;
+
+import com.example.genai.audio.AudioDelivery;
+import com.example.genai.entity.Language;
+import com.example.genai.entity.Response;
+import com.example.genai.entity.Spot;
+import com.example.genai.repo.ResponseRepo;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GeminiAudioServiceTest {
+
+    /** A bit over half the cache budget: two cached speeches don't fit. */
+    private static final int SPEECH_BYTES = 600_000;
+
+    @TempDir
+    Path dir;
+
+    private final ResponseRepo responseRepo = mock(ResponseRepo.class);
+    private final AudioMixService mixer = mock(AudioMixService.class);
+    private final TtsScheduler scheduler = new TtsScheduler(2, 2, 1, 0, 1);
+    private final AtomicInteger geminiCalls = new AtomicInteger();
+    private HttpServer gemini;
+    private TtsAudioCache cache;
+    private GeminiAudioService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        gemini = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        gemini.createContext("/v1beta/", exchange -> {
+            geminiCalls.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = ("{\"candidates\":[{\"content\":{\"parts\":[{\"inlineData\":{\"mimeType\":\"audio/L16;rate=24000\","
+                    + "\"data\":\"" + Base64.getEncoder().encodeToString(new byte[SPEECH_BYTES]) + "\"}}]}}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        gemini.start();
+
+        cache = new TtsAudioCache(dir.resolve("cache").toString(), 1);
+        cache.load();
+        when(mixer.delivery()).thenReturn(new AudioDelivery(AudioDelivery.Format.MP3, 64));
+        doAnswer(inv -> Files.write(inv.getArgument(2, Path.class), new byte[]{1}))
+                .when(mixer).mixSpeechWithBackground(any(), any(), any());
+
+        WebClient client = WebClient.builder().baseUrl("http://127.0.0.1:" + gemini.getAddress().getPort()).build();
+        service = new GeminiAudioService(responseRepo, mixer, client, scheduler, mock(PlatformTransactionManager.class),
+                cache, dir.resolve("mixed").toString());
+        ReflectionTestUtils.setField(service, "voiceName", "Leda");
+    }
+
+    @AfterEach
+    void tearDown() {
+        gemini.stop(0);
+        scheduler.shutdown();
+    }
+
+    @Test
+    void editedTextIsNarratedAgainInsteadOfServedStale() throws IOException {
+        Response response = response(1L, "Eiffel Tower", "The tower opened in 1889.");
+        when(responseRepo.findById(1L)).thenReturn(Optional.of(response));
+
+        Path first = service.mixedAudio(1L).orElseThrow();
+        response.setGeminiAudioKey(keyFromLastMix(response));
+        assertThat(service.mixedAudio(1L)).contains(first);
+        assertThat(geminiCalls).hasValue(1);
+
+        response.setContent("The tower opened in 1889 for the World's Fair.");
+        assertThat(service.mixedAudio(1L)).contains(first);
+        assertThat(geminiCalls).hasValue(2);
+    }
+
+    @Test
+    void speechIsReleasedWhenTheMixFails() throws Exception {
+        when(responseRepo.findById(1L)).thenReturn(Optional.of(response(1L, "Eiffel Tower", "First narration.")));
+        when(responseRepo.findById(2L)).thenReturn(Optional.of(response(2L, "Louvre", "Second narration.")));
+        doThrow(new IllegalStateException("mixer broke"))
+                .doAnswer(inv -> Files.write(inv.getArgument(2, Path.class), new byte[]{1}))
+                .when(mixer).mixSpeechWithBackground(any(), any(), any());
+
+        assertThatThrownBy(() -> service.mixedAudio(1L)).hasMessageContaining("mixer broke");
+        service.mixedAudio(2L);
+
+        // the first speech was no longer leased, so the second one pushed it out
+        assertThat(cache.stats().entries()).isEqualTo(1);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void speechIsReleasedAfterAMix() throws IOException {
+        when(responseRepo.findById(1L)).thenReturn(Optional.of(response(1L, "Eiffel Tower", "First narration.")));
+        when(responseRepo.findById(2L)).thenReturn(Optional.of(response(2L, "Louvre", "Second narration.")));
+
+        service.mixedAudio(1L);
+        service.mixedAudio(2L);
+
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    private static Response response(long id, String spot, String content) {
+        Response r = new Response();
+        r.setId(id);
+        r.setSpot(new Spot(id, null, spot));
+        r.setLanguage(new Language(1L, "en", "English"));
+        r.setContent(content);
+        return r;
+    }
+
+    /** What the service stored through {@link ResponseRepo#updateGeminiAudioKey} after the mix. */
+    private String keyFromLastMix(Response response) {
+        ArgumentCaptor<String> key = ArgumentCaptor.forClass(String.class);
+        verify(responseRepo, atLeastOnce()).updateGeminiAudioKey(eq(response.getId()), key.capture());
+        return key.getValue();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.genai.service;
+
+import com.example.genai.entity.GenerationJob;
+import com.example.genai.entity.GenerationJob.Status;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class JobProgressTest {
+
+    @Test
+    void rateAndEtaOnlyCountTheCurrentRun() {
+        // 600 items came from an earlier run; this one did 100 in 10 s
+        GenerationJob job = job(Status.RUNNING, 1000, 690, 10, 600);
+        job.setRunStartedAt(Instant.now().minusSeconds(10));
+
+        JobProgress progress = JobProgress.of(job);
+
+        assertThat(progress.itemsPerSecond()).isCloseTo(10, within(0.5));
+        assertThat(progress.etaSeconds()).isBetween(29L, 31L);
+    }
+
+    @Test
+    void finishedRunIsMeasuredUpToItsEnd() {
+        Instant start = Instant.now().minusSeconds(3600);
+        GenerationJob job = job(Status.COMPLETED, 1000, 990, 10, 500);
+        job.setRunStartedAt(start);
+        job.setFinishedAt(start.plusSeconds(100));
+
+        JobProgress progress = JobProgress.of(job);
+
+        assertThat(progress.itemsPerSecond()).isEqualTo(5.0);
+        assertThat(progress.etaSeconds()).isZero();
+    }
+
+    @Test
+    void noRateBeforeTheRunHasStartedOrMoved() {
+        assertThat(JobProgress.of(job(Status.QUEUED, 1000, 0, 0, 0)))
+                .extracting(JobProgress::itemsPerSecond, JobProgress::etaSeconds).containsExactly(0.0, null);
+
+        GenerationJob resumed = job(Status.RUNNING, 1000, 400, 0, 400);
+        resumed.setRunStartedAt(Instant.now().minusSeconds(5));
+        assertThat(JobProgress.of(resumed))
+                .extracting(JobProgress::itemsPerSecond, JobProgress::etaSeconds).containsExactly(0.0, null);
+    }
+
+    private static GenerationJob job(Status status, long total, long done, long failed, long atRunStart) {
+        GenerationJob job = new GenerationJob(GenerationJob.Type.PHOTOS);
+        job.setId(1L);
+        job.setStatus(status);
+        job.setItemsTotal(total);
+        job.setItemsDone(done);
+        job.setItemsFailed(failed);
+        job.setItemsAtRunStart(atRunStart);
+        return job;
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.genai.service;
+
+import com.example.genai.entity.GenerationJob;
+import com.example.genai.entity.GenerationJob.Status;
+import com.example.genai.repo.GenerationJobRepo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JobServiceTest {
+
+    private static final int ITEMS = 10;
+    private static final int PAGE = 3;
+
+    private final GenerationJobRepo repo = mock(GenerationJobRepo.class);
+    /** Detached copies, as JPA hands out a new instance per transaction. */
+    private final Map<Long, GenerationJob> rows = new ConcurrentHashMap<>();
+    /** Cursor and counters of every checkpoint the runner saved. */
+    private final List<long[]> checkpoints = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final FakeHandler handler = new FakeHandler();
+    private JobService service;
+
+    @BeforeEach
+    void setUp() {
+        when(repo.save(any())).thenAnswer(inv -> {
+            GenerationJob job = inv.getArgument(0);
+            if (job.getId() == null) job.setId(ids.incrementAndGet());
+            if (job.getStatus() == Status.RUNNING || job.getStatus() == Status.CANCELLING) {
+                checkpoints.add(new long[]{job.getCursor(), job.getItemsDone(), job.getItemsFailed()});
+            }
+            rows.put(job.getId(), copy(job));
+            return copy(job);
+        });
+        when(repo.findById(any())).thenAnswer(inv -> Optional.ofNullable(rows.get(inv.<Long>getArgument(0))).map(JobServiceTest::copy));
+        when(repo.findByTypeAndStatusIn(any(), anyCollection())).thenAnswer(inv -> rows.values().stream()
+                .filter(j -> j.getType() == inv.getArgument(0) && inv.<Collection<Status>>getArgument(1).contains(j.getStatus()))
+                .map(JobServiceTest::copy).toList());
+        service = new JobService(repo, List.of(handler), 1, PAGE, false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void checkpointsTheCursorAndCountersAfterEverySlice() throws InterruptedException {
+        handler.failEvery = 4;
+
+        JobProgress started = service.start(GenerationJob.Type.PHOTOS);
+        GenerationJob job = awaitFinished(started.id());
+
+        assertThat(job.getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(handler.cursors).containsExactly(0L, 3L, 6L, 9L);
+        // the first save marks the job running, then one checkpoint per slice
+        assertThat(checkpoints).extracting(c -> c[0]).containsExactly(0L, 3L, 6L, 9L, 10L);
+        assertThat(checkpoints.get(2)).containsExactly(6, 5, 1);
+        assertThat(job.getItemsTotal()).isEqualTo(ITEMS);
+        assertThat(job.getItemsDone()).isEqualTo(8);
+        assertThat(job.getItemsFailed()).isEqualTo(2);
+        assertThat(job.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    void resumeContinuesFromTheSavedCursor() throws InterruptedException {
+        handler.throwAt = cursor -> cursor == 6 ? new IllegalStateException("provider down") : null;
+
+        Long id = service.start(GenerationJob.Type.PHOTOS).id();
+        GenerationJob failed = awaitFinished(id);
+        assertThat(failed.getStatus()).isEqualTo(Status.FAILED);
+        assertThat(failed.getCursor()).isEqualTo(6);
+        assertThat(failed.getLastError()).isEqualTo("provider down");
+
+        handler.throwAt = cursor -> null;
+        assertThat(service.resume(id)).get().extracting(JobProgress::status).isEqualTo(Status.QUEUED);
+        GenerationJob resumed = awaitFinished(id);
+
+        assertThat(resumed.getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(handler.cursors).containsExactly(0L, 3L, 6L, 9L);  // the throwing slice isn't recorded
+        assertThat(resumed.getItemsDone()).isEqualTo(ITEMS);
+        assertThat(resumed.getItemsAtRunStart()).isEqualTo(6);
+        assertThat(resumed.getLastError()).isNull();
+    }
+
+    @Test
+    void cancelStopsBetweenSlices() throws InterruptedException {
+        CountDownLatch inSecondSlice = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        handler.throwAt = cursor -> {
+            if (cursor == 3) {
+                inSecondSlice.countDown();
+                await(cancelled);
+            }
+            return null;
+        };
+
+        Long id = service.start(GenerationJob.Type.PHOTOS).id();
+        assertThat(inSecondSlice.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.cancel(id)).get().extracting(JobProgress::status).isEqualTo(Status.CANCELLING);
+        cancelled.countDown();
+        GenerationJob job = awaitFinished(id);
+
+        // the slice in flight is checkpointed, the next one never starts
+        assertThat(job.getStatus()).isEqualTo(Status.CANCELLED);
+        assertThat(handler.cursors).containsExactly(0L, 3L);
+        assertThat(job.getCursor()).isEqualTo(6);
+        assertThat(job.getItemsDone()).isEqualTo(6);
+        assertThat(job.isResumable()).isTrue();
+    }
+
+    @Test
+    void anErrorFailsTheJobInsteadOfLeavingItRunning() throws InterruptedException {
+        handler.throwAt = cursor -> cursor == 3 ? new OutOfMemoryError("Java heap space") : null;
+
+        Long id = service.start(GenerationJob.Type.PHOTOS).id();
+        GenerationJob job = awaitFinished(id);
+
+        assertThat(job.getStatus()).isEqualTo(Status.FAILED);
+        assertThat(job.getLastError()).isEqualTo("Java heap space");
+        assertThat(job.getCursor()).isEqualTo(3);
+        assertThat(job.getFinishedAt()).isNotNull();
+        // nothing active is left behind, so a new run can start
+        handler.throwAt = cursor -> null;
+        assertThat(service.start(GenerationJob.Type.PHOTOS).id()).isNotEqualTo(id);
+    }
+
+    @Test
+    void failingToCountItemsFailsTheJob() throws InterruptedException {
+        handler.countError = new IllegalStateException();
+
+        Long id = service.start(GenerationJob.Type.PHOTOS).id();
+        GenerationJob job = awaitFinished(id);
+
+        assertThat(job.getStatus()).isEqualTo(Status.FAILED);
+        assertThat(job.getLastError()).isEqualTo("java.lang.IllegalStateException");
+        assertThat(handler.cursors).isEmpty();
+    }
+
+    /** Items 1..{@link #ITEMS}; every {@code failEvery}-th one fails. */
+    private static class FakeHandler implements JobHandler {
+        final List<Long> cursors = new CopyOnWriteArrayList<>();
+        volatile int failEvery;
+        volatile LongFunction<Throwable> throwAt = cursor -> null;
+        volatile RuntimeException countError;
+
+        @Override
+        public GenerationJob.Type type() {
+            return GenerationJob.Type.PHOTOS;
+        }
+
+        @Override
+        public long countItems() {
+            if (countError != null) throw countError;
+            return ITEMS;
+        }
+
+        @Override
+        public JobSlice processAfter(long cursor, int pageSize) {
+            Throwable t = throwAt.apply(cursor);
+            if (t instanceof RuntimeException e) throw e;
+            if (t instanceof Error e) throw e;
+            cursors.add(cursor);
+            long last = Math.min(ITEMS, cursor + pageSize);
+            int failed = 0;
+            for (long item = cursor + 1; item <= last; item++) {
+                if (failEvery > 0 && item % failEvery == 0) failed++;
+            }
+            return new JobSlice(last, (int) (last - cursor) - failed, failed, last == ITEMS);
+        }
+    }
+
+    private GenerationJob awaitFinished(Long id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            GenerationJob job = rows.get(id);
+            if (job.getFinishedAt() != null && !job.isActive()) return copy(job);
+            Thread.sleep(5);
+        }
+        throw new AssertionError("job " + id + " still " + rows.get(id).getStatus());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static GenerationJob copy(GenerationJob job) {
+        GenerationJob c = new GenerationJob(job.getType());
+        c.setId(job.getId());
+        c.setStatus(job.getStatus());
+        c.setCursor(job.getCursor());
+        c.setItemsTotal(job.getItemsTotal());
+        c.setItemsDone(job.getItemsDone());
+        c.setItemsFailed(job.getItemsFailed());
+        c.setItemsAtRunStart(job.getItemsAtRunStart());
+        c.setCreatedAt(job.getCreatedAt());
+        c.setRunStartedAt(job.getRunStartedAt());
+        c.setUpdatedAt(job.getUpdatedAt());
+        c.setFinishedAt(job.getFinishedAt());
+        c.setLastError(job.getLastError());
+        return c;
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.genai.service;
+
+import com.example.genai.llm.BatchStatus;
+import com.example.genai.llm.OpenAIClient;
+import com.example.genai.service.TravelGenerationService.GeneratedText;
+import com.example.genai.service.TravelGenerationService.GenerationTask;
+import com.example.genai.util.LongHashSet;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TravelBatchGenerationServiceTest {
+
+    private static final long SUBMITTED = 1;
+
+    @TempDir
+    Path workDir;
+
+    private TravelGenerationService travel;
+    private OpenAIClient openAI;
+    private TravelBatchGenerationService service;
+    private final List<GeneratedText> saved = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        travel = mock(TravelGenerationService.class);
+        openAI = mock(OpenAIClient.class);
+        service = new TravelBatchGenerationService(travel, openAI, workDir.toString(), 1, 50_000, 25);
+
+        when(travel.existingPairs(anyLong(), anyLong())).thenReturn(new LongHashSet(0));
+        doAnswer(inv -> saved.addAll(inv.getArgument(0))).when(travel).saveBatch(anyList());
+        when(openAI.batchChatRequest(anyString(), anyString(), anyList()))
+                .thenAnswer(inv -> Map.of("custom_id", inv.getArgument(0)));
+        when(openAI.parseChatCompletion(anyMap())).thenCallRealMethod();
+    }
+
+    @Test
+    void submitsThenPollsOncePerSliceAndIngests() throws Exception {
+        when(travel.planAllMissing()).thenReturn(List.of(task(1, 1), task(1, 2)));
+        when(openAI.uploadBatchFile(any())).thenReturn(Mono.just("file-1"));
+        when(openAI.createBatch("file-1")).thenReturn(Mono.just(status("b1", "validating", null, 2)));
+        when(openAI.getBatch("b1")).thenReturn(
+                Mono.just(status("b1", "in_progress", null, 2)),
+                Mono.just(status("b1", "completed", "out-1", 2)));
+        when(openAI.downloadFile(eq("out-1"), any())).thenAnswer(inv -> {
+            Path target = inv.getArgument(1);
+            Files.write(target, List.of(resultLine("1:1"), resultLine("1:2")));
+            return Mono.just(target);
+        });
+
+        JobSlice submitted = service.processAfter(0, 20);
+        assertThat(submitted.nextCursor()).isEqualTo(1);
+        assertThat(submitted.last()).isFalse();
+        assertThat(Files.readAllLines(workDir.resolve("pending-batches.txt"))).containsExactly("b1");
+
+        // still running: one poll, nothing ingested, the job gets a chance to be cancelled
+        JobSlice polled = service.processAfter(submitted.nextCursor(), 20);
+        assertThat(polled.done()).isZero();
+        assertThat(polled.last()).isFalse();
+
+        JobSlice finished = service.processAfter(polled.nextCursor(), 20);
+        assertThat(finished.done()).isEqualTo(2);
+        assertThat(finished.last()).isTrue();
+        assertThat(saved).extracting(g -> g.result().getContent()).containsExactly("text 1:1", "text 1:2");
+        assertThat(Files.readAllLines(workDir.resolve("pending-batches.txt"))).isEmpty();
+        verify(openAI, times(2)).getBatch("b1");
+    }
+
+    @Test
+    void collectsLeftoverBatchesBeforePlanning() throws Exception {
+        Files.write(workDir.resolve("pending-batches.txt"), List.of("old"));
+        when(openAI.getBatch("old")).thenReturn(Mono.just(status("old", "expired", null, 3)));
+        when(travel.planAllMissing()).thenReturn(List.of());
+
+        JobSlice leftovers = service.processAfter(0, 20);
+        // the failed pairs are still missing, so they are planned (and counted) again
+        assertThat(leftovers.failed()).isZero();
+        assertThat(leftovers.nextCursor()).isZero();
+        assertThat(leftovers.last()).isFalse();
+        verify(travel, never()).planAllMissing();
+
+        JobSlice planned = service.processAfter(leftovers.nextCursor(), 20);
+        assertThat(planned.last()).isTrue();
+        verify(travel).planAllMissing();
+    }
+
+    @Test
+    void existingPairsCountAsDoneSoProgressReachesTheTotal() throws Exception {
+        when(travel.countItems()).thenReturn(10L);
+        when(travel.planAllMissing()).thenReturn(List.of(task(1, 1), task(1, 2)));
+        when(openAI.uploadBatchFile(any())).thenReturn(Mono.just("file-1"));
+        when(openAI.createBatch("file-1")).thenReturn(Mono.just(status("b1", "validating", null, 2)));
+        when(openAI.getBatch("b1")).thenReturn(Mono.just(status("b1", "completed", "out-1", 2)));
+        when(openAI.downloadFile(eq("out-1"), any())).thenAnswer(inv -> {
+            Path target = inv.getArgument(1);
+            Files.write(target, List.of(resultLine("1:1"), "{\"custom_id\":\"1:2\",\"response\":{\"status_code\":500}}"));
+            return Mono.just(target);
+        });
+
+        JobSlice submitted = service.processAfter(0, 20);
+        JobSlice finished = service.processAfter(submitted.nextCursor(), 20);
+
+        assertThat(submitted.done()).isEqualTo(8);
+        assertThat(finished.done()).isEqualTo(1);
+        assertThat(finished.failed()).isEqualTo(1);
+        assertThat(submitted.done() + finished.done() + finished.failed()).isEqualTo(10);
+    }
+
+    @Test
+    void failedSaveKeepsTheBatchAndItsOutputForTheNextPoll() throws Exception {
+        Files.write(workDir.resolve("pending-batches.txt"), List.of("b1"));
+        when(openAI.getBatch("b1")).thenReturn(Mono.just(status("b1", "completed", "out-1", 2)));
+        when(openAI.downloadFile(eq("out-1"), any())).thenAnswer(inv -> {
+            Path target = inv.getArgument(1);
+            Files.write(target, List.of(resultLine("1:1"), resultLine("1:2")));
+            return Mono.just(target);
+        });
+        doThrow(new IllegalStateException("database down"))
+                .doAnswer(inv -> saved.addAll(inv.getArgument(0)))
+                .when(travel).saveBatch(anyList());
+
+        JobSlice failed = service.processAfter(SUBMITTED, 20);
+        assertThat(failed.done()).isZero();
+        assertThat(failed.failed()).isZero();
+        assertThat(failed.last()).isFalse();
+        assertThat(Files.readAllLines(workDir.resolve("pending-batches.txt"))).containsExactly("b1");
+        assertThat(workDir.resolve("b1-output.jsonl")).exists();
+
+        JobSlice retried = service.processAfter(failed.nextCursor(), 20);
+        assertThat(retried.done()).isEqualTo(2);
+        assertThat(retried.last()).isTrue();
+        assertThat(saved).hasSize(2);
+        assertThat(workDir.resolve("b1-output.jsonl")).doesNotExist();
+        // the paid-for output was downloaded once
+        verify(openAI, times(1)).downloadFile(eq("out-1"), any());
+    }
+
+    @Test
+    void runsAgainstStubbedBatchEndpoints() throws Exception {
+        Map<String, String> requests = new ConcurrentHashMap<>();
+        AtomicInteger polls = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/", exchange -> {
+            String call = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            requests.put(call, body);
+            assertThat(exchange.getRequestHeaders().getFirst("Authorization")).isEqualTo("Bearer sk-test");
+            String response = switch (call) {
+                case "POST /v1/files" -> "{\"id\":\"file-in\",\"purpose\":\"batch\"}";
+                case "POST /v1/batches" -> batchJson("validating", null, 0);
+                case "GET /v1/batches/batch_1" -> polls.incrementAndGet() == 1
+                        ? batchJson("in_progress", null, 1)
+                        : batchJson("completed", "\"file-out\"", 2);
+                case "GET /v1/files/file-out/content" -> resultLine("1:1") + "\n" + resultLine("1:2") + "\n";
+                default -> null;
+            };
+            byte[] bytes = response == null ? new byte[0] : response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    call.endsWith("/content") ? "application/octet-stream" : "application/json");
+            exchange.sendResponseHeaders(response == null ? 404 : 200, bytes.length == 0 ? -1 : bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+            OpenAIClient client = new OpenAIClient(base, "sk-test", "gpt-test", "embed-test");
+            TravelBatchGenerationService real = new TravelBatchGenerationService(travel, client, workDir.toString(), 1, 50_000, 25);
+            when(travel.planAllMissing()).thenReturn(List.of(task(1, 1), task(1, 2)));
+
+            JobSlice submitted = real.processAfter(0, 20);
+            assertThat(Files.readAllLines(workDir.resolve("pending-batches.txt"))).containsExactly("batch_1");
+
+            // multipart upload: purpose=batch and one chat request per pair
+            String upload = requests.get("POST /v1/files");
+            assertThat(upload).contains("name=\"purpose\"").contains("batch")
+                    .contains("name=\"file\"; filename=\"travel-requests-")
+                    .contains("\"custom_id\":\"1:1\"").contains("\"custom_id\":\"1:2\"")
+                    .contains("\"url\":\"/v1/chat/completions\"").contains("\"model\":\"gpt-test\"");
+            assertThat(requests.get("POST /v1/batches"))
+                    .contains("\"input_file_id\":\"file-in\"").contains("\"completion_window\":\"24h\"");
+
+            JobSlice polled = real.processAfter(submitted.nextCursor(), 20);
+            assertThat(polled.done()).isZero();
+            assertThat(polled.last()).isFalse();
+
+            JobSlice finished = real.processAfter(polled.nextCursor(), 20);
+            assertThat(finished.done()).isEqualTo(2);
+            assertThat(finished.last()).isTrue();
+            assertThat(saved).extracting(g -> g.result().getContent()).containsExactly("text 1:1", "text 1:2");
+            assertThat(saved).extracting(g -> g.result().getPromptTokens()).containsOnly(3);
+            assertThat(requests).containsKey("GET /v1/files/file-out/content");
+            assertThat(Files.readAllLines(workDir.resolve("pending-batches.txt"))).isEmpty();
+            try (var left = Files.list(workDir)) {
+                assertThat(left.map(f -> f.getFileName().toString())).containsExactly("pending-batches.txt");
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static String batchJson(String status, String outputFileId, int completed) {
+        return "{\"id\":\"batch_1\",\"object\":\"batch\",\"status\":\"" + status + "\","
+                + "\"output_file_id\":" + outputFileId + ",\"error_file_id\":null,"
+                + "\"request_counts\":{\"total\":2,\"completed\":" + completed + ",\"failed\":0}}";
+    }
+
+    private static GenerationTask task(long spotId, long languageId) {
+        return new GenerationTask(spotId, languageId, spotId + ":" + languageId, "Describe " + spotId);
+    }
+
+    private static BatchStatus status(String id, String status, String outputFileId, int total) {
+        boolean completed = "completed".equals(status);
+        return new BatchStatus(id, status, outputFileId, null, total, completed ? total : 0, 0);
+    }
+
+    private static String resultLine(String customId) {
+        return "{\"custom_id\":\"" + customId + "\",\"response\":{\"status_code\":200,\"body\":"
+                + "{\"choices\":[{\"message\":{\"content\":\"text " + customId + "\"}}],"
+                + "\"usage\":{\"prompt_tokens\":3,\"completion_tokens\":5}}}}";
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.genai.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TtsAudioCacheTest {
+
+    private static final int KB = 1024;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentRequestsShareOneProduction() throws Exception {
+        TtsAudioCache cache = cache(10);
+        AtomicInteger produced = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            // many rounds of threads released together on a fresh entry, so some of them
+            // look up just as another finishes
+            for (int round = 0; round < 200; round++) {
+                String entry = TtsAudioCache.key("round", String.valueOf(round)) + ".wav";
+                CyclicBarrier start = new CyclicBarrier(4);
+                List<Future<Path>> results = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        try (TtsAudioCache.Lease lease = cache.getOrCreate(entry, target -> {
+                            produced.incrementAndGet();
+                            Files.write(target, new byte[100]);
+                        })) {
+                            return lease.path();
+                        }
+                    }));
+                }
+                for (Future<Path> f : results) {
+                    assertThat(f.get(10, TimeUnit.SECONDS)).exists();
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        TtsAudioCache.CacheStats stats = cache.stats();
+        assertThat(produced).hasValue(200);
+        assertThat(stats.misses()).isEqualTo(200);
+        assertThat(stats.hits() + stats.sharedHits()).isEqualTo(600);
+    }
+
+    @Test
+    void leasedEntriesAreNotEvicted() throws IOException {
+        TtsAudioCache cache = cache(1);
+        TtsAudioCache.Lease first = cache.getOrCreate("aa01.wav", bytes(600 * KB));
+        TtsAudioCache.Lease second = cache.getOrCreate("bb02.wav", bytes(600 * KB));
+
+        // over budget, but both are in use
+        assertThat(first.path()).exists();
+        assertThat(second.path()).exists();
+        assertThat(cache.stats().evictions()).isZero();
+
+        // once released the least recently used entry goes
+        first.close();
+        assertThat(first.path()).doesNotExist();
+        assertThat(cache.get("aa01.wav")).isEmpty();
+        second.close();
+        assertThat(cache.stats().entries()).isEqualTo(1);
+        assertThat(cache.stats().bytes()).isEqualTo(600 * KB);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void leasedLeastRecentlyUsedEntryIsSkipped() throws IOException {
+        TtsAudioCache cache = cache(1);
+        try (TtsAudioCache.Lease oldest = cache.getOrCreate("aa01.wav", bytes(600 * KB))) {
+            cache.getOrCreate("bb02.wav", bytes(600 * KB)).close();
+
+            // b had to go instead: a is still being read
+            assertThat(oldest.path()).exists();
+            assertThat(cache.get("bb02.wav")).isEmpty();
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvictedFirst() throws IOException {
+        TtsAudioCache cache = cache(1);
+        cache.getOrCreate("aa01.wav", bytes(400 * KB)).close();
+        cache.getOrCreate("bb02.wav", bytes(400 * KB)).close();
+        cache.get("aa01.wav").orElseThrow().close();  // now b is the oldest
+
+        cache.getOrCreate("cc03.wav", bytes(400 * KB)).close();
+
+        assertThat(cache.get("bb02.wav")).isEmpty();
+        assertThat(cache.get("aa01.wav")).isPresent();
+        assertThat(cache.get("cc03.wav")).isPresent();
+    }
+
+    @Test
+    void failureIsRethrownAsIsAndNotCached() throws IOException {
+        TtsAudioCache cache = cache(10);
+        IllegalStateException noAudio = new IllegalStateException("no audio");
+
+        assertThatThrownBy(() -> cache.getOrCreate("aa01.wav", target -> { throw noAudio; })).isSameAs(noAudio);
+
+        try (TtsAudioCache.Lease lease = cache.getOrCreate("aa01.wav", bytes(10))) {
+            assertThat(lease.path()).hasSize(10);
+        }
+        assertThat(cache.stats().misses()).isEqualTo(2);
+    }
+
+    @Test
+    void indexSurvivesARestart() throws IOException {
+        TtsAudioCache cache = cache(10);
+        cache.getOrCreate("aa01.wav", bytes(10)).close();
+        cache.getOrCreate("bb02.wav", bytes(20)).close();
+        cache.saveIndex();
+
+        TtsAudioCache reloaded = cache(10);
+        assertThat(reloaded.stats().entries()).isEqualTo(2);
+        assertThat(reloaded.stats().bytes()).isEqualTo(30);
+        assertThat(reloaded.get("bb02.wav")).isPresent();
+    }
+
+    private TtsAudioCache cache(long maxSizeMb) throws IOException {
+        TtsAudioCache cache = new TtsAudioCache(dir.toString(), maxSizeMb);
+        cache.load();
+        return cache;
+    }
+
+    private static TtsAudioCache.Producer bytes(int n) {
+        return target -> Files.write(target, new byte[n]);
+    }
+}
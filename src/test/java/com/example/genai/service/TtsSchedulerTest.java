@@ -0,0 +1,220 @@
+package com.example.genai.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TtsSchedulerTest {
+
+    @TempDir
+    Path dir;
+
+    private final TtsScheduler scheduler = new TtsScheduler(2, 3, 1, 3, 1);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void retriesOnlyTransientFailures() throws IOException {
+        Path audio = Files.write(dir.resolve("a.wav"), new byte[10]);
+
+        assertThat(attempts(new IOException("connection reset"), audio)).isEqualTo(3);
+        assertThat(attempts(WebClientResponseException.create(503, "Unavailable", null, null, null), audio)).isEqualTo(3);
+
+        assertThat(attempts(WebClientResponseException.create(400, "Bad Request", null, null, null), audio)).isEqualTo(1);
+        assertThat(attempts(new IllegalStateException("no audio in response"), audio)).isEqualTo(1);
+        assertThat(attempts(new IllegalArgumentException("bug"), audio)).isEqualTo(1);
+    }
+
+    @Test
+    void releaseRunsOnceHoweverTheTaskEnds() throws IOException {
+        Path audio = Files.write(dir.resolve("a.wav"), new byte[10]);
+        Path missing = dir.resolve("gone.wav");
+        AtomicInteger calls = new AtomicInteger();
+        // the first attempt's file can't be sized, so synthesis is retried
+        Callable<Path> retried = () -> calls.incrementAndGet() == 1 ? missing : audio;
+
+        assertThat(releases(retried, speech -> {})).isEqualTo(1);
+        assertThat(calls).hasValue(2);
+        assertThat(releases(() -> { throw new IllegalStateException("no audio"); }, speech -> {})).isEqualTo(1);
+        assertThat(releases(() -> audio, speech -> { throw new IOException("mixer broke"); })).isEqualTo(1);
+    }
+
+    @Test
+    void eachLaneRunsUpToItsOwnLimit() throws Exception {
+        Path audio = Files.write(dir.resolve("a.wav"), new byte[10]);
+        Gauge openAi = new Gauge();
+        Gauge gemini = new Gauge();
+
+        // both providers at once: one lane's limit doesn't hold up the other's
+        CompletableFuture<GenerationStats> geminiRun = CompletableFuture.supplyAsync(
+                () -> scheduler.run(TtsScheduler.Provider.GEMINI, tasks(9, gemini.around(audio))));
+        GenerationStats openAiRun = scheduler.run(TtsScheduler.Provider.OPENAI, tasks(8, openAi.around(audio)));
+
+        assertThat(openAiRun.generated()).isEqualTo(8);
+        assertThat(geminiRun.get(10, TimeUnit.SECONDS).generated()).isEqualTo(9);
+        assertThat(openAi.max).hasValue(2);
+        assertThat(gemini.max).hasValue(3);
+        assertThat(openAi.threads).allMatch(name -> name.startsWith("tts-openai"));
+        assertThat(gemini.threads).allMatch(name -> name.startsWith("tts-gemini"));
+    }
+
+    @Test
+    void synthesisCarriesOnWhileEarlierNarrationsMix() throws IOException {
+        Path audio = Files.write(dir.resolve("a.wav"), new byte[10]);
+        CountDownLatch secondSynthesized = new CountDownLatch(1);
+        AtomicBoolean overlapped = new AtomicBoolean();
+        AtomicReference<String> mixThread = new AtomicReference<>();
+        TtsScheduler oneAtATime = new TtsScheduler(1, 1, 1, 0, 1);
+        try {
+            // the first mix waits for the second synthesis, which the lane's single thread must be free for
+            TtsTask first = new TtsTask("first", () -> audio, speech -> {
+                mixThread.set(Thread.currentThread().getName());
+                overlapped.set(secondSynthesized.await(5, TimeUnit.SECONDS));
+            });
+            TtsTask second = new TtsTask("second", () -> {
+                secondSynthesized.countDown();
+                return audio;
+            }, speech -> {});
+
+            GenerationStats stats = oneAtATime.run(TtsScheduler.Provider.OPENAI, List.of(first, second));
+
+            assertThat(stats.generated()).isEqualTo(2);
+            assertThat(overlapped).isTrue();
+            assertThat(mixThread.get()).startsWith("tts-mix");
+        } finally {
+            oneAtATime.shutdown();
+        }
+    }
+
+    @Test
+    void runCountsFailuresAndFinishesTheRest() throws IOException {
+        Path audio = Files.write(dir.resolve("a.wav"), new byte[10]);
+        AtomicInteger mixed = new AtomicInteger();
+        TtsTask.Step mix = speech -> mixed.incrementAndGet();
+        List<TtsTask> tasks = List.of(
+                new TtsTask("ok-1", () -> audio, mix),
+                new TtsTask("rejected", () -> { throw new IllegalStateException("no audio"); }, mix),
+                new TtsTask("ok-2", () -> audio, mix),
+                new TtsTask("mix-broke", () -> audio, speech -> { throw new IOException("disk full"); }),
+                new TtsTask("ok-3", () -> audio, mix));
+
+        GenerationStats stats = scheduler.run(TtsScheduler.Provider.OPENAI, tasks);
+
+        assertThat(stats.planned()).isEqualTo(5);
+        assertThat(stats.generated()).isEqualTo(3);
+        assertThat(stats.failed()).isEqualTo(2);
+        assertThat(mixed).hasValue(3);
+        assertThat(scheduler.run(TtsScheduler.Provider.OPENAI, List.of())).isEqualTo(GenerationStats.empty());
+        // runNow throws instead
+        assertThatThrownBy(() -> scheduler.runNow(TtsScheduler.Provider.OPENAI, tasks.get(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("no audio");
+    }
+
+    @Test
+    void statsCountEachLaneSeparately() throws Exception {
+        Path audio = Files.write(dir.resolve("a.wav"), new byte[100]);
+        AtomicInteger calls = new AtomicInteger();
+        List<TtsTask> tasks = List.of(
+                new TtsTask("ok", () -> audio, speech -> Thread.sleep(5)),
+                // a reset on the first try, then fine
+                TtsTask.of("retried", () -> {
+                    if (calls.incrementAndGet() == 1) throw new IOException("connection reset");
+                    return audio;
+                }),
+                TtsTask.of("rejected", () -> { throw new IllegalArgumentException("bad voice"); }));
+
+        GenerationStats run = scheduler.run(TtsScheduler.Provider.OPENAI, tasks);
+        awaitIdle();
+
+        TtsStats openAi = scheduler.stats().get(0);
+        assertThat(openAi.provider()).isEqualTo("OPENAI");
+        assertThat(openAi.maxConcurrent()).isEqualTo(2);
+        assertThat(openAi.submitted()).isEqualTo(3);
+        assertThat(openAi.completed()).isEqualTo(2);
+        assertThat(openAi.failed()).isEqualTo(1);
+        assertThat(openAi.retries()).isEqualTo(1);
+        assertThat(openAi.inFlight()).isZero();
+        assertThat(openAi.audioBytes()).isEqualTo(200);
+        assertThat(openAi.avgMixMillis()).isGreaterThanOrEqualTo(5);
+        assertThat(openAi.lastRun()).isEqualTo(run);
+
+        TtsStats gemini = scheduler.stats().get(1);
+        assertThat(gemini.provider()).isEqualTo("GEMINI");
+        assertThat(gemini.maxConcurrent()).isEqualTo(3);
+        assertThat(gemini.submitted()).isZero();
+        assertThat(gemini.lastRun()).isNull();
+    }
+
+    private int releases(Callable<Path> synthesize, TtsTask.Step mix) {
+        AtomicInteger released = new AtomicInteger();
+        scheduler.run(TtsScheduler.Provider.GEMINI, List.of(new TtsTask("t", synthesize, mix, released::incrementAndGet)));
+        return released.get();
+    }
+
+    private static List<TtsTask> tasks(int n, Callable<Path> synthesize) {
+        List<TtsTask> tasks = new ArrayList<>();
+        for (int i = 0; i < n; i++) tasks.add(TtsTask.of("t" + i, synthesize));
+        return tasks;
+    }
+
+    /** A lane's in-flight count drops just after the run returns, on the thread that finished last. */
+    private void awaitIdle() throws InterruptedException {
+        for (int i = 0; i < 100 && scheduler.stats().stream().anyMatch(s -> s.inFlight() > 0); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    /** Tracks how many synthesis calls overlap, and on which threads they run. */
+    private static final class Gauge {
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+        final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+
+        Callable<Path> around(Path audio) {
+            return () -> {
+                max.accumulateAndGet(current.incrementAndGet(), Math::max);
+                threads.add(Thread.currentThread().getName());
+                try {
+                    Thread.sleep(50);
+                    return audio;
+                } finally {
+                    current.decrementAndGet();
+                }
+            };
+        }
+    }
+
+    /** Attempts until the task succeeded on its third try, or gave up. */
+    private int attempts(Exception failure, Path audio) {
+        AtomicInteger calls = new AtomicInteger();
+        Callable<Path> synthesize = () -> {
+            if (calls.incrementAndGet() < 3) throw failure;
+            return audio;
+        };
+        GenerationStats stats = scheduler.run(TtsScheduler.Provider.OPENAI, List.of(TtsTask.of("t", synthesize)));
+        assertThat(stats.generated() + stats.failed()).isEqualTo(1);
+        return calls.get();
+    }
+}
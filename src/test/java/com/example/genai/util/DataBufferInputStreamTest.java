@@ -0,0 +1,109 @@
+package com.example.genai.util;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DataBufferInputStreamTest {
+
+    private final NettyDataBufferFactory factory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+    private final List<NettyDataBuffer> created = new CopyOnWriteArrayList<>();
+
+    @Test
+    void readsTheWholeBodyAndReleasesEveryBuffer() throws IOException {
+        try (InputStream in = new DataBufferInputStream(body(10), 3)) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("chunk0 chunk1 chunk2 chunk3 chunk4 chunk5 chunk6 chunk7 chunk8 chunk9 ");
+        }
+        assertThat(created).hasSize(10);
+        assertAllReleased();
+    }
+
+    @Test
+    void requestsAtMostPrefetchAheadOfTheReader() throws IOException {
+        AtomicLong requested = new AtomicLong();
+        try (InputStream in = new DataBufferInputStream(body(100).doOnRequest(requested::addAndGet), 4)) {
+            in.read();
+            assertThat(requested).hasValueLessThanOrEqualTo(5);
+        }
+    }
+
+    @Test
+    void closeCancelsTheBodyAndReleasesQueuedBuffers() throws IOException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        InputStream in = new DataBufferInputStream(body(100).doOnCancel(() -> cancelled.set(true)), 4);
+        assertThat(in.read()).isEqualTo('c');
+        in.close();
+
+        assertThat(cancelled).isTrue();
+        assertThat(created).hasSizeLessThanOrEqualTo(5);
+        assertAllReleased();
+        assertThatThrownBy(in::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void bufferArrivingAfterCloseIsReleased() throws IOException {
+        // a network thread that was already delivering when the reader closed
+        AtomicReference<Subscriber<? super DataBuffer>> subscriber = new AtomicReference<>();
+        Flux<DataBuffer> racing = Flux.from(s -> {
+            subscriber.set(s);
+            s.onSubscribe(new Subscription() {
+                public void request(long n) {}
+                public void cancel() {}
+            });
+        });
+        InputStream in = new DataBufferInputStream(racing, 2);
+        subscriber.get().onNext(buffer("a"));
+        in.close();
+        subscriber.get().onNext(buffer("b"));
+
+        assertThat(created).hasSize(2);
+        assertAllReleased();
+    }
+
+    @Test
+    void errorIsRethrownAsIsAfterTheDataBeforeIt() throws IOException {
+        WebClientResponseException tooMany = WebClientResponseException.create(429, "Too Many Requests", null, null, null);
+        Flux<DataBuffer> failing = body(2).concatWith(Flux.error(tooMany));
+
+        try (InputStream in = new DataBufferInputStream(failing, 4)) {
+            byte[] first = new byte[14];
+            assertThat(in.readNBytes(first, 0, 14)).isEqualTo(14);
+            assertThatThrownBy(in::read).isSameAs(tooMany);
+        }
+        assertAllReleased();
+    }
+
+    private Flux<DataBuffer> body(int chunks) {
+        return Flux.range(0, chunks).map(i -> buffer("chunk" + i + " "));
+    }
+
+    private DataBuffer buffer(String text) {
+        NettyDataBuffer b = factory.wrap(UnpooledByteBufAllocator.DEFAULT.directBuffer().writeBytes(
+                text.getBytes(StandardCharsets.UTF_8)));
+        created.add(b);
+        return b;
+    }
+
+    private void assertAllReleased() {
+        assertThat(created).allSatisfy(b -> assertThat(b.getNativeBuffer().refCnt()).isZero());
+    }
+}
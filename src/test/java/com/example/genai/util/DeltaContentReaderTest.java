@@ -0,0 +1,48 @@
+package com.example.genai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeltaContentReaderTest {
+
+    private final DeltaContentReader reader = new DeltaContentReader();
+
+    @Test
+    void readsDeltaContentAcrossEventsWithOneParser() {
+        assertThat(read("{\"id\":\"c1\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\"}}]}")).isNull();
+        assertThat(read("{\"choices\":[{\"delta\":{\"content\":\"Hé\"},\"logprobs\":null}],\"usage\":{\"x\":[1,{}]}}"))
+                .isEqualTo("Hé");
+        assertThat(read("{\"choices\":[{\"delta\":{\"content\":\"llo 🌍\"}},{\"delta\":{\"content\":\"ignored\"}}]}"))
+                .isEqualTo("llo 🌍");
+        assertThat(read("{\"choices\":[]}")).isNull();
+    }
+
+    @Test
+    void invalidEventIsSkippedAndTheNextOneStillParses() {
+        assertThat(read("{\"choices\":[{\"delta\":{\"content\":\"cut")).isNull();
+        assertThat(read("{\"choices\":[{\"delta\":{\"content\":\"a\"}}]} {}")).isNull();
+        assertThat(read("{\"choices\":[{\"delta\":{\"content\":\"ok\"}}]}")).isEqualTo("ok");
+    }
+
+    @Test
+    void readsFromTheMiddleOfAnArray() {
+        byte[] buf = "xx{\"choices\":[{\"delta\":{\"content\":\"mid\"}}]}yy".getBytes(StandardCharsets.UTF_8);
+        assertThat(reader.read(buf, 2, buf.length - 4)).isEqualTo("mid");
+    }
+
+    @Test
+    void recognizesDone() {
+        byte[] done = "  [DONE]".getBytes(StandardCharsets.UTF_8);
+        assertThat(DeltaContentReader.isDone(done, 2, 6)).isTrue();
+        assertThat(DeltaContentReader.isDone(done, 0, 8)).isFalse();
+        assertThat(DeltaContentReader.readOnce("{\"choices\":[{\"delta\":{\"content\":\"x\"}}]}")).isEqualTo("x");
+    }
+
+    private String read(String json) {
+        byte[] b = json.getBytes(StandardCharsets.UTF_8);
+        return reader.read(b, 0, b.length);
+    }
+}
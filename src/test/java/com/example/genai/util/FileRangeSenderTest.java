@@ -0,0 +1,151 @@
+package com.example.genai.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileRangeSenderTest {
+
+    private static final Instant MODIFIED = Instant.parse("2025-03-01T10:00:00Z");
+    private static final MediaType MP3 = MediaType.parseMediaType("audio/mpeg");
+
+    @TempDir
+    Path dir;
+
+    private Path file;
+    private String etag;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.writeString(dir.resolve("a.mp3"), "0123456789");
+        Files.setLastModifiedTime(file, FileTime.from(MODIFIED));
+        etag = FileRangeSender.etag(10, MODIFIED.toEpochMilli());
+    }
+
+    @Test
+    void wholeFileWithValidators() throws IOException {
+        MockHttpServletResponse res = send(get());
+
+        assertThat(res.getStatus()).isEqualTo(200);
+        assertThat(res.getContentAsString()).isEqualTo("0123456789");
+        assertThat(res.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+        assertThat(res.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(res.getContentLengthLong()).isEqualTo(10);
+    }
+
+    @Test
+    void singleRangeIsPartialContent() throws IOException {
+        MockHttpServletRequest req = get();
+        req.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        MockHttpServletResponse res = send(req);
+
+        assertThat(res.getStatus()).isEqualTo(206);
+        assertThat(res.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+        assertThat(res.getContentAsString()).isEqualTo("2345");
+
+        MockHttpServletRequest suffix = get();
+        suffix.addHeader(HttpHeaders.RANGE, "bytes=-3");
+        assertThat(send(suffix).getContentAsString()).isEqualTo("789");
+    }
+
+    @Test
+    void rangePastTheEndIsNotSatisfiable() throws IOException {
+        MockHttpServletRequest req = get();
+        req.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        MockHttpServletResponse res = send(req);
+
+        assertThat(res.getStatus()).isEqualTo(416);
+        assertThat(res.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+        assertThat(res.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void staleIfRangeGetsTheWholeFile() throws IOException {
+        MockHttpServletRequest req = get();
+        req.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        req.addHeader(HttpHeaders.IF_RANGE, "\"old\"");
+        MockHttpServletResponse res = send(req);
+
+        assertThat(res.getStatus()).isEqualTo(200);
+        assertThat(res.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void matchingIfNoneMatchIsNotModified() throws IOException {
+        MockHttpServletRequest req = get();
+        req.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse res = send(req);
+
+        assertThat(res.getStatus()).isEqualTo(304);
+        assertThat(res.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void ifMatchOfAnotherVersionFailsThePrecondition() throws IOException {
+        MockHttpServletRequest req = get();
+        req.addHeader(HttpHeaders.IF_MATCH, "\"other\", W/" + etag);
+        req.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        MockHttpServletResponse res = send(req);
+
+        assertThat(res.getStatus()).isEqualTo(412);
+        assertThat(res.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void ifMatchOfThisVersionIsServed() throws IOException {
+        MockHttpServletRequest req = get();
+        req.addHeader(HttpHeaders.IF_MATCH, "\"other\", " + etag);
+        req.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        assertThat(send(req).getStatus()).isEqualTo(206);
+
+        MockHttpServletRequest any = get();
+        any.addHeader(HttpHeaders.IF_MATCH, "*");
+        assertThat(send(any).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void modifiedSinceIfUnmodifiedSinceFailsThePrecondition() throws IOException {
+        MockHttpServletRequest before = get();
+        before.addHeader(HttpHeaders.IF_UNMODIFIED_SINCE, MODIFIED.minusSeconds(60).toEpochMilli());
+        assertThat(send(before).getStatus()).isEqualTo(412);
+
+        MockHttpServletRequest after = get();
+        after.addHeader(HttpHeaders.IF_UNMODIFIED_SINCE, MODIFIED.toEpochMilli());
+        assertThat(send(after).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void headSendsHeadersOnly() throws IOException {
+        MockHttpServletRequest req = new MockHttpServletRequest("HEAD", "/api/audio/1");
+        MockHttpServletResponse res = send(req);
+
+        assertThat(res.getStatus()).isEqualTo(200);
+        assertThat(res.getContentLengthLong()).isEqualTo(10);
+        assertThat(res.getContentAsByteArray()).isEmpty();
+    }
+
+    private static MockHttpServletRequest get() {
+        return new MockHttpServletRequest("GET", "/api/audio/1");
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        FileRangeSender.send(file, MP3, CacheControl.noCache(), request, response);
+        return response;
+    }
+}
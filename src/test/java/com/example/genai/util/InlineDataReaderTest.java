@@ -0,0 +1,204 @@
+package com.example.genai.util;
+
+import com.example.genai.audio.WavWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Surefire runs this class a second time under {@code -Xmx64m}, where holding a
+ * long narration's base64 or PCM whole would run out of heap.
+ */
+class InlineDataReaderTest {
+
+    /** Ten minutes of 24 kHz mono 16-bit audio: 28.8 MB of PCM, 38.4 MB of base64. */
+    private static final long TEN_MINUTES = 24_000L * 2 * 600;
+    /** PCM per network buffer; a multiple of 3, so each encodes to whole base64 quads (8 KB). */
+    private static final int CHUNK = 6144;
+
+    private final Random random = new Random(19);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void decodesTheAudioOfATypicalResponse() throws IOException {
+        byte[] pcm = randomBytes(4800);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long copied = InlineDataReader.copyInlineData(json(response(audioPart(pcm))), out);
+
+        assertThat(copied).isEqualTo(pcm.length);
+        assertThat(out.toByteArray()).isEqualTo(pcm);
+    }
+
+    @Test
+    void skipsATextPartBeforeTheAudio() throws IOException {
+        byte[] pcm = randomBytes(999);
+        String parts = "{\"text\":\"Here is the narration.\",\"thought\":false}," + audioPart(pcm);
+
+        assertThat(decode(json(response(parts)))).isEqualTo(pcm);
+    }
+
+    @Test
+    void findsTheFieldsInAnyOrder() throws IOException {
+        byte[] pcm = randomBytes(1001);
+        String data = Base64.getEncoder().encodeToString(pcm);
+        String body = "{\"usageMetadata\":{\"promptTokenCount\":12,\"details\":[{\"modality\":\"TEXT\"}]},"
+                + "\"candidates\":[{\"finishReason\":\"STOP\",\"safetyRatings\":[[1,2],{\"a\":{\"b\":[]}}],"
+                + "\"content\":{\"role\":\"model\",\"parts\":[{\"inlineData\":{\"data\":\"" + data + "\","
+                + "\"mimeType\":\"audio/L16;codec=pcm;rate=24000\"}}]},\"index\":0}],"
+                + "\"modelVersion\":\"gemini-2.5-flash-preview-tts\"}";
+
+        assertThat(decode(json(body))).isEqualTo(pcm);
+    }
+
+    @Test
+    void decodesBase64SplitAcrossReads() throws IOException {
+        // every length mod 3, so both padded and unpadded endings land on odd read boundaries
+        for (int length : new int[]{0, 1, 2, 3, 4, 5, 100, 8191, 8192, 8193, 65_537}) {
+            byte[] pcm = randomBytes(length);
+            byte[] body = response(audioPart(pcm)).getBytes(StandardCharsets.UTF_8);
+
+            assertThat(decode(new Trickle(body, random))).as("%d bytes", length).isEqualTo(pcm);
+        }
+    }
+
+    @Test
+    void missingAudioIsAnIllegalState() {
+        String noData = "{\"inlineData\":{\"mimeType\":\"audio/L16;rate=24000\"}}";
+        String nullData = "{\"inlineData\":{\"mimeType\":\"audio/L16;rate=24000\",\"data\":null}}";
+        String textOnly = "{\"text\":\"Sorry, I can't read that.\"}";
+
+        for (String body : new String[]{response(noData), response(nullData), response(textOnly),
+                "{\"candidates\":[]}", "{\"promptFeedback\":{\"blockReason\":\"SAFETY\"}}", "[]"}) {
+            assertThatThrownBy(() -> decode(json(body)))
+                    .as(body)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("No audio returned by Gemini");
+        }
+    }
+
+    @Test
+    void tenMinutesStreamFromTheBodyIntoAWavInAFixedHeap() throws IOException {
+        Path target = dir.resolve("narration.wav");
+
+        // what GeminiAudioService does with the WebClient body
+        try (WavWriter wav = WavWriter.create(target, 24000, 1, 16);
+             InputStream json = new DataBufferInputStream(body(TEN_MINUTES), 16)) {
+            assertThat(InlineDataReader.copyInlineData(json, wav.stream())).isEqualTo(TEN_MINUTES);
+            wav.finish();
+        }
+
+        assertThat(Files.size(target)).isEqualTo(WavWriter.HEADER_BYTES + TEN_MINUTES);
+        CRC32 expected = new CRC32();
+        byte[] chunk = new byte[CHUNK];
+        for (long off = 0; off < TEN_MINUTES; off += CHUNK) {
+            int n = (int) Math.min(CHUNK, TEN_MINUTES - off);
+            expected.update(pcm(off, chunk, n), 0, n);
+        }
+        try (InputStream file = Files.newInputStream(target);
+             CheckedInputStream in = new CheckedInputStream(file, new CRC32())) {
+            file.skipNBytes(WavWriter.HEADER_BYTES);
+            in.transferTo(OutputStream.nullOutputStream());
+            assertThat(in.getChecksum().getValue()).isEqualTo(expected.getValue());
+        }
+    }
+
+    // ---------- helpers ----------
+
+    /** A Gemini response carrying {@code bytes} of PCM, produced buffer by buffer as it is read. */
+    private static Flux<DataBuffer> body(long bytes) {
+        DefaultDataBufferFactory factory = DefaultDataBufferFactory.sharedInstance;
+        String[] around = response("{\"inlineData\":{\"mimeType\":\"audio/L16;codec=pcm;rate=24000\",\"data\":\"AUDIO\"}}")
+                .split("AUDIO");
+        Base64.Encoder base64 = Base64.getEncoder();
+        Flux<DataBuffer> audio = Flux.range(0, (int) ((bytes + CHUNK - 1) / CHUNK)).map(i -> {
+            long off = (long) i * CHUNK;
+            int n = (int) Math.min(CHUNK, bytes - off);
+            byte[] pcm = pcm(off, new byte[n], n);
+            return factory.wrap(base64.encode(pcm));
+        });
+        return Flux.concat(Flux.just(factory.wrap(around[0].getBytes(StandardCharsets.UTF_8))), audio,
+                Flux.defer(() -> Flux.just(factory.wrap(around[1].getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    /** Deterministic stand-in for speech: byte {@code off + i} of the audio. */
+    private static byte[] pcm(long off, byte[] into, int n) {
+        for (int i = 0; i < n; i++) {
+            long at = off + i;
+            into[i] = (byte) (at * 31 + (at >> 12));
+        }
+        return into;
+    }
+
+    private static String response(String parts) {
+        return "{\"candidates\":[{\"content\":{\"parts\":[" + parts + "],\"role\":\"model\"},\"finishReason\":\"STOP\"}],"
+                + "\"usageMetadata\":{\"promptTokenCount\":9}}";
+    }
+
+    private static String audioPart(byte[] pcm) {
+        return "{\"inlineData\":{\"mimeType\":\"audio/L16;codec=pcm;rate=24000\",\"data\":\""
+                + Base64.getEncoder().encodeToString(pcm) + "\"}}";
+    }
+
+    private static byte[] decode(InputStream json) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InlineDataReader.copyInlineData(json, out);
+        return out.toByteArray();
+    }
+
+    private static InputStream json(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private byte[] randomBytes(int n) {
+        byte[] b = new byte[n];
+        random.nextBytes(b);
+        return b;
+    }
+
+    /** Hands out 1–7 bytes per read, like a body arriving in small network buffers. */
+    private static final class Trickle extends InputStream {
+        private final byte[] body;
+        private final Random random;
+        private int position;
+
+        Trickle(byte[] body, Random random) {
+            this.body = body;
+            this.random = random;
+        }
+
+        @Override
+        public int read() {
+            return position < body.length ? body[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position == body.length) return -1;
+            int n = Math.min(Math.min(len, 1 + random.nextInt(7)), body.length - position);
+            System.arraycopy(body, position, b, off, n);
+            position += n;
+            return n;
+        }
+    }
+}
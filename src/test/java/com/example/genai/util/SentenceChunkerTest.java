@@ -0,0 +1,87 @@
+package com.example.genai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentenceChunkerTest {
+
+    @Test
+    void packsWholeSentencesUpToTheCap() {
+        String text = "The tower opened in 1889. It is 330 metres tall. Lifts run to the top. The view is wide.";
+
+        List<String> chunks = SentenceChunker.split(text, 60, 60);
+
+        assertThat(chunks).containsExactly(
+                "The tower opened in 1889. It is 330 metres tall.",
+                "Lifts run to the top. The view is wide.");
+        assertThat(String.join(" ", chunks)).isEqualTo(text);
+    }
+
+    @Test
+    void firstChunkIsCappedSeparately() {
+        String text = "Welcome. The old town sits on a hill above the river. Its walls date from the twelfth century.";
+
+        List<String> chunks = SentenceChunker.split(text, 20, 200);
+
+        assertThat(chunks).containsExactly("Welcome.",
+                "The old town sits on a hill above the river. Its walls date from the twelfth century.");
+    }
+
+    @Test
+    void longSentenceIsCutAfterACommaOrSpace() {
+        String text = "From the harbour you walk past the fish market, the customs house and the old chapel, "
+                + "then climb the stairs to the fortress that guarded the bay for three hundred years.";
+
+        List<String> chunks = SentenceChunker.split(text, 50, 50);
+
+        assertThat(chunks).allSatisfy(c -> assertThat(c.length()).isLessThanOrEqualTo(50));
+        assertThat(chunks.get(0)).isEqualTo("From the harbour you walk past the fish market,");
+        assertThat(chunks.subList(1, chunks.size())).allSatisfy(c -> assertThat(c).doesNotStartWith(" "));
+        assertThat(String.join(" ", chunks)).isEqualTo(text);
+    }
+
+    @Test
+    void textWithoutSpacesIsHardSplitAtTheCap() {
+        String text = "東京タワーは一九五八年に完成した電波塔で高さは三百三十三メートルあり展望台からは富士山も見える";
+
+        List<String> chunks = SentenceChunker.split(text, 10, 20);
+
+        assertThat(chunks.get(0)).hasSize(10);
+        assertThat(chunks).allSatisfy(c -> assertThat(c.length()).isLessThanOrEqualTo(20));
+        assertThat(String.join("", chunks)).isEqualTo(text);
+    }
+
+    @Test
+    void ideographicCommaIsACutPoint() {
+        String text = "浅草寺の雷門と五重塔、仲見世通りと伝法院、隅田川";
+
+        List<String> chunks = SentenceChunker.split(text, 12, 12);
+
+        assertThat(chunks).containsExactly("浅草寺の雷門と五重塔、", "仲見世通りと伝法院、", "隅田川");
+    }
+
+    @Test
+    void neverSplitsASurrogatePair() {
+        // 30 × U+1F5FC (Tokyo Tower): two chars each, no spaces or punctuation
+        String text = "🗼".repeat(30);
+
+        List<String> chunks = SentenceChunker.split(text, 7, 9);
+
+        assertThat(chunks).allSatisfy(c -> {
+            assertThat(c.length() % 2).isZero();
+            assertThat(Character.isHighSurrogate(c.charAt(0))).isTrue();
+            assertThat(Character.isLowSurrogate(c.charAt(c.length() - 1))).isTrue();
+        });
+        assertThat(chunks.get(0)).hasSize(6);
+        assertThat(String.join("", chunks)).isEqualTo(text);
+    }
+
+    @Test
+    void blankTextHasNoChunks() {
+        assertThat(SentenceChunker.split("  \n ", 10, 20)).isEmpty();
+        assertThat(SentenceChunker.split(null, 10, 20)).isEmpty();
+    }
+}
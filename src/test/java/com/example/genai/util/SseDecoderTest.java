@@ -0,0 +1,90 @@
+package com.example.genai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SseDecoderTest {
+
+    private static final String STREAM = ""
+            + ": keep-alive\n"
+            + "data: {\"a\":\"héllo 🌍\"}\r\n"
+            + "\r\n"
+            + "event: ping\r"
+            + "data:first\r"
+            + "data: second\r"
+            + "\r"
+            + "database: not a data field\n"
+            + "data\n"
+            + "\n"
+            + "data: [DONE]\n"
+            + "\n"
+            + "data: no blank line yet";
+
+    private static final List<String> EVENTS = List.of(
+            "{\"a\":\"héllo 🌍\"}", "first\nsecond", "", "[DONE]");
+
+    @Test
+    void decodesWholeStream() {
+        assertThat(decode(List.of(bytes(STREAM)))).isEqualTo(EVENTS);
+    }
+
+    @Test
+    void sameEventsWhereverTheBufferIsSplit() {
+        byte[] all = bytes(STREAM);
+        for (int cut = 0; cut <= all.length; cut++) {
+            List<byte[]> parts = List.of(slice(all, 0, cut), slice(all, cut, all.length));
+            // covers CR | LF, a UTF-8 sequence and the "data:" prefix cut in two
+            assertThat(decode(parts)).as("split at %d", cut).isEqualTo(EVENTS);
+        }
+    }
+
+    @Test
+    void sameEventsOneByteAtATime() {
+        byte[] all = bytes(STREAM);
+        List<byte[]> parts = new ArrayList<>();
+        for (int i = 0; i < all.length; i++) parts.add(slice(all, i, i + 1));
+        assertThat(decode(parts)).isEqualTo(EVENTS);
+    }
+
+    @Test
+    void leavesTheBufferPositionAlone() {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes("data: x\n\n"));
+        new SseDecoder().feed(buffer, (d, o, l) -> {});
+        assertThat(buffer.position()).isZero();
+    }
+
+    @Test
+    void longLineSplitAcrossBuffersGrowsTheLineBuffer() {
+        String payload = "x".repeat(5000);
+        byte[] all = bytes("data: " + payload + "\n\n");
+        List<byte[]> parts = new ArrayList<>();
+        for (int i = 0; i < all.length; i += 700) parts.add(slice(all, i, Math.min(all.length, i + 700)));
+        assertThat(decode(parts)).containsExactly(payload);
+    }
+
+    private static List<String> decode(List<byte[]> buffers) {
+        SseDecoder decoder = new SseDecoder();
+        List<String> events = new ArrayList<>();
+        for (byte[] b : buffers) {
+            decoder.feed(b, 0, b.length, (data, off, len) ->
+                    events.add(new String(data, off, len, StandardCharsets.UTF_8)));
+        }
+        return events;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] slice(byte[] b, int from, int to) {
+        byte[] out = new byte[to - from];
+        System.arraycopy(b, from, out, 0, out.length);
+        return out;
+    }
+}
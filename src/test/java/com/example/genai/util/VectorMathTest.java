@@ -0,0 +1,202 @@
+package com.example.genai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * SIMD kernels against the scalar loops. Surefire runs this class twice: once with
+ * {@code --add-modules jdk.incubator.vector} and once without, where {@link VectorMath}
+ * has to fall back to {@link ScalarKernels}.
+ */
+class VectorMathTest {
+
+    /** Covers every tail length for lanes up to 16 floats, plus embedding-sized inputs. */
+    private static final int[] LENGTHS = {0, 1, 3, 7, 8, 9, 15, 16, 17, 31, 33, 63, 65, 100, 383, 384, 1536};
+    /** Deliberately not a multiple of any vector width. */
+    private static final int OFFSET = 12;
+
+    private static final boolean VECTOR_MODULE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private final ScalarKernels scalar = new ScalarKernels();
+    private final Random random = new Random(7);
+
+    @Test
+    void picksTheImplementationTheModuleAllows() {
+        if (VECTOR_MODULE) {
+            assertThat(VectorMath.implementation()).startsWith("simd");
+        } else {
+            assertThat(VectorMath.implementation()).isEqualTo("scalar");
+        }
+    }
+
+    @Test
+    void floatDotsMatchScalar() {
+        Kernels simd = simd();
+        for (int n : LENGTHS) {
+            float[] a = randomFloats(n), b = randomFloats(n);
+            ByteBuffer va = floats(a), vb = floats(b);
+            float tolerance = tolerance(a, b);
+
+            float expected = scalar.dot(a, b, n);
+            assertThat(simd.dot(a, b, n)).as("arrays, n=%d", n).isCloseTo(expected, within(tolerance));
+            assertThat(simd.dot(a, vb, OFFSET, n)).as("buffer, n=%d", n).isCloseTo(expected, within(tolerance));
+            assertThat(simd.dot(va, OFFSET, vb, OFFSET, n)).as("two buffers, n=%d", n)
+                    .isCloseTo(expected, within(tolerance));
+            assertThat(simd.sumSquares(a)).as("sum of squares, n=%d", n)
+                    .isCloseTo(scalar.sumSquares(a), within(tolerance(a, a)));
+        }
+    }
+
+    @Test
+    void dotManyMatchesOneDotPerVector() {
+        Kernels simd = simd();
+        for (int n : new int[]{1, 9, 17, 384}) {
+            // an odd count exercises the single-vector remainder after the pairs
+            for (int count : new int[]{1, 2, 5}) {
+                float[] q = randomFloats(n);
+                float[][] vectors = new float[count][];
+                ByteBuffer v = ByteBuffer.allocate(OFFSET + count * n * Float.BYTES).order(ByteOrder.nativeOrder());
+                for (int j = 0; j < count; j++) {
+                    vectors[j] = randomFloats(n);
+                    for (int i = 0; i < n; i++) v.putFloat(OFFSET + (j * n + i) * Float.BYTES, vectors[j][i]);
+                }
+
+                float[] out = new float[count];
+                simd.dotMany(q, v, OFFSET, count, out);
+
+                for (int j = 0; j < count; j++) {
+                    assertThat(out[j]).as("n=%d, vector %d of %d", n, j, count)
+                            .isCloseTo(scalar.dot(q, vectors[j], n), within(tolerance(q, vectors[j])));
+                }
+            }
+        }
+    }
+
+    @Test
+    void int8DotsMatchScalar() {
+        Kernels simd = simd();
+        for (int n : LENGTHS) {
+            byte[] a = randomBytes(n), b = randomBytes(n);
+            // integer sums don't depend on the order: equal, not just close
+            assertThat(simd.dotInt8(a, b, n)).as("codes, n=%d", n).isEqualTo(scalar.dotInt8(a, b, n));
+
+            float[] q = randomFloats(n);
+            ByteBuffer codes = ByteBuffer.allocate(OFFSET + n).order(ByteOrder.nativeOrder());
+            float[] decoded = new float[n];
+            for (int i = 0; i < n; i++) {
+                codes.put(OFFSET + i, b[i]);
+                decoded[i] = b[i];
+            }
+            assertThat(simd.dotInt8(q, codes, OFFSET, n)).as("query, n=%d", n)
+                    .isCloseTo(scalar.dotInt8(q, codes, OFFSET, n), within(tolerance(q, decoded)));
+        }
+    }
+
+    @Test
+    void int8ExtremesDontOverflow() {
+        Kernels simd = simd();
+        int n = 1536;
+        byte[] a = new byte[n], b = new byte[n];
+        Arrays.fill(a, Byte.MIN_VALUE);
+        Arrays.fill(b, Byte.MIN_VALUE);
+
+        assertThat(simd.dotInt8(a, b, n)).isEqualTo(n * 128 * 128);
+        assertThat(scalar.dotInt8(a, b, n)).isEqualTo(n * 128 * 128);
+    }
+
+    @Test
+    void f16DotsMatchScalar() {
+        Kernels simd = simd();
+        for (int n : LENGTHS) {
+            float[] q = randomFloats(n), v = randomFloats(n);
+            ByteBuffer halfs = halfs(v);
+            float[] decoded = new float[n];
+            for (int i = 0; i < n; i++) decoded[i] = Float16.toFloat(halfs.getShort(OFFSET + i * 2));
+
+            assertThat(simd.dotF16(q, halfs, OFFSET, n)).as("n=%d", n)
+                    .isCloseTo(scalar.dotF16(q, halfs, OFFSET, n), within(tolerance(q, decoded)));
+        }
+    }
+
+    @Test
+    void f16SubnormalsAreWithinRoundingNoise() {
+        Kernels simd = simd();
+        int n = 67;
+        float[] q = randomFloats(n), v = randomFloats(n);
+        for (int i = 0; i < n; i += 3) v[i] = (i % 2 == 0 ? 1 : -1) * 0x1p-20f;  // subnormal as a half
+        ByteBuffer halfs = halfs(v);
+
+        assertThat(simd.dotF16(q, halfs, OFFSET, n)).isCloseTo(scalar.dotF16(q, halfs, OFFSET, n), within(1e-4f));
+    }
+
+    @Test
+    void float16RoundTripsEveryHalf() {
+        for (int bits = 0; bits <= 0xffff; bits++) {
+            short half = (short) bits;
+            float f = Float16.toFloat(half);
+            if (Float.isNaN(f)) continue;
+            assertThat(Float16.fromFloat(f)).as("0x%04x", bits).isEqualTo(half);
+        }
+    }
+
+    @Test
+    void float16RoundsToNearestEven() {
+        float one = 1f, ulp = 0x1p-10f;  // spacing of halves in [1, 2)
+
+        assertThat(Float16.toFloat(Float16.fromFloat(one + ulp / 2))).isEqualTo(one);              // tie, even stays
+        assertThat(Float16.toFloat(Float16.fromFloat(one + ulp * 1.5f))).isEqualTo(one + 2 * ulp); // tie, odd rounds up
+        assertThat(Float16.toFloat(Float16.fromFloat(one + ulp * 0.51f))).isEqualTo(one + ulp);
+        assertThat(Float16.toFloat(Float16.fromFloat(70000f))).isEqualTo(Float.POSITIVE_INFINITY);
+        assertThat(Float16.toFloat(Float16.fromFloat(-0x1p-26f))).isEqualTo(-0f);
+    }
+
+    /** The Vector API kernels, or the same fallback {@link VectorMath} uses when the module is missing. */
+    private Kernels simd() {
+        if (!VECTOR_MODULE) return new ScalarKernels();
+        try {
+            return (Kernels) Class.forName("com.example.genai.util.SimdKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            assumeTrue(false, "SimdKernels not loadable: " + e);
+            return null;
+        }
+    }
+
+    /** Reordered float sums differ by at most about n rounding errors of the largest partial sum. */
+    private static float tolerance(float[] a, float[] b) {
+        double magnitude = 0;
+        for (int i = 0; i < a.length; i++) magnitude += Math.abs(a[i] * b[i]);
+        return (float) (2 * (a.length + 1) * Math.ulp(1f) * magnitude) + Float.MIN_NORMAL;
+    }
+
+    private float[] randomFloats(int n) {
+        float[] a = new float[n];
+        for (int i = 0; i < n; i++) a[i] = (float) random.nextGaussian();
+        return a;
+    }
+
+    private byte[] randomBytes(int n) {
+        byte[] a = new byte[n];
+        random.nextBytes(a);
+        return a;
+    }
+
+    private static ByteBuffer floats(float[] a) {
+        ByteBuffer buffer = ByteBuffer.allocate(OFFSET + a.length * Float.BYTES).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < a.length; i++) buffer.putFloat(OFFSET + i * Float.BYTES, a[i]);
+        return buffer;
+    }
+
+    private static ByteBuffer halfs(float[] a) {
+        ByteBuffer buffer = ByteBuffer.allocate(OFFSET + a.length * 2).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < a.length; i++) buffer.putShort(OFFSET + i * 2, Float16.fromFloat(a[i]));
+        return buffer;
+    }
+}